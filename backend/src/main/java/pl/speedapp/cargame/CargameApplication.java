@@ -1,5 +1,6 @@
 package pl.speedapp.cargame;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -7,14 +8,21 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import pl.speedapp.cargame.common.ClusterRoutingInterceptor;
+import pl.speedapp.cargame.conditions.ClusterEnabled;
 import pl.speedapp.cargame.conditions.CorsDisabled;
+import pl.speedapp.cargame.engine.cluster.ClusterRegistry;
+import pl.speedapp.cargame.engine.cluster.LoopbackClusterRegistry;
+import pl.speedapp.cargame.service.ClusterService;
 import springfox.documentation.service.ApiInfo;
 import springfox.documentation.service.Contact;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.nio.file.Paths;
 import java.util.Collections;
 
 import static springfox.documentation.builders.PathSelectors.regex;
@@ -42,6 +50,24 @@ public class CargameApplication {
         };
     }
 
+    @Bean
+    @Conditional(ClusterEnabled.class)
+    public ClusterRegistry clusterRegistry(@Value("${cluster.registryDirectory}") String registryDirectory) {
+        return new LoopbackClusterRegistry(Paths.get(registryDirectory));
+    }
+
+    @Bean
+    @Conditional(ClusterEnabled.class)
+    public WebMvcConfigurer clusterRoutingConfigurer(ClusterService clusterService) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ClusterRoutingInterceptor(clusterService))
+                        .addPathPatterns(ClusterRoutingInterceptor.ROUTED_PATHS);
+            }
+        };
+    }
+
     @Bean
     public Docket api() {
         return new Docket(DocumentationType.SWAGGER_2)
@@ -1,19 +1,30 @@
 package pl.speedapp.cargame.api.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.annotations.Api;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pl.speedapp.cargame.api.filters.CarMovementsFilter;
 import pl.speedapp.cargame.api.model.*;
 import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.filter.MovementCursor;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 import pl.speedapp.cargame.service.CarService;
 import pl.speedapp.cargame.util.CarDtoUtil;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Api(tags = "Cars", value = "Car object controller", description = "Provides endpoints for cars management.")
@@ -22,10 +33,16 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/cars")
 public class CarController extends BaseController {
 
+    private static final int MAX_PAGE_SIZE = 10000;
+
     private CarService carService;
 
-    public CarController(CarService carService) {
+    private ObjectWriter moveWriter;
+
+    public CarController(CarService carService, ObjectMapper objectMapper) {
         this.carService = carService;
+        // moves are written one by one to the streamed response, output is flushed by the servlet buffer
+        this.moveWriter = objectMapper.writerFor(CarMoveEventDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @PostMapping
@@ -57,21 +74,71 @@ public class CarController extends BaseController {
                             .build());
         }
 
-        FiltersCarMovements searchFilters = FiltersCarMovements.builder().
-                carNames(filter.getCarNames())
-                .gameIDs(filter.getGameIDs())
-                .mapNames(filter.getMapNames())
-                .movementsLimit(filter.getMovementsLimit())
-                .build();
-
         return ResponseEntity.ok(ListResponseDto.<CarMoveEventDto>builder()
-                .data(carService.getCarMovements(searchFilters)
+                .data(carService.getCarMovements(toSearchFilters(filter))
                         .stream()
                         .map(CarDtoUtil::mapMoveEventToDto)
                         .collect(Collectors.toList()))
                 .build());
     }
 
+    /**
+     * Page of the car movements from the most recent one. The next page is requested with the cursor returned with the
+     * previous page, there is no cursor with the last page. Page size replaces the limit of the movements.
+     */
+    @GetMapping("/movements/page")
+    public ResponseEntity<PageResponseDto<CarMoveEventDto>> getCarMovementsPage(@Valid CarMovementsFilter filter, Errors errors,
+                                                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                                                @RequestParam(value = "pageSize", defaultValue = "100") int pageSize) {
+        if (errors.hasErrors()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(PageResponseDto.<CarMoveEventDto>builder()
+                            .error(prepareErrorDto(errors))
+                            .build());
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size has to be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<CarMoveEventView> page = carService.getCarMovementsPage(toSearchFilters(filter), toCursor(cursor), pageSize);
+        return ResponseEntity.ok(PageResponseDto.<CarMoveEventDto>builder()
+                .data(page.stream()
+                        .map(CarDtoUtil::mapMoveEventToDto)
+                        .collect(Collectors.toList()))
+                .nextCursor(page.size() == pageSize ? MovementCursor.of(page.get(page.size() - 1)).encode() : null)
+                .build());
+    }
+
+    /**
+     * Same car movements as {@link #getCarMovementsHistory(CarMovementsFilter, Errors)}, written to the response while
+     * they are read from the database, so all movements can be exported without holding them in memory. Cursor of the
+     * page makes the stream start after it.
+     */
+    @GetMapping("/movements/stream")
+    public ResponseEntity<StreamingResponseBody> streamCarMovements(@Valid CarMovementsFilter filter, Errors errors,
+                                                                    @RequestParam(value = "cursor", required = false) String cursor) {
+        if (errors.hasErrors()) {
+            throw new IllegalArgumentException(prepareErrorDto(errors).getMessage());
+        }
+        FiltersCarMovements searchFilters = toSearchFilters(filter);
+        MovementCursor after = toCursor(cursor);
+        carService.checkCarMovementsInDatabase();
+
+        StreamingResponseBody body = output -> {
+            // same layout as the list response, {"data":[...]}
+            try (JsonGenerator generator = moveWriter.getFactory().createGenerator(output)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("data");
+                carService.streamCarMovements(searchFilters, after, move -> writeMove(generator, move));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .body(body);
+    }
+
     @DeleteMapping("/{carName}")
     public ResponseEntity deleteCar(@PathVariable("carName") String carName) {
         log.debug("Delete car [{}]", carName);
@@ -128,4 +195,25 @@ public class CarController extends BaseController {
 
         return ResponseEntity.accepted().build();
     }
+
+    private void writeMove(JsonGenerator generator, CarMoveEventView move) {
+        try {
+            moveWriter.writeValue(generator, CarDtoUtil.mapMoveEventToDto(move));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write car movement to the response", e);
+        }
+    }
+
+    private static FiltersCarMovements toSearchFilters(CarMovementsFilter filter) {
+        return FiltersCarMovements.builder()
+                .carNames(filter.getCarNames())
+                .gameIDs(filter.getGameIDs())
+                .mapNames(filter.getMapNames())
+                .movementsLimit(filter.getMovementsLimit())
+                .build();
+    }
+
+    private static MovementCursor toCursor(String cursor) {
+        return Objects.nonNull(cursor) && !cursor.isEmpty() ? MovementCursor.decode(cursor) : null;
+    }
 }
@@ -0,0 +1,47 @@
+package pl.speedapp.cargame.api.controller;
+
+import io.swagger.annotations.Api;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.speedapp.cargame.api.model.ClusterNodeDto;
+import pl.speedapp.cargame.api.model.ListResponseDto;
+import pl.speedapp.cargame.service.ClusterService;
+import pl.speedapp.cargame.service.GameService;
+
+import java.util.stream.Collectors;
+
+@Api(tags = "Cluster", value = "Cluster controller", description = "Provides endpoints for the nodes of the cluster.")
+@Slf4j
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController extends BaseController {
+
+    private ClusterService clusterService;
+
+    private GameService gameService;
+
+    public ClusterController(ClusterService clusterService, GameService gameService) {
+        this.clusterService = clusterService;
+        this.gameService = gameService;
+    }
+
+    @GetMapping("/nodes")
+    public ResponseEntity<ListResponseDto<ClusterNodeDto>> getNodes() {
+        return ResponseEntity.ok(ListResponseDto.<ClusterNodeDto>builder()
+                .data(clusterService.getNodes().stream()
+                        .map(node -> ClusterNodeDto.builder().id(node.getId()).url(node.getUrl()).build())
+                        .collect(Collectors.toList()))
+                .build());
+    }
+
+    /**
+     * Start the game created by other node of the cluster on this node
+     */
+    @PostMapping("/games/{gameId}")
+    public ResponseEntity startGame(@PathVariable("gameId") Long gameId) {
+        log.debug("Start game [{}] assigned to this node", gameId);
+        gameService.startGame(gameId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -9,11 +9,14 @@ import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
 import pl.speedapp.cargame.api.model.*;
 import pl.speedapp.cargame.db.model.Game;
+import pl.speedapp.cargame.service.GameReplayService;
 import pl.speedapp.cargame.service.GameService;
 import pl.speedapp.cargame.util.GameDtoUtil;
 
 import javax.validation.Valid;
+import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
 
 @Api(tags = "Games", value = "Game object controller", description = "Provides endpoints for games management.")
 @Slf4j
@@ -23,12 +26,15 @@ public class GameController extends BaseController {
 
     private GameService gameService;
 
+    private GameReplayService gameReplayService;
+
     public enum GameStatusFilter {
         RUNNING, COMPLETED
     }
 
-    public GameController(GameService gameService) {
+    public GameController(GameService gameService, GameReplayService gameReplayService) {
         this.gameService = gameService;
+        this.gameReplayService = gameReplayService;
     }
 
     @PostMapping
@@ -94,4 +100,16 @@ public class GameController extends BaseController {
                 .build());
     }
 
+    /**
+     * Get cars of the running or finished game as they were at the given time, e.g. 2018-05-01T10:15:30.123Z, the game
+     * is replayed from its move journal. Without the time the latest state is returned.
+     */
+    @GetMapping("/{gameId}/state")
+    public ResponseEntity<SimpleResponseDto<GameStateDto>> getGameState(@PathVariable("gameId") Long gameId,
+                                                                        @RequestParam(value = "at", required = false) Instant time) {
+        return ResponseEntity.ok(SimpleResponseDto.<GameStateDto>builder()
+                .data(gameReplayService.getGameState(gameId, Objects.nonNull(time) ? time : Instant.now()))
+                .build());
+    }
+
 }
@@ -2,14 +2,15 @@ package pl.speedapp.cargame.api.controller;
 
 import io.swagger.annotations.Api;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import pl.speedapp.cargame.api.model.RunningGameDto;
 import pl.speedapp.cargame.api.model.SimpleResponseDto;
 import pl.speedapp.cargame.service.GameService;
+import pl.speedapp.cargame.service.RunningGameStreamService;
 
 @Api(tags = "Running game", value = "Running games controller", description = "Provides endpoints for running games management.")
 @Slf4j
@@ -19,14 +20,45 @@ public class RunningGameController extends BaseController {
 
     private GameService gameService;
 
-    public RunningGameController(GameService gameService) {
+    private RunningGameStreamService runningGameStreamService;
+
+    public RunningGameController(GameService gameService, RunningGameStreamService runningGameStreamService) {
         this.gameService = gameService;
+        this.runningGameStreamService = runningGameStreamService;
     }
 
+    /**
+     * Get state of the running game. ETag of the response is the state version of the game. With the current version
+     * in If-None-Match header or in 'since' parameter the response is 304, with older 'since' version only changed
+     * cars are returned.
+     */
     @GetMapping("/{gameId}")
-    public ResponseEntity<SimpleResponseDto<RunningGameDto>> getRunningGame(@PathVariable("gameId") Long gameId) {
-        return ResponseEntity.ok(SimpleResponseDto.<RunningGameDto>builder()
-                .data(gameService.getRunningGameDto(gameId))
-                .build());
+    public ResponseEntity<SimpleResponseDto<RunningGameDto>> getRunningGame(@PathVariable("gameId") Long gameId,
+                                                                            @RequestParam(value = "since", required = false) Long sinceVersion,
+                                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long version = gameService.getRunningGameVersion(gameId);
+        if (toETag(version).equals(ifNoneMatch) || Long.valueOf(version).equals(sinceVersion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(toETag(version)).build();
+        }
+
+        RunningGameDto runningGame = sinceVersion != null ?
+                gameService.getRunningGameChanges(gameId, sinceVersion) : gameService.getRunningGameDto(gameId);
+        return ResponseEntity.ok()
+                .eTag(toETag(runningGame.getVersion()))
+                .body(SimpleResponseDto.<RunningGameDto>builder()
+                        .data(runningGame)
+                        .build());
+    }
+
+    /**
+     * Server-sent events stream of the running game: snapshot of the game followed by changes of the cars
+     */
+    @GetMapping("/{gameId}/stream")
+    public SseEmitter streamRunningGame(@PathVariable("gameId") Long gameId) {
+        return runningGameStreamService.subscribe(gameId);
+    }
+
+    private static String toETag(long version) {
+        return "\"" + version + "\"";
     }
 }
@@ -0,0 +1,17 @@
+package pl.speedapp.cargame.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterNodeDto {
+
+    private String id;
+
+    private String url;
+}
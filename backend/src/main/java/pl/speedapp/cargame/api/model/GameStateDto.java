@@ -0,0 +1,26 @@
+package pl.speedapp.cargame.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GameStateDto {
+
+    private Long gameId;
+
+    // time of the state, the cars are placed as they were after all moves made until that time
+    private Instant time;
+
+    // number of the journaled changes of the grid until that time
+    private Integer moves;
+
+    private List<CarDto> cars;
+}
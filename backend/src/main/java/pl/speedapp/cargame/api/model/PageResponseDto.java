@@ -0,0 +1,28 @@
+package pl.speedapp.cargame.api.model;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class PageResponseDto<T> extends BaseResponseDto {
+
+    private List<T> data;
+
+    // passed back to get the next page, missing on the last page
+    private String nextCursor;
+
+    @Builder
+    public PageResponseDto(ErrorDto error, List<T> data, String nextCursor) {
+        super(error);
+        this.data = data;
+        this.nextCursor = nextCursor;
+    }
+}
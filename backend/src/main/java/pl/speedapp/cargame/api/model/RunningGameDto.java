@@ -1,5 +1,6 @@
 package pl.speedapp.cargame.api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -12,6 +13,15 @@ import java.util.List;
 @EqualsAndHashCode
 public class RunningGameDto {
 
+    // state version of the game, changed cars could be fetched with it later
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private List<CarDto> cars;
+
+    // names of the crashed and removed cars, only when changes since the given version are requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private List<String> removedCars;
 }
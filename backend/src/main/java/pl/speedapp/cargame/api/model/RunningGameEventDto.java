@@ -0,0 +1,26 @@
+package pl.speedapp.cargame.api.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+import pl.speedapp.cargame.engine.game.RunningGameEventType;
+
+/**
+ * Change of the single car in the running game, car holds its whole current status
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RunningGameEventDto {
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private RunningGameEventType type;
+
+    // state version of the game after the change
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private CarDto car;
+}
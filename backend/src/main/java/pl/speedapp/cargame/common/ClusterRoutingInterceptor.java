@@ -0,0 +1,118 @@
+package pl.speedapp.cargame.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import pl.speedapp.cargame.engine.cluster.ClusterNode;
+import pl.speedapp.cargame.service.ClusterService;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Passes requests of the game, or of the car used in the game, to the node of the cluster running the game. Response of
+ * that node is returned to the client as it is. Streams can't be passed as the single response, so the client is
+ * redirected to that node instead. Requests already passed by other node are always handled here.
+ */
+@Slf4j
+public class ClusterRoutingInterceptor implements HandlerInterceptor {
+
+    /**
+     * Paths handled by the node running the game
+     */
+    public static final String[] ROUTED_PATHS = {"/api/cars/*/forward", "/api/cars/*/left", "/api/cars/*/right",
+            "/api/cars/*/back", "/api/games/*/cars", "/api/games/*/cars/*", "/api/run/*", "/api/run/*/stream"};
+
+    // headers set by the HTTP connection itself, not passed between the nodes
+    private static final List<String> HOP_HEADERS = Arrays.asList(HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONNECTION);
+
+    private final ClusterService clusterService;
+
+    public ClusterRoutingInterceptor(ClusterService clusterService) {
+        this.clusterService = clusterService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (Objects.nonNull(request.getHeader(ClusterService.FORWARDED_HEADER))) {
+            return true;
+        }
+
+        Optional<ClusterNode> node = getRemoteNode(request);
+        if (!node.isPresent()) {
+            return true;
+        }
+
+        String pathAndQuery = request.getRequestURI() + (Objects.nonNull(request.getQueryString()) ? "?" + request.getQueryString() : "");
+        if (isStream(handler)) {
+            log.debug("Redirecting [{} {}] to the node [{}]", request.getMethod(), pathAndQuery, node.get().getId());
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, node.get().getUrl() + pathAndQuery);
+            return false;
+        }
+
+        log.debug("Passing [{} {}] to the node [{}]", request.getMethod(), pathAndQuery, node.get().getId());
+        ResponseEntity<byte[]> remoteResponse = clusterService.forward(node.get(), HttpMethod.resolve(request.getMethod()),
+                pathAndQuery, getHeaders(request), StreamUtils.copyToByteArray(request.getInputStream()));
+
+        response.setStatus(remoteResponse.getStatusCodeValue());
+        remoteResponse.getHeaders().forEach((name, values) -> {
+            if (HOP_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        if (Objects.nonNull(remoteResponse.getBody())) {
+            response.getOutputStream().write(remoteResponse.getBody());
+        }
+        return false;
+    }
+
+    private static boolean isStream(Object handler) {
+        return handler instanceof HandlerMethod &&
+                ResponseBodyEmitter.class.isAssignableFrom(((HandlerMethod) handler).getMethod().getReturnType());
+    }
+
+    private Optional<ClusterNode> getRemoteNode(HttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (Objects.isNull(variables)) {
+            return Optional.empty();
+        }
+
+        String gameId = variables.get("gameId");
+        if (Objects.nonNull(gameId)) {
+            try {
+                return clusterService.getRemoteNodeOfGame(Long.valueOf(gameId));
+            } catch (NumberFormatException e) {
+                // invalid id is rejected by the controller
+                return Optional.empty();
+            }
+        }
+
+        String carName = variables.get("carName");
+        return Objects.nonNull(carName) ? clusterService.getRemoteNodeOfCar(carName) : Optional.empty();
+    }
+
+    private HttpHeaders getHeaders(HttpServletRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        Collections.list(request.getHeaderNames()).stream()
+                .filter(name -> HOP_HEADERS.stream().noneMatch(name::equalsIgnoreCase))
+                .forEach(name -> headers.put(name, Collections.list(request.getHeaders(name))));
+        return headers;
+    }
+}
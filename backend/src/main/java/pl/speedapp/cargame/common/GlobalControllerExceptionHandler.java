@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import pl.speedapp.cargame.api.model.ErrorDto;
 import pl.speedapp.cargame.engine.exception.CarAlreadyStartedException;
+import pl.speedapp.cargame.engine.exception.CarCommandQueueFullException;
 import pl.speedapp.cargame.engine.exception.GameAlreadyRunning;
 import pl.speedapp.cargame.engine.exception.NoEmptyPositionsAvailableException;
 import pl.speedapp.cargame.engine.exception.PositionAlreadyTakenException;
@@ -40,6 +41,12 @@ public class GlobalControllerExceptionHandler {
                 .body(ErrorDto.builder().code(HttpStatus.FORBIDDEN.toString()).message(e.getMessage()).build());
     }
 
+    @ExceptionHandler(CarCommandQueueFullException.class)
+    public ResponseEntity<ErrorDto> handleCarCommandQueueFull(CarCommandQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(ErrorDto.builder().code(HttpStatus.TOO_MANY_REQUESTS.toString()).message(e.getMessage()).build());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorDto> handleIllegalArgumentExceptions(IllegalArgumentException e) {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
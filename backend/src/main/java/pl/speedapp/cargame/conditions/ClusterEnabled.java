@@ -0,0 +1,18 @@
+package pl.speedapp.cargame.conditions;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import static java.util.Objects.nonNull;
+
+public class ClusterEnabled implements Condition {
+    private static final String TRUE = "true";
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Environment env = context.getEnvironment();
+        return nonNull(env) && TRUE.equalsIgnoreCase(env.getProperty("cluster.enabled"));
+    }
+}
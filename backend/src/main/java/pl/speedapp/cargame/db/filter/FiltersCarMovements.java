@@ -17,6 +17,9 @@ public class FiltersCarMovements extends Filters {
 
     private Set<String> carNames;
 
+    // games skipped by the filter, e.g. read from other store
+    private Set<Long> excludedGameIDs;
+
     @Builder
     public FiltersCarMovements(Set<Long> gameIDs, Set<String> mapNames, Set<String> carNames, Integer movementsLimit) {
         super(movementsLimit);
@@ -25,12 +28,27 @@ public class FiltersCarMovements extends Filters {
         this.mapNames = mapNames;
     }
 
+    /**
+     * @return copy of the filter without the moves of the given games
+     */
+    public FiltersCarMovements withoutGames(Set<Long> gameIDs) {
+        FiltersCarMovements filters = new FiltersCarMovements(this.gameIDs, mapNames, carNames, getResultsLimit().orElse(null));
+        filters.excludedGameIDs = gameIDs;
+        return filters;
+    }
+
     public void gameIDs(Consumer<Set<Long>> consumer) {
         if (CollectionUtils.isNotEmpty(gameIDs)) {
             consumer.accept(gameIDs);
         }
     }
 
+    public void excludedGameIDs(Consumer<Set<Long>> consumer) {
+        if (CollectionUtils.isNotEmpty(excludedGameIDs)) {
+            consumer.accept(excludedGameIDs);
+        }
+    }
+
     public void mapNames(Consumer<Set<String>> consumer) {
         if (CollectionUtils.isNotEmpty(mapNames)) {
             consumer.accept(mapNames);
@@ -0,0 +1,55 @@
+package pl.speedapp.cargame.db.filter;
+
+import lombok.Value;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in the car movements sorted from the most recent one, by the event timestamp and the id. The next page
+ * starts right after the move with the given timestamp and id, so pages stay consistent while new moves are added.
+ * Clients get it as the opaque token.
+ */
+@Value
+public class MovementCursor {
+
+    // epoch second (long), nanos (int), id (long)
+    private static final int TOKEN_SIZE = 20;
+
+    private Timestamp eventTimestamp;
+
+    private Long id;
+
+    public static MovementCursor of(CarMoveEventView event) {
+        return new MovementCursor(Timestamp.from(event.getEventTimestamp().toInstant()), event.getId());
+    }
+
+    public String encode() {
+        Instant time = eventTimestamp.toInstant();
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_SIZE)
+                .putLong(time.getEpochSecond())
+                .putInt(time.getNano())
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not created by {@link #encode()}
+     */
+    public static MovementCursor decode(String token) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+        if (buffer.remaining() != TOKEN_SIZE) {
+            throw new IllegalArgumentException("Invalid cursor of the car movements: " + token);
+        }
+        try {
+            Instant time = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            return new MovementCursor(Timestamp.from(time), buffer.getLong());
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor of the car movements: " + token, e);
+        }
+    }
+}
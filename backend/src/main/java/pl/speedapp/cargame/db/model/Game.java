@@ -33,6 +33,9 @@ public class Game {
 
     private LocalDateTime finishedAt;
 
+    // moves of the closed game were moved from the car_move_event table to its archive
+    private boolean archived;
+
     @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinTable(name = "game_car",
             joinColumns = @JoinColumn(name = "game_id", nullable = false),
@@ -0,0 +1,45 @@
+package pl.speedapp.cargame.db.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Value;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+
+import java.util.Comparator;
+import java.util.Date;
+
+/**
+ * Car move with the columns of the car and the game needed by the history of the moves, selected by the single query
+ * instead of loading the move entities with their lazy car and game.
+ */
+@Value
+@Builder
+@AllArgsConstructor
+public class CarMoveEventView {
+
+    // order of the history, moves with the same timestamp by the id
+    public static final Comparator<CarMoveEventView> MOST_RECENT_FIRST = Comparator.comparing(CarMoveEventView::getEventTimestamp)
+            .thenComparing(CarMoveEventView::getId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .reversed();
+
+    // null for the moves read from the move journal
+    private Long id;
+
+    private Long carId;
+
+    private String carName;
+
+    private CarType carType;
+
+    private Long gameId;
+
+    private String gameName;
+
+    private CarMoveType eventType;
+
+    private Integer distance;
+
+    // selected as java.sql.Timestamp, declared as the type of the timestamp column in the query constructor
+    private Date eventTimestamp;
+}
@@ -6,5 +6,6 @@ import org.springframework.stereotype.Repository;
 import pl.speedapp.cargame.db.model.CarMoveEvent;
 
 @Repository
-public interface CarMoveEventRepository extends JpaRepository<CarMoveEvent, Long>, JpaSpecificationExecutor<CarMoveEvent> {
+public interface CarMoveEventRepository extends JpaRepository<CarMoveEvent, Long>, JpaSpecificationExecutor<CarMoveEvent>,
+        CarMoveEventRepositoryCustom {
 }
@@ -0,0 +1,30 @@
+package pl.speedapp.cargame.db.repository;
+
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.filter.MovementCursor;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * History of the car moves sorted from the most recent one by the event timestamp and the id. Moves are selected
+ * together with the columns of their cars and games by the single query, next pages are read with the keyset cursor.
+ */
+public interface CarMoveEventRepositoryCustom {
+
+    /**
+     * @param after - cursor of the last move of the previous page, null for the first page
+     * @param limit - max number of the moves, null for all of them
+     */
+    List<CarMoveEventView> findMoves(FiltersCarMovements filters, MovementCursor after, Integer limit);
+
+    /**
+     * Pass the moves to the consumer while they are read from the database cursor, so the memory doesn't grow with
+     * the number of moves. Has to be called in the transaction.
+     *
+     * @param after - cursor of the move before the first passed one, null to start from the most recent move
+     * @param limit - max number of the passed moves, null for all of them
+     */
+    void forEachMove(FiltersCarMovements filters, MovementCursor after, Integer limit, Consumer<CarMoveEventView> consumer);
+}
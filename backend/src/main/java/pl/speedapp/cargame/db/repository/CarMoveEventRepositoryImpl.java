@@ -0,0 +1,104 @@
+package pl.speedapp.cargame.db.repository;
+
+import org.hibernate.jpa.QueryHints;
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.filter.MovementCursor;
+import pl.speedapp.cargame.db.model.*;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class CarMoveEventRepositoryImpl implements CarMoveEventRepositoryCustom {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CarMoveEventView> findMoves(FiltersCarMovements filters, MovementCursor after, Integer limit) {
+        return createQuery(filters, after, limit).getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachMove(FiltersCarMovements filters, MovementCursor after, Integer limit, Consumer<CarMoveEventView> consumer) {
+        TypedQuery<CarMoveEventView> query = createQuery(filters, after, limit)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(QueryHints.HINT_READONLY, true);
+
+        // scrolled by the database cursor, the result list is never built and projections are not kept in the session
+        try (Stream<CarMoveEventView> moves = query.unwrap(org.hibernate.query.Query.class).stream()) {
+            moves.forEach(consumer);
+        }
+    }
+
+    /**
+     * select move, car, game from car_move_event join car join game [join game_map] where filters [and not excluded games]
+     * and not archived [and keyset]
+     * order by [game_id,] event_timestamp desc, id desc
+     */
+    private TypedQuery<CarMoveEventView> createQuery(FiltersCarMovements filters, MovementCursor after, Integer limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CarMoveEventView> query = cb.createQuery(CarMoveEventView.class);
+        Root<CarMoveEvent> root = query.from(CarMoveEvent.class);
+        Join<CarMoveEvent, Car> car = root.join(CarMoveEvent_.car);
+        Join<CarMoveEvent, Game> game = root.join(CarMoveEvent_.game);
+        Path<Timestamp> eventTimestamp = root.get(CarMoveEvent_.eventTimestamp);
+        Path<Long> id = root.get(CarMoveEvent_.id);
+
+        List<Predicate> where = new ArrayList<>();
+        // game id is compared on the move column, so the index of the moves is used
+        filters.gameIDs(gameIDs -> where.add(root.get(CarMoveEvent_.game).get(Game_.id).in(gameIDs)));
+        filters.excludedGameIDs(gameIDs -> where.add(cb.not(root.get(CarMoveEvent_.game).get(Game_.id).in(gameIDs))));
+        filters.carNames(carNames -> where.add(car.get(Car_.name).in(carNames)));
+        filters.mapNames(mapNames -> where.add(game.join(Game_.map).get(GameMap_.name).in(mapNames)));
+        // rows of the archived game could be still deleted from the table, its moves are read from the archive
+        where.add(cb.isFalse(game.get(Game_.archived)));
+        if (Objects.nonNull(after)) {
+            // the first condition is the range of the index, the second one skips the moves up to the cursor
+            where.add(cb.lessThanOrEqualTo(eventTimestamp, after.getEventTimestamp()));
+            where.add(cb.or(cb.lessThan(eventTimestamp, after.getEventTimestamp()),
+                    cb.and(cb.equal(eventTimestamp, after.getEventTimestamp()), cb.lessThan(id, after.getId()))));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        Set<Long> gameIDs = filters.getGameIDs();
+        if (Objects.nonNull(gameIDs) && gameIDs.size() == 1) {
+            // same order for the single game, H2 reads the page from the game index in that order instead of sorting
+            // all moves of the game
+            orders.add(cb.asc(root.get(CarMoveEvent_.game).get(Game_.id)));
+        }
+        orders.add(cb.desc(eventTimestamp));
+        orders.add(cb.desc(id));
+
+        query.select(cb.construct(CarMoveEventView.class,
+                id,
+                car.get(Car_.id),
+                car.get(Car_.name),
+                car.get(Car_.type),
+                game.get(Game_.id),
+                game.get(Game_.name),
+                root.get(CarMoveEvent_.eventType),
+                root.get(CarMoveEvent_.distance),
+                eventTimestamp))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(orders);
+
+        TypedQuery<CarMoveEventView> typedQuery = entityManager.createQuery(query);
+        if (Objects.nonNull(limit)) {
+            typedQuery.setMaxResults(limit);
+        }
+        return typedQuery;
+    }
+}
@@ -1,13 +1,35 @@
 package pl.speedapp.cargame.db.repository;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import pl.speedapp.cargame.db.enums.GameStatus;
 import pl.speedapp.cargame.db.model.Game;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface GameRepository extends JpaRepository<Game, Long> {
     List<Game> getGamesByStatusIn(GameStatus... gameStatuses);
+
+    /**
+     * Same as {@link #getGamesByStatusIn(GameStatus...)}, maps of the games are loaded at once
+     */
+    @EntityGraph(attributePaths = "map")
+    List<Game> findWithMapByStatusIn(GameStatus... gameStatuses);
+
+    @EntityGraph(attributePaths = "map")
+    Optional<Game> findWithMapById(Long id);
+
+    List<Game> findByMap_NameIn(Collection<String> mapNames);
+
+    /**
+     * Closed games which are not archived yet, closed before the given time
+     */
+    List<Game> findByStatusInAndArchivedFalseAndFinishedAtBefore(Collection<GameStatus> gameStatuses, LocalDateTime finishedAt);
+
+    List<Game> findByArchivedTrue();
 }
@@ -1,33 +1,34 @@
 package pl.speedapp.cargame.engine.car;
 
-import com.google.common.collect.Lists;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
-import pl.speedapp.cargame.db.enums.CarMoveType;
 import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.engine.exception.CarAlreadyStartedException;
 import pl.speedapp.cargame.engine.exception.CarMoveCommandException;
+import pl.speedapp.cargame.engine.game.GameSettings;
 import pl.speedapp.cargame.engine.grid.Grid;
 import pl.speedapp.cargame.engine.grid.commands.MoveForward;
-import pl.speedapp.cargame.engine.grid.commands.Rotate;
 import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
 import pl.speedapp.cargame.engine.grid.commands.TurnRight;
 import pl.speedapp.cargame.engine.grid.events.Event;
 import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed;
 import pl.speedapp.cargame.engine.grid.events.MovableObjectBackedInHistory;
 import pl.speedapp.cargame.engine.grid.events.MovableObjectHandleHistoryInProgress;
+import pl.speedapp.cargame.engine.queue.DrainTask;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
@@ -35,20 +36,55 @@ import static java.lang.Boolean.TRUE;
 @Slf4j
 @EqualsAndHashCode(of = "name")
 public class Car {
+
+    // max number of commands performed at once by the engine on the shared pool, before other cars get the thread
+    private static final int COMMAND_BATCH_SIZE = 64;
+
     @Getter
     private String name;
 
+    // slot of the car on the grid, assigned when the car is placed on the grid
+    @Getter
+    @Setter
+    private int slot = Grid.NO_SLOT;
+
     private Grid grid;
 
     @Getter
     private CarType type;
 
-    private BlockingQueue<CarCommand> commands;
+    private final CarCommandQueue commands;
 
     private Queue<List<Event>> eventBus;
 
     private final int backInHistoryDelay;
 
+    // shared timer passing the next steps of moving back in the history
+    private final ScheduledExecutorService timer;
+
+    // engine performs commands on the shared pool only while there are any, instead of the thread waiting for them
+    private final boolean sharedEngine;
+
+    // engine on the shared pool, null if the car has its own engine thread or no engine
+    private volatile DrainTask engineTask;
+
+    // receives commands of the car passed by the timer, the car itself by default
+    @Setter
+    private Consumer<CarCommand> commandSink;
+
+    // receives results of every move forward of the car, used only by the thread performing commands of the car
+    private final CarMoveSink moveSink;
+
+    // moving back in the history in progress, used only by the thread performing commands of the car
+    private HistoryRewind rewind;
+
+    // next step of the rewind waiting in the timer, cancelled when the car is stopped or crashed
+    private ScheduledFuture<?> nextStep;
+
+    // state of the rewind after its last step, published for the checkpoints of the game, null if there is no rewind
+    @Getter
+    private volatile RewindProgress rewindProgress;
+
     @Getter
     private AtomicBoolean started;
 
@@ -56,71 +92,52 @@ public class Car {
      * This variable indicates car status when it is during reverting back from history.
      */
     @Getter
-    private Boolean revertingFromHistoryInProgress;
+    private volatile Boolean revertingFromHistoryInProgress;
 
     {
-        commands = new PriorityBlockingQueue<>();
         started = new AtomicBoolean(false);
         revertingFromHistoryInProgress = FALSE;
     }
 
     public Car(String carName, CarType carType, Grid grid, Queue<List<Event>> eventBus, int backInHistoryDelay) {
+        this(carName, carType, grid, eventBus, GameSettings.builder().backInHistoryDelay(backInHistoryDelay).build());
+    }
+
+    public Car(String carName, CarType carType, Grid grid, Queue<List<Event>> eventBus, GameSettings settings) {
         this.name = carName;
         this.type = carType;
         this.grid = grid;
         this.eventBus = eventBus;
-        this.backInHistoryDelay = backInHistoryDelay;
+        this.backInHistoryDelay = settings.getBackInHistoryDelay();
+        this.timer = settings.getExecutors().getTimer();
+        this.sharedEngine = settings.getExecutors().isShared();
+        this.commands = new CarCommandQueue(carName, settings.getCommandQueueCapacity(), settings.getCommandOverflowPolicy());
+        this.commandSink = this::handle;
+        this.moveSink = new CarMoveSink(carName);
     }
 
+    /**
+     * Start the car with the engine performing its commands. On the shared pool the engine is submitted only when
+     * the car has commands, otherwise the engine thread waits for the commands.
+     */
     public void startEngine(ExecutorService executor) {
-        log.info("Starting car [{}] engine...", name);
-        if (started.get()) {
-            throw new CarAlreadyStartedException(name);
+        start();
+
+        if (sharedEngine) {
+            engineTask = new DrainTask("car-" + name, executor, this::performCommands, commands::isReady);
+            // commands could come before the engine
+            engineTask.signal();
+            return;
         }
-        started.set(true);
 
         executor.submit(() -> {
             while (true) {
                 try {
-                    CarCommand command = commands.poll(2000, TimeUnit.MILLISECONDS);
-
-                    if (Objects.nonNull(command) && Objects.nonNull(command.getType())) {
-                        List<Event> events = null;
-                        CarCommandType commandType = command.getType();
-
-                        log.debug("Car [{}] got task: {}", name, command);
-
-                        if (CarCommandType.MOVE_FORWARD.equals(commandType)) {
-                            Integer distance = command.getCommandProperties() == null ?
-                                    null : (Integer) command.getCommandProperties()
-                                    .getOrDefault(CarCommandProperty.DISTANCE, null);
-                            events = grid.handle(new MoveForward(name, distance));
-                        } else if (CarCommandType.TURN_LEFT.equals(commandType)) {
-                            events = Collections.singletonList(grid.handle(new TurnLeft(name)));
-                        } else if (CarCommandType.TURN_RIGHT.equals(commandType)) {
-                            events = Collections.singletonList(grid.handle(new TurnRight(name)));
-                        } else if (CarCommandType.BACK_IN_HISTORY.equals(commandType)) {
-                            events = handleBackInHistoryCommand(command);
-                        } else if (CarCommandType.STOP_ENGINE.equals(commandType)) {
-                            preformStopEngine();
-                            break;
-                        } else if (CarCommandType.DESTROY.equals(commandType)) {
-                            preformCrashedCar();
-                            break;
-                        }
-
-                        // send events to the Game
-                        if (CollectionUtils.isNotEmpty(events)) {
-                            eventBus.add(events);
-                        }
-
-                        log.debug("Car [{}] finished processing task: {}", name, commandType);
-
-                        // check if car has been crashed after performing the moves
-                        if (checkIfCarCrashed(events)) {
-                            preformCrashedCar();
-                            break;
-                        }
+                    // car waits without any wakeups, the game passes STOP_ENGINE when it is closed
+                    CarCommand command = commands.take();
+
+                    if (Objects.nonNull(command) && Objects.nonNull(command.getType()) && !process(command)) {
+                        break;
                     }
                 } catch (InterruptedException e) {
                     throw new CarMoveCommandException(name, e.getMessage());
@@ -131,81 +148,202 @@ public class Car {
         });
     }
 
-    public void handle(CarCommand command) {
-        commands.offer(command);
+    /**
+     * Perform waiting commands on the shared pool, at most a batch of them at once
+     *
+     * @return false if car has been stopped or crashed
+     */
+    private boolean performCommands() {
+        for (int i = 0; i < COMMAND_BATCH_SIZE; ++i) {
+            CarCommand command = commands.poll();
+            if (Objects.isNull(command)) {
+                return true;
+            }
+            if (Objects.nonNull(command.getType()) && !process(command)) {
+                log.info("Car [{}] stopped.", name);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Start the car without its own engine thread. Commands have to be passed directly to {@link #process(CarCommand)}
+     * by the owner of the car.
+     */
+    public void start() {
+        log.info("Starting car [{}] engine...", name);
+        if (started.get()) {
+            throw new CarAlreadyStartedException(name);
+        }
+        started.set(true);
+    }
+
+    /**
+     * Perform single command on the grid and send resulting events to the game.
+     *
+     * @param command - command to perform
+     * @return false if car has been stopped or crashed and should not perform any more commands
+     */
+    public boolean process(CarCommand command) {
+        List<Event> events = null;
+        boolean crashed = false;
+        CarCommandType commandType = command.getType();
+
+        log.debug("Car [{}] got task: {}", name, command);
+
+        if (CarCommandType.MOVE_FORWARD.equals(commandType)) {
+            Integer distance = command.getCommandProperties() == null ?
+                    null : (Integer) command.getCommandProperties()
+                    .getOrDefault(CarCommandProperty.DISTANCE, null);
+            moveSink.begin(slot, null);
+            grid.handle(new MoveForward(name, slot, distance), moveSink);
+            events = moveSink.getEvents();
+            crashed = moveSink.isCrashed();
+        } else if (CarCommandType.TURN_LEFT.equals(commandType)) {
+            events = Collections.singletonList(grid.handle(new TurnLeft(name, slot)));
+        } else if (CarCommandType.TURN_RIGHT.equals(commandType)) {
+            events = Collections.singletonList(grid.handle(new TurnRight(name, slot)));
+        } else if (CarCommandType.BACK_IN_HISTORY.equals(commandType)) {
+            events = startBackInHistory(command);
+            crashed = checkIfCarCrashed(events);
+        } else if (CarCommandType.HISTORY_STEP.equals(commandType)) {
+            events = stepBackInHistory();
+            crashed = checkIfCarCrashed(events);
+        } else if (CarCommandType.STOP_ENGINE.equals(commandType)) {
+            preformStopEngine();
+            return false;
+        } else if (CarCommandType.DESTROY.equals(commandType)) {
+            preformCrashedCar();
+            return false;
+        }
+
+        // send events to the Game
+        if (CollectionUtils.isNotEmpty(events)) {
+            eventBus.add(events);
+        }
+
+        log.debug("Car [{}] finished processing task: {}", name, commandType);
+
+        // check if car has been crashed after performing the moves
+        if (crashed) {
+            preformCrashedCar();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add command to the waiting commands of the car
+     *
+     * @return true if the car has to be scheduled by the game loop, see {@link CarCommandQueue#offer(CarCommand)}
+     * @throws pl.speedapp.cargame.engine.exception.CarCommandQueueFullException if car has too many waiting commands
+     */
+    public boolean handle(CarCommand command) {
+        boolean schedule = commands.offer(command);
+        DrainTask task = engineTask;
+        if (Objects.nonNull(task)) {
+            task.signal();
+        }
+        return schedule;
+    }
+
+    /**
+     * @return next waiting command, used by the game loop when the car has no own engine thread
+     */
+    public CarCommand nextCommand() {
+        return commands.poll();
+    }
+
+    /**
+     * @return true if the car has more waiting commands and should be scheduled again by the game loop
+     */
+    public boolean keepScheduled() {
+        return commands.keepScheduled();
+    }
+
+    public int getPendingCommandsCount() {
+        return commands.size();
     }
 
     private boolean checkIfCarCrashed(List<Event> events) {
-        return events.stream().anyMatch(e -> (e instanceof GridObjectDestroyed) && e.getObjectName().equals(name));
+        return CollectionUtils.isNotEmpty(events) && events.stream().anyMatch(e -> (e instanceof GridObjectDestroyed) && e.getObjectSlot() == slot && e.getObjectName().equals(name));
     }
 
     private void preformCrashedCar() {
         started.set(false);
+        cancelBackInHistory();
         log.info("Car [{}] has been CRASHED!", name);
     }
 
     private void preformStopEngine() {
         started.set(false);
+        cancelBackInHistory();
         log.info("Stopping car [{}] engine...", name);
     }
 
 
     /**
-     * Handle processing back in history command.
+     * Start moving back in the history. Commands of the car which are not urgent wait until all moves are done, the
+     * next move is passed by the shared timer after the delay, so no thread waits between the moves.
      *
      * @param command - car command included moves from the history
-     * @return - number of reverted historical moves
-     * @throws InterruptedException - if sth goes wrong with the Thread
+     * @return events of the moves if there was nothing to do, null otherwise
      */
-    private List<Event> handleBackInHistoryCommand(CarCommand command) {
-        List<Event> events = Lists.newArrayList();
-        List<CarHistoryMoveEvent> moves = (List<CarHistoryMoveEvent>) command.getCommandProperties().getOrDefault(CarCommandProperty.MOVES_HISTORY, Collections.emptyList());
-        boolean rotated = false;
-        boolean crashed = false;
-        int handledCounter = 0;
+    private List<Event> startBackInHistory(CarCommand command) {
+        RewindProgress progress = (RewindProgress) command.getCommandProperties().get(CarCommandProperty.REWIND_PROGRESS);
+        if (Objects.nonNull(progress)) {
+            // rewind restored from the checkpoint of the game
+            rewind = new HistoryRewind(name, slot, grid, moveSink, progress);
+        } else {
+            List<CarHistoryMoveEvent> moves = (List<CarHistoryMoveEvent>) command.getCommandProperties().getOrDefault(CarCommandProperty.MOVES_HISTORY, Collections.emptyList());
+            rewind = new HistoryRewind(name, slot, grid, moveSink, moves);
+        }
         revertingFromHistoryInProgress = TRUE;
+        commands.pause();
+        return stepBackInHistory();
+    }
 
-        try {
-            for (CarHistoryMoveEvent m : moves) {
-                log.debug("Car [{}] performing history event [{}] is [{}/{}]", command.getCarName(), m.getMoveType(), ++handledCounter, moves.size());
-                if (CarMoveType.FORWARD.equals(m.getMoveType())) {
-                    if (!rotated) {
-                        //rotate only if we receive first FORWARD command
-                        grid.handle(new Rotate(name));
-                        rotated = true;
-                        afterHistoricalMove();
-                    }
-                    events.addAll(grid.handle(new MoveForward(name, m.getDistance())));
-                } else if (CarMoveType.TURN_LEFT.equals(m.getMoveType())) {
-                    grid.handleReverse(new TurnLeft(name));
-                } else if (CarMoveType.TURN_RIGHT.equals(m.getMoveType())) {
-                    grid.handleReverse(new TurnRight(name));
-                }
-                afterHistoricalMove();
-
-                if (checkIfCarCrashed(events)) {
-                    crashed = true;
-                    break;
-                }
-            }
+    /**
+     * Perform the next move back in the history and schedule the following one
+     *
+     * @return events of the last moves and {@link MovableObjectBackedInHistory} after the last move, null otherwise
+     */
+    private List<Event> stepBackInHistory() {
+        if (Objects.isNull(rewind)) {
+            return null;
+        }
 
-            if (!crashed && rotated) {
-                grid.handle(new Rotate(name));
-                afterHistoricalMove();
-            }
-        } catch (InterruptedException e) {
-            revertingFromHistoryInProgress = FALSE;
-            throw new CarMoveCommandException(name, command.getType(), e.getMessage());
+        if (rewind.step() && !rewind.isCrashed()) {
+            rewindProgress = rewind.getProgress();
+            List<Event> events = rewind.takeEvents();
+            events.add(new MovableObjectHandleHistoryInProgress(name, slot));
+            eventBus.add(events);
+            CarCommand stepCommand = CarCommand.builder().carName(name).type(CarCommandType.HISTORY_STEP).build();
+            nextStep = timer.schedule(() -> commandSink.accept(stepCommand), backInHistoryDelay, TimeUnit.MILLISECONDS);
+            return null;
         }
 
-        events.add(new MovableObjectBackedInHistory(name, moves.size(), handledCounter));
+        List<Event> events = rewind.finish();
+        rewind = null;
+        nextStep = null;
+        rewindProgress = null;
         revertingFromHistoryInProgress = FALSE;
-
+        commands.resume();
         return events;
     }
 
-    private void afterHistoricalMove() throws InterruptedException {
-        eventBus.add(Collections.singletonList(new MovableObjectHandleHistoryInProgress(name)));
-        TimeUnit.MILLISECONDS.sleep(backInHistoryDelay);
+    private void cancelBackInHistory() {
+        if (Objects.nonNull(rewind)) {
+            log.info("Car [{}] stopped while moving back in the history.", name);
+            if (Objects.nonNull(nextStep)) {
+                nextStep.cancel(false);
+                nextStep = null;
+            }
+            rewind = null;
+            rewindProgress = null;
+            revertingFromHistoryInProgress = FALSE;
+            commands.resume();
+        }
     }
 }
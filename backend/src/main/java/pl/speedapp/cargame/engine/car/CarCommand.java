@@ -6,11 +6,14 @@ import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Getter
 @Builder
 @ToString
-public class CarCommand implements Comparable {
+public class CarCommand implements Comparable<CarCommand> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
 
     @NonNull
     private String carName;
@@ -18,13 +21,26 @@ public class CarCommand implements Comparable {
     @NonNull
     private CarCommandType type;
 
+    // commands with higher priority are performed first
     private int commandPriority;
 
     private Map<CarCommandProperty, Object> commandProperties;
 
+    // order of creation, commands with the same priority are performed in this order
+    @Builder.Default
+    private long sequence = SEQUENCE.incrementAndGet();
+
+    /**
+     * Urgent commands first, then commands with higher priority, then older commands
+     */
     @Override
-    public int compareTo(Object o) {
-        CarCommand cmd = (CarCommand) o;
-        return cmd.getCarName().equals(carName) ? commandPriority - cmd.getCommandPriority() : -1;
+    public int compareTo(CarCommand cmd) {
+        if (type.isUrgent() != cmd.getType().isUrgent()) {
+            return type.isUrgent() ? -1 : 1;
+        }
+        if (commandPriority != cmd.getCommandPriority()) {
+            return Integer.compare(cmd.getCommandPriority(), commandPriority);
+        }
+        return Long.compare(sequence, cmd.getSequence());
     }
 }
@@ -1,5 +1,5 @@
 package pl.speedapp.cargame.engine.car;
 
 public enum CarCommandProperty {
-    DISTANCE, MOVES_HISTORY
+    DISTANCE, MOVES_HISTORY, REWIND_PROGRESS
 }
@@ -0,0 +1,238 @@
+package pl.speedapp.cargame.engine.car;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.engine.exception.CarCommandQueueFullException;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Commands waiting for the single car. Urgent commands (see {@link CarCommandType#isUrgent()}) are taken first, then
+ * commands with higher priority, commands with the same priority are taken in order of arrival. Number of waiting
+ * commands which are not urgent is bounded, {@link CommandOverflowPolicy} decides what happens when it is reached.
+ * <p>
+ * Queue also tracks if the car is scheduled by the game loop, so the car is passed to the loop only once, no matter
+ * how many commands are waiting for it. Paused queue passes only urgent commands, e.g. while the car is moving back
+ * in the history.
+ */
+@Slf4j
+public class CarCommandQueue {
+
+    public static final int DEFAULT_CAPACITY = 100;
+
+    private final String carName;
+
+    @Getter
+    private final int capacity;
+
+    @Getter
+    private final CommandOverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock;
+
+    private final Condition notEmpty;
+
+    private final ArrayDeque<CarCommand> urgentCommands;
+
+    // key: priority, highest first, value: commands of the priority in order of arrival
+    private final TreeMap<Integer, ArrayDeque<CarCommand>> commandsByPriority;
+
+    // number of waiting commands which are not urgent
+    private int regularCount;
+
+    // true if the car has been passed to the game loop and not released yet
+    private boolean scheduled;
+
+    // true if only urgent commands can be taken
+    private boolean paused;
+
+    public CarCommandQueue(String carName, int capacity, CommandOverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Car command queue capacity must be greater than 0, got " + capacity);
+        }
+        this.carName = carName;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.urgentCommands = new ArrayDeque<>();
+        this.commandsByPriority = new TreeMap<>(Comparator.reverseOrder());
+    }
+
+    /**
+     * Add the command, if the queue is full apply the overflow policy
+     *
+     * @return true if the car has to be scheduled, i.e. it was not scheduled before
+     * @throws CarCommandQueueFullException if the queue is full and the overflow policy is REJECT
+     */
+    public boolean offer(CarCommand command) {
+        lock.lock();
+        try {
+            if (command.getType().isUrgent()) {
+                urgentCommands.add(command);
+            } else {
+                if (regularCount >= capacity) {
+                    if (CommandOverflowPolicy.REJECT.equals(overflowPolicy)) {
+                        throw new CarCommandQueueFullException(carName, capacity);
+                    }
+                    dropOldest();
+                }
+                commandsByPriority.computeIfAbsent(command.getCommandPriority(), priority -> new ArrayDeque<>()).add(command);
+                ++regularCount;
+            }
+            notEmpty.signal();
+
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return next command or null if there is no waiting command
+     */
+    public CarCommand poll() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return next command or null if there is no waiting command after the timeout
+     */
+    public CarCommand poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            CarCommand command;
+            while ((command = next()) == null) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return command;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return next command, waits until there is any
+     */
+    public CarCommand take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            CarCommand command;
+            while ((command = next()) == null) {
+                notEmpty.await();
+            }
+            return command;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called by the game loop after the command of the scheduled car has been performed
+     *
+     * @return true if the car has more waiting commands and stays scheduled, false if it has been released
+     */
+    public boolean keepScheduled() {
+        lock.lock();
+        try {
+            scheduled = hasNext();
+            return scheduled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if there is a command which can be taken now, paused queue holds commands which are not urgent
+     */
+    public boolean isReady() {
+        lock.lock();
+        try {
+            return hasNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hold the commands which are not urgent until {@link #resume()}
+     */
+    public void pause() {
+        lock.lock();
+        try {
+            paused = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resume() {
+        lock.lock();
+        try {
+            paused = false;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return urgentCommands.size() + regularCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasNext() {
+        return !urgentCommands.isEmpty() || (!paused && regularCount > 0);
+    }
+
+    private CarCommand next() {
+        CarCommand command = urgentCommands.poll();
+        if (command != null || paused || regularCount == 0) {
+            return command;
+        }
+        for (ArrayDeque<CarCommand> commands : commandsByPriority.values()) {
+            command = commands.poll();
+            if (command != null) {
+                --regularCount;
+                return command;
+            }
+        }
+        return null;
+    }
+
+    private void dropOldest() {
+        ArrayDeque<CarCommand> oldest = null;
+        for (ArrayDeque<CarCommand> commands : commandsByPriority.values()) {
+            if (!commands.isEmpty() && (oldest == null || commands.peek().getSequence() < oldest.peek().getSequence())) {
+                oldest = commands;
+            }
+        }
+        if (oldest != null) {
+            log.debug("Too many commands waiting for car [{}], dropping the oldest one: {}", carName, oldest.peek());
+            oldest.poll();
+            --regularCount;
+        }
+    }
+}
@@ -2,5 +2,17 @@ package pl.speedapp.cargame.engine.car;
 
 public enum CarCommandType {
 
-    MOVE_FORWARD, TURN_LEFT, TURN_RIGHT, STOP_ENGINE, BACK_IN_HISTORY, DESTROY
+    MOVE_FORWARD, TURN_LEFT, TURN_RIGHT, STOP_ENGINE, BACK_IN_HISTORY, DESTROY,
+
+    /**
+     * Next move back in the history, passed by the timer to the car which is moving back in the history
+     */
+    HISTORY_STEP;
+
+    /**
+     * @return true if command has to be performed before all commands waiting for the car, regardless of priority
+     */
+    public boolean isUrgent() {
+        return STOP_ENGINE.equals(this) || DESTROY.equals(this) || HISTORY_STEP.equals(this);
+    }
 }
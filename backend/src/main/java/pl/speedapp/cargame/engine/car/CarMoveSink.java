@@ -0,0 +1,81 @@
+package pl.speedapp.cargame.engine.car;
+
+import pl.speedapp.cargame.engine.grid.events.Event;
+import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed;
+import pl.speedapp.cargame.engine.grid.events.MovableObjectMoved;
+import pl.speedapp.cargame.engine.grid.events.MoveEventSink;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink reused for every move forward of the single car, used only by the thread performing commands of the car. The
+ * move allocates only the events passed to the game, and the crash of the car is found by its slot, without
+ * searching the events.
+ */
+class CarMoveSink implements MoveEventSink {
+
+    // events of the car usually fit the list without resizing: the move and the crash of one or two cars
+    private static final int EVENTS_CAPACITY = 3;
+
+    private final String name;
+
+    private int slot;
+
+    private List<Event> events;
+
+    private boolean crashed;
+
+    CarMoveSink(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Prepare the sink for the next move of the car
+     *
+     * @param slot   - current slot of the car
+     * @param events - list receiving the events, new list is created for the first event if null
+     */
+    void begin(int slot, List<Event> events) {
+        this.slot = slot;
+        this.events = events;
+        this.crashed = false;
+    }
+
+    /**
+     * @return events of the move, null if the move produced no events and no list was given
+     */
+    List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return true if the car has been destroyed by the move
+     */
+    boolean isCrashed() {
+        return crashed;
+    }
+
+    @Override
+    public void moved(String objectName, int objectSlot, int sourcePosition, int targetPosition, Direction direction) {
+        add(new MovableObjectMoved(objectName, objectSlot, Position.unpackX(sourcePosition), Position.unpackY(sourcePosition),
+                Position.unpackX(targetPosition), Position.unpackY(targetPosition), direction));
+    }
+
+    @Override
+    public void destroyed(String objectName, int objectSlot, int position, Direction direction) {
+        if (objectSlot == slot && objectName.equals(name)) {
+            crashed = true;
+        }
+        add(new GridObjectDestroyed(objectName, objectSlot, Position.unpackX(position), Position.unpackY(position), direction));
+    }
+
+    private void add(Event event) {
+        if (events == null) {
+            events = new ArrayList<>(EVENTS_CAPACITY);
+        }
+        events.add(event);
+    }
+}
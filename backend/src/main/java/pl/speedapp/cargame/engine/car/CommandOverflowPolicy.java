@@ -0,0 +1,18 @@
+package pl.speedapp.cargame.engine.car;
+
+/**
+ * What happens with the new command when the car has already max number of waiting commands. Urgent commands
+ * (see {@link CarCommandType#isUrgent()}) are always accepted.
+ */
+public enum CommandOverflowPolicy {
+
+    /**
+     * The oldest waiting command of the car is dropped to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new command is rejected, client gets 429 Too Many Requests
+     */
+    REJECT
+}
@@ -0,0 +1,152 @@
+package pl.speedapp.cargame.engine.car;
+
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
+import pl.speedapp.cargame.engine.grid.commands.TurnRight;
+import pl.speedapp.cargame.engine.grid.events.Event;
+import pl.speedapp.cargame.engine.grid.events.MovableObjectBackedInHistory;
+import pl.speedapp.cargame.engine.grid.events.MovableObjectRotated;
+import pl.speedapp.cargame.engine.grid.events.MovableObjectTurned;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves the car back in the history one step at a time. Every step performs single action on the grid, the car is
+ * rotated before the first FORWARD move and rotated back after the last move, unless it has been crashed. Owner
+ * performs steps with the delay between them and passes the events of every step to the game, so the moves are
+ * journaled in the order they are made on the grid.
+ */
+@Slf4j
+class HistoryRewind {
+
+    private final String name;
+
+    private final int slot;
+
+    private final Grid grid;
+
+    // reused sink of the car, moves forward pass their events straight to the events of the rewind
+    private final CarMoveSink moveSink;
+
+    private final List<CarHistoryMoveEvent> moves;
+
+    // events of the performed actions, not yet taken by the owner
+    private List<Event> events;
+
+    // number of the performed moves
+    private int handledCounter;
+
+    private boolean rotated;
+
+    private boolean rotatedBack;
+
+    private boolean crashed;
+
+    HistoryRewind(String name, int slot, Grid grid, CarMoveSink moveSink, List<CarHistoryMoveEvent> moves) {
+        this.name = name;
+        this.slot = slot;
+        this.grid = grid;
+        this.moveSink = moveSink;
+        this.moves = moves;
+        this.events = new ArrayList<>();
+    }
+
+    /**
+     * Continue moving back in the history from the given progress, e.g. after the game has been restored
+     */
+    HistoryRewind(String name, int slot, Grid grid, CarMoveSink moveSink, RewindProgress progress) {
+        this(name, slot, grid, moveSink, progress.getMoves());
+        this.handledCounter = progress.getHandledCounter();
+        this.rotated = progress.isRotated();
+        this.rotatedBack = progress.isRotatedBack();
+    }
+
+    /**
+     * Perform next action on the grid
+     *
+     * @return false if there was nothing left to do and {@link #finish()} can be called
+     */
+    boolean step() {
+        if (!crashed && handledCounter < moves.size()) {
+            CarHistoryMoveEvent move = moves.get(handledCounter);
+            if (CarMoveType.FORWARD.equals(move.getMoveType()) && !rotated) {
+                // rotate only if we receive first FORWARD command
+                addDirection(grid.handle(new Rotate(name, slot)));
+                rotated = true;
+                return true;
+            }
+
+            log.debug("Car [{}] performing history event [{}] is [{}/{}]", name, move.getMoveType(), ++handledCounter, moves.size());
+            if (CarMoveType.FORWARD.equals(move.getMoveType())) {
+                moveSink.begin(slot, events);
+                grid.handle(new MoveForward(name, slot, move.getDistance()), moveSink);
+                crashed = moveSink.isCrashed();
+            } else if (CarMoveType.TURN_LEFT.equals(move.getMoveType())) {
+                addDirection(grid.handleReverse(new TurnLeft(name, slot)));
+            } else if (CarMoveType.TURN_RIGHT.equals(move.getMoveType())) {
+                addDirection(grid.handleReverse(new TurnRight(name, slot)));
+            }
+            return true;
+        }
+
+        if (rotated && !crashed && !rotatedBack) {
+            addDirection(grid.handle(new Rotate(name, slot)));
+            rotatedBack = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the car has been crashed by the last move, there is nothing more to do and no reason to wait
+     */
+    boolean isCrashed() {
+        return crashed;
+    }
+
+    /**
+     * @return current state of the rewind, events of the performed actions are not included
+     */
+    RewindProgress getProgress() {
+        return RewindProgress.builder()
+                .moves(moves)
+                .handledCounter(handledCounter)
+                .rotated(rotated)
+                .rotatedBack(rotatedBack)
+                .build();
+    }
+
+    /**
+     * @return events of the actions performed since the previous call
+     */
+    List<Event> takeEvents() {
+        List<Event> taken = events;
+        events = new ArrayList<>();
+        return taken;
+    }
+
+    /**
+     * @return events of the actions not taken yet followed by {@link MovableObjectBackedInHistory}
+     */
+    List<Event> finish() {
+        List<Event> taken = takeEvents();
+        taken.add(new MovableObjectBackedInHistory(name, slot, moves.size(), handledCounter));
+        return taken;
+    }
+
+    /**
+     * Rotation or reversed turn is not the move of the car, only its new direction is passed to the game
+     */
+    private void addDirection(Event event) {
+        if (event instanceof MovableObjectRotated) {
+            events.add(event);
+        } else if (event instanceof MovableObjectTurned) {
+            events.add(new MovableObjectRotated(name, slot, ((MovableObjectTurned) event).getDirection()));
+        }
+    }
+}
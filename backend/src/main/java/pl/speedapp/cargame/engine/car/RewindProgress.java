@@ -0,0 +1,23 @@
+package pl.speedapp.cargame.engine.car;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Immutable state of moving back in the history, so the rewind can be continued after the game has been restored
+ */
+@Value
+@Builder
+public class RewindProgress {
+
+    private List<CarHistoryMoveEvent> moves;
+
+    // number of the performed moves
+    private int handledCounter;
+
+    private boolean rotated;
+
+    private boolean rotatedBack;
+}
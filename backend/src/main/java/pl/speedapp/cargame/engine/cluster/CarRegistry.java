@@ -0,0 +1,29 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import java.util.Optional;
+
+/**
+ * Keeps the game of each car which is being used in any running game. Car can be registered only in one game at the
+ * same time, also when games run on different nodes.
+ */
+public interface CarRegistry {
+
+    /**
+     * @return id of the game in which the car is being used
+     */
+    Optional<Long> getGameId(String carName);
+
+    /**
+     * Register the car in the game, if it is not used in any game yet
+     *
+     * @return false if the car is already registered in any game
+     */
+    boolean register(String carName, Long gameId);
+
+    /**
+     * Remove the car from the registry, only if it is still registered in the given game
+     *
+     * @return true if the car has been removed
+     */
+    boolean unregister(String carName, Long gameId);
+}
@@ -0,0 +1,16 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import lombok.Value;
+
+/**
+ * Single node of the cluster running the games
+ */
+@Value
+public class ClusterNode {
+
+    // unique id of the node
+    private String id;
+
+    // base URL of the node API, e.g. http://127.0.0.1:8888
+    private String url;
+}
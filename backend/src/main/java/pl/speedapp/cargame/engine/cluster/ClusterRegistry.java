@@ -0,0 +1,31 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registry shared by all nodes of the cluster: nodes which are alive, node running each game and the game of each car
+ */
+public interface ClusterRegistry extends CarRegistry {
+
+    void join(ClusterNode node);
+
+    void leave(ClusterNode node);
+
+    /**
+     * @return nodes of the cluster ordered by id
+     */
+    List<ClusterNode> getNodes();
+
+    /**
+     * Record the node running the game, so the game stays there when other nodes join or leave the cluster
+     */
+    void assignGame(Long gameId, String nodeId);
+
+    /**
+     * @return id of the node running the game
+     */
+    Optional<String> getGameNode(Long gameId);
+
+    void releaseGame(Long gameId);
+}
@@ -0,0 +1,48 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assigns games to the nodes by consistent hashing of the game id. Each node is placed on the ring many times (virtual
+ * nodes), so the games are spread evenly and only the games of the joining or leaving node change the owner.
+ */
+public class ConsistentHashRing {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private final List<ClusterNode> nodes;
+
+    // key: position on the ring, value: node
+    private final TreeMap<Integer, ClusterNode> ring;
+
+    public ConsistentHashRing(List<ClusterNode> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        this.nodes = nodes;
+        this.ring = new TreeMap<>();
+        for (ClusterNode node : nodes) {
+            for (int i = 0; i < virtualNodes; ++i) {
+                ring.put(HASH_FUNCTION.hashString(node.getId() + "#" + i, StandardCharsets.UTF_8).asInt(), node);
+            }
+        }
+    }
+
+    /**
+     * @return node owning the game, the first node on the ring after the hash of the game id
+     */
+    public ClusterNode getOwner(long gameId) {
+        Map.Entry<Integer, ClusterNode> entry = ring.ceilingEntry(HASH_FUNCTION.hashLong(gameId).asInt());
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public List<ClusterNode> getNodes() {
+        return nodes;
+    }
+}
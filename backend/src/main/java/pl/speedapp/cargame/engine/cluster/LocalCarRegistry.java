@@ -0,0 +1,29 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the cars used by the games of the single node
+ */
+public class LocalCarRegistry implements CarRegistry {
+
+    // key: car name, value: game id
+    private final ConcurrentMap<String, Long> carsInGames = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Long> getGameId(String carName) {
+        return Optional.ofNullable(carsInGames.get(carName));
+    }
+
+    @Override
+    public boolean register(String carName, Long gameId) {
+        return carsInGames.putIfAbsent(carName, gameId) == null;
+    }
+
+    @Override
+    public boolean unregister(String carName, Long gameId) {
+        return carsInGames.remove(carName, gameId);
+    }
+}
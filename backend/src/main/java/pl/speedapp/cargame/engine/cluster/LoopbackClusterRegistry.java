@@ -0,0 +1,180 @@
+package pl.speedapp.cargame.engine.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Cluster registry kept in the directory shared by all nodes running on the same machine, so several JVMs can work
+ * together without any outside service. Each entry is the single file, e.g. car file holds the id of its game. Entry
+ * is created with the hard link of the complete temporary file, so it appears atomically and only once.
+ * <p>
+ * Every lookup reads the file, so it is meant for the local tests of the cluster, not for the production traffic.
+ */
+@Slf4j
+public class LoopbackClusterRegistry implements ClusterRegistry {
+
+    private static final String ENCODING = StandardCharsets.UTF_8.name();
+
+    // prefix of the entry files, so no encoded name is a special path like ".."
+    private static final String ENTRY_PREFIX = "e-";
+
+    private final Path nodesDirectory;
+
+    private final Path gamesDirectory;
+
+    private final Path carsDirectory;
+
+    private final Path tempDirectory;
+
+    public LoopbackClusterRegistry(Path directory) {
+        this.nodesDirectory = directory.resolve("nodes");
+        this.gamesDirectory = directory.resolve("games");
+        this.carsDirectory = directory.resolve("cars");
+        this.tempDirectory = directory.resolve("tmp");
+        try {
+            Files.createDirectories(nodesDirectory);
+            Files.createDirectories(gamesDirectory);
+            Files.createDirectories(carsDirectory);
+            Files.createDirectories(tempDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cluster registry in " + directory, e);
+        }
+        log.info("Cluster registry kept in [{}]", directory.toAbsolutePath());
+    }
+
+    @Override
+    public void join(ClusterNode node) {
+        write(entry(nodesDirectory, node.getId()), node.getUrl());
+    }
+
+    @Override
+    public void leave(ClusterNode node) {
+        delete(entry(nodesDirectory, node.getId()));
+    }
+
+    @Override
+    public List<ClusterNode> getNodes() {
+        List<ClusterNode> nodes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(nodesDirectory)) {
+            files.forEach(file -> read(file).ifPresent(url -> nodes.add(new ClusterNode(name(file), url))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cluster nodes", e);
+        }
+        nodes.sort(Comparator.comparing(ClusterNode::getId));
+        return nodes;
+    }
+
+    @Override
+    public void assignGame(Long gameId, String nodeId) {
+        write(entry(gamesDirectory, gameId.toString()), nodeId);
+    }
+
+    @Override
+    public Optional<String> getGameNode(Long gameId) {
+        return read(entry(gamesDirectory, gameId.toString()));
+    }
+
+    @Override
+    public void releaseGame(Long gameId) {
+        delete(entry(gamesDirectory, gameId.toString()));
+    }
+
+    @Override
+    public Optional<Long> getGameId(String carName) {
+        return read(entry(carsDirectory, carName)).map(Long::valueOf);
+    }
+
+    @Override
+    public boolean register(String carName, Long gameId) {
+        Path temp = writeTemp(gameId.toString());
+        try {
+            Files.createLink(entry(carsDirectory, carName), temp);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot register car " + carName, e);
+        } finally {
+            delete(temp);
+        }
+    }
+
+    @Override
+    public boolean unregister(String carName, Long gameId) {
+        Path file = entry(carsDirectory, carName);
+        if (read(file).map(gameId.toString()::equals).orElse(false)) {
+            delete(file);
+            return true;
+        }
+        return false;
+    }
+
+    private Path entry(Path directory, String name) {
+        try {
+            return directory.resolve(ENTRY_PREFIX + URLEncoder.encode(name, ENCODING));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String name(Path entry) {
+        try {
+            return URLDecoder.decode(entry.getFileName().toString().substring(ENTRY_PREFIX.length()), ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Replace the entry with the complete file, so readers never see partial content
+     */
+    private void write(Path file, String content) {
+        Path temp = writeTemp(content);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            delete(temp);
+            throw new UncheckedIOException("Cannot write cluster registry entry " + file, e);
+        }
+    }
+
+    private Path writeTemp(String content) {
+        try {
+            Path temp = Files.createTempFile(tempDirectory, "entry", ".tmp");
+            Files.write(temp, content.getBytes(StandardCharsets.UTF_8));
+            return temp;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write cluster registry entry", e);
+        }
+    }
+
+    private Optional<String> read(Path file) {
+        try {
+            return Optional.of(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read cluster registry entry " + file, e);
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete cluster registry entry " + file, e);
+        }
+    }
+}
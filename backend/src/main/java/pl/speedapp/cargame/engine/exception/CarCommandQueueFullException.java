@@ -0,0 +1,9 @@
+package pl.speedapp.cargame.engine.exception;
+
+public class CarCommandQueueFullException extends RuntimeException {
+    private static final String MSG = "Car [%s] has already [%s] waiting commands, try again later";
+
+    public CarCommandQueueFullException(String carName, int capacity) {
+        super(String.format(MSG, carName, capacity));
+    }
+}
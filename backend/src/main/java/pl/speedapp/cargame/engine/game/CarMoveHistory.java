@@ -0,0 +1,55 @@
+package pl.speedapp.cargame.engine.game;
+
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.engine.car.CarHistoryMoveEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Last moves of the single car in the running game, the same moves which are stored in the database. Keeps at most
+ * capacity moves in the arrays allocated once, the oldest move is overwritten by the new one.
+ */
+class CarMoveHistory {
+
+    private final CarMoveType[] types;
+
+    private final int[] distances;
+
+    private final long[] timestamps;
+
+    // number of all recorded moves, next move is written at count % capacity
+    private long count;
+
+    CarMoveHistory(int capacity) {
+        this.types = new CarMoveType[capacity];
+        this.distances = new int[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    synchronized void record(CarMoveType type, int distance, long timestamp) {
+        int index = (int) (count % types.length);
+        types[index] = type;
+        distances[index] = distance;
+        timestamps[index] = timestamp;
+        ++count;
+    }
+
+    /**
+     * @param numberOfMoves - number of moves, not greater than the capacity
+     * @return last moves, the most recent first
+     */
+    synchronized List<CarHistoryMoveEvent> getLastMoves(int numberOfMoves) {
+        int size = (int) Math.min(numberOfMoves, Math.min(count, types.length));
+        List<CarHistoryMoveEvent> moves = new ArrayList<>(size);
+        for (long position = count - 1; position >= count - size; --position) {
+            int index = (int) (position % types.length);
+            moves.add(CarHistoryMoveEvent.builder()
+                    .moveType(types[index])
+                    .distance(distances[index])
+                    .timestamp(timestamps[index])
+                    .build());
+        }
+        return moves;
+    }
+}
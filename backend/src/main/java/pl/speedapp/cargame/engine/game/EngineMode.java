@@ -0,0 +1,14 @@
+package pl.speedapp.cargame.engine.game;
+
+public enum EngineMode {
+
+    /**
+     * Every car runs its own engine thread with own command queue, game events are handled by separate thread
+     */
+    THREAD_PER_CAR,
+
+    /**
+     * Every game runs single event loop which performs commands of all cars in order and handles resulting events
+     */
+    EVENT_LOOP
+}
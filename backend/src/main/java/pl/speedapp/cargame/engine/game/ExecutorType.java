@@ -0,0 +1,21 @@
+package pl.speedapp.cargame.engine.game;
+
+public enum ExecutorType {
+
+    /**
+     * Game manager and every game use own cached thread pool, new platform thread is created for each blocked loop
+     */
+    CACHED,
+
+    /**
+     * Every loop runs on its own virtual thread, falls back to {@link #CACHED} if the JVM does not support virtual threads
+     */
+    VIRTUAL,
+
+    /**
+     * Game manager and all games share single bounded thread pool with bounded queue of waiting tasks. Loops don't
+     * wait in the threads of the pool, they are submitted only when they have work, so the pool serves any number of
+     * games and cars.
+     */
+    SHARED_POOL
+}
@@ -3,39 +3,74 @@ package pl.speedapp.cargame.engine.game;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import pl.speedapp.cargame.api.model.CarDto;
 import pl.speedapp.cargame.api.model.CarStatusDto;
 import pl.speedapp.cargame.api.model.RunningGameDto;
+import pl.speedapp.cargame.api.model.RunningGameEventDto;
+import pl.speedapp.cargame.db.enums.CarMoveType;
 import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.engine.car.*;
 import pl.speedapp.cargame.engine.exception.CarNotFoundInGameException;
 import pl.speedapp.cargame.engine.exception.GameAlreadyRunning;
 import pl.speedapp.cargame.engine.exception.GameNotRunningException;
 import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
 import pl.speedapp.cargame.engine.grid.events.*;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.movement.TurnedDirection;
 import pl.speedapp.cargame.engine.grid.objects.GridObjectFactory;
 import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+import pl.speedapp.cargame.engine.queue.DrainTask;
+import pl.speedapp.cargame.engine.queue.RingBuffer;
 import pl.speedapp.cargame.exception.CarIsBeingUsedInGameException;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @EqualsAndHashCode(of = "gameId")
 public class Game {
 
+    private static final int INITIAL_SLOTS = 16;
+
+    // max number of events or scheduled cars taken at once, before the loop checks its state
+    private static final int BATCH_SIZE = 256;
+
+    // number of attempts to take the checkpoint of the game which changes while it is taken
+    private static final int CHECKPOINT_ATTEMPTS = 3;
+
     private ExecutorService carEngines;
 
-    private PriorityBlockingQueue<CarCommand> commands;
+    // passed to the game loop by the idle timer to wake it up and check the idle time
+    private static final Object IDLE_CHECK = new Object();
+
+    // time (in nanoseconds) after which closing of the idle game is retried, when the loop or the pool has no room for it
+    private static final long CLOSE_RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // cars with waiting commands or IDLE_CHECK, in EVENT_LOOP mode performed by the loop in round-robin order, null otherwise
+    private final RingBuffer<Object> readyCars;
+
+    // cars taken from the ready cars and waiting for their turn, used only by the game loop, null if there is no loop
+    private final ArrayDeque<Object> scheduledCars;
+
+    private final Consumer<Object> scheduler;
 
-    private LinkedBlockingQueue<List<Event>> eventBus;
+    // events of the cars, shared by car engine threads in THREAD_PER_CAR mode, null in EVENT_LOOP mode
+    private final RingBuffer<List<Event>> eventRing;
+
+    // events of the cars, the ring or, in EVENT_LOOP mode, plain queue used only by the event loop thread
+    private final Queue<List<Event>> eventBus;
+
+    private final Consumer<List<Event>> gameEventsHandler = this::handleGameEvents;
 
     private Queue<Event> gameManagerEventBus;
 
     private Grid grid;
 
+    // key: car name, value: car, used only to find the car by the name coming from outside the engine
     private ConcurrentMap<String, Car> cars;
 
     @Getter
@@ -50,27 +85,128 @@ public class Game {
     @Getter
     private Integer duration;
 
-    private final int backInHistoryDelay;
+    private final EngineMode engineMode;
+
+    // settings applied to the cars of the game
+    private final GameSettings settings;
+
+    // true if the game runs on the shared pool, so its loops run only while they have work instead of waiting for it
+    private final boolean shared;
+
+    // time (System.nanoTime) of the last accepted command, game is closed after the duration without any command
+    private volatile long lastCommandTime;
+
+    // idle deadlines shared by all games, checks this game once per the duration, not after every command
+    private final TimingWheel idleTimer;
+
+    // runs game tasks, e.g. closing of the game, assigned when the game starts
+    private ExecutorService threadPool;
+
+    private final GameStateListener stateListener;
+
+    // guards the state version and the tables of the cars by slot
+    private final Object stateLock;
+
+    // incremented on every change of the cars state
+    private volatile long stateVersion;
+
+    // car placed on the grid by its slot
+    private Car[] carBySlot;
+
+    // state version of the last change of the car by its slot
+    private long[] versionBySlot;
+
+    // key: name of the car which left the grid (crashed or removed), value: state version of the change
+    private final Map<String, Long> leftCarVersions;
+
+    // key: car name, value: last moves of the car in the game, kept also after the car left the grid
+    private final ConcurrentMap<String, CarMoveHistory> moveHistories;
 
     {
-        commands = new PriorityBlockingQueue<>();
-        eventBus = new LinkedBlockingQueue<>();
         cars = new ConcurrentHashMap<>();
+        stateLock = new Object();
+        carBySlot = new Car[INITIAL_SLOTS];
+        versionBySlot = new long[INITIAL_SLOTS];
+        leftCarVersions = new HashMap<>();
+        moveHistories = new ConcurrentHashMap<>();
         started = false;
-        carEngines = Executors.newCachedThreadPool();
     }
 
     public Game(String gameName, Long gameId, int[][] map, Integer duration, Queue<Event> gameManagerEventBus, int backInHistoryDelay) {
+        this(gameName, gameId, map, gameManagerEventBus, GameSettings.builder()
+                .duration(duration)
+                .backInHistoryDelay(backInHistoryDelay)
+                .build());
+    }
+
+    public Game(String gameName, Long gameId, int[][] map, Queue<Event> gameManagerEventBus, GameSettings settings) {
         this.gameName = gameName;
         this.gameId = gameId;
-        this.grid = new Grid(map);
-        this.duration = duration;
+        this.grid = GridFactory.createGrid(settings.getGridType(), map);
+        this.duration = settings.getDuration();
         this.gameManagerEventBus = gameManagerEventBus;
-        this.backInHistoryDelay = backInHistoryDelay;
+        this.engineMode = settings.getEngineMode();
+        this.stateListener = settings.getStateListener();
+        this.carEngines = settings.getExecutors().newExecutor();
+        this.settings = settings;
+        this.idleTimer = settings.getExecutors().getIdleTimer();
+        this.shared = settings.getExecutors().isShared();
+        if (EngineMode.EVENT_LOOP.equals(engineMode)) {
+            this.readyCars = new RingBuffer<>(settings.getRingSize(), settings.getWaitStrategy());
+            this.scheduledCars = new ArrayDeque<>();
+            this.scheduler = scheduledCars::add;
+            this.eventRing = null;
+            this.eventBus = new ArrayDeque<>();
+        } else {
+            this.readyCars = null;
+            this.scheduledCars = null;
+            this.scheduler = null;
+            this.eventRing = new RingBuffer<>(settings.getRingSize(), settings.getWaitStrategy());
+            this.eventBus = eventRing;
+        }
     }
 
+    /**
+     * Pass command to the waiting commands of the car. In {@link EngineMode#EVENT_LOOP} mode the car is scheduled by
+     * the game loop, if it was not scheduled yet.
+     *
+     * @throws pl.speedapp.cargame.engine.exception.CarCommandQueueFullException if car has too many waiting commands
+     */
     public void handle(CarCommand command) {
-        commands.offer(command);
+        Car car = cars.get(command.getCarName());
+        if (Objects.isNull(car)) {
+            log.debug("Game [{}] ignores command of the car which is not in the game: {}", gameName, command);
+            return;
+        }
+
+        submit(car, command);
+    }
+
+    private void submit(Car car, CarCommand command) {
+        enqueue(car, command);
+        lastCommandTime = System.nanoTime();
+    }
+
+    /**
+     * Pass the next step of moving back in the history from the timer. Steps are not commands of the players, so they
+     * don't keep the idle game running, and they are dropped once the car has been removed or destroyed.
+     */
+    private void submitStep(Car car, CarCommand command) {
+        if (cars.get(car.getName()) == car) {
+            enqueue(car, command);
+        }
+    }
+
+    private void enqueue(Car car, CarCommand command) {
+        boolean schedule = car.handle(command);
+        if (schedule && EngineMode.EVENT_LOOP.equals(engineMode)) {
+            try {
+                readyCars.put(car);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while scheduling car [{}] in the game [{}]", car.getName(), gameName);
+            }
+        }
     }
 
     public void start(ExecutorService threadPool) {
@@ -79,66 +215,284 @@ public class Game {
             throw new GameAlreadyRunning(getGameName());
         }
 
-        log.info("Starting game [name={}, id={}]", gameName, gameId);
+        log.info("Starting game [name={}, id={}, mode={}]", gameName, gameId, engineMode);
         this.started = true;
+        this.threadPool = threadPool;
+        this.lastCommandTime = System.nanoTime();
+
+        if (EngineMode.EVENT_LOOP.equals(engineMode)) {
+            cars.values().forEach(Car::start);
+            if (shared) {
+                DrainTask loopTask = new DrainTask("game-" + gameName, threadPool, this::runEventLoopBatch,
+                        () -> !readyCars.isEmpty() || !scheduledCars.isEmpty());
+                readyCars.onPublish(loopTask::signal);
+                loopTask.signal();
+            } else {
+                threadPool.submit(this::runEventLoop);
+            }
+            watchIdleTime(getIdleTimeLeft());
+            return;
+        }
+
         cars.values().forEach(car -> car.startEngine(carEngines));
+        // cars perform own commands, game is only closed by the idle timer when no command comes for the duration
+        watchIdleTime(getIdleTimeLeft());
+
+        if (shared) {
+            DrainTask eventTask = new DrainTask("game-events-" + gameName, threadPool, () -> {
+                eventRing.drain(gameEventsHandler, BATCH_SIZE);
+                return true;
+            }, () -> !eventRing.isEmpty());
+            eventRing.onPublish(eventTask::signal);
+            eventTask.signal();
+            return;
+        }
+
         threadPool.submit(() -> {
-            while (true) {
+            while (started) {
                 try {
-                    CarCommand command = commands.poll(duration, TimeUnit.SECONDS);
-                    if (command != null) {
-                        log.debug("Game [{}] received a car command: {}", gameName, command);
-                        if (StringUtils.isNotBlank(command.getCarName())) {
-                            Car car = cars.get(command.getCarName());
-                            if (Objects.nonNull(car)) {
-                                car.handle(command);
-                            }
-                        }
-                    } else {
+                    // woken up by the empty list when the game is closed
+                    handleGameEvents(eventRing.take());
+                    eventRing.drain(gameEventsHandler, BATCH_SIZE);
+                } catch (InterruptedException e) {
+                    log.error("Error while handling game events.", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Single thread loop of the game in {@link EngineMode#EVENT_LOOP} mode. Performs commands of the scheduled cars
+     * one by one in round-robin order, so the car with many waiting commands can't hold back other cars. Events
+     * produced by each command are handled before the next command.
+     * <p>
+     * The grid stays synchronized also in this mode, cars are added, removed and read by the request threads.
+     */
+    private void runEventLoop() {
+        while (true) {
+            try {
+                readyCars.drain(scheduler, BATCH_SIZE);
+                Object scheduled = scheduledCars.poll();
+                if (scheduled == null) {
+                    if (getIdleTimeLeft() <= 0) {
                         break;
                     }
-                } catch (InterruptedException e) {
-                    log.error("Error while playing.", e);
+                    scheduled = readyCars.take();
                 }
+                if (!perform(scheduled)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                log.error("Error while playing.", e);
             }
+        }
 
-            log.info("No car movements detected. Closing game: [{}]...", gameName);
-            started = false;
-            cars.forEach((carName, car) -> car.handle(CarCommand.builder().carName(carName).type(CarCommandType.STOP_ENGINE).build()));
-            carEngines.shutdown();
-            gameManagerEventBus.offer(new GameClosed(gameName, gameId));
-        });
+        closeGame();
+    }
 
-        threadPool.submit(() -> {
-            while (started) {
-                List<Event> gameEvents;
+    /**
+     * Single run of the game loop on the shared pool, returns when no car is scheduled instead of waiting
+     *
+     * @return false if the game has been closed
+     */
+    private boolean runEventLoopBatch() {
+        for (int i = 0; i < BATCH_SIZE; ++i) {
+            readyCars.drain(scheduler, BATCH_SIZE);
+            Object scheduled = scheduledCars.poll();
+            if (scheduled == null) {
+                return true;
+            }
+            if (!perform(scheduled)) {
+                closeGame();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Perform the next command of the scheduled car and handle its events, or check the idle time of the game
+     *
+     * @return false if the game has to be closed
+     */
+    private boolean perform(Object scheduled) {
+        if (scheduled == IDLE_CHECK) {
+            long idleTimeLeft = getIdleTimeLeft();
+            if (idleTimeLeft <= 0) {
+                return false;
+            }
+            // commands came after the idle timer has fired, the game keeps going
+            watchIdleTime(idleTimeLeft);
+            return true;
+        }
+
+        Car car = (Car) scheduled;
+        CarCommand command = car.nextCommand();
+        if (Objects.nonNull(command) && car.getStarted().get()) {
+            log.debug("Game [{}] received a car command: {}", gameName, command);
+            car.process(command);
+        }
+        if (car.keepScheduled()) {
+            scheduledCars.add(car);
+        }
+
+        List<Event> gameEvents;
+        while ((gameEvents = eventBus.poll()) != null) {
+            handleGameEvents(gameEvents);
+        }
+        return true;
+    }
+
+    /**
+     * Check the game on the idle timer after the given time. Commands don't touch the timer, they only move the
+     * {@link #lastCommandTime}, so the check is moved to the new deadline until no command comes for the duration.
+     */
+    private void watchIdleTime(long idleTime) {
+        idleTimer.schedule(() -> {
+            long idleTimeLeft = getIdleTimeLeft();
+            if (idleTimeLeft > 0) {
+                watchIdleTime(idleTimeLeft);
+            } else if (EngineMode.EVENT_LOOP.equals(engineMode)) {
+                // game loop closes the game itself, so cars are stopped by the thread performing their commands
+                if (!readyCars.offer(IDLE_CHECK)) {
+                    watchIdleTime(CLOSE_RETRY_DELAY);
+                }
+            } else {
                 try {
-                    gameEvents = eventBus.take();
-                    log.debug("===> Received gameEvents: {}", gameEvents);
-                    gameEvents.forEach(e -> {
-                        if (e instanceof GridObjectDestroyed) {
-                            cars.computeIfPresent(e.getObjectName(), (name, car) -> {
-                                if (Objects.nonNull(car) && car.getStarted().get()) {
-                                    car.handle(CarCommand.builder()
-                                            .type(CarCommandType.DESTROY)
-                                            .carName(name)
-                                            .commandPriority(Integer.MAX_VALUE).build());
-                                }
-                                return null;
-                            });
-                            gameManagerEventBus.offer(e);
-                        } else if (e instanceof MovableObjectHandleHistoryInProgress) {
-                            handle(new CarCommandBlank());
-                        } else if (e instanceof MovableObjectMoved || e instanceof MovableObjectTurned) {
-                            ((EventWithTimestamp) e).setGameId(gameId);
-                            gameManagerEventBus.offer(e);
-                        }
-                    });
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    threadPool.execute(this::closeGame);
+                } catch (RejectedExecutionException e) {
+                    if (threadPool.isShutdown()) {
+                        log.warn("Game [{}] can't be closed, game manager has been shut down.", gameName);
+                    } else {
+                        // queue of the shared pool is full, the game is closed by the next check
+                        log.debug("Closing of the game [{}] has been rejected by the thread pool, it is retried.", gameName);
+                        watchIdleTime(CLOSE_RETRY_DELAY);
+                    }
                 }
             }
-        });
+        }, idleTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return time (in nanoseconds) left until the game is closed, if no command comes
+     */
+    private long getIdleTimeLeft() {
+        return lastCommandTime + TimeUnit.SECONDS.toNanos(duration) - System.nanoTime();
+    }
+
+    private void handleGameEvents(List<Event> gameEvents) {
+        log.debug("===> Received gameEvents: {}", gameEvents);
+        gameEvents.forEach(this::handleGameEvent);
+    }
+
+    private void handleGameEvent(Event e) {
+        if (e instanceof GridObjectDestroyed) {
+            Car car = getCarBySlot(e.getObjectSlot(), e.getObjectName());
+            if (Objects.nonNull(car) && cars.remove(car.getName(), car) && car.getStarted().get()) {
+                deliver(car, CarCommand.builder()
+                        .type(CarCommandType.DESTROY)
+                        .carName(car.getName())
+                        .build());
+            }
+            gameManagerEventBus.add(e);
+            carChanged(RunningGameEventType.DESTROYED, e.getObjectSlot(), e.getObjectName());
+        } else if (e instanceof MovableObjectHandleHistoryInProgress) {
+            carChanged(RunningGameEventType.UPDATED, e.getObjectSlot(), e.getObjectName());
+        } else if (e instanceof MovableObjectBackedInHistory) {
+            carChanged(RunningGameEventType.UPDATED, e.getObjectSlot(), e.getObjectName());
+        } else if (e instanceof MovableObjectRotated) {
+            // direction changed by the move back in the history, kept only for the replay of the game
+            if (Objects.nonNull(((MovableObjectRotated) e).getDirection())) {
+                ((MovableObjectRotated) e).setGameId(gameId);
+                gameManagerEventBus.add(e);
+            }
+        } else if (e instanceof MovableObjectMoved || e instanceof MovableObjectTurned) {
+            ((EventWithTimestamp) e).setGameId(gameId);
+            recordMove((EventWithTimestamp) e);
+            gameManagerEventBus.add(e);
+            carChanged(e instanceof MovableObjectMoved ? RunningGameEventType.MOVED : RunningGameEventType.TURNED, e.getObjectSlot(), e.getObjectName());
+        }
+    }
+
+    /**
+     * Keep the move in the history of the car, in the same form as it is stored in the database
+     */
+    private void recordMove(EventWithTimestamp e) {
+        int capacity = settings.getMoveHistoryCapacity();
+        if (capacity <= 0) {
+            return;
+        }
+
+        CarMoveHistory history = moveHistories.get(e.getObjectName());
+        if (Objects.isNull(history)) {
+            history = moveHistories.computeIfAbsent(e.getObjectName(), name -> new CarMoveHistory(capacity));
+        }
+        long timestamp = e.getEventTimestamp().toEpochMilli();
+        if (e instanceof MovableObjectMoved) {
+            history.record(CarMoveType.FORWARD, ((MovableObjectMoved) e).calculateDistance(), timestamp);
+        } else if (TurnedDirection.LEFT.equals(((MovableObjectTurned) e).getTurnedDirection())) {
+            history.record(CarMoveType.TURN_LEFT, 0, timestamp);
+        } else if (TurnedDirection.RIGHT.equals(((MovableObjectTurned) e).getTurnedDirection())) {
+            history.record(CarMoveType.TURN_RIGHT, 0, timestamp);
+        }
+    }
+
+    /**
+     * Bump the state version and pass current status of the car to the state listener, if anyone watches the game
+     */
+    private void carChanged(RunningGameEventType type, int slot, String carName) {
+        long version;
+        synchronized (stateLock) {
+            version = ++stateVersion;
+            if (RunningGameEventType.DESTROYED.equals(type) || RunningGameEventType.REMOVED.equals(type)) {
+                leftCarVersions.put(carName, version);
+                // slot could be already taken by the car added in the meantime
+                if (Objects.nonNull(getCarBySlot(slot, carName))) {
+                    carBySlot[slot] = null;
+                }
+            } else if (slot >= 0 && slot < versionBySlot.length) {
+                versionBySlot[slot] = version;
+            }
+        }
+
+        if (!stateListener.isWatched(gameId)) {
+            return;
+        }
+        stateListener.carChanged(gameId, RunningGameEventDto.builder()
+                .type(type)
+                .version(version)
+                .car(getCarDto(carName).orElseGet(() -> CarDto.builder().name(carName).build()))
+                .build());
+    }
+
+    private void closeGame() {
+        log.info("No car movements detected. Closing game: [{}]...", gameName);
+        started = false;
+        cars.forEach((carName, car) -> deliver(car, CarCommand.builder().carName(carName).type(CarCommandType.STOP_ENGINE).build()));
+        carEngines.shutdown();
+        if (Objects.nonNull(eventRing)) {
+            eventRing.add(Collections.emptyList());
+        }
+        gameManagerEventBus.add(new GameClosed(gameName, gameId));
+        stateListener.gameClosed(gameId);
+    }
+
+    /**
+     * Pass command to the car engine thread or, in {@link EngineMode#EVENT_LOOP} mode, perform it in the current thread
+     */
+    private void deliver(Car car, CarCommand command) {
+        if (EngineMode.EVENT_LOOP.equals(engineMode)) {
+            car.process(command);
+        } else {
+            car.handle(command);
+        }
+    }
+
+    /**
+     * @return number of car commands waiting for the cars
+     */
+    public int getPendingCommandsCount() {
+        return cars.values().stream().mapToInt(Car::getPendingCommandsCount).sum();
     }
 
     public Set<String> getCarsNames() {
@@ -147,53 +501,113 @@ public class Game {
 
     public Car addCar(String carName, CarType carType, Integer positionX, Integer positionY) {
         log.info("Adding car [{}] at position [x={}, y={}]", carName, positionX, positionY);
+        return addCar(carName, carType, positionX, positionY, Direction.NORTH);
+    }
+
+    /**
+     * Place the car from the checkpoint on the grid and continue its move back in the history, if it was in progress
+     */
+    public Car restoreCar(GameCheckpoint.CarCheckpoint checkpoint) {
+        log.info("Restoring car [{}] at position [x={}, y={}]", checkpoint.getName(), checkpoint.getX(), checkpoint.getY());
+        Car restoredCar = addCar(checkpoint.getName(), checkpoint.getType(), checkpoint.getX(), checkpoint.getY(), checkpoint.getDirection());
+        if (Objects.nonNull(checkpoint.getRewind())) {
+            Map<CarCommandProperty, Object> properties = new EnumMap<>(CarCommandProperty.class);
+            properties.put(CarCommandProperty.MOVES_HISTORY, checkpoint.getRewind().getMoves());
+            properties.put(CarCommandProperty.REWIND_PROGRESS, checkpoint.getRewind());
+            submit(restoredCar, CarCommand.builder()
+                    .type(CarCommandType.BACK_IN_HISTORY)
+                    .carName(restoredCar.getName())
+                    .commandPriority(10)
+                    .commandProperties(properties)
+                    .build());
+        }
+        return restoredCar;
+    }
+
+    private Car addCar(String carName, CarType carType, Integer positionX, Integer positionY, Direction direction) {
         checkIfRunning();
 
+        MovableObjectAdded[] added = new MovableObjectAdded[1];
         cars.compute(carName, (name, car) -> {
             if (Objects.nonNull(car)) {
                 throw new CarIsBeingUsedInGameException(gameName);
             }
 
-            Car carToAdd = new Car(carName, carType, grid, eventBus, backInHistoryDelay);
-            MovableObject movableObject = GridObjectFactory.createMovableObject(carToAdd);
-            grid.addObject(positionX, positionY, movableObject);
+            Car carToAdd = new Car(carName, carType, grid, eventBus, settings);
+            carToAdd.setCommandSink(command -> submitStep(carToAdd, command));
+            MovableObject movableObject = GridObjectFactory.createMovableObject(carToAdd, direction);
+            added[0] = grid.addObject(positionX, positionY, movableObject);
+            carToAdd.setSlot(added[0].getObjectSlot());
+            placeCar(carToAdd);
             return carToAdd;
         });
 
-        return cars.computeIfPresent(carName, (name, car) -> {
-            car.startEngine(carEngines);
+        Car addedCar = cars.computeIfPresent(carName, (name, car) -> {
+            if (EngineMode.EVENT_LOOP.equals(engineMode)) {
+                car.start();
+            } else {
+                car.startEngine(carEngines);
+            }
             return car;
         });
+        // placement starts the moves of the car in the journal of the game
+        added[0].setCarType(carType);
+        added[0].setGameId(gameId);
+        gameManagerEventBus.add(added[0]);
+        carChanged(RunningGameEventType.ADDED, addedCar.getSlot(), carName);
+        return addedCar;
     }
 
     public void removeCar(String carName) {
         log.info("Removing car [{}]...", carName);
         checkIfRunning();
 
+        Car removedCar = cars.get(carName);
+        List<Event> removed = new ArrayList<>();
         cars.compute(carName, (name, car) -> {
             if (Objects.isNull(car)) {
                 throw new CarNotFoundInGameException(carName, gameId);
             }
 
-            handle(CarCommand.builder().carName(carName).type(CarCommandType.STOP_ENGINE).commandPriority(Integer.MAX_VALUE).build());
-            grid.removeObject(carName);
+            removed.addAll(grid.removeObject(carName));
             return null;
         });
+        removed.stream().filter(MovableObjectRemoved.class::isInstance).forEach(e -> {
+            ((MovableObjectRemoved) e).setGameId(gameId);
+            gameManagerEventBus.add(e);
+        });
+        if (Objects.nonNull(removedCar)) {
+            submit(removedCar, CarCommand.builder().carName(carName).type(CarCommandType.STOP_ENGINE).build());
+        }
+        carChanged(RunningGameEventType.REMOVED, Objects.nonNull(removedCar) ? removedCar.getSlot() : Grid.NO_SLOT, carName);
+    }
+
+    /**
+     * Returns last moves of the car in the game, served from memory, so they don't depend on the database
+     *
+     * @param carName       - name of the car
+     * @param numberOfMoves - number of requested moves
+     * @return moves, the most recent first, or empty if the game keeps less moves of the car than requested
+     */
+    public Optional<List<CarHistoryMoveEvent>> getLastMoves(String carName, int numberOfMoves) {
+        if (numberOfMoves > settings.getMoveHistoryCapacity()) {
+            return Optional.empty();
+        }
+        CarMoveHistory history = moveHistories.get(carName);
+        return Optional.of(Objects.nonNull(history) ? history.getLastMoves(numberOfMoves) : Collections.emptyList());
     }
 
     public void carBackInHistory(String carName, List<CarHistoryMoveEvent> moves) {
-        cars.compute(carName, (name, car) -> {
-            if (Objects.isNull(car)) {
-                throw new CarNotFoundInGameException(carName, gameId);
-            }
-            handle(CarCommand.builder()
-                    .type(CarCommandType.BACK_IN_HISTORY)
-                    .carName(carName)
-                    .commandPriority(10)
-                    .commandProperties(Collections.singletonMap(CarCommandProperty.MOVES_HISTORY, moves))
-                    .build());
-            return car;
-        });
+        Car car = cars.get(carName);
+        if (Objects.isNull(car)) {
+            throw new CarNotFoundInGameException(carName, gameId);
+        }
+        submit(car, CarCommand.builder()
+                .type(CarCommandType.BACK_IN_HISTORY)
+                .carName(carName)
+                .commandPriority(10)
+                .commandProperties(Collections.singletonMap(CarCommandProperty.MOVES_HISTORY, moves))
+                .build());
     }
 
     /**
@@ -202,20 +616,159 @@ public class Game {
      * @return RunningGameDto
      */
     public RunningGameDto getRunningGameDto() {
+        // version is taken first, so the returned cars are at least as new as the version
+        long version = stateVersion;
         List<CarDto> carList = grid.getPositionByObjectName().entrySet().stream()
-                .map(object -> CarDto.builder()
-                        .currentStatus(CarStatusDto.builder()
-                                .x(object.getValue().getX() - 1)
-                                .y(object.getValue().getY() - 1)
-                                .direction(grid.getMovableObjectByName().get(object.getKey()).getDirection())
-                                .revertingFromHistoryInProgress(cars.get(object.getKey()).getRevertingFromHistoryInProgress())
-                                .build())
-                        .name(object.getKey())
-                        .build())
+                .map(object -> toCarDto(object.getKey(), object.getValue()))
                 .collect(Collectors.toList());
 
         return RunningGameDto.builder()
+                .version(version)
+                .cars(carList)
+                .build();
+    }
+
+    /**
+     * Returns only cars changed after the given state version. Cars which are no longer on the grid (crashed or
+     * removed) are returned as names in {@link RunningGameDto#getRemovedCars()}.
+     *
+     * @param sinceVersion - state version already known by the client
+     * @return RunningGameDto with changed cars and the current state version
+     */
+    public RunningGameDto getRunningGameDto(long sinceVersion) {
+        long version;
+        Set<String> changedCars = new LinkedHashSet<>();
+        synchronized (stateLock) {
+            version = stateVersion;
+            if (sinceVersion > version) {
+                // version of the other game, client has to start from scratch
+                return getRunningGameDto();
+            }
+            for (int slot = 0; slot < carBySlot.length; ++slot) {
+                if (Objects.nonNull(carBySlot[slot]) && versionBySlot[slot] > sinceVersion) {
+                    changedCars.add(carBySlot[slot].getName());
+                }
+            }
+            leftCarVersions.forEach((carName, carVersion) -> {
+                if (carVersion > sinceVersion) {
+                    changedCars.add(carName);
+                }
+            });
+        }
+
+        List<CarDto> carList = new ArrayList<>();
+        List<String> removedCars = new ArrayList<>();
+        changedCars.forEach(carName -> {
+            Optional<CarDto> car = getCarDto(carName);
+            if (car.isPresent()) {
+                carList.add(car.get());
+            } else {
+                removedCars.add(carName);
+            }
+        });
+
+        return RunningGameDto.builder()
+                .version(version)
                 .cars(carList)
+                .removedCars(removedCars)
+                .build();
+    }
+
+    public long getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * Take the state of the cars needed to restore the game. Cars are read while they move, so the checkpoint is
+     * taken again when the state of the game or any move back in the history changes in the meantime.
+     *
+     * @return checkpoint of the game, or empty if the game keeps changing
+     */
+    public Optional<GameCheckpoint> getCheckpoint() {
+        for (int attempt = 0; attempt < CHECKPOINT_ATTEMPTS; ++attempt) {
+            long version = stateVersion;
+            Map<String, RewindProgress> rewinds = getRewindProgresses();
+            GameCheckpoint.GameCheckpointBuilder checkpoint = GameCheckpoint.builder()
+                    .gameId(gameId)
+                    .stateVersion(version);
+            grid.getPositionByObjectName().forEach((carName, position) -> {
+                Car car = cars.get(carName);
+                MovableObject object = grid.getMovableObject(carName);
+                if (Objects.nonNull(car) && Objects.nonNull(object)) {
+                    checkpoint.car(GameCheckpoint.CarCheckpoint.builder()
+                            .name(carName)
+                            .type(car.getType())
+                            .x(position.getX())
+                            .y(position.getY())
+                            .direction(object.getDirection())
+                            .rewind(rewinds.get(carName))
+                            .build());
+                }
+            });
+            if (version == stateVersion && rewinds.equals(getRewindProgresses())) {
+                return Optional.of(checkpoint.build());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Map<String, RewindProgress> getRewindProgresses() {
+        Map<String, RewindProgress> rewinds = new HashMap<>();
+        cars.forEach((carName, car) -> {
+            RewindProgress progress = car.getRewindProgress();
+            if (Objects.nonNull(progress)) {
+                rewinds.put(carName, progress);
+            }
+        });
+        return rewinds;
+    }
+
+    /**
+     * Keep the car under its slot, so the events of the car don't need the name lookups
+     */
+    private void placeCar(Car car) {
+        int slot = car.getSlot();
+        synchronized (stateLock) {
+            if (slot >= carBySlot.length) {
+                int newLength = Math.max(carBySlot.length * 2, slot + 1);
+                carBySlot = Arrays.copyOf(carBySlot, newLength);
+                versionBySlot = Arrays.copyOf(versionBySlot, newLength);
+            }
+            carBySlot[slot] = car;
+            leftCarVersions.remove(car.getName());
+        }
+    }
+
+    /**
+     * @return car placed under the slot, or null if the slot has been already taken by other car
+     */
+    private Car getCarBySlot(int slot, String carName) {
+        synchronized (stateLock) {
+            Car car = slot >= 0 && slot < carBySlot.length ? carBySlot[slot] : null;
+            return Objects.nonNull(car) && car.getName().equals(carName) ? car : null;
+        }
+    }
+
+    private Optional<CarDto> getCarDto(String carName) {
+        Position position = grid.getPosition(carName);
+        return Objects.nonNull(position) && cars.containsKey(carName) ? Optional.of(toCarDto(carName, position)) : Optional.empty();
+    }
+
+    private CarDto toCarDto(String carName, Position position) {
+        // car could be crashed or removed in the meantime
+        Car car = cars.get(carName);
+        MovableObject object = grid.getMovableObject(carName);
+        return CarDto.builder()
+                .currentStatus(CarStatusDto.builder()
+                        .x(position.getX() - 1)
+                        .y(position.getY() - 1)
+                        .direction(Objects.nonNull(object) ? object.getDirection() : null)
+                        .revertingFromHistoryInProgress(Objects.nonNull(car) ? car.getRevertingFromHistoryInProgress() : null)
+                        .build())
+                .name(carName)
+                .type(Objects.nonNull(car) ? car.getType() : null)
+                .crashed(false)
+                .inGame(true)
                 .build();
     }
 
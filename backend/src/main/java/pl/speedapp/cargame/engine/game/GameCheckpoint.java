@@ -0,0 +1,46 @@
+package pl.speedapp.cargame.engine.game;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.car.RewindProgress;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+
+import java.util.List;
+
+/**
+ * State of the running game needed to continue it after the restart: cars placed on the grid, their directions and
+ * moves back in the history in progress
+ */
+@Value
+@Builder
+public class GameCheckpoint {
+
+    private Long gameId;
+
+    // state version of the game when the checkpoint has been taken
+    private long stateVersion;
+
+    @Singular
+    private List<CarCheckpoint> cars;
+
+    @Value
+    @Builder
+    public static class CarCheckpoint {
+
+        private String name;
+
+        private CarType type;
+
+        // position on the grid, starting from 1
+        private int x;
+
+        private int y;
+
+        private Direction direction;
+
+        // moving back in the history in progress, null if there is none
+        private RewindProgress rewind;
+    }
+}
@@ -0,0 +1,46 @@
+package pl.speedapp.cargame.engine.game;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes game engine executors load as metrics, tagged with the used {@link ExecutorType}
+ */
+@Component
+public class GameEngineMetrics implements MeterBinder {
+
+    private final GameManager gameManager;
+
+    public GameEngineMetrics(GameManager gameManager) {
+        this.gameManager = gameManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("type", gameManager.getExecutors().getType().name());
+
+        Gauge.builder("game.executor.tasks.running", gameManager, m -> m.getExecutors().getRunningTasks())
+                .tags(tags)
+                .description("Game loops, car engines and event bus loops running at the moment")
+                .register(registry);
+        Gauge.builder("game.executor.pool.size", gameManager, m -> m.getExecutors().getPoolSize())
+                .tags(tags)
+                .description("Threads used by the game engine executors")
+                .register(registry);
+        Gauge.builder("game.executor.queue.size", gameManager, m -> m.getExecutors().getQueueSize())
+                .tags(tags)
+                .description("Tasks waiting for a thread of the shared pool")
+                .register(registry);
+        Gauge.builder("game.commands.pending", gameManager, GameManager::getPendingCommandsCount)
+                .tags(tags)
+                .description("Car commands waiting to be performed in all running games")
+                .register(registry);
+        Gauge.builder("game.running", gameManager, GameManager::getRunningGamesCount)
+                .tags(tags)
+                .description("Games running at the moment")
+                .register(registry);
+    }
+}
@@ -0,0 +1,195 @@
+package pl.speedapp.cargame.engine.game;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for the game manager event bus, game loops and car engines according to the {@link ExecutorType}.
+ * Counts tasks currently running on all created executors. Also holds the single timer and the single timing wheel of
+ * idle deadlines shared by all games.
+ */
+@Slf4j
+public class GameExecutors {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    public static final GameExecutors DEFAULT = new GameExecutors(ExecutorType.CACHED, 0, 0);
+
+    @Getter
+    private final ExecutorType type;
+
+    private final ThreadPoolExecutor sharedPool;
+
+    private final AtomicInteger runningTasks;
+
+    // single thread performing delayed tasks of all games, tasks have to be short and must not block
+    @Getter
+    private final ScheduledExecutorService timer;
+
+    // idle deadlines of all games, no thread waits for the game which receives no commands
+    @Getter
+    private final TimingWheel idleTimer;
+
+    public GameExecutors(ExecutorType type, int poolSize, int queueCapacity) {
+        this(type, poolSize, queueCapacity, TimingWheel.DEFAULT_TICK_DURATION);
+    }
+
+    /**
+     * @param idleTimerTick - duration (in milliseconds) of the single tick of the idle timer, games are closed with
+     *                      this precision
+     */
+    public GameExecutors(ExecutorType type, int poolSize, int queueCapacity, long idleTimerTick) {
+        this.type = isVirtualUnsupported(type) ? ExecutorType.CACHED : type;
+        this.runningTasks = new AtomicInteger();
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("game-timer-%d").setDaemon(true).build());
+        this.idleTimer = new TimingWheel(idleTimerTick, TimeUnit.MILLISECONDS,
+                new ThreadFactoryBuilder().setNameFormat("game-idle-timer-%d").setDaemon(true).build());
+        if (ExecutorType.SHARED_POOL.equals(this.type)) {
+            sharedPool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    new ThreadFactoryBuilder().setNameFormat("game-pool-%d").build());
+            sharedPool.allowCoreThreadTimeOut(true);
+        } else {
+            sharedPool = null;
+        }
+    }
+
+    /**
+     * Create executor for the game manager or the single game. In {@link ExecutorType#SHARED_POOL} mode returned
+     * executor only submits tasks to the shared pool and its shutdown does not affect other executors.
+     */
+    public ExecutorService newExecutor() {
+        if (ExecutorType.SHARED_POOL.equals(type)) {
+            return new TrackedExecutorService(sharedPool, false);
+        } else if (ExecutorType.VIRTUAL.equals(type)) {
+            return new TrackedExecutorService(newVirtualThreadPerTaskExecutor(), true);
+        }
+        return new TrackedExecutorService(Executors.newCachedThreadPool(), true);
+    }
+
+    /**
+     * @return true if all games share the bounded pool, so their loops must not hold its threads while they wait for
+     * the work, they run as {@link pl.speedapp.cargame.engine.queue.DrainTask}s instead
+     */
+    public boolean isShared() {
+        return Objects.nonNull(sharedPool);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        idleTimer.stop();
+        if (Objects.nonNull(sharedPool)) {
+            sharedPool.shutdown();
+        }
+    }
+
+    /**
+     * @return number of tasks (game loops, car engines, event bus) running at the moment, which is the number of
+     * threads used by the engine
+     */
+    public int getRunningTasks() {
+        return runningTasks.get();
+    }
+
+    public int getPoolSize() {
+        return Objects.nonNull(sharedPool) ? sharedPool.getPoolSize() : getRunningTasks();
+    }
+
+    public int getQueueSize() {
+        return Objects.nonNull(sharedPool) ? sharedPool.getQueue().size() : 0;
+    }
+
+    private static boolean isVirtualUnsupported(ExecutorType type) {
+        if (ExecutorType.VIRTUAL.equals(type) && Objects.isNull(NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR)) {
+            log.warn("Virtual threads are not supported by the current JVM, using {} executors instead.", ExecutorType.CACHED);
+            return true;
+        }
+        return false;
+    }
+
+    private static Method findVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Executor counting running tasks, shuts down the underlying executor only if it is owned by this executor
+     */
+    private class TrackedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private final boolean owned;
+
+        private volatile boolean shutdown;
+
+        private TrackedExecutorService(ExecutorService delegate, boolean owned) {
+            this.delegate = delegate;
+            this.owned = owned;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            delegate.execute(() -> {
+                runningTasks.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    runningTasks.decrementAndGet();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            if (owned) {
+                delegate.shutdown();
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return owned ? delegate.shutdownNow() : new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return owned ? delegate.isTerminated() : shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return !owned || delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
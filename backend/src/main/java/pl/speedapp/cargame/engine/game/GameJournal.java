@@ -0,0 +1,380 @@
+package pl.speedapp.cargame.engine.game;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.car.CarHistoryMoveEvent;
+import pl.speedapp.cargame.engine.car.RewindProgress;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only file with the checkpoints of the running games. Each record holds the whole state of the single
+ * game, so the latest record of the game is enough to restore it, or marks the game as closed.
+ * <p>
+ * Records are written by the single writer thread. It takes all records waiting at the moment and makes them durable
+ * with one fsync, so many games checkpointed at once share the cost of the sync. When the file grows over the
+ * compaction size, it is replaced with the latest records of the running games, which is also done when the journal
+ * is opened. Record which has not been written completely before the crash ends the journal and is dropped.
+ */
+@Slf4j
+public class GameJournal {
+
+    // size (in bytes) of the file which is compacted
+    public static final long DEFAULT_COMPACTION_SIZE = 64L * 1024 * 1024;
+
+    private static final byte GAME_STATE = 1;
+
+    private static final byte GAME_CLOSED = 2;
+
+    // length and checksum of the record body
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    // larger length can only be read from the damaged record
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    // stops the writer thread after all records queued before
+    private static final Record CLOSE = new Record(null, GAME_CLOSED, new byte[0]);
+
+    private final Path file;
+
+    private final long compactionSize;
+
+    private final BlockingQueue<Record> pending;
+
+    // key: game id, value: latest state record of the running game, used only by the writer thread
+    private final Map<Long, Record> latestRecords;
+
+    private final AtomicLong syncCount;
+
+    private FileChannel channel;
+
+    private Thread writer;
+
+    public GameJournal(Path file) {
+        this(file, DEFAULT_COMPACTION_SIZE);
+    }
+
+    public GameJournal(Path file, long compactionSize) {
+        this.file = file;
+        this.compactionSize = compactionSize;
+        this.pending = new LinkedBlockingQueue<>();
+        this.latestRecords = new LinkedHashMap<>();
+        this.syncCount = new AtomicLong();
+    }
+
+    /**
+     * Read the journal, compact it and start the writer thread
+     *
+     * @return key: game id, value: latest checkpoint of the game which has not been closed
+     */
+    public synchronized Map<Long, GameCheckpoint> open() {
+        if (Objects.nonNull(writer)) {
+            throw new IllegalStateException("Game journal " + file + " is already open");
+        }
+
+        Map<Long, GameCheckpoint> checkpoints = new LinkedHashMap<>();
+        try {
+            readRecords().forEach(record -> {
+                latestRecords.put(record.gameId, record);
+                checkpoints.put(record.gameId, decode(record.body));
+            });
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open game journal " + file, e);
+        }
+
+        writer = new ThreadFactoryBuilder().setNameFormat("game-journal").setDaemon(true).build().newThread(this::runWriter);
+        writer.start();
+        log.info("Game journal [{}] opened with [{}] running games", file.toAbsolutePath(), checkpoints.size());
+        return checkpoints;
+    }
+
+    /**
+     * Queue the checkpoint of the game, it is written together with other checkpoints waiting at the moment
+     */
+    public void write(GameCheckpoint checkpoint) {
+        pending.add(new Record(checkpoint.getGameId(), GAME_STATE, encode(checkpoint)));
+    }
+
+    /**
+     * Queue the mark of the closed game, so the game is not restored
+     */
+    public void gameClosed(Long gameId) {
+        pending.add(new Record(gameId, GAME_CLOSED, encodeClosed(gameId)));
+    }
+
+    /**
+     * @return number of fsyncs of the journal file, each one makes all records written at once durable
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * Write all queued records and close the file
+     */
+    public synchronized void close() {
+        if (Objects.isNull(writer)) {
+            return;
+        }
+        pending.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Cannot close game journal [{}]", file, e);
+        }
+    }
+
+    private void runWriter() {
+        List<Record> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                log.warn("Game journal writer interrupted, queued records are lost");
+                return;
+            }
+            pending.drainTo(batch);
+            boolean close = batch.remove(CLOSE);
+            try {
+                append(batch);
+                if (channel.size() > compactionSize) {
+                    compact();
+                }
+            } catch (IOException e) {
+                log.error("Cannot write [{}] records to the game journal [{}]", batch.size(), file, e);
+            }
+            batch.clear();
+            if (close) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write records of the batch and sync them at once
+     */
+    private void append(List<Record> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (Record record : batch) {
+            size += RECORD_HEADER_SIZE + record.body.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Record record : batch) {
+            putRecord(buffer, record);
+            if (record.type == GAME_STATE) {
+                latestRecords.put(record.gameId, record);
+            } else {
+                latestRecords.remove(record.gameId);
+            }
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        syncCount.incrementAndGet();
+    }
+
+    /**
+     * Replace the journal with the latest records of the running games
+     */
+    private void compact() throws IOException {
+        if (Objects.nonNull(channel)) {
+            channel.close();
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Path parent = file.toAbsolutePath().getParent();
+        if (Objects.nonNull(parent)) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Record record : latestRecords.values()) {
+                ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + record.body.length);
+                putRecord(buffer, record);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    tempChannel.write(buffer);
+                }
+            }
+            tempChannel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        log.debug("Game journal [{}] compacted to [{}] games", file, latestRecords.size());
+    }
+
+    private void putRecord(ByteBuffer buffer, Record record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.body);
+        buffer.putInt(record.body.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record.body);
+    }
+
+    /**
+     * @return latest state record of each game which has not been closed, in order of the first record of the game
+     */
+    private Collection<Record> readRecords() throws IOException {
+        Map<Long, Record> records = new LinkedHashMap<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long offset = 0;
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int checksum;
+                byte[] body;
+                try {
+                    checksum = input.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        throw new EOFException();
+                    }
+                    body = new byte[length];
+                    input.readFully(body);
+                } catch (EOFException e) {
+                    log.warn("Incomplete record at offset [{}] of the game journal [{}] dropped", offset, file);
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Damaged record at offset [{}] of the game journal [{}] dropped with the rest of the journal", offset, file);
+                    break;
+                }
+
+                long gameId = ByteBuffer.wrap(body, 1, Long.BYTES).getLong();
+                if (body[0] == GAME_STATE) {
+                    records.put(gameId, new Record(gameId, GAME_STATE, body));
+                } else {
+                    records.remove(gameId);
+                }
+                offset += RECORD_HEADER_SIZE + length;
+            }
+        } catch (NoSuchFileException e) {
+            log.debug("Game journal [{}] does not exist yet", file);
+        }
+        return records.values();
+    }
+
+    private byte[] encode(GameCheckpoint checkpoint) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + checkpoint.getCars().size() * 32);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(GAME_STATE);
+            output.writeLong(checkpoint.getGameId());
+            output.writeLong(checkpoint.getStateVersion());
+            output.writeInt(checkpoint.getCars().size());
+            for (GameCheckpoint.CarCheckpoint car : checkpoint.getCars()) {
+                output.writeUTF(car.getName());
+                output.writeUTF(car.getType().name());
+                output.writeInt(car.getX());
+                output.writeInt(car.getY());
+                output.writeUTF(car.getDirection().name());
+                RewindProgress rewind = car.getRewind();
+                output.writeBoolean(Objects.nonNull(rewind));
+                if (Objects.nonNull(rewind)) {
+                    output.writeInt(rewind.getMoves().size());
+                    for (CarHistoryMoveEvent move : rewind.getMoves()) {
+                        output.writeUTF(move.getMoveType().name());
+                        output.writeInt(Objects.nonNull(move.getDistance()) ? move.getDistance() : -1);
+                        output.writeLong(move.getTimestamp());
+                    }
+                    output.writeInt(rewind.getHandledCounter());
+                    output.writeBoolean(rewind.isRotated());
+                    output.writeBoolean(rewind.isRotatedBack());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encodeClosed(Long gameId) {
+        return ByteBuffer.allocate(1 + Long.BYTES).put(GAME_CLOSED).putLong(gameId).array();
+    }
+
+    private GameCheckpoint decode(byte[] body) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            input.readByte();
+            GameCheckpoint.GameCheckpointBuilder checkpoint = GameCheckpoint.builder()
+                    .gameId(input.readLong())
+                    .stateVersion(input.readLong());
+            int carCount = input.readInt();
+            for (int i = 0; i < carCount; ++i) {
+                GameCheckpoint.CarCheckpoint.CarCheckpointBuilder car = GameCheckpoint.CarCheckpoint.builder()
+                        .name(input.readUTF())
+                        .type(CarType.valueOf(input.readUTF()))
+                        .x(input.readInt())
+                        .y(input.readInt())
+                        .direction(Direction.valueOf(input.readUTF()));
+                if (input.readBoolean()) {
+                    int moveCount = input.readInt();
+                    List<CarHistoryMoveEvent> moves = new ArrayList<>(moveCount);
+                    for (int j = 0; j < moveCount; ++j) {
+                        CarMoveType moveType = CarMoveType.valueOf(input.readUTF());
+                        int distance = input.readInt();
+                        moves.add(CarHistoryMoveEvent.builder()
+                                .moveType(moveType)
+                                .distance(distance >= 0 ? distance : null)
+                                .timestamp(input.readLong())
+                                .build());
+                    }
+                    car.rewind(RewindProgress.builder()
+                            .moves(moves)
+                            .handledCounter(input.readInt())
+                            .rotated(input.readBoolean())
+                            .rotatedBack(input.readBoolean())
+                            .build());
+                }
+                checkpoint.car(car.build());
+            }
+            return checkpoint.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Record {
+
+        private final Long gameId;
+
+        private final byte type;
+
+        private final byte[] body;
+
+        private Record(Long gameId, byte type, byte[] body) {
+            this.gameId = gameId;
+            this.type = type;
+            this.body = body;
+        }
+    }
+}
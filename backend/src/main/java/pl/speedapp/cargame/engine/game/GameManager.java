@@ -1,19 +1,27 @@
 package pl.speedapp.cargame.engine.game;
 
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import pl.speedapp.cargame.api.model.CarDto;
+import pl.speedapp.cargame.api.model.CarStatusDto;
 import pl.speedapp.cargame.api.model.RunningGameDto;
 import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.engine.car.*;
+import pl.speedapp.cargame.engine.cluster.CarRegistry;
+import pl.speedapp.cargame.engine.cluster.LocalCarRegistry;
 import pl.speedapp.cargame.engine.exception.CarNotFoundInGameException;
 import pl.speedapp.cargame.engine.exception.GameNotRunningException;
 import pl.speedapp.cargame.engine.exception.NoHistoricalMovesToBackException;
 import pl.speedapp.cargame.engine.exception.WrongDistanceValueException;
+import pl.speedapp.cargame.engine.grid.GridType;
 import pl.speedapp.cargame.engine.grid.events.*;
 import pl.speedapp.cargame.engine.grid.movement.TurnedDirection;
+import pl.speedapp.cargame.engine.queue.WaitStrategy;
 import pl.speedapp.cargame.exception.CarIsBeingUsedInGameException;
 import pl.speedapp.cargame.exception.CarIsNotBeingUsedInAnyGameException;
 import pl.speedapp.cargame.exception.GameMapNotFoundException;
@@ -22,9 +30,9 @@ import pl.speedapp.cargame.service.GameEventsService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Component
@@ -37,71 +45,191 @@ public class GameManager {
     @Value("${game.backInHistoryDelay}")
     private Integer backInHistoryDelay;
 
+    @Value("${game.gridType:HASH}")
+    private GridType gridType = GridType.HASH;
+
+    @Value("${game.engineMode:THREAD_PER_CAR}")
+    private EngineMode engineMode = EngineMode.THREAD_PER_CAR;
+
+    @Value("${game.executor.type:CACHED}")
+    private ExecutorType executorType = ExecutorType.CACHED;
+
+    // max number of threads in SHARED_POOL mode
+    @Value("${game.executor.poolSize:200}")
+    private int executorPoolSize = 200;
+
+    // max number of tasks waiting for a thread in SHARED_POOL mode
+    @Value("${game.executor.queueCapacity:1000}")
+    private int executorQueueCapacity = 1000;
+
+    // max number of waiting commands of the single car
+    @Value("${game.commands.queueCapacity:100}")
+    private int commandQueueCapacity = CarCommandQueue.DEFAULT_CAPACITY;
+
+    @Value("${game.commands.overflowPolicy:REJECT}")
+    private CommandOverflowPolicy commandOverflowPolicy = CommandOverflowPolicy.REJECT;
+
+    // max number of last moves of the single car kept in memory for moving back in the history
+    @Value("${game.history.capacity:100}")
+    private int moveHistoryCapacity = 100;
+
+    // capacity of the ring buffers passing commands and events between the engine threads
+    @Value("${game.pipeline.ringSize:4096}")
+    private int ringSize = 4096;
+
+    @Value("${game.pipeline.waitStrategy:BLOCKING}")
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    // duration (in milliseconds) of the single tick of the timer closing idle games
+    @Value("${game.timer.tickDuration:100}")
+    private long timerTickDuration = TimingWheel.DEFAULT_TICK_DURATION;
+
+    // number of game shards, each with own event bus thread, 0 - one shard per available core
+    @Value("${game.shards:0}")
+    private int shardCount = 0;
+
+    // running games are checkpointed to the journal and restored from it after the restart
+    @Value("${game.checkpoint.enabled:false}")
+    private boolean checkpointEnabled = false;
+
+    @Value("${game.checkpoint.file:cargame-journal.bin}")
+    private String checkpointFile = "cargame-journal.bin";
+
+    // interval (in milliseconds) between the checkpoints of the games changed in the meantime
+    @Value("${game.checkpoint.interval:1000}")
+    private long checkpointInterval = 1000;
+
+    @Getter
+    private GameExecutors executors;
+
     private ExecutorService threadPool;
 
-    // key: game name, value: game object
+    // key: game name, value: game object, shared by all shards
     private ConcurrentMap<String, Game> games;
 
-    // key: car name, value: game id
-    private ConcurrentMap<String, Long> carsInGames;
+    // game of each car, shared by all shards and, in cluster mode, by all nodes
+    private final CarRegistry carRegistry;
+
+    // games by the hash of the game id, each shard keeps its games by id and names of their cars
+    private GameShard[] shards;
+
+    // null if checkpoints are disabled
+    private GameJournal journal;
+
+    // key: game id, value: checkpoint read from the journal at start, until the game is restored or discarded
+    private final ConcurrentMap<Long, GameCheckpoint> restoredCheckpoints;
 
-    private LinkedBlockingQueue<Event> gameManagerEventBus;
+    // key: game id, value: state version of the last checkpoint of the game
+    private final ConcurrentMap<Long, Long> checkpointVersions;
 
     private GameEventsService gameEventsService;
 
+    private GameStateListener gameStateListener;
+
     {
-        gameManagerEventBus = new LinkedBlockingQueue<>();
-        carsInGames = new ConcurrentHashMap<>();
         games = new ConcurrentHashMap<>();
-        threadPool = Executors.newCachedThreadPool();
+        restoredCheckpoints = new ConcurrentHashMap<>();
+        checkpointVersions = new ConcurrentHashMap<>();
+    }
+
+    public GameManager(GameEventsService gameEventsService) {
+        this(gameEventsService, GameStateListener.NONE, Optional.empty());
     }
 
-    public GameManager(@Lazy GameEventsService gameEventsService) {
+    /**
+     * @param carRegistry - registry shared by the nodes of the cluster, local registry of this node is used if empty
+     */
+    @Autowired
+    public GameManager(@Lazy GameEventsService gameEventsService, @Lazy GameStateListener gameStateListener, Optional<CarRegistry> carRegistry) {
         this.gameEventsService = gameEventsService;
+        this.gameStateListener = gameStateListener;
+        this.carRegistry = carRegistry.orElseGet(LocalCarRegistry::new);
     }
 
     @PostConstruct
     public void init() {
-        startEventBus();
+        executors = new GameExecutors(executorType, executorPoolSize, executorQueueCapacity, timerTickDuration);
+        threadPool = executors.newExecutor();
+        shards = new GameShard[shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < shards.length; ++i) {
+            shards[i] = new GameShard(i, ringSize, waitStrategy);
+            shards[i].start(threadPool, this::handleGameManagerEvent, executors.isShared());
+        }
+        log.info("Game engine uses [{}] executors and [{}] shards with {} ring buffers", executors.getType(), shards.length, shards[0].getEventBus());
+
+        if (checkpointEnabled) {
+            journal = new GameJournal(Paths.get(checkpointFile));
+            restoredCheckpoints.putAll(journal.open());
+            executors.getTimer().scheduleWithFixedDelay(this::checkpointGames, checkpointInterval, checkpointInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     @PreDestroy
     public void beforeDestroy() {
         log.debug("Before destroy GAME MANAGER, shutdown all threads...");
+        if (Objects.nonNull(journal)) {
+            // running games are restored from the last checkpoint after the restart
+            checkpointGames();
+            journal.close();
+        }
         if (!threadPool.isShutdown()) {
             threadPool.shutdown();
         }
+        executors.shutdown();
     }
 
-    private void startEventBus() {
-        threadPool.submit(() -> {
-            while (true) {
-                Event gameEvent = gameManagerEventBus.take();
-                if (gameEvent != null) {
-                    log.debug("----> Received gameEvent: {}", gameEvent);
-                    if (gameEvent instanceof GridObjectDestroyed) {
-                        carsInGames.remove(gameEvent.getObjectName());
-                        gameEventsService.carCrashed(gameEvent.getObjectName());
-                    } else if (gameEvent instanceof GameClosed) {
-                        games.computeIfPresent(gameEvent.getObjectName(), (name, game) -> {
-                            game.getCarsNames().stream().forEach(carsInGames::remove);
-                            gameEventsService.gameClosed(((GameClosed) gameEvent).getGameId());
-                            return null;
-                        });
-                    } else if (gameEvent instanceof MovableObjectMoved) {
-                        MovableObjectMoved e = (MovableObjectMoved) gameEvent;
-                        gameEventsService.storeCarMoveForward(e.getGameId(), e.getObjectName(), e.calculateDistance(), e.getEventTimestamp());
-                    } else if (gameEvent instanceof MovableObjectTurned) {
-                        MovableObjectTurned e = (MovableObjectTurned) gameEvent;
-                        if (TurnedDirection.RIGHT.equals(e.getTurnedDirection())) {
-                            gameEventsService.storeCarTurnRight(e.getGameId(), e.getObjectName(), e.getEventTimestamp());
-                        } else if (TurnedDirection.LEFT.equals(e.getTurnedDirection())) {
-                            gameEventsService.storeCarTurnLeft(e.getGameId(), e.getObjectName(), e.getEventTimestamp());
-                        }
-                    }
+    /**
+     * @return shard owning the game with the given id
+     */
+    private GameShard getShard(Long gameId) {
+        // spread sequential ids, so they don't fall into the neighbouring shards only
+        int hash = Long.hashCode(gameId) * 0x9E3779B9;
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    /**
+     * Handle the event of the game in the thread of its shard
+     */
+    private void handleGameManagerEvent(Event gameEvent) {
+        log.debug("----> Received gameEvent: {}", gameEvent);
+        if (gameEvent instanceof GridObjectDestroyed) {
+            String carName = gameEvent.getObjectName();
+            carRegistry.getGameId(carName)
+                    .filter(gameId -> carRegistry.unregister(carName, gameId))
+                    .ifPresent(gameId -> removeFromCarNamesIndex(gameId, carName));
+            gameEventsService.carCrashed(gameEvent.getObjectName());
+        } else if (gameEvent instanceof GameClosed) {
+            games.computeIfPresent(gameEvent.getObjectName(), (name, game) -> {
+                game.getCarsNames().forEach(carName -> carRegistry.unregister(carName, game.getGameId()));
+                getShard(game.getGameId()).removeGame(game.getGameId());
+                if (Objects.nonNull(journal)) {
+                    checkpointVersions.remove(game.getGameId());
+                    journal.gameClosed(game.getGameId());
                 }
+                gameEventsService.gameClosed(((GameClosed) gameEvent).getGameId());
+                return null;
+            });
+        } else if (gameEvent instanceof MovableObjectMoved) {
+            MovableObjectMoved e = (MovableObjectMoved) gameEvent;
+            gameEventsService.storeCarMoveForward(e.getGameId(), e.getObjectName(), e.calculateDistance(), e.getEventTimestamp());
+        } else if (gameEvent instanceof MovableObjectTurned) {
+            MovableObjectTurned e = (MovableObjectTurned) gameEvent;
+            if (TurnedDirection.RIGHT.equals(e.getTurnedDirection())) {
+                gameEventsService.storeCarTurnRight(e.getGameId(), e.getObjectName(), e.getEventTimestamp());
+            } else if (TurnedDirection.LEFT.equals(e.getTurnedDirection())) {
+                gameEventsService.storeCarTurnLeft(e.getGameId(), e.getObjectName(), e.getEventTimestamp());
             }
-        });
+        } else if (gameEvent instanceof MovableObjectAdded) {
+            MovableObjectAdded e = (MovableObjectAdded) gameEvent;
+            gameEventsService.storeCarPlaced(e.getGameId(), e.getObjectName(), e.getCarType(), e.getPositionX(), e.getPositionY(),
+                    e.getDirection(), e.getEventTimestamp());
+        } else if (gameEvent instanceof MovableObjectRemoved) {
+            MovableObjectRemoved e = (MovableObjectRemoved) gameEvent;
+            gameEventsService.storeCarRemoved(e.getGameId(), e.getObjectName(), e.getEventTimestamp());
+        } else if (gameEvent instanceof MovableObjectRotated) {
+            MovableObjectRotated e = (MovableObjectRotated) gameEvent;
+            gameEventsService.storeCarDirection(e.getGameId(), e.getObjectName(), e.getDirection(), e.getEventTimestamp());
+        }
     }
 
     /**
@@ -110,16 +238,177 @@ public class GameManager {
      * @param game - the game which should be started
      */
     public void addAndStartGame(pl.speedapp.cargame.db.model.Game game) {
-        games.putIfAbsent(game.getName(), new Game(game.getName(), game.getId(), game.getMap().getRoads(), gameDuration, gameManagerEventBus, backInHistoryDelay));
-        games.get(game.getName()).start(threadPool);
+        games.computeIfAbsent(game.getName(), name -> {
+            GameShard shard = getShard(game.getId());
+            Game newGame = new Game(name, game.getId(), game.getMap().getRoads(), shard.getEventBus(), getGameSettings());
+            shard.addGame(newGame);
+            return newGame;
+        }).start(threadPool);
+    }
+
+    /**
+     * Write checkpoints of the games changed since their last checkpoint. All of them are synced to the journal at
+     * once by its writer thread.
+     */
+    private void checkpointGames() {
+        try {
+            int written = 0;
+            for (Game game : games.values()) {
+                Long lastVersion = checkpointVersions.get(game.getGameId());
+                if (!game.isStarted() || (Objects.nonNull(lastVersion) && lastVersion == game.getStateVersion())) {
+                    continue;
+                }
+                Optional<GameCheckpoint> checkpoint = game.getCheckpoint();
+                if (checkpoint.isPresent()) {
+                    journal.write(checkpoint.get());
+                    checkpointVersions.put(game.getGameId(), checkpoint.get().getStateVersion());
+                    ++written;
+                }
+            }
+            if (written > 0) {
+                log.debug("Checkpoints of [{}] games written", written);
+            }
+        } catch (RuntimeException e) {
+            // timer must keep going, next checkpoint is taken after the interval
+            log.error("Cannot take checkpoints of the games", e);
+        }
+    }
+
+    /**
+     * Start the game again from its checkpoint, with all cars placed where they were and moves back in the history
+     * continued
+     *
+     * @param game - the game which was running before the restart
+     * @return false if there is no checkpoint of the game and it can't be restored
+     */
+    public boolean restoreGame(pl.speedapp.cargame.db.model.Game game) {
+        return restoreGame(game, null);
+    }
+
+    /**
+     * Start the game again from its checkpoint followed by the moves journaled after the checkpoint
+     *
+     * @param game        - the game which was running before the restart
+     * @param journalCars - cars of the game replayed from its move journal, null if the game has no journal
+     * @return false if there is no checkpoint of the game and it can't be restored
+     */
+    public boolean restoreGame(pl.speedapp.cargame.db.model.Game game, List<CarDto> journalCars) {
+        GameCheckpoint checkpoint = restoredCheckpoints.remove(game.getId());
+        if (Objects.isNull(checkpoint)) {
+            return false;
+        }
+
+        addAndStartGame(game);
+        Game restoredGame = getRunningGame(game.getId());
+        for (GameCheckpoint.CarCheckpoint car : getRestoredCars(checkpoint, journalCars)) {
+            if (!carRegistry.register(car.getName(), game.getId())) {
+                log.warn("Car [{}] is being used in other game, so it is not restored in the game [{}]", car.getName(), game.getId());
+                continue;
+            }
+            try {
+                restoredGame.restoreCar(car);
+                Set<String> carNames = getShard(game.getId()).getCarNames(game.getId());
+                if (Objects.nonNull(carNames)) {
+                    carNames.add(car.getName());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Car [{}] cannot be restored in the game [{}]", car.getName(), game.getId(), e);
+                carRegistry.unregister(car.getName(), game.getId());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Journal has all moves of the game, also the ones made after the checkpoint, so the cars are placed as the journal
+     * leaves them. Cars removed or crashed after the checkpoint are not restored. Move back in the history of the car
+     * is continued only if the car has not changed since the checkpoint, otherwise the car stays where the journal
+     * leaves it.
+     */
+    private List<GameCheckpoint.CarCheckpoint> getRestoredCars(GameCheckpoint checkpoint, List<CarDto> journalCars) {
+        if (Objects.isNull(journalCars)) {
+            return checkpoint.getCars();
+        }
+        Map<String, GameCheckpoint.CarCheckpoint> checkpointCars = checkpoint.getCars().stream()
+                .collect(Collectors.toMap(GameCheckpoint.CarCheckpoint::getName, car -> car));
+        List<GameCheckpoint.CarCheckpoint> cars = new ArrayList<>(journalCars.size());
+        for (CarDto journalCar : journalCars) {
+            CarStatusDto status = journalCar.getCurrentStatus();
+            // positions of the dto start from 0, on the grid from 1
+            int x = status.getX() + 1;
+            int y = status.getY() + 1;
+            GameCheckpoint.CarCheckpoint car = checkpointCars.get(journalCar.getName());
+            if (Objects.nonNull(car) && car.getX() == x && car.getY() == y && car.getDirection().equals(status.getDirection())) {
+                cars.add(car);
+            } else {
+                cars.add(GameCheckpoint.CarCheckpoint.builder()
+                        .name(journalCar.getName())
+                        .type(journalCar.getType())
+                        .x(x)
+                        .y(y)
+                        .direction(status.getDirection())
+                        .build());
+            }
+        }
+        log.info("Game [{}] restored from the checkpoint of [{}] cars and the journal of [{}] cars", checkpoint.getGameId(),
+                checkpoint.getCars().size(), journalCars.size());
+        return cars;
+    }
+
+    /**
+     * Forget checkpoints of the games which have not been restored, e.g. finished by other node in the meantime
+     */
+    public void discardRestoredCheckpoints() {
+        restoredCheckpoints.keySet().forEach(gameId -> {
+            restoredCheckpoints.remove(gameId);
+            journal.gameClosed(gameId);
+        });
+    }
+
+    private GameSettings getGameSettings() {
+        return GameSettings.builder()
+                .duration(gameDuration)
+                .backInHistoryDelay(backInHistoryDelay)
+                .gridType(gridType)
+                .engineMode(engineMode)
+                .executors(executors)
+                .commandQueueCapacity(commandQueueCapacity)
+                .commandOverflowPolicy(commandOverflowPolicy)
+                .moveHistoryCapacity(moveHistoryCapacity)
+                .ringSize(ringSize)
+                .waitStrategy(waitStrategy)
+                .stateListener(gameStateListener)
+                .build();
     }
 
     public boolean checkIfGameWithNameIsRunning(String gameName) {
         return games.containsKey(gameName);
     }
 
+    public int getRunningGamesCount() {
+        return games.size();
+    }
+
+    /**
+     * @return number of car commands waiting to be performed in all running games
+     */
+    public int getPendingCommandsCount() {
+        return games.values().stream().mapToInt(Game::getPendingCommandsCount).sum();
+    }
+
     public List<Long> getGamesIds() {
-        return games.values().stream().map(Game::getGameId).collect(Collectors.toList());
+        List<Long> gameIds = new ArrayList<>();
+        for (GameShard shard : shards) {
+            gameIds.addAll(shard.getGameIds());
+        }
+        return gameIds;
+    }
+
+    /**
+     * @return id of the game in which the car is being used, also if the game runs on other node of the cluster
+     */
+    public Optional<Long> getGameIdByCarName(String carName) {
+        return carRegistry.getGameId(carName);
     }
 
     /**
@@ -129,8 +418,7 @@ public class GameManager {
      * @return - the game as {@link Optional}
      */
     public Optional<Game> getGameByCarName(String carName) {
-        Long gameId = carsInGames.get(carName);
-        return Objects.nonNull(gameId) ? getGameById(gameId) : Optional.empty();
+        return carRegistry.getGameId(carName).flatMap(this::getGameById);
     }
 
     /**
@@ -140,25 +428,29 @@ public class GameManager {
      * @return - the game as {@link Optional}
      */
     private Optional<Game> getGameById(Long gameId) {
-        AtomicReference<Game> game = new AtomicReference<>();
-        if (Objects.nonNull(gameId)) {
-            games.forEach((gameName, g) -> {
-                if (g.getGameId().equals(gameId)) {
-                    game.set(g);
-                }
-            });
-        }
-
-        return Optional.ofNullable(game.get());
+        return Objects.nonNull(gameId) ? Optional.ofNullable(getShard(gameId).getGame(gameId)) : Optional.empty();
     }
 
     public RunningGameDto getRunningGameDto(Long gameId) {
-        Game game = getGameById(gameId).orElseThrow(() -> {
+        return getRunningGame(gameId).getRunningGameDto();
+    }
+
+    /**
+     * @return cars of the running game changed since the given state version
+     */
+    public RunningGameDto getRunningGameDto(Long gameId, long sinceVersion) {
+        return getRunningGame(gameId).getRunningGameDto(sinceVersion);
+    }
+
+    public long getGameStateVersion(Long gameId) {
+        return getRunningGame(gameId).getStateVersion();
+    }
+
+    private Game getRunningGame(Long gameId) {
+        return getGameById(gameId).orElseThrow(() -> {
             log.debug("Game with id [{}] cannot found.", gameId);
             return new GameMapNotFoundException(gameId);
         });
-
-        return game.getRunningGameDto();
     }
 
     /**
@@ -217,6 +509,18 @@ public class GameManager {
         return game.getGameId();
     }
 
+    /**
+     * Get last moves of the car from the running game
+     *
+     * @param gameId        - id of the game
+     * @param carName       - name of the car
+     * @param numberOfMoves - number of requested moves
+     * @return moves, the most recent first, or empty if the game is not running here or keeps less moves than requested
+     */
+    public Optional<List<CarHistoryMoveEvent>> getLastMoves(Long gameId, String carName, int numberOfMoves) {
+        return getGameById(gameId).flatMap(game -> game.getLastMoves(carName, numberOfMoves));
+    }
+
     /**
      * Support for return N movements back in the history of the car in provided game
      *
@@ -238,7 +542,7 @@ public class GameManager {
                 throw new GameNotRunningException(gameName);
             }
 
-            Long gameId = carsInGames.get(carName);
+            Long gameId = carRegistry.getGameId(carName).orElse(null);
             if (Objects.isNull(gameId) || !game.getGameId().equals(gameId)) {
                 throw new CarNotFoundInGameException(carName, game.getGameId());
             }
@@ -252,11 +556,11 @@ public class GameManager {
     public void addCarToTheGame(Long gameId, String carName, CarType carType, Integer positionX, Integer positionY) {
         log.debug("Add car [{}] to game [{}] at position [x={}, y={}]", carName, gameId, positionX, positionY);
 
-        carsInGames.compute(carName, (name, car) -> {
-            if (Objects.nonNull(car)) {
-                throw new CarIsBeingUsedInGameException(carName, gameId);
-            }
+        if (!carRegistry.register(carName, gameId)) {
+            throw new CarIsBeingUsedInGameException(carName, gameId);
+        }
 
+        try {
             log.debug("Car [{}] not used in other games, adding to game [{}] at position [x={}, y={}]", carName, gameId, positionX, positionY);
             Game game = getGameById(gameId).orElseThrow(() -> {
                 log.debug("Game with id [{}] is not active.", gameId);
@@ -268,33 +572,39 @@ public class GameManager {
                 throw new RuntimeException("Unknown exception while adding car [" + carName + "] to game [" + gameId + "]");
             }
             log.info("Car [{}] ADDED to game [{}] at position [x={}, y={}]", carName, gameId, positionX, positionY);
-
-            return gameId;
-        });
-
-        carsInGames.putIfAbsent(carName, gameId);
+            Set<String> carNames = getShard(gameId).getCarNames(gameId);
+            if (Objects.nonNull(carNames)) {
+                carNames.add(carName);
+            }
+        } catch (RuntimeException e) {
+            carRegistry.unregister(carName, gameId);
+            throw e;
+        }
     }
 
     public void removeCar(Long gameId, String carName) {
         log.debug("Remove car [{}] from game [{}]", carName, gameId);
 
-        carsInGames.compute(carName, (name, gid) -> {
-            if (gid == null || gid.longValue() != gameId.longValue()) {
-                throw new CarNotFoundInGameException(carName, gameId);
-            }
+        if (!carRegistry.getGameId(carName).filter(gameId::equals).isPresent()) {
+            throw new CarNotFoundInGameException(carName, gameId);
+        }
 
-            getGameById(gameId)
-                    .orElseThrow(() -> new GameNotActiveException(gameId))
-                    .removeCar(carName);
-            return null;
-        });
+        getGameById(gameId)
+                .orElseThrow(() -> new GameNotActiveException(gameId))
+                .removeCar(carName);
+        carRegistry.unregister(carName, gameId);
+        removeFromCarNamesIndex(gameId, carName);
     }
 
     public List<String> getCarNamesInGame(Long gameId) {
-        Map<String, Long> carsCopy = new HashMap<>(carsInGames);
-        return carsCopy.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(gameId))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        Set<String> carNames = getShard(gameId).getCarNames(gameId);
+        return Objects.nonNull(carNames) ? new ArrayList<>(carNames) : Collections.emptyList();
+    }
+
+    private void removeFromCarNamesIndex(Long gameId, String carName) {
+        Set<String> carNames = getShard(gameId).getCarNames(gameId);
+        if (Objects.nonNull(carNames)) {
+            carNames.remove(carName);
+        }
     }
 }
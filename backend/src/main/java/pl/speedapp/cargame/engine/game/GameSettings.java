@@ -0,0 +1,57 @@
+package pl.speedapp.cargame.engine.game;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import pl.speedapp.cargame.engine.car.CarCommandQueue;
+import pl.speedapp.cargame.engine.car.CommandOverflowPolicy;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.queue.WaitStrategy;
+
+/**
+ * Engine settings applied to the single {@link Game}
+ */
+@Getter
+@Builder
+@ToString
+public class GameSettings {
+
+    // game duration (in seconds) without any car command
+    private Integer duration;
+
+    // delay (in milliseconds) between each move while moving back in the history
+    private int backInHistoryDelay;
+
+    @Builder.Default
+    private GridType gridType = GridType.HASH;
+
+    @Builder.Default
+    private EngineMode engineMode = EngineMode.THREAD_PER_CAR;
+
+    // max number of waiting commands of the single car
+    @Builder.Default
+    private int commandQueueCapacity = CarCommandQueue.DEFAULT_CAPACITY;
+
+    @Builder.Default
+    private CommandOverflowPolicy commandOverflowPolicy = CommandOverflowPolicy.REJECT;
+
+    // max number of last moves of the single car kept in memory for moving back in the history, 0 - disabled
+    @Builder.Default
+    private int moveHistoryCapacity = 100;
+
+    // capacity of the ring buffers passing commands and events of the game
+    @Builder.Default
+    private int ringSize = 4096;
+
+    // how the game threads wait for the commands and events
+    @Builder.Default
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    // executors for car engines of the game
+    @Builder.Default
+    private GameExecutors executors = GameExecutors.DEFAULT;
+
+    // receives changes of the game state, e.g. to push them to the clients watching the game
+    @Builder.Default
+    private GameStateListener stateListener = GameStateListener.NONE;
+}
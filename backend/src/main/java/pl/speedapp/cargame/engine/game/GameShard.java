@@ -0,0 +1,97 @@
+package pl.speedapp.cargame.engine.game;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.engine.grid.events.Event;
+import pl.speedapp.cargame.engine.queue.DrainTask;
+import pl.speedapp.cargame.engine.queue.RingBuffer;
+import pl.speedapp.cargame.engine.queue.WaitStrategy;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Subset of the running games selected by the hash of the game id. Each shard has own event bus and own thread passing
+ * events of its games to the persistence, so games of different shards never wait for each other.
+ */
+@Slf4j
+class GameShard {
+
+    // max number of events handled at once by the event bus thread
+    private static final int EVENT_BATCH_SIZE = 256;
+
+    @Getter
+    private final int index;
+
+    // events of all games of the shard
+    @Getter
+    private final RingBuffer<Event> eventBus;
+
+    // key: game id, value: game object
+    private final ConcurrentMap<Long, Game> games;
+
+    // key: game id, value: names of the cars in the game
+    private final ConcurrentMap<Long, Set<String>> carNamesByGameId;
+
+    GameShard(int index, int ringSize, WaitStrategy waitStrategy) {
+        this.index = index;
+        this.eventBus = new RingBuffer<>(ringSize, waitStrategy);
+        this.games = new ConcurrentHashMap<>();
+        this.carNamesByGameId = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start the thread passing events of the shard to the handler one by one. On the shared pool events are passed by
+     * the task submitted only when there are events, so the shard doesn't hold the thread of the pool.
+     */
+    void start(ExecutorService threadPool, Consumer<Event> eventHandler, boolean shared) {
+        if (shared) {
+            DrainTask drainTask = new DrainTask("shard-" + index, threadPool, () -> {
+                eventBus.drain(eventHandler, EVENT_BATCH_SIZE);
+                return true;
+            }, () -> !eventBus.isEmpty());
+            eventBus.onPublish(drainTask::signal);
+            return;
+        }
+
+        threadPool.submit(() -> {
+            while (true) {
+                eventHandler.accept(eventBus.take());
+                eventBus.drain(eventHandler, EVENT_BATCH_SIZE);
+            }
+        });
+    }
+
+    void addGame(Game game) {
+        carNamesByGameId.put(game.getGameId(), ConcurrentHashMap.newKeySet());
+        games.put(game.getGameId(), game);
+    }
+
+    void removeGame(Long gameId) {
+        games.remove(gameId);
+        carNamesByGameId.remove(gameId);
+    }
+
+    Game getGame(Long gameId) {
+        return games.get(gameId);
+    }
+
+    Set<Long> getGameIds() {
+        return games.keySet();
+    }
+
+    /**
+     * @return names of the cars in the game, or null if the game is not running in this shard
+     */
+    Set<String> getCarNames(Long gameId) {
+        return carNamesByGameId.get(gameId);
+    }
+
+    @Override
+    public String toString() {
+        return "GameShard[" + index + ", games=" + games.size() + ", " + eventBus + "]";
+    }
+}
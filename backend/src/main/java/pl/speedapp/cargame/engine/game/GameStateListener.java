@@ -0,0 +1,34 @@
+package pl.speedapp.cargame.engine.game;
+
+import pl.speedapp.cargame.api.model.RunningGameEventDto;
+
+/**
+ * Receives changes of the running games state. Methods are called by the game engine threads, so they should
+ * not block.
+ */
+public interface GameStateListener {
+
+    GameStateListener NONE = new GameStateListener() {
+        @Override
+        public boolean isWatched(Long gameId) {
+            return false;
+        }
+
+        @Override
+        public void carChanged(Long gameId, RunningGameEventDto event) {
+        }
+
+        @Override
+        public void gameClosed(Long gameId) {
+        }
+    };
+
+    /**
+     * @return true if changes of the game should be published
+     */
+    boolean isWatched(Long gameId);
+
+    void carChanged(Long gameId, RunningGameEventDto event);
+
+    void gameClosed(Long gameId);
+}
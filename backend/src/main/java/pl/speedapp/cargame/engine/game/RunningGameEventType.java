@@ -0,0 +1,34 @@
+package pl.speedapp.cargame.engine.game;
+
+public enum RunningGameEventType {
+
+    /**
+     * Car has been placed on the grid
+     */
+    ADDED,
+
+    /**
+     * Car has been moved forward
+     */
+    MOVED,
+
+    /**
+     * Car has been turned left or right
+     */
+    TURNED,
+
+    /**
+     * Car has changed its state while moving back in the history
+     */
+    UPDATED,
+
+    /**
+     * Car has been crashed and it's no longer on the grid
+     */
+    DESTROYED,
+
+    /**
+     * Car has been removed from the game
+     */
+    REMOVED
+}
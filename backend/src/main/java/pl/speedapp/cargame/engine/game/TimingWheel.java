@@ -0,0 +1,237 @@
+package pl.speedapp.cargame.engine.game;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel tracking idle deadlines of all games. Each deadline is put into the bucket of the tick in which
+ * it expires, the single worker thread advances the wheel every tick and runs expired tasks. Task runs not earlier
+ * than requested and at most one tick later. Scheduling is lock free, so the deadline can be set on the hot path.
+ * <p>
+ * Worker thread is started with the first deadline and waits without any wakeups while there are no deadlines. Tasks
+ * run on the worker thread, so they have to be short and must not block.
+ */
+@Slf4j
+public class TimingWheel {
+
+    // default duration (in milliseconds) of the single tick
+    public static final long DEFAULT_TICK_DURATION = 100;
+
+    private static final int WHEEL_SIZE = 512;
+
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    @Getter
+    private final long tickDuration;
+
+    private final long tickNanos;
+
+    private final ThreadFactory threadFactory;
+
+    // buckets of the timeouts by tick, used only by the worker thread
+    private final ArrayDeque<Timeout>[] wheel;
+
+    // timeouts scheduled since the last tick, moved to the buckets by the worker thread
+    private final Queue<Timeout> added;
+
+    // number of timeouts which are neither expired nor cancelled
+    private final AtomicInteger pending;
+
+    // worker waits on it while there are no timeouts
+    private final Object lock;
+
+    private final long startTime;
+
+    // guarded by lock
+    private Thread worker;
+
+    private volatile boolean stopped;
+
+    // last tick handled by the worker thread
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickDuration, TimeUnit unit, ThreadFactory threadFactory) {
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("Timing wheel tick duration must be greater than 0, got " + tickDuration);
+        }
+        this.tickDuration = unit.toMillis(tickDuration);
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.threadFactory = threadFactory;
+        this.wheel = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.added = new ConcurrentLinkedQueue<>();
+        this.pending = new AtomicInteger();
+        this.lock = new Object();
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * Run the task once after the delay
+     *
+     * @return timeout which can be cancelled before it expires
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timing wheel has been stopped");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        added.add(timeout);
+        if (pending.getAndIncrement() == 0) {
+            // worker could wait for the first timeout
+            synchronized (lock) {
+                if (worker == null) {
+                    worker = threadFactory.newThread(this::run);
+                    worker.start();
+                }
+                lock.notifyAll();
+            }
+        }
+        return timeout;
+    }
+
+    /**
+     * @return number of timeouts which are neither expired nor cancelled
+     */
+    public int getPendingTimeouts() {
+        return pending.get();
+    }
+
+    public void stop() {
+        stopped = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        tick = currentTick();
+        while (!stopped) {
+            try {
+                synchronized (lock) {
+                    if (pending.get() == 0) {
+                        while (pending.get() == 0 && !stopped) {
+                            lock.wait();
+                        }
+                        // nothing has been waiting in the meantime, so the wheel jumps straight to the current tick
+                        tick = currentTick();
+                    }
+                    long sleepTime = startTime + (tick + 1) * tickNanos - System.nanoTime();
+                    if (sleepTime > 0 && !stopped) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, sleepTime);
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.warn("Timing wheel worker interrupted, stopping.");
+                return;
+            }
+
+            long current = currentTick();
+            while (tick < current && !stopped) {
+                ++tick;
+                transferAdded();
+                expire(wheel[(int) (tick & MASK)]);
+            }
+        }
+    }
+
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            // ceiling, so the timeout never expires before its deadline
+            long expireTick = Math.max(tick, (timeout.deadline - startTime + tickNanos - 1) / tickNanos);
+            timeout.remainingRounds = (expireTick - tick) / WHEEL_SIZE;
+            wheel[(int) (expireTick & MASK)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        Iterator<Timeout> timeouts = bucket.iterator();
+        while (timeouts.hasNext()) {
+            Timeout timeout = timeouts.next();
+            if (timeout.isCancelled()) {
+                timeouts.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                timeouts.remove();
+                timeout.expire();
+            } else {
+                --timeout.remainingRounds;
+            }
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startTime) / tickNanos;
+    }
+
+    /**
+     * Single deadline on the wheel
+     */
+    public final class Timeout {
+
+        private static final int WAITING = 0;
+
+        private static final int CANCELLED = 1;
+
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private final AtomicInteger state;
+
+        // number of full rotations of the wheel left, used only by the worker thread
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger(WAITING);
+        }
+
+        /**
+         * @return false if the task has already run or the timeout has been cancelled before
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) {
+                return;
+            }
+            pending.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Timing wheel task failed.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package pl.speedapp.cargame.engine.grid;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.engine.exception.NoEmptyPositionsAvailableException;
+import pl.speedapp.cargame.engine.exception.PositionAlreadyTakenException;
+import pl.speedapp.cargame.engine.exception.PositionOutOfRangeException;
+import pl.speedapp.cargame.engine.grid.commands.Command;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
+import pl.speedapp.cargame.engine.grid.commands.TurnRight;
+import pl.speedapp.cargame.engine.grid.events.*;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.movement.TurnedDirection;
+import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+
+import java.util.*;
+
+/**
+ * Grid which keeps the whole board in flat primitive arrays indexed by cell number {@code (y - 1) * size + (x - 1)}.
+ * Slots of the movable objects index the object arrays, commands with the slot don't need to look up the name.
+ */
+@Slf4j
+public class ArrayGrid implements Grid {
+
+    private static final int EMPTY = NO_SLOT;
+
+    private static final int INITIAL_SLOTS = 16;
+
+    @Getter
+    private final int size;
+
+    // bit set of cells taken by walls/StationaryObjects
+    private final long[] walls;
+
+    // slot of the movable object at the cell or EMPTY
+    private final int[] occupants;
+
+    // cell of the movable object by its slot
+    private int[] cellBySlot;
+
+    private MovableObject[] objectBySlot;
+
+    private final SlotAllocator slots;
+
+    private final Map<String, Integer> slotByName;
+
+    private int emptyPositionCount;
+
+    {
+        slotByName = new HashMap<>();
+        cellBySlot = new int[INITIAL_SLOTS];
+        objectBySlot = new MovableObject[INITIAL_SLOTS];
+        slots = new SlotAllocator();
+    }
+
+    public ArrayGrid(int[][] map) {
+        this.size = map.length;
+        this.walls = new long[(size * size + Long.SIZE - 1) / Long.SIZE];
+        this.occupants = new int[size * size];
+        Arrays.fill(occupants, EMPTY);
+
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                int cell = i * size + j;
+                if (map[i][j] == 0) {
+                    //wall/StationaryObject
+                    walls[cell / Long.SIZE] |= 1L << cell;
+                } else {
+                    emptyPositionCount++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized MovableObjectAdded addObject(int x, int y, MovableObject object) {
+        if (emptyPositionCount == 0) {
+            throw new NoEmptyPositionsAvailableException();
+        }
+        if (isOutside(x, y)) {
+            throw new PositionOutOfRangeException(x, y);
+        }
+        int cell = cellOf(x, y);
+        if (isWall(cell) || occupants[cell] != EMPTY) {
+            throw new PositionAlreadyTakenException(x, y);
+        }
+
+        String objectName = object.getName();
+        log.debug("Adding MovableObject [{}] at [x={}, y={}]", objectName, x, y);
+
+        int slot = acquireSlot();
+        object.setSlot(slot);
+        objectBySlot[slot] = object;
+        cellBySlot[slot] = cell;
+        occupants[cell] = slot;
+        slotByName.put(objectName, slot);
+        emptyPositionCount--;
+        return new MovableObjectAdded(objectName, slot, x, y, object.getDirection());
+    }
+
+    @Override
+    public synchronized List<Event> removeObject(String movableObjectName) {
+        Integer slot = slotByName.get(movableObjectName);
+        if (slot == null) {
+            return new LinkedList<>();
+        }
+
+        int cell = cellBySlot[slot];
+        log.debug("Clearing the position: [x={}, y={}]", xOf(cell), yOf(cell));
+        occupants[cell] = EMPTY;
+        emptyPositionCount++;
+        releaseSlot(movableObjectName, slot);
+
+        List<Event> events = new LinkedList<>();
+        events.add(new MovableObjectRemoved(movableObjectName, slot, xOf(cell), yOf(cell)));
+        return events;
+    }
+
+    @Override
+    public synchronized boolean containsObject(String name) {
+        return slotByName.containsKey(name);
+    }
+
+    @Override
+    public synchronized MovableObject getMovableObject(String name) {
+        return getObject(name);
+    }
+
+    @Override
+    public synchronized Position getPosition(String name) {
+        Integer slot = slotByName.get(name);
+        return slot == null ? null : new Position(xOf(cellBySlot[slot]), yOf(cellBySlot[slot]));
+    }
+
+    @Override
+    public synchronized int getEmptyPositionCount() {
+        return emptyPositionCount;
+    }
+
+    @Override
+    public List<Event> handle(MoveForward command) {
+        MoveEventCollector collector = new MoveEventCollector();
+        handle(command, collector);
+        return collector.getEvents();
+    }
+
+    @Override
+    public synchronized void handle(MoveForward command, MoveEventSink sink) {
+        int slot = slotOf(command);
+        if (slot == NO_SLOT) {
+            return;
+        }
+
+        MovableObject object = objectBySlot[slot];
+        String objectName = object.getName();
+        int currentCell = cellBySlot[slot];
+        int currentPosition = Position.pack(xOf(currentCell), yOf(currentCell));
+        int targetPosition = object.getTargetPosition(currentPosition, command.getDistance());
+        int targetX = Position.unpackX(targetPosition);
+        int targetY = Position.unpackY(targetPosition);
+
+        // guarded, so the arguments are not boxed on the hot path
+        if (log.isDebugEnabled()) {
+            log.debug("Moving FORWARD [{}] from [x={}, y={}] to [x={}, y={}]", objectName, xOf(currentCell), yOf(currentCell), targetX, targetY);
+        }
+
+        occupants[currentCell] = EMPTY;
+        emptyPositionCount++;
+
+        //moving outside the map
+        if (Position.isOutside(targetX, targetY, size)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Object [{}] moved from [x={}, y={}] to outside the map!", objectName, xOf(currentCell), yOf(currentCell));
+            }
+            releaseSlot(objectName, slot);
+            sink.destroyed(objectName, slot, targetPosition, object.getDirection());
+            return;
+        }
+
+        int targetCell = cellOf(targetX, targetY);
+        if (isWall(targetCell)) {
+            releaseSlot(objectName, slot);
+            sink.destroyed(objectName, slot, targetPosition, null);
+            return;
+        }
+
+        int otherSlot = occupants[targetCell];
+        if (otherSlot == EMPTY) {
+            occupants[targetCell] = slot;
+            cellBySlot[slot] = targetCell;
+            emptyPositionCount--;
+        } else if (handleCollision(slot, otherSlot, targetCell, sink)) {
+            return;
+        }
+
+        sink.moved(objectName, slot, currentPosition, targetPosition, object.getDirection());
+    }
+
+    @Override
+    public synchronized Event handle(Rotate command) {
+        int slot = slotOf(command);
+        if (slot == NO_SLOT) {
+            return new MovableObjectRotated(command.getObjectName(), NO_SLOT, null);
+        }
+        MovableObject object = objectBySlot[slot];
+        object.rotate();
+        return new MovableObjectRotated(command.getObjectName(), slot, object.getDirection());
+    }
+
+    @Override
+    public Event handle(TurnLeft command) {
+        return handleTurnLeft(command, false);
+    }
+
+    @Override
+    public Event handle(TurnRight command) {
+        return handleTurnRight(command, false);
+    }
+
+    @Override
+    public Event handleReverse(TurnLeft command) {
+        return handleTurnLeft(command, true);
+    }
+
+    @Override
+    public Event handleReverse(TurnRight command) {
+        return handleTurnRight(command, true);
+    }
+
+    @Override
+    public synchronized Map<String, MovableObject> getMovableObjectByName() {
+        Map<String, MovableObject> result = new HashMap<>();
+        slotByName.forEach((name, slot) -> result.put(name, objectBySlot[slot]));
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Position> getPositionByObjectName() {
+        Map<String, Position> result = new HashMap<>();
+        slotByName.forEach((name, slot) -> result.put(name, new Position(xOf(cellBySlot[slot]), yOf(cellBySlot[slot]))));
+        return result;
+    }
+
+    private synchronized Event handleTurnLeft(TurnLeft command, boolean reverseMove) {
+        int slot = slotOf(command);
+        MovableObjectTurned event = new MovableObjectTurned(command.getObjectName(), slot);
+        if (slot != NO_SLOT) {
+            MovableObject object = objectBySlot[slot];
+            TurnedDirection turnedDirection = reverseMove ? object.reverseTurnLeft() : object.turnLeft();
+            event.setDirection(object.getDirection());
+            event.setTurnedDirection(turnedDirection);
+        }
+        return event;
+    }
+
+    private synchronized Event handleTurnRight(TurnRight command, boolean reverseMove) {
+        int slot = slotOf(command);
+        MovableObjectTurned event = new MovableObjectTurned(command.getObjectName(), slot);
+        if (slot != NO_SLOT) {
+            MovableObject object = objectBySlot[slot];
+            TurnedDirection turnedDirection = reverseMove ? object.reverseTurnRight() : object.turnRight();
+            event.setDirection(object.getDirection());
+            event.setTurnedDirection(turnedDirection);
+        }
+        return event;
+    }
+
+    /**
+     * Resolve collision of the moving object with the object which already occupies the target cell.
+     * The object with lower toughness is destroyed, both objects are destroyed when their toughness is equal.
+     *
+     * @return true if moving object has been destroyed
+     */
+    private boolean handleCollision(int movingSlot, int standingSlot, int cell, MoveEventSink sink) {
+        MovableObject movingObject = objectBySlot[movingSlot];
+        MovableObject standingObject = objectBySlot[standingSlot];
+        int position = Position.pack(xOf(cell), yOf(cell));
+
+        if (log.isDebugEnabled()) {
+            log.debug("Found two object at [x={}, y={}]: [OBJ_1=[{}], OBJ_2=[{}]]", xOf(cell), yOf(cell), standingObject.getName(), movingObject.getName());
+        }
+
+        boolean movingDestroyed = movingObject.getToughness() <= standingObject.getToughness();
+        boolean standingDestroyed = standingObject.getToughness() <= movingObject.getToughness();
+
+        if (movingDestroyed) {
+            releaseSlot(movingObject.getName(), movingSlot);
+            sink.destroyed(movingObject.getName(), movingSlot, position, null);
+        }
+        if (standingDestroyed) {
+            releaseSlot(standingObject.getName(), standingSlot);
+            sink.destroyed(standingObject.getName(), standingSlot, position, null);
+            if (movingDestroyed) {
+                occupants[cell] = EMPTY;
+                emptyPositionCount++;
+            } else {
+                occupants[cell] = movingSlot;
+                cellBySlot[movingSlot] = cell;
+            }
+        }
+        return movingDestroyed;
+    }
+
+    private MovableObject getObject(String name) {
+        Integer slot = slotByName.get(name);
+        return slot == null ? null : objectBySlot[slot];
+    }
+
+    /**
+     * Slot of the command object, the name is looked up only if command has no slot or the slot has been already
+     * reused by other object
+     */
+    private int slotOf(Command command) {
+        int slot = command.getObjectSlot();
+        if (slot >= 0 && slot < objectBySlot.length && objectBySlot[slot] != null
+                && objectBySlot[slot].getName().equals(command.getObjectName())) {
+            return slot;
+        }
+        Integer namedSlot = slotByName.get(command.getObjectName());
+        return namedSlot == null ? NO_SLOT : namedSlot;
+    }
+
+    private int acquireSlot() {
+        int slot = slots.acquire();
+        if (slot == objectBySlot.length) {
+            int newLength = objectBySlot.length * 2;
+            objectBySlot = Arrays.copyOf(objectBySlot, newLength);
+            cellBySlot = Arrays.copyOf(cellBySlot, newLength);
+        }
+        return slot;
+    }
+
+    private void releaseSlot(String name, int slot) {
+        slotByName.remove(name);
+        objectBySlot[slot] = null;
+        slots.release(slot);
+    }
+
+    private boolean isWall(int cell) {
+        return (walls[cell / Long.SIZE] & (1L << cell)) != 0;
+    }
+
+    private boolean isOutside(int x, int y) {
+        return x > size || y > size || x < 1 || y < 1;
+    }
+
+    private int cellOf(int x, int y) {
+        return (y - 1) * size + (x - 1);
+    }
+
+    private int xOf(int cell) {
+        return cell % size + 1;
+    }
+
+    private int yOf(int cell) {
+        return cell / size + 1;
+    }
+}
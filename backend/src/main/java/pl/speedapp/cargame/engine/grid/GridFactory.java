@@ -0,0 +1,22 @@
+package pl.speedapp.cargame.engine.grid;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Objects;
+
+@UtilityClass
+public class GridFactory {
+
+    public static Grid createGrid(GridType gridType, int[][] map) {
+        if (Objects.nonNull(map)) {
+            if (gridType == GridType.ARRAY) {
+                return new ArrayGrid(map);
+            } else if (gridType == GridType.STRIPED) {
+                return new StripedGrid(map);
+            } else {
+                return new HashGrid(map);
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
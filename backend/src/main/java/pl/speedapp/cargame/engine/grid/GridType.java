@@ -0,0 +1,19 @@
+package pl.speedapp.cargame.engine.grid;
+
+public enum GridType {
+
+    /**
+     * {@link HashGrid} - positions and objects kept in concurrent hash maps
+     */
+    HASH,
+
+    /**
+     * {@link ArrayGrid} - positions and objects kept in flat primitive arrays
+     */
+    ARRAY,
+
+    /**
+     * {@link StripedGrid} - positions and objects kept in flat arrays, cells guarded by striped locks
+     */
+    STRIPED
+}
@@ -0,0 +1,32 @@
+package pl.speedapp.cargame.engine.grid;
+
+import java.util.Arrays;
+
+/**
+ * Hands out dense slots to the objects placed on the grid. Released slots are reused first, so slots never exceed
+ * the max number of objects placed on the grid at once.
+ */
+class SlotAllocator {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+
+    private int freeSlotsCount;
+
+    private int nextSlot;
+
+    synchronized int acquire() {
+        if (freeSlotsCount > 0) {
+            return freeSlots[--freeSlotsCount];
+        }
+        return nextSlot++;
+    }
+
+    synchronized void release(int slot) {
+        if (freeSlotsCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotsCount++] = slot;
+    }
+}
@@ -0,0 +1,453 @@
+package pl.speedapp.cargame.engine.grid;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.engine.exception.NoEmptyPositionsAvailableException;
+import pl.speedapp.cargame.engine.exception.PositionAlreadyTakenException;
+import pl.speedapp.cargame.engine.exception.PositionOutOfRangeException;
+import pl.speedapp.cargame.engine.grid.commands.Command;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
+import pl.speedapp.cargame.engine.grid.commands.TurnRight;
+import pl.speedapp.cargame.engine.grid.events.*;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.movement.TurnedDirection;
+import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grid which keeps the board in flat arrays indexed by cell number {@code (y - 1) * size + (x - 1)}, like
+ * {@link ArrayGrid}, but instead of locking the whole grid it locks only the cells taking part in the change.
+ * Cells are guarded by striped locks ({@code cell % stripes}), so objects moving in different parts of the map
+ * don't wait for each other. When two cells are needed their locks are always taken in ascending stripe order.
+ * Objects are kept in arrays indexed by slot, there are never more objects than road cells, so slot arrays have
+ * fixed size.
+ */
+@Slf4j
+public class StripedGrid implements Grid {
+
+    static final int DEFAULT_STRIPES = 1024;
+
+    @Getter
+    private final int size;
+
+    // bit set of cells taken by walls/StationaryObjects, never changed after creation
+    private final long[] walls;
+
+    // movable object at the cell or null, guarded by the lock of the cell
+    private final MovableObject[] occupants;
+
+    private final ReentrantLock[] locks;
+
+    private final int stripeMask;
+
+    // slots are changed only under the lock of the cell taken by the object
+    private final AtomicReferenceArray<MovableObject> objectBySlot;
+
+    private final AtomicIntegerArray cellBySlot;
+
+    private final ConcurrentMap<String, Integer> slotByName;
+
+    private final SlotAllocator slots;
+
+    private final AtomicInteger emptyPositionCount;
+
+    {
+        slotByName = new ConcurrentHashMap<>();
+        slots = new SlotAllocator();
+        emptyPositionCount = new AtomicInteger();
+    }
+
+    public StripedGrid(int[][] map) {
+        this(map, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes max number of locks guarding the cells, rounded up to the power of two
+     */
+    public StripedGrid(int[][] map, int stripes) {
+        this.size = map.length;
+        this.walls = new long[(size * size + Long.SIZE - 1) / Long.SIZE];
+        this.occupants = new MovableObject[size * size];
+
+        int locksCount = Integer.highestOneBit(Math.max(1, Math.min(stripes, size * size) * 2 - 1));
+        this.locks = new ReentrantLock[locksCount];
+        for (int i = 0; i < locksCount; ++i) {
+            locks[i] = new ReentrantLock();
+        }
+        this.stripeMask = locksCount - 1;
+
+        int empty = 0;
+        for (int i = 0; i < size; ++i) {
+            for (int j = 0; j < size; ++j) {
+                int cell = i * size + j;
+                if (map[i][j] == 0) {
+                    //wall/StationaryObject
+                    walls[cell / Long.SIZE] |= 1L << cell;
+                } else {
+                    empty++;
+                }
+            }
+        }
+        emptyPositionCount.set(empty);
+        this.objectBySlot = new AtomicReferenceArray<>(Math.max(1, empty));
+        this.cellBySlot = new AtomicIntegerArray(Math.max(1, empty));
+    }
+
+    @Override
+    public MovableObjectAdded addObject(int x, int y, MovableObject object) {
+        if (emptyPositionCount.get() == 0) {
+            throw new NoEmptyPositionsAvailableException();
+        }
+        if (isOutside(x, y)) {
+            throw new PositionOutOfRangeException(x, y);
+        }
+        int cell = cellOf(x, y);
+        if (isWall(cell)) {
+            throw new PositionAlreadyTakenException(x, y);
+        }
+
+        String objectName = object.getName();
+        ReentrantLock lock = lockOf(cell);
+        lock.lock();
+        try {
+            if (occupants[cell] != null) {
+                throw new PositionAlreadyTakenException(x, y);
+            }
+            log.debug("Adding MovableObject [{}] at [x={}, y={}]", objectName, x, y);
+            int slot = slots.acquire();
+            object.setSlot(slot);
+            occupants[cell] = object;
+            cellBySlot.set(slot, cell);
+            objectBySlot.set(slot, object);
+            slotByName.put(objectName, slot);
+            emptyPositionCount.decrementAndGet();
+            return new MovableObjectAdded(objectName, slot, x, y, object.getDirection());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Event> removeObject(String movableObjectName) {
+        List<Event> events = new LinkedList<>();
+        while (true) {
+            Integer slot = slotByName.get(movableObjectName);
+            MovableObject object = slot == null ? null : objectBySlot.get(slot);
+            if (object == null || !object.getName().equals(movableObjectName)) {
+                return events;
+            }
+
+            int cell = cellBySlot.get(slot);
+            ReentrantLock lock = lockOf(cell);
+            lock.lock();
+            try {
+                // otherwise the object has been moved or destroyed in the meantime
+                if (occupants[cell] == object) {
+                    log.debug("Clearing the position: [x={}, y={}]", xOf(cell), yOf(cell));
+                    release(cell, object);
+                    events.add(new MovableObjectRemoved(movableObjectName, slot, xOf(cell), yOf(cell)));
+                    return events;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean containsObject(String name) {
+        return slotByName.containsKey(name);
+    }
+
+    @Override
+    public MovableObject getMovableObject(String name) {
+        Integer slot = slotByName.get(name);
+        return slot == null ? null : objectBySlot.get(slot);
+    }
+
+    @Override
+    public Position getPosition(String name) {
+        Integer slot = slotByName.get(name);
+        if (slot == null) {
+            return null;
+        }
+        int cell = cellBySlot.get(slot);
+        return new Position(xOf(cell), yOf(cell));
+    }
+
+    @Override
+    public int getEmptyPositionCount() {
+        return emptyPositionCount.get();
+    }
+
+    @Override
+    public List<Event> handle(MoveForward command) {
+        MoveEventCollector collector = new MoveEventCollector();
+        handle(command, collector);
+        return collector.getEvents();
+    }
+
+    /**
+     * Sink is called while the cells of the move are locked
+     */
+    @Override
+    public void handle(MoveForward command, MoveEventSink sink) {
+        while (true) {
+            int slot = slotOf(command);
+            MovableObject object = slot == NO_SLOT ? null : objectBySlot.get(slot);
+            if (object == null) {
+                return;
+            }
+            int currentCell = cellBySlot.get(slot);
+
+            int targetPosition = object.getTargetPosition(Position.pack(xOf(currentCell), yOf(currentCell)), command.getDistance());
+            boolean outside = Position.isOutside(Position.unpackX(targetPosition), Position.unpackY(targetPosition), size);
+            int targetCell = outside ? currentCell : cellOf(Position.unpackX(targetPosition), Position.unpackY(targetPosition));
+
+            lockCells(currentCell, targetCell);
+            try {
+                // object has been moved or destroyed by other object in the meantime, check it again
+                if (occupants[currentCell] != object) {
+                    continue;
+                }
+                moveObject(object, slot, currentCell, targetPosition, outside, targetCell, sink);
+                return;
+            } finally {
+                unlockCells(currentCell, targetCell);
+            }
+        }
+    }
+
+    @Override
+    public Event handle(Rotate command) {
+        int slot = slotOf(command);
+        MovableObject object = slot == NO_SLOT ? null : objectBySlot.get(slot);
+        if (object == null) {
+            return new MovableObjectRotated(command.getObjectName(), NO_SLOT, null);
+        }
+        object.rotate();
+        return new MovableObjectRotated(command.getObjectName(), slot, object.getDirection());
+    }
+
+    @Override
+    public Event handle(TurnLeft command) {
+        return handleTurnLeft(command, false);
+    }
+
+    @Override
+    public Event handle(TurnRight command) {
+        return handleTurnRight(command, false);
+    }
+
+    @Override
+    public Event handleReverse(TurnLeft command) {
+        return handleTurnLeft(command, true);
+    }
+
+    @Override
+    public Event handleReverse(TurnRight command) {
+        return handleTurnRight(command, true);
+    }
+
+    @Override
+    public Map<String, MovableObject> getMovableObjectByName() {
+        Map<String, MovableObject> result = new HashMap<>();
+        slotByName.forEach((name, slot) -> result.put(name, objectBySlot.get(slot)));
+        return result;
+    }
+
+    @Override
+    public Map<String, Position> getPositionByObjectName() {
+        Map<String, Position> result = new HashMap<>();
+        slotByName.forEach((name, slot) -> {
+            int cell = cellBySlot.get(slot);
+            result.put(name, new Position(xOf(cell), yOf(cell)));
+        });
+        return result;
+    }
+
+    /**
+     * Move the object, both cells are locked by the caller
+     */
+    private void moveObject(MovableObject object, int slot, int currentCell, int targetPosition, boolean outside, int targetCell, MoveEventSink sink) {
+        String objectName = object.getName();
+
+        // guarded, so the arguments are not boxed on the hot path
+        if (log.isDebugEnabled()) {
+            log.debug("Moving FORWARD [{}] from [x={}, y={}] to [x={}, y={}]", objectName, xOf(currentCell), yOf(currentCell),
+                    Position.unpackX(targetPosition), Position.unpackY(targetPosition));
+        }
+
+        //moving outside the map
+        if (outside) {
+            if (log.isDebugEnabled()) {
+                log.debug("Object [{}] moved from [x={}, y={}] to outside the map!", objectName, xOf(currentCell), yOf(currentCell));
+            }
+            release(currentCell, object);
+            sink.destroyed(objectName, slot, targetPosition, object.getDirection());
+            return;
+        }
+
+        if (isWall(targetCell)) {
+            release(currentCell, object);
+            sink.destroyed(objectName, slot, targetPosition, null);
+            return;
+        }
+
+        occupants[currentCell] = null;
+        MovableObject standingObject = occupants[targetCell];
+        if (standingObject == null) {
+            occupants[targetCell] = object;
+            cellBySlot.set(slot, targetCell);
+        } else if (handleCollision(object, standingObject, targetCell, sink)) {
+            return;
+        }
+
+        sink.moved(objectName, slot, Position.pack(xOf(currentCell), yOf(currentCell)), targetPosition, object.getDirection());
+    }
+
+    /**
+     * Resolve collision of the moving object with the object which already occupies the target cell.
+     * The object with lower toughness is destroyed, both objects are destroyed when their toughness is equal.
+     * Moving object has already left its cell.
+     *
+     * @return true if moving object has been destroyed
+     */
+    private boolean handleCollision(MovableObject movingObject, MovableObject standingObject, int cell, MoveEventSink sink) {
+        int position = Position.pack(xOf(cell), yOf(cell));
+
+        if (log.isDebugEnabled()) {
+            log.debug("Found two object at [x={}, y={}]: [OBJ_1=[{}], OBJ_2=[{}]]", xOf(cell), yOf(cell), standingObject.getName(), movingObject.getName());
+        }
+
+        boolean movingDestroyed = movingObject.getToughness() <= standingObject.getToughness();
+        boolean standingDestroyed = standingObject.getToughness() <= movingObject.getToughness();
+
+        // cell left by the moving object
+        emptyPositionCount.incrementAndGet();
+
+        if (movingDestroyed) {
+            sink.destroyed(movingObject.getName(), movingObject.getSlot(), position, null);
+            forget(movingObject);
+        }
+        if (standingDestroyed) {
+            sink.destroyed(standingObject.getName(), standingObject.getSlot(), position, null);
+            forget(standingObject);
+            if (movingDestroyed) {
+                occupants[cell] = null;
+                emptyPositionCount.incrementAndGet();
+            } else {
+                occupants[cell] = movingObject;
+                cellBySlot.set(movingObject.getSlot(), cell);
+            }
+        }
+        return movingDestroyed;
+    }
+
+    private Event handleTurnLeft(TurnLeft command, boolean reverseMove) {
+        int slot = slotOf(command);
+        MovableObject object = slot == NO_SLOT ? null : objectBySlot.get(slot);
+        MovableObjectTurned event = new MovableObjectTurned(command.getObjectName(), object == null ? NO_SLOT : slot);
+        if (object != null) {
+            TurnedDirection turnedDirection = reverseMove ? object.reverseTurnLeft() : object.turnLeft();
+            event.setDirection(object.getDirection());
+            event.setTurnedDirection(turnedDirection);
+        }
+        return event;
+    }
+
+    private Event handleTurnRight(TurnRight command, boolean reverseMove) {
+        int slot = slotOf(command);
+        MovableObject object = slot == NO_SLOT ? null : objectBySlot.get(slot);
+        MovableObjectTurned event = new MovableObjectTurned(command.getObjectName(), object == null ? NO_SLOT : slot);
+        if (object != null) {
+            TurnedDirection turnedDirection = reverseMove ? object.reverseTurnRight() : object.turnRight();
+            event.setDirection(object.getDirection());
+            event.setTurnedDirection(turnedDirection);
+        }
+        return event;
+    }
+
+    /**
+     * Take the object off the grid, lock of the cell is held by the caller
+     */
+    private void release(int cell, MovableObject object) {
+        occupants[cell] = null;
+        forget(object);
+        emptyPositionCount.incrementAndGet();
+    }
+
+    private void forget(MovableObject object) {
+        int slot = object.getSlot();
+        slotByName.remove(object.getName(), slot);
+        objectBySlot.set(slot, null);
+        slots.release(slot);
+    }
+
+    /**
+     * Slot of the command object, the name is looked up only if command has no slot or the slot has been already
+     * reused by other object
+     */
+    private int slotOf(Command command) {
+        int slot = command.getObjectSlot();
+        if (slot >= 0 && slot < objectBySlot.length()) {
+            MovableObject object = objectBySlot.get(slot);
+            if (object != null && object.getName().equals(command.getObjectName())) {
+                return slot;
+            }
+        }
+        Integer namedSlot = slotByName.get(command.getObjectName());
+        return namedSlot == null ? NO_SLOT : namedSlot;
+    }
+
+    private ReentrantLock lockOf(int cell) {
+        return locks[cell & stripeMask];
+    }
+
+    private void lockCells(int firstCell, int secondCell) {
+        int firstStripe = firstCell & stripeMask;
+        int secondStripe = secondCell & stripeMask;
+        locks[Math.min(firstStripe, secondStripe)].lock();
+        if (firstStripe != secondStripe) {
+            locks[Math.max(firstStripe, secondStripe)].lock();
+        }
+    }
+
+    private void unlockCells(int firstCell, int secondCell) {
+        int firstStripe = firstCell & stripeMask;
+        int secondStripe = secondCell & stripeMask;
+        if (firstStripe != secondStripe) {
+            locks[Math.max(firstStripe, secondStripe)].unlock();
+        }
+        locks[Math.min(firstStripe, secondStripe)].unlock();
+    }
+
+    private boolean isWall(int cell) {
+        return (walls[cell / Long.SIZE] & (1L << cell)) != 0;
+    }
+
+    private boolean isOutside(int x, int y) {
+        return x > size || y > size || x < 1 || y < 1;
+    }
+
+    private int cellOf(int x, int y) {
+        return (y - 1) * size + (x - 1);
+    }
+
+    private int xOf(int cell) {
+        return cell % size + 1;
+    }
+
+    private int yOf(int cell) {
+        return cell / size + 1;
+    }
+}
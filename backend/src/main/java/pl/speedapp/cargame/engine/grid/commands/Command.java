@@ -3,4 +3,9 @@ package pl.speedapp.cargame.engine.grid.commands;
 public interface Command {
 
     String getObjectName();
+
+    /**
+     * @return slot of the object on the grid or {@link pl.speedapp.cargame.engine.grid.Grid#NO_SLOT} if not known
+     */
+    int getObjectSlot();
 }
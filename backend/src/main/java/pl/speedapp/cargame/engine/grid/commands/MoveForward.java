@@ -2,6 +2,7 @@ package pl.speedapp.cargame.engine.grid.commands;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import pl.speedapp.cargame.engine.grid.Grid;
 
 @AllArgsConstructor
 public class MoveForward implements Command {
@@ -9,6 +10,14 @@ public class MoveForward implements Command {
     @Getter
     private String objectName;
 
+    // slot of the object on the grid, the name is used when the slot is not known
+    @Getter
+    private int objectSlot;
+
     @Getter
     private Integer distance;
+
+    public MoveForward(String objectName, Integer distance) {
+        this(objectName, Grid.NO_SLOT, distance);
+    }
 }
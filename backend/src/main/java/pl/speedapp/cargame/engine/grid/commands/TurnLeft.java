@@ -2,10 +2,19 @@ package pl.speedapp.cargame.engine.grid.commands;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import pl.speedapp.cargame.engine.grid.Grid;
 
 @AllArgsConstructor
 public class TurnLeft implements Command {
 
     @Getter
     private String objectName;
+
+    // slot of the object on the grid, the name is used when the slot is not known
+    @Getter
+    private int objectSlot;
+
+    public TurnLeft(String objectName) {
+        this(objectName, Grid.NO_SLOT);
+    }
 }
@@ -2,4 +2,10 @@ package pl.speedapp.cargame.engine.grid.events;
 
 public interface Event {
     String getObjectName();
+
+    /**
+     * @return slot of the object on the grid or {@link pl.speedapp.cargame.engine.grid.Grid#NO_SLOT} if event does
+     * not concern the grid object
+     */
+    int getObjectSlot();
 }
@@ -3,6 +3,7 @@ package pl.speedapp.cargame.engine.grid.events;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.ToString;
+import pl.speedapp.cargame.engine.grid.Grid;
 
 @AllArgsConstructor
 @ToString
@@ -11,4 +12,9 @@ public class GameClosed implements Event {
     private String objectName;
 
     private Long gameId;
+
+    @Override
+    public int getObjectSlot() {
+        return Grid.NO_SLOT;
+    }
 }
@@ -12,6 +12,8 @@ public class GridObjectDestroyed implements Event {
 
     private String objectName;
 
+    private int objectSlot;
+
     private int positionX;
 
     private int positionY;
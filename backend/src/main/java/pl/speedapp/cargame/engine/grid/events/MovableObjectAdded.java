@@ -2,19 +2,35 @@ package pl.speedapp.cargame.engine.grid.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.ToString;
+import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.engine.grid.movement.Direction;
 
 @AllArgsConstructor
 @ToString
 @Getter
-public class MovableObjectAdded implements Event {
+public class MovableObjectAdded extends EventWithTimestamp {
 
     private String objectName;
 
+    private int objectSlot;
+
     private int positionX;
 
     private int positionY;
 
     private Direction direction;
+
+    // set by the game, grid knows only the objects
+    @Setter
+    private CarType carType;
+
+    public MovableObjectAdded(String objectName, int objectSlot, int positionX, int positionY, Direction direction) {
+        this.objectName = objectName;
+        this.objectSlot = objectSlot;
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.direction = direction;
+    }
 }
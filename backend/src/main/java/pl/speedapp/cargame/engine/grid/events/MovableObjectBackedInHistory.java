@@ -11,6 +11,8 @@ public class MovableObjectBackedInHistory implements Event {
 
     private String objectName;
 
+    private int objectSlot;
+
     private int numberOfSteps;
 
     private int handledNumberOfSteps;
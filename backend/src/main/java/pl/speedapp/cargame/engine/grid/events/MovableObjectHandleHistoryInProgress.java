@@ -10,4 +10,6 @@ import lombok.ToString;
 public class MovableObjectHandleHistoryInProgress implements Event {
 
     private String objectName;
+
+    private int objectSlot;
 }
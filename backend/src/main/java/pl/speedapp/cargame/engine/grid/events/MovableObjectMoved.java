@@ -12,6 +12,8 @@ public class MovableObjectMoved extends EventWithTimestamp {
 
     private String objectName;
 
+    private int objectSlot;
+
     private int sourcePositionX;
 
     private int sourcePositionY;
@@ -7,10 +7,12 @@ import lombok.ToString;
 @AllArgsConstructor
 @ToString
 @Getter
-public class MovableObjectRemoved implements Event {
+public class MovableObjectRemoved extends EventWithTimestamp {
 
     private String objectName;
 
+    private int objectSlot;
+
     private int positionX;
 
     private int positionY;
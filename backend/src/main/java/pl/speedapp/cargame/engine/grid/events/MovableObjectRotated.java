@@ -8,9 +8,11 @@ import pl.speedapp.cargame.engine.grid.movement.Direction;
 @AllArgsConstructor
 @ToString
 @Getter
-public class MovableObjectRotated implements Event {
+public class MovableObjectRotated extends EventWithTimestamp {
 
     private String objectName;
 
+    private int objectSlot;
+
     private Direction direction;
 }
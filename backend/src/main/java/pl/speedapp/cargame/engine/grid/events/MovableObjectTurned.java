@@ -14,13 +14,16 @@ public class MovableObjectTurned extends EventWithTimestamp {
 
     private String objectName;
 
+    private int objectSlot;
+
     @Setter
     private Direction direction;
 
     @Setter
     private TurnedDirection turnedDirection;
 
-    public MovableObjectTurned(String objectName) {
+    public MovableObjectTurned(String objectName, int objectSlot) {
         this.objectName = objectName;
+        this.objectSlot = objectSlot;
     }
 }
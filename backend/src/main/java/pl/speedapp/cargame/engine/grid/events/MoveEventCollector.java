@@ -0,0 +1,28 @@
+package pl.speedapp.cargame.engine.grid.events;
+
+import lombok.Getter;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Sink which turns results of the move into the event objects
+ */
+public class MoveEventCollector implements MoveEventSink {
+
+    @Getter
+    private final List<Event> events = new LinkedList<>();
+
+    @Override
+    public void moved(String objectName, int objectSlot, int sourcePosition, int targetPosition, Direction direction) {
+        events.add(new MovableObjectMoved(objectName, objectSlot, Position.unpackX(sourcePosition), Position.unpackY(sourcePosition),
+                Position.unpackX(targetPosition), Position.unpackY(targetPosition), direction));
+    }
+
+    @Override
+    public void destroyed(String objectName, int objectSlot, int position, Direction direction) {
+        events.add(new GridObjectDestroyed(objectName, objectSlot, Position.unpackX(position), Position.unpackY(position), direction));
+    }
+}
@@ -0,0 +1,41 @@
+package pl.speedapp.cargame.engine.grid.events;
+
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.List;
+
+/**
+ * Receives results of the move forward as primitive values, so the move doesn't have to allocate event objects.
+ * Positions are packed with {@link Position#pack(int, int)}.
+ */
+public interface MoveEventSink {
+
+    /**
+     * Same as {@link MovableObjectMoved}
+     */
+    void moved(String objectName, int objectSlot, int sourcePosition, int targetPosition, Direction direction);
+
+    /**
+     * Same as {@link GridObjectDestroyed}
+     */
+    void destroyed(String objectName, int objectSlot, int position, Direction direction);
+
+    /**
+     * Pass already created events of the move to the sink
+     */
+    static void replay(List<Event> events, MoveEventSink sink) {
+        for (Event event : events) {
+            if (event instanceof MovableObjectMoved) {
+                MovableObjectMoved moved = (MovableObjectMoved) event;
+                sink.moved(moved.getObjectName(), moved.getObjectSlot(),
+                        Position.pack(moved.getSourcePositionX(), moved.getSourcePositionY()),
+                        Position.pack(moved.getTargetPositionX(), moved.getTargetPositionY()), moved.getDirection());
+            } else if (event instanceof GridObjectDestroyed) {
+                GridObjectDestroyed destroyed = (GridObjectDestroyed) event;
+                sink.destroyed(destroyed.getObjectName(), destroyed.getObjectSlot(),
+                        Position.pack(destroyed.getPositionX(), destroyed.getPositionY()), destroyed.getDirection());
+            }
+        }
+    }
+}
@@ -5,4 +5,11 @@ public interface MovementStrategy {
     Position move(Position position, Direction direction, Integer distance);
 
     Position move(Position position, Direction direction);
+
+    /**
+     * Same as {@link #move(Position, Direction, Integer)} for position packed with {@link Position#pack(int, int)}
+     *
+     * @return packed target position
+     */
+    int movePacked(int position, Direction direction, Integer distance);
 }
@@ -10,12 +10,16 @@ public class MovementStrategyFactory {
 
     public static MovementStrategy getStrategy(Car car) {
         if (Objects.nonNull(car)) {
-            if (car.getType() == pl.speedapp.cargame.db.enums.CarType.RACER) {
-                return new TwoPositionsStrategyMovement();
-            } else {
-                return new OnePositionMovement();
-            }
+            return getStrategy(car.getType());
         }
         throw new IllegalArgumentException();
     }
+
+    public static MovementStrategy getStrategy(pl.speedapp.cargame.db.enums.CarType carType) {
+        if (carType == pl.speedapp.cargame.db.enums.CarType.RACER) {
+            return new TwoPositionsStrategyMovement();
+        } else {
+            return new OnePositionMovement();
+        }
+    }
 }
@@ -29,7 +29,35 @@ public class Position implements Comparable<Position> {
     }
 
     public boolean isOutside(int size) {
-        return this.x > size || this.y > size || this.x < 1 || this.y < 1;
+        return isOutside(x, y, size);
+    }
+
+    public int pack() {
+        return pack(x, y);
+    }
+
+    public static Position unpack(int position) {
+        return new Position(unpackX(position), unpackY(position));
+    }
+
+    /**
+     * Pack both coordinates into single int, so position can be passed around without allocation.
+     * Coordinates have to fit in the short range, also negative ones (positions outside the map).
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    public static int unpackX(int position) {
+        return position >> 16;
+    }
+
+    public static int unpackY(int position) {
+        return (short) position;
+    }
+
+    public static boolean isOutside(int x, int y, int size) {
+        return x > size || y > size || x < 1 || y < 1;
     }
 
     @Override
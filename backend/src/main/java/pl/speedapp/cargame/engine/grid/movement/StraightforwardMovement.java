@@ -25,6 +25,27 @@ public abstract class StraightforwardMovement implements MovementStrategy {
         throw new IllegalArgumentException();
     }
 
+    @Override
+    public int movePacked(int position, Direction direction, Integer distance) {
+        int computedDistance = Objects.isNull(distance) ? getMaxDistance() : distance;
+
+        if (computedDistance > 0 && computedDistance <= getMaxDistance()) {
+            int x = Position.unpackX(position);
+            int y = Position.unpackY(position);
+            switch (direction) {
+                case NORTH:
+                    return Position.pack(x, y - distance);
+                case SOUTH:
+                    return Position.pack(x, y + distance);
+                case EAST:
+                    return Position.pack(x + distance, y);
+                case WEST:
+                    return Position.pack(x - distance, y);
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
     @Override
     public Position move(Position position, Direction direction) {
         return move(position, direction, getMaxDistance());
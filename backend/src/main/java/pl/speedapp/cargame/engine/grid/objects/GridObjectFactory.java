@@ -13,12 +13,26 @@ import java.util.UUID;
 public class GridObjectFactory {
 
     public static MovableObject createMovableObject(Car car) {
+        return createMovableObject(car, Direction.NORTH);
+    }
+
+    public static MovableObject createMovableObject(Car car, Direction direction) {
         if (Objects.nonNull(car)) {
+            return createMovableObject(car.getName(), car.getType(), direction);
+        }
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Create the object of the car which is not driven by the engine, e.g. when the game is replayed
+     */
+    public static MovableObject createMovableObject(String carName, CarType carType, Direction direction) {
+        if (Objects.nonNull(carName) && Objects.nonNull(direction)) {
             return MovableObject.builder()
-                    .toughness(getToughnessByCarType(car.getType()))
-                    .direction(Direction.NORTH)
-                    .name(car.getName())
-                    .movementStrategy(MovementStrategyFactory.getStrategy(car))
+                    .toughness(getToughnessByCarType(carType))
+                    .direction(direction)
+                    .name(carName)
+                    .movementStrategy(MovementStrategyFactory.getStrategy(carType))
                     .build();
         }
         throw new IllegalArgumentException();
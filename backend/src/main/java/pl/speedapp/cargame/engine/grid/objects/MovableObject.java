@@ -3,7 +3,9 @@ package pl.speedapp.cargame.engine.grid.objects;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.ToString;
+import pl.speedapp.cargame.engine.grid.Grid;
 import pl.speedapp.cargame.engine.grid.movement.Direction;
 import pl.speedapp.cargame.engine.grid.movement.MovementStrategy;
 import pl.speedapp.cargame.engine.grid.movement.Position;
@@ -24,10 +26,23 @@ public class MovableObject implements GridObject {
 
     private int toughness;
 
+    // assigned by the grid when object is placed on it
+    @Setter
+    @Builder.Default
+    private int slot = Grid.NO_SLOT;
+
     public Position getTargetPosition(Position currentPosition, Integer distance) {
         return movementStrategy.move(currentPosition, direction, distance);
     }
 
+    /**
+     * @param currentPosition - position packed with {@link Position#pack(int, int)}
+     * @return packed target position
+     */
+    public int getTargetPosition(int currentPosition, Integer distance) {
+        return movementStrategy.movePacked(currentPosition, direction, distance);
+    }
+
     public TurnedDirection turnLeft() {
         direction = direction.turnLeft();
         return TurnedDirection.LEFT;
@@ -0,0 +1,21 @@
+package pl.speedapp.cargame.engine.journal;
+
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+
+/**
+ * Receives all changes of the grid read from the {@link MoveJournal}, in the order they were journaled. Besides the
+ * moves of the cars these are placements and removals of the cars and directions set by the moves back in the history.
+ * Timestamps are in nanoseconds since the epoch.
+ */
+public interface GridChangeVisitor {
+
+    void placed(int carSlot, CarType carType, int x, int y, Direction direction, long timestamp);
+
+    void removed(int carSlot, long timestamp);
+
+    void directionChanged(int carSlot, Direction direction, long timestamp);
+
+    void moved(int carSlot, CarMoveType moveType, int distance, long timestamp);
+}
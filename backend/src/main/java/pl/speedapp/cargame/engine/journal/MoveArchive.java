@@ -0,0 +1,456 @@
+package pl.speedapp.cargame.engine.journal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only car moves of the closed game, kept in the compressed file of the game instead of the database table. Moves
+ * are stored column by column, sorted from the oldest one: timestamps and ids as deltas from the previous move, slots
+ * of the cars, move types and distances of the forward moves bit-packed with the width of their biggest value. The
+ * whole file is then deflated, so the archived move takes a few bytes.
+ * <p>
+ * Archive is written once, by {@link Builder#write(Path)}, and read into the memory as a whole. It is synced to the disk
+ * before {@link Builder#write(Path)} returns, so the archived moves could be deleted from the database.
+ */
+@Slf4j
+public class MoveArchive {
+
+    public static final String FILE_EXTENSION = ".archive";
+
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final int MAGIC = 0x4D4F4131;
+
+    private static final CarMoveType[] MOVE_TYPES = CarMoveType.values();
+
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    @Getter
+    private final Long gameId;
+
+    @Getter
+    private final String gameName;
+
+    private final long[] carIds;
+
+    private final String[] carNames;
+
+    private final CarType[] carTypes;
+
+    private final int size;
+
+    private final long[] ids;
+
+    private final long[] timestamps;
+
+    private final int[] carSlots;
+
+    private final int[] moveTypes;
+
+    // 0 for the moves without the distance
+    private final int[] distances;
+
+    private MoveArchive(Long gameId, String gameName, long[] carIds, String[] carNames, CarType[] carTypes, int size,
+                        long[] ids, long[] timestamps, int[] carSlots, int[] moveTypes, int[] distances) {
+        this.gameId = gameId;
+        this.gameName = gameName;
+        this.carIds = carIds;
+        this.carNames = carNames;
+        this.carTypes = carTypes;
+        this.size = size;
+        this.ids = ids;
+        this.timestamps = timestamps;
+        this.carSlots = carSlots;
+        this.moveTypes = moveTypes;
+        this.distances = distances;
+    }
+
+    public static Builder builder(Long gameId, String gameName) {
+        return new Builder(gameId, gameName);
+    }
+
+    public static boolean exists(Path directory, Long gameId) {
+        return Files.exists(directory.resolve(gameId + FILE_EXTENSION));
+    }
+
+    /**
+     * Read the archive of the game into the memory
+     */
+    public static MoveArchive read(Path directory, Long gameId) {
+        Path file = directory.resolve(gameId + FILE_EXTENSION);
+        try (DataInputStream header = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Unknown format of the file " + file);
+            }
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new InflaterInputStream(header)));
+            Long archivedGameId = input.readLong();
+            String gameName = input.readUTF();
+
+            int carCount = input.readInt();
+            long[] carIds = new long[carCount];
+            String[] carNames = new String[carCount];
+            CarType[] carTypes = new CarType[carCount];
+            for (int slot = 0; slot < carCount; ++slot) {
+                carIds[slot] = input.readLong();
+                carNames[slot] = input.readUTF();
+                carTypes[slot] = CAR_TYPES[input.readUnsignedByte()];
+            }
+
+            int size = input.readInt();
+            long[] timestamps = readDeltas(input, size);
+            long[] ids = readDeltas(input, size);
+            int[] carSlots = readPacked(input, size, input.readUnsignedByte());
+            int[] moveTypes = readPacked(input, size, input.readUnsignedByte());
+            int[] forwardDistances = readPacked(input, input.readInt(), input.readUnsignedByte());
+            int[] distances = new int[size];
+            for (int index = 0, forward = 0; index < size; ++index) {
+                if (MOVE_TYPES[moveTypes[index]] == CarMoveType.FORWARD) {
+                    distances[index] = forwardDistances[forward++];
+                }
+            }
+            return new MoveArchive(archivedGameId, gameName, carIds, carNames, carTypes, size, ids, timestamps, carSlots, moveTypes, distances);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read move archive of the game " + gameId + " in " + directory, e);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return id of the move in the database table it was archived from
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return time of the move in nanoseconds since the epoch
+     */
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public int getCarSlot(int index) {
+        return carSlots[index];
+    }
+
+    public CarMoveType getMoveType(int index) {
+        return MOVE_TYPES[moveTypes[index]];
+    }
+
+    /**
+     * @return distance of the forward move, null for other moves
+     */
+    public Integer getDistance(int index) {
+        return distances[index] != 0 ? distances[index] : null;
+    }
+
+    public int getCarCount() {
+        return carNames.length;
+    }
+
+    public long getCarId(int carSlot) {
+        return carIds[carSlot];
+    }
+
+    public String getCarName(int carSlot) {
+        return carNames[carSlot];
+    }
+
+    public CarType getCarType(int carSlot) {
+        return carTypes[carSlot];
+    }
+
+    /**
+     * Moves of the single game added from the oldest one, sorted by the timestamp and the id
+     */
+    public static class Builder {
+
+        private final Long gameId;
+
+        private final String gameName;
+
+        // key: car id, value: slot of the car in the archive
+        private final Map<Long, Integer> slots;
+
+        private long[] carIds;
+
+        private String[] carNames;
+
+        private CarType[] carTypes;
+
+        private int size;
+
+        private long[] ids;
+
+        private long[] timestamps;
+
+        private int[] carSlots;
+
+        private int[] moveTypes;
+
+        private int[] distances;
+
+        private Builder(Long gameId, String gameName) {
+            this.gameId = gameId;
+            this.gameName = gameName;
+            this.slots = new HashMap<>();
+            this.carIds = new long[0];
+            this.carNames = new String[0];
+            this.carTypes = new CarType[0];
+            this.ids = new long[64];
+            this.timestamps = new long[64];
+            this.carSlots = new int[64];
+            this.moveTypes = new int[64];
+            this.distances = new int[64];
+        }
+
+        /**
+         * @param timestamp - time of the move in nanoseconds since the epoch
+         */
+        public Builder add(long id, long carId, String carName, CarType carType, CarMoveType moveType, Integer distance, long timestamp) {
+            Integer slot = slots.get(carId);
+            if (slot == null) {
+                slot = addCar(carId, carName, carType);
+            }
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                carSlots = Arrays.copyOf(carSlots, capacity);
+                moveTypes = Arrays.copyOf(moveTypes, capacity);
+                distances = Arrays.copyOf(distances, capacity);
+            }
+            ids[size] = id;
+            timestamps[size] = timestamp;
+            carSlots[size] = slot;
+            moveTypes[size] = moveType.ordinal();
+            distances[size] = moveType == CarMoveType.FORWARD && Objects.nonNull(distance) ? distance : 0;
+            ++size;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public MoveArchive build() {
+            return new MoveArchive(gameId, gameName, carIds, carNames, carTypes, size, Arrays.copyOf(ids, size),
+                    Arrays.copyOf(timestamps, size), Arrays.copyOf(carSlots, size), Arrays.copyOf(moveTypes, size),
+                    Arrays.copyOf(distances, size));
+        }
+
+        /**
+         * Write the archive of the game to the directory, existing archive of the game is replaced at once
+         */
+        public void write(Path directory) {
+            Path file = directory.resolve(gameId + FILE_EXTENSION);
+            Path temporaryFile = directory.resolve(gameId + FILE_EXTENSION + TEMPORARY_FILE_EXTENSION);
+            try {
+                Files.createDirectories(directory);
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    // channel is not closed with the streams, it is forced first
+                    DataOutputStream header = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(new UnclosedChannel(channel))));
+                    header.writeInt(MAGIC);
+                    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(header)));
+                    writeColumns(output);
+                    output.close();
+                    channel.force(true);
+                }
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                forceDirectory(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write move archive of the game " + gameId + " in " + directory, e);
+            }
+        }
+
+        /**
+         * Renamed file is durable once the directory is written to the disk, directories can't be forced on every system
+         */
+        private void forceDirectory(Path directory) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            } catch (IOException e) {
+                log.debug("Cannot force directory [{}] of the move archives", directory, e);
+            }
+        }
+
+        private void writeColumns(DataOutputStream output) throws IOException {
+            output.writeLong(gameId);
+            output.writeUTF(gameName);
+
+            output.writeInt(carNames.length);
+            for (int slot = 0; slot < carNames.length; ++slot) {
+                output.writeLong(carIds[slot]);
+                output.writeUTF(carNames[slot]);
+                output.writeByte(carTypes[slot].ordinal());
+            }
+
+            output.writeInt(size);
+            writeDeltas(output, timestamps, size);
+            writeDeltas(output, ids, size);
+            writePacked(output, carSlots, size, bitsOf(carNames.length - 1));
+            writePacked(output, moveTypes, size, bitsOf(MOVE_TYPES.length - 1));
+
+            // only forward moves have the distance
+            int[] forwardDistances = new int[size];
+            int forwardCount = 0;
+            int maxDistance = 0;
+            for (int index = 0; index < size; ++index) {
+                if (MOVE_TYPES[moveTypes[index]] == CarMoveType.FORWARD) {
+                    forwardDistances[forwardCount++] = distances[index];
+                    maxDistance = Math.max(maxDistance, distances[index]);
+                }
+            }
+            output.writeInt(forwardCount);
+            writePacked(output, forwardDistances, forwardCount, bitsOf(maxDistance));
+        }
+
+        private int addCar(long carId, String carName, CarType carType) {
+            int slot = carNames.length;
+            carIds = Arrays.copyOf(carIds, slot + 1);
+            carIds[slot] = carId;
+            carNames = Arrays.copyOf(carNames, slot + 1);
+            carNames[slot] = carName;
+            carTypes = Arrays.copyOf(carTypes, slot + 1);
+            carTypes[slot] = Objects.nonNull(carType) ? carType : CarType.NORMAL;
+            slots.put(carId, slot);
+            return slot;
+        }
+    }
+
+    /**
+     * Channel written by the streams, which is closed by its owner
+     */
+    private static class UnclosedChannel implements WritableByteChannel {
+
+        private final FileChannel channel;
+
+        private UnclosedChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            return channel.write(source);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * @return number of bits of the biggest value, 0 when all values are 0
+     */
+    private static int bitsOf(int maxValue) {
+        return maxValue > 0 ? Integer.SIZE - Integer.numberOfLeadingZeros(maxValue) : 0;
+    }
+
+    /**
+     * First value and then the differences from the previous values, zigzag-encoded as variable-length longs
+     */
+    private static void writeDeltas(DataOutputStream output, long[] values, int count) throws IOException {
+        long previous = 0;
+        for (int index = 0; index < count; ++index) {
+            long delta = values[index] - previous;
+            writeVarLong(output, (delta << 1) ^ (delta >> 63));
+            previous = values[index];
+        }
+    }
+
+    private static long[] readDeltas(DataInputStream input, int count) throws IOException {
+        long[] values = new long[count];
+        long previous = 0;
+        for (int index = 0; index < count; ++index) {
+            long zigzag = readVarLong(input);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[index] = previous;
+        }
+        return values;
+    }
+
+    private static void writeVarLong(DataOutputStream output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream input) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int next;
+        do {
+            next = input.readUnsignedByte();
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        } while ((next & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Width and then the values of the given width, from the lowest bits of each byte
+     */
+    private static void writePacked(DataOutputStream output, int[] values, int count, int width) throws IOException {
+        output.writeByte(width);
+        long bits = 0;
+        int filled = 0;
+        for (int index = 0; index < count; ++index) {
+            bits |= (long) values[index] << filled;
+            filled += width;
+            while (filled >= Byte.SIZE) {
+                output.writeByte((int) bits);
+                bits >>>= Byte.SIZE;
+                filled -= Byte.SIZE;
+            }
+        }
+        if (filled > 0) {
+            output.writeByte((int) bits);
+        }
+    }
+
+    private static int[] readPacked(DataInputStream input, int count, int width) throws IOException {
+        int[] values = new int[count];
+        long mask = (1L << width) - 1;
+        long bits = 0;
+        int filled = 0;
+        for (int index = 0; index < count; ++index) {
+            while (filled < width) {
+                bits |= (long) input.readUnsignedByte() << filled;
+                filled += Byte.SIZE;
+            }
+            values[index] = (int) (bits & mask);
+            bits >>>= width;
+            filled -= width;
+        }
+        return values;
+    }
+}
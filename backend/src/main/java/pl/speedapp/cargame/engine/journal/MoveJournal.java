@@ -0,0 +1,392 @@
+package pl.speedapp.cargame.engine.journal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only journal of the car moves of the single game, written through the memory-mapped file. Each move is the
+ * fixed-width record with the slot of the car, move type, distance and timestamp, so moves are scanned directly in the
+ * mapped memory without any decoding or copying. Names of the cars by their slots are kept in the separate file,
+ * written once per car.
+ * <p>
+ * Placements and removals of the cars and directions set by the moves back in the history are journaled as well, as
+ * records of their own types. They are skipped by {@link #scan(MoveVisitor)}, {@link #replay} passes all records,
+ * so the grid of the game can be rebuilt from the journal.
+ * <p>
+ * Moves are appended by the single thread, the one passing events of the game. Readers may scan the journal at the
+ * same time, they see all moves appended before the scan has started. Mapped memory is written to the disk by the
+ * operating system, {@link #force()} or {@link #close()} waits for it.
+ * <p>
+ * Journal of the closed game is opened by {@link #read(Path, Long)} only for reading, its files are not changed.
+ */
+@Slf4j
+public class MoveJournal implements Closeable {
+
+    public static final String FILE_EXTENSION = ".moves";
+
+    private static final String CARS_FILE_EXTENSION = ".cars";
+
+    // car slot (short), record type (byte), direction and car type (byte), distance or position (int), timestamp (long)
+    public static final int RECORD_SIZE = 16;
+
+    // record types after the ordinals of the move types
+    private static final byte PLACED = 16;
+
+    private static final byte REMOVED = 17;
+
+    private static final byte DIRECTION = 18;
+
+    private static final int MAX_CARS = 0xFFFF + 1;
+
+    // magic (int), record size (int), number of records (long)
+    private static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x4D4F5632;
+
+    private static final int COUNT_OFFSET = 8;
+
+    private static final int INITIAL_CAPACITY = HEADER_SIZE + 4096 * RECORD_SIZE;
+
+    private static final CarMoveType[] MOVE_TYPES = CarMoveType.values();
+
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Getter
+    private final Long gameId;
+
+    private final FileChannel channel;
+
+    // null if the journal is only read
+    private final DataOutputStream carsOutput;
+
+    // key: car name, value: slot of the car in the journal
+    private final Map<String, Integer> carSlots;
+
+    // car names by slot, replaced when the car is added
+    private volatile String[] carNames;
+
+    // replaced by the bigger one when the journal is full, always published before the count
+    private volatile MappedByteBuffer buffer;
+
+    // number of published records
+    private volatile int count;
+
+    private MoveJournal(Long gameId, Path file, Path carsFile, OpenMode mode) throws IOException {
+        this.gameId = gameId;
+        this.carSlots = new ConcurrentHashMap<>();
+        List<String> names = mode == OpenMode.CREATE ? new ArrayList<>() : readCarNames(carsFile);
+        for (int slot = 0; slot < names.size(); ++slot) {
+            carSlots.put(names.get(slot), slot);
+        }
+        this.carNames = names.toArray(new String[0]);
+
+        if (mode == OpenMode.READ) {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.carsOutput = null;
+            long size = channel.size();
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                this.count = 0;
+                return;
+            }
+        } else {
+            if (mode == OpenMode.CREATE) {
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+            } else {
+                this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            this.carsOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(carsFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, mode == OpenMode.CREATE ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)));
+
+            long size = channel.size();
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_CAPACITY));
+            if (size < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, RECORD_SIZE);
+                buffer.putLong(COUNT_OFFSET, 0);
+            }
+        }
+        long maxCount = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        this.count = (int) Math.min(Math.max(buffer.getLong(COUNT_OFFSET), 0), maxCount);
+    }
+
+    /**
+     * Start the new empty journal of the game, existing journal is dropped
+     */
+    public static MoveJournal create(Path directory, Long gameId) {
+        return open(directory, gameId, OpenMode.CREATE);
+    }
+
+    /**
+     * Open the journal of the game, moves are appended after the existing ones
+     */
+    public static MoveJournal open(Path directory, Long gameId) {
+        return open(directory, gameId, OpenMode.APPEND);
+    }
+
+    /**
+     * Open the existing journal of the game only for reading, moves appended later by the other journal of the game
+     * are not visible
+     */
+    public static MoveJournal read(Path directory, Long gameId) {
+        return open(directory, gameId, OpenMode.READ);
+    }
+
+    public static boolean exists(Path directory, Long gameId) {
+        return Files.exists(directory.resolve(gameId + FILE_EXTENSION));
+    }
+
+    private static MoveJournal open(Path directory, Long gameId, OpenMode mode) {
+        try {
+            if (mode != OpenMode.READ) {
+                Files.createDirectories(directory);
+            }
+            return new MoveJournal(gameId, directory.resolve(gameId + FILE_EXTENSION), directory.resolve(gameId + CARS_FILE_EXTENSION), mode);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open move journal of the game " + gameId + " in " + directory, e);
+        }
+    }
+
+    /**
+     * @return time in nanoseconds since the epoch, as it is kept in the journal
+     */
+    public static long toTimestamp(Instant time) {
+        return time.getEpochSecond() * 1_000_000_000L + time.getNano();
+    }
+
+    public void append(String carName, CarMoveType moveType, int distance, Instant eventTime) {
+        append(carName, moveType, distance, toTimestamp(eventTime));
+    }
+
+    /**
+     * @param timestamp - time of the move in nanoseconds since the epoch
+     */
+    public void append(String carName, CarMoveType moveType, int distance, long timestamp) {
+        append(carName, (byte) moveType.ordinal(), 0, distance, timestamp);
+    }
+
+    public void appendPlaced(String carName, CarType carType, int x, int y, Direction direction, long timestamp) {
+        append(carName, PLACED, direction.ordinal() | carType.ordinal() << 4, Position.pack(x, y), timestamp);
+    }
+
+    public void appendRemoved(String carName, long timestamp) {
+        append(carName, REMOVED, 0, 0, timestamp);
+    }
+
+    public void appendDirection(String carName, Direction direction, long timestamp) {
+        append(carName, DIRECTION, direction.ordinal(), 0, timestamp);
+    }
+
+    private void append(String carName, byte type, int details, int value, long timestamp) {
+        if (isReadOnly()) {
+            throw new IllegalStateException("Move journal of the game " + gameId + " is opened only for reading");
+        }
+        Integer slot = carSlots.get(carName);
+        if (slot == null) {
+            slot = addCar(carName);
+        }
+
+        int index = count;
+        MappedByteBuffer target = ensureCapacity(index + 1);
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        target.putShort(offset, (short) (int) slot);
+        target.put(offset + 2, type);
+        target.put(offset + 3, (byte) details);
+        target.putInt(offset + 4, value);
+        target.putLong(offset + 8, timestamp);
+        target.putLong(COUNT_OFFSET, index + 1);
+        count = index + 1;
+    }
+
+    /**
+     * Pass moves to the visitor from the oldest one
+     */
+    public void scan(MoveVisitor visitor) {
+        int end = count;
+        MappedByteBuffer source = buffer;
+        for (int index = 0; index < end; ++index) {
+            if (!visit(source, index, visitor)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pass moves to the visitor from the most recent one
+     */
+    public void scanBackward(MoveVisitor visitor) {
+        int end = count;
+        MappedByteBuffer source = buffer;
+        for (int index = end - 1; index >= 0; --index) {
+            if (!visit(source, index, visitor)) {
+                return;
+            }
+        }
+    }
+
+    private boolean visit(MappedByteBuffer source, int index, MoveVisitor visitor) {
+        int offset = HEADER_SIZE + index * RECORD_SIZE;
+        byte type = source.get(offset + 2);
+        if (type >= PLACED) {
+            return true;
+        }
+        return visitor.visit(source.getShort(offset) & 0xFFFF, MOVE_TYPES[type], source.getInt(offset + 4), source.getLong(offset + 8));
+    }
+
+    /**
+     * Pass all records from the given index to the visitor, stop before the first record later than the given time
+     *
+     * @param from  - index of the first record
+     * @param to    - index after the last record, at most {@link #size()}
+     * @param until - time in nanoseconds since the epoch
+     * @return index of the first record which has not been passed
+     */
+    public int replay(int from, int to, long until, GridChangeVisitor visitor) {
+        int end = Math.min(to, count);
+        MappedByteBuffer source = buffer;
+        for (int index = from; index < end; ++index) {
+            int offset = HEADER_SIZE + index * RECORD_SIZE;
+            long timestamp = source.getLong(offset + 8);
+            if (timestamp > until) {
+                return index;
+            }
+            int slot = source.getShort(offset) & 0xFFFF;
+            byte type = source.get(offset + 2);
+            int details = source.get(offset + 3);
+            int value = source.getInt(offset + 4);
+            if (type == PLACED) {
+                visitor.placed(slot, CAR_TYPES[details >> 4], Position.unpackX(value), Position.unpackY(value), DIRECTIONS[details & 0xF], timestamp);
+            } else if (type == REMOVED) {
+                visitor.removed(slot, timestamp);
+            } else if (type == DIRECTION) {
+                visitor.directionChanged(slot, DIRECTIONS[details], timestamp);
+            } else {
+                visitor.moved(slot, MOVE_TYPES[type], value, timestamp);
+            }
+        }
+        return end;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return slot of the car in the journal, or -1 if the car has no moves in the game
+     */
+    public int getCarSlot(String carName) {
+        Integer slot = carSlots.get(carName);
+        return slot != null ? slot : -1;
+    }
+
+    public String getCarName(int carSlot) {
+        String[] names = carNames;
+        return carSlot >= 0 && carSlot < names.length ? names[carSlot] : null;
+    }
+
+    public int getCarCount() {
+        return carNames.length;
+    }
+
+    public boolean isReadOnly() {
+        return carsOutput == null;
+    }
+
+    /**
+     * Wait until all appended moves are written to the disk
+     */
+    public void force() {
+        if (!isReadOnly()) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+            if (!isReadOnly()) {
+                carsOutput.close();
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Cannot close move journal of the game [{}]", gameId, e);
+        }
+    }
+
+    private int addCar(String carName) {
+        int slot = carNames.length;
+        if (slot >= MAX_CARS) {
+            throw new IllegalStateException("Move journal of the game " + gameId + " is full of cars");
+        }
+        try {
+            carsOutput.writeUTF(carName);
+            carsOutput.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot add car " + carName + " to the move journal of the game " + gameId, e);
+        }
+        String[] names = Arrays.copyOf(carNames, slot + 1);
+        names[slot] = carName;
+        carNames = names;
+        carSlots.put(carName, slot);
+        return slot;
+    }
+
+    private MappedByteBuffer ensureCapacity(int records) {
+        MappedByteBuffer current = buffer;
+        long required = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (required <= current.capacity()) {
+            return current;
+        }
+        long capacity = Math.min((long) current.capacity() * 2, Integer.MAX_VALUE);
+        if (capacity < required) {
+            throw new IllegalStateException("Move journal of the game " + gameId + " is full");
+        }
+        try {
+            // previous mapping is released by the garbage collector, readers still using it see the same records
+            MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer = grown;
+            return grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow move journal of the game " + gameId, e);
+        }
+    }
+
+    private static List<String> readCarNames(Path carsFile) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.exists(carsFile)) {
+            return names;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(carsFile)))) {
+            while (true) {
+                names.add(input.readUTF());
+            }
+        } catch (EOFException e) {
+            return names;
+        }
+    }
+
+    private enum OpenMode {
+        CREATE, APPEND, READ
+    }
+}
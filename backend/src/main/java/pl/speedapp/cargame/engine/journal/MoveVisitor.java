@@ -0,0 +1,17 @@
+package pl.speedapp.cargame.engine.journal;
+
+import pl.speedapp.cargame.db.enums.CarMoveType;
+
+/**
+ * Receives moves read directly from the {@link MoveJournal}, no object is created for the skipped moves
+ */
+@FunctionalInterface
+public interface MoveVisitor {
+
+    /**
+     * @param carSlot   - slot of the car in the journal, see {@link MoveJournal#getCarName(int)}
+     * @param timestamp - time of the move in nanoseconds since the epoch
+     * @return false if the scan should be stopped
+     */
+    boolean visit(int carSlot, CarMoveType moveType, int distance, long timestamp);
+}
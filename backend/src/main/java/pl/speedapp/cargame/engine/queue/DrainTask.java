@@ -0,0 +1,89 @@
+package pl.speedapp.cargame.engine.queue;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Consumer running on the shared executor only while it has work, instead of the loop waiting for the work in its own
+ * thread. {@link #signal()} is called after the work is added and submits the task, unless it is already submitted or
+ * running. Single run handles a batch of the work and returns, the task is submitted again if more work is waiting, so
+ * any number of consumers share a few threads of the executor fairly.
+ * <p>
+ * The task never runs in two threads at once, so the consumer stays single-threaded.
+ */
+@Slf4j
+public class DrainTask implements Runnable {
+
+    private final String name;
+
+    private final Executor executor;
+
+    // handles a batch of the work, returns false when the consumer has finished and must not run again
+    private final BooleanSupplier batch;
+
+    // checked only by the running task, after the batch
+    private final BooleanSupplier hasWork;
+
+    // true if the task has been submitted and has not finished its run yet
+    private final AtomicBoolean scheduled;
+
+    private volatile boolean stopped;
+
+    public DrainTask(String name, Executor executor, BooleanSupplier batch, BooleanSupplier hasWork) {
+        this.name = name;
+        this.executor = executor;
+        this.batch = batch;
+        this.hasWork = hasWork;
+        this.scheduled = new AtomicBoolean();
+    }
+
+    /**
+     * Submit the task, called after the work is added. If the executor rejects the task, because its queue is full or
+     * it has been shut down, the task runs in the calling thread, so the work is never left behind.
+     */
+    public void signal() {
+        if (!stopped && scheduled.compareAndSet(false, true) && !submit()) {
+            log.debug("Task [{}] has been rejected by the executor, it runs in the calling thread.", name);
+            run();
+        }
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public void run() {
+        do {
+            try {
+                if (!stopped && !batch.getAsBoolean()) {
+                    stopped = true;
+                }
+            } catch (RuntimeException e) {
+                log.error("Task [{}] failed, it keeps handling the next work.", name, e);
+            } finally {
+                scheduled.set(false);
+            }
+            // work added after the batch could have been signalled before the flag was cleared, if the task is
+            // rejected now, the work left is handled in this thread
+        } while (!stopped && hasWork.getAsBoolean() && scheduled.compareAndSet(false, true) && !submit());
+    }
+
+    private boolean submit() {
+        try {
+            executor.execute(this);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DrainTask[" + name + ", scheduled=" + scheduled.get() + ", stopped=" + stopped + "]";
+    }
+}
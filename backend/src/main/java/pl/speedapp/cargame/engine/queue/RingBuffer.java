@@ -0,0 +1,361 @@
+package pl.speedapp.cargame.engine.queue;
+
+import lombok.Getter;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue on the array allocated once, built for many producers and a single consumer. Producers claim the
+ * slots with a CAS on the tail and every slot carries its own sequence, so neither offer nor poll takes a lock or
+ * allocates a node. Threads which have to wait (for an element or a free slot) wait according to the
+ * {@link WaitStrategy}.
+ * <p>
+ * Unlike other bounded queues, {@link #add(Object)} waits for a free slot instead of throwing, so producers which see
+ * the ring only as a {@link java.util.Queue} are slowed down by the consumer instead of failing.
+ */
+public class RingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    // busy spins before the waiting thread starts to yield
+    private static final int SPIN_TRIES = 100;
+
+    // yields before the waiting thread starts to sleep in SLEEPING strategy
+    private static final int YIELD_TRIES = 100;
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    @Getter
+    private final int capacity;
+
+    @Getter
+    private final WaitStrategy waitStrategy;
+
+    private final int mask;
+
+    private final Object[] buffer;
+
+    // sequence of the slot: equal to the position when slot is free, position + 1 when element is published
+    private final AtomicLongArray sequences;
+
+    // next position to write
+    private final AtomicLong tail;
+
+    // next position to read
+    private final AtomicLong head;
+
+    // used only by BLOCKING strategy
+    private final ReentrantLock lock;
+
+    private final Condition notEmpty;
+
+    private final Condition notFull;
+
+    private final AtomicInteger waitingConsumers;
+
+    private final AtomicInteger waitingProducers;
+
+    // called after every published element, e.g. to submit the consumer which doesn't wait on the ring
+    private volatile Runnable publishListener;
+
+    /**
+     * @param capacity - max number of elements, rounded up to the power of two
+     */
+    public RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30, got " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+        this.mask = this.capacity - 1;
+        this.buffer = new Object[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; ++i) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.waitingConsumers = new AtomicInteger();
+        this.waitingProducers = new AtomicInteger();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = index(position);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // slot still holds the element of the previous lap
+                return false;
+            } else {
+                // other producer has already claimed the slot
+                position = tail.get();
+            }
+        }
+
+        buffer[index] = e;
+        sequences.set(index, position + 1);
+        signal(waitingConsumers, notEmpty);
+        Runnable listener = publishListener;
+        if (listener != null) {
+            listener.run();
+        }
+        return true;
+    }
+
+    /**
+     * Call the listener after every published element, in the thread of the producer. Used by the consumer which
+     * doesn't wait for the elements, e.g. {@link DrainTask}.
+     */
+    public void onPublish(Runnable listener) {
+        this.publishListener = listener;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.get();
+        int index;
+        while (true) {
+            index = index(position);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // element not published yet
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, position + capacity);
+        signal(waitingProducers, notFull);
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long position = head.get();
+        int index = index(position);
+        return sequences.get(index) == position + 1 ? (E) buffer[index] : null;
+    }
+
+    /**
+     * Wait for a free slot if the ring is full
+     */
+    @Override
+    public boolean add(E e) {
+        try {
+            put(e);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a free slot of the ring buffer", ex);
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        while (!offer(e)) {
+            await(this::hasFreeSlot, waitingProducers, notFull, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            if (!await(this::hasFreeSlot, waitingProducers, notFull, deadline - System.nanoTime())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            await(this::hasPublishedElement, waitingConsumers, notEmpty, Long.MAX_VALUE);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null) {
+            if (!await(this::hasPublishedElement, waitingConsumers, notEmpty, deadline - System.nanoTime())) {
+                return null;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Pass waiting elements to the consumer without waiting for more of them
+     *
+     * @param consumer    - consumer of the elements
+     * @param maxElements - max number of the elements passed at once
+     * @return number of the elements passed to the consumer
+     */
+    public int drain(Consumer<? super E> consumer, int maxElements) {
+        int drained = 0;
+        E e;
+        while (drained < maxElements && (e = poll()) != null) {
+            consumer.accept(e);
+            ++drained;
+        }
+        return drained;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException("Ring buffer can't be drained to itself");
+        }
+        return drain(c::add, maxElements);
+    }
+
+    @Override
+    public int size() {
+        long currentHead = head.get();
+        long size = tail.get() - currentHead;
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Ring buffer can't be iterated, elements can be only taken in order
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("Ring buffer can't be iterated");
+    }
+
+    @Override
+    public String toString() {
+        return "RingBuffer[size=" + size() + ", capacity=" + capacity + ", waitStrategy=" + waitStrategy + "]";
+    }
+
+    private int index(long position) {
+        return (int) (position & mask);
+    }
+
+    private boolean hasPublishedElement() {
+        long position = head.get();
+        return sequences.get(index(position)) == position + 1;
+    }
+
+    private boolean hasFreeSlot() {
+        long position = tail.get();
+        return sequences.get(index(position)) == position;
+    }
+
+    /**
+     * Wait until the condition is met according to the wait strategy
+     *
+     * @return false if the condition is not met and the time is up
+     */
+    private boolean await(BooleanSupplier ready, AtomicInteger waiting, Condition condition, long timeoutNanos) throws InterruptedException {
+        // deadline overflows for the infinite timeout, but the difference to the current time is still correct
+        long deadline = System.nanoTime() + timeoutNanos;
+        int idleCount = 0;
+        while (!ready.getAsBoolean()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+
+            if (WaitStrategy.BLOCKING.equals(waitStrategy)) {
+                block(ready, waiting, condition, remaining);
+            } else {
+                idle(idleCount++, remaining);
+            }
+        }
+        return true;
+    }
+
+    private void block(BooleanSupplier ready, AtomicInteger waiting, Condition condition, long remaining) throws InterruptedException {
+        lock.lock();
+        try {
+            // signalling thread checks waiting threads after publishing, so the change can't be missed here
+            waiting.incrementAndGet();
+            try {
+                if (!ready.getAsBoolean()) {
+                    condition.awaitNanos(remaining);
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void idle(int idleCount, long remaining) {
+        if (WaitStrategy.BUSY_SPIN.equals(waitStrategy) || idleCount < SPIN_TRIES) {
+            return;
+        }
+        if (WaitStrategy.YIELDING.equals(waitStrategy) || idleCount < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(SLEEP_NANOS, remaining));
+        }
+    }
+
+    private void signal(AtomicInteger waiting, Condition condition) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
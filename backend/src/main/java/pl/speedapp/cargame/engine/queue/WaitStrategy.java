@@ -0,0 +1,27 @@
+package pl.speedapp.cargame.engine.queue;
+
+/**
+ * How threads wait for the {@link RingBuffer} - for a new element or for a free slot. Trades CPU for latency.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Waiting thread spins all the time, lowest latency but every waiting loop keeps one core busy
+     */
+    BUSY_SPIN,
+
+    /**
+     * Waiting thread spins for a while, then yields the core to the other threads
+     */
+    YIELDING,
+
+    /**
+     * Waiting thread spins, yields and finally sleeps for a short time, low CPU usage with latency below a millisecond
+     */
+    SLEEPING,
+
+    /**
+     * Waiting thread is parked until it is signalled, no CPU is used while waiting, highest latency
+     */
+    BLOCKING
+}
@@ -0,0 +1,54 @@
+package pl.speedapp.cargame.engine.replay;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+/**
+ * Compact state of the board after the given number of journal records. Every car is a single long under its slot in
+ * the journal: packed position, car type and direction, 0 if the car is not on the board.
+ */
+@AllArgsConstructor
+@Getter
+class BoardCheckpoint {
+
+    private static final CarType[] CAR_TYPES = CarType.values();
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    static final BoardCheckpoint EMPTY = new BoardCheckpoint(0, Long.MIN_VALUE, new long[0]);
+
+    // number of the journal records applied to the board
+    private final int index;
+
+    // latest timestamp of the applied records, the checkpoint is valid for any later time
+    private final long maxTimestamp;
+
+    private final long[] cars;
+
+    static long encode(int x, int y, CarType carType, Direction direction) {
+        return (long) Position.pack(x, y) << 32 | carType.ordinal() << 8 | direction.ordinal() << 1 | 1;
+    }
+
+    static boolean isOnBoard(long car) {
+        return car != 0;
+    }
+
+    static int getX(long car) {
+        return Position.unpackX((int) (car >>> 32));
+    }
+
+    static int getY(long car) {
+        return Position.unpackY((int) (car >>> 32));
+    }
+
+    static CarType getCarType(long car) {
+        return CAR_TYPES[(int) (car >>> 8) & 0xFF];
+    }
+
+    static Direction getDirection(long car) {
+        return DIRECTIONS[(int) (car >>> 1) & 0x7F];
+    }
+}
@@ -0,0 +1,111 @@
+package pl.speedapp.cargame.engine.replay;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.api.model.GameStateDto;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds the board of the game at any time from the map and the move journal of the game. Board checkpoint is taken
+ * every {@code checkpointInterval} journal records, so the state at the given time is the nearest checkpoint restored
+ * on the empty grid followed by at most {@code checkpointInterval} replayed records.
+ * <p>
+ * Checkpoints are taken lazily, when the state is requested, and cover only the records journaled until then. Journal
+ * of the running game keeps growing, the next request continues from the last checkpoint.
+ */
+@Slf4j
+public class GameReplay {
+
+    @Getter
+    private final Long gameId;
+
+    private final int[][] map;
+
+    private final int checkpointInterval;
+
+    // the first one is the empty board, timestamps of the following ones only grow
+    private final List<BoardCheckpoint> checkpoints;
+
+    public GameReplay(Long gameId, int[][] map, int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval has to be positive");
+        }
+        this.gameId = gameId;
+        this.map = map;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new ArrayList<>();
+        this.checkpoints.add(BoardCheckpoint.EMPTY);
+    }
+
+    /**
+     * @param journal - journal of the game, it is only read
+     * @param time    - the board is returned as it was after all records journaled until that time
+     */
+    public synchronized GameStateDto getState(MoveJournal journal, Instant time) {
+        if (journal.size() < getLastCheckpoint().getIndex()) {
+            // journal of the game started again, e.g. the id of the game is used by the next run
+            checkpoints.subList(1, checkpoints.size()).clear();
+        }
+        takeCheckpoints(journal);
+
+        ReplayBoard board = new ReplayBoard(map, journal);
+        board.restore(findCheckpoint(MoveJournal.toTimestamp(time)));
+        int moves = board.replay(journal.size(), MoveJournal.toTimestamp(time));
+        return GameStateDto.builder()
+                .gameId(gameId)
+                .time(time)
+                .moves(moves)
+                .cars(board.getCars())
+                .build();
+    }
+
+    public synchronized int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    /**
+     * Replay the records journaled after the last checkpoint and take the checkpoint after each full interval
+     */
+    private void takeCheckpoints(MoveJournal journal) {
+        BoardCheckpoint last = getLastCheckpoint();
+        int size = journal.size();
+        if (size - last.getIndex() < checkpointInterval) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ReplayBoard board = new ReplayBoard(map, journal);
+        board.restore(last);
+        while (size - board.getIndex() >= checkpointInterval) {
+            board.replay(board.getIndex() + checkpointInterval, Long.MAX_VALUE);
+            checkpoints.add(board.checkpoint());
+        }
+        log.debug("Game [{}] replayed up to [{}] moves in [{}] ms, [{}] checkpoints", gameId, board.getIndex(),
+                (System.nanoTime() - start) / 1_000_000, checkpoints.size());
+    }
+
+    /**
+     * @return the latest checkpoint which has no records later than the given time
+     */
+    private BoardCheckpoint findCheckpoint(long until) {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (checkpoints.get(middle).getMaxTimestamp() <= until) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return checkpoints.get(low);
+    }
+
+    private BoardCheckpoint getLastCheckpoint() {
+        return checkpoints.get(checkpoints.size() - 1);
+    }
+}
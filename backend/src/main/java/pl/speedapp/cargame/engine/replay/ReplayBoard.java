@@ -0,0 +1,213 @@
+package pl.speedapp.cargame.engine.replay;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.speedapp.cargame.api.model.CarDto;
+import pl.speedapp.cargame.api.model.CarStatusDto;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.exception.NoEmptyPositionsAvailableException;
+import pl.speedapp.cargame.engine.exception.PositionAlreadyTakenException;
+import pl.speedapp.cargame.engine.exception.PositionOutOfRangeException;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
+import pl.speedapp.cargame.engine.grid.commands.TurnRight;
+import pl.speedapp.cargame.engine.grid.events.Event;
+import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.objects.GridObjectFactory;
+import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+import pl.speedapp.cargame.engine.journal.GridChangeVisitor;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Grid of the game rebuilt from the journal. Records are applied to the grid with the same commands the cars use, so
+ * collisions and crashes happen again exactly as they happened in the game.
+ */
+@Slf4j
+class ReplayBoard implements GridChangeVisitor {
+
+    private final MoveJournal journal;
+
+    private final Grid grid;
+
+    // grid slots of the cars by their slots in the journal
+    private int[] gridSlots;
+
+    private CarType[] carTypes;
+
+    // number of the applied journal records
+    @Getter
+    private int index;
+
+    @Getter
+    private long maxTimestamp;
+
+    ReplayBoard(int[][] map, MoveJournal journal) {
+        this.journal = journal;
+        this.grid = GridFactory.createGrid(GridType.ARRAY, map);
+        this.gridSlots = new int[0];
+        this.carTypes = new CarType[0];
+        this.maxTimestamp = Long.MIN_VALUE;
+    }
+
+    /**
+     * Place the cars from the checkpoint on the empty board
+     */
+    void restore(BoardCheckpoint checkpoint) {
+        long[] cars = checkpoint.getCars();
+        for (int slot = 0; slot < cars.length; ++slot) {
+            if (BoardCheckpoint.isOnBoard(cars[slot])) {
+                placed(slot, BoardCheckpoint.getCarType(cars[slot]), BoardCheckpoint.getX(cars[slot]), BoardCheckpoint.getY(cars[slot]),
+                        BoardCheckpoint.getDirection(cars[slot]), Long.MIN_VALUE);
+            }
+        }
+        index = checkpoint.getIndex();
+        maxTimestamp = checkpoint.getMaxTimestamp();
+    }
+
+    BoardCheckpoint checkpoint() {
+        long[] cars = new long[gridSlots.length];
+        for (int slot = 0; slot < cars.length; ++slot) {
+            MovableObject object = getObject(slot);
+            if (object != null) {
+                Position position = grid.getPosition(object.getName());
+                cars[slot] = BoardCheckpoint.encode(position.getX(), position.getY(), carTypes[slot], object.getDirection());
+            }
+        }
+        return new BoardCheckpoint(index, maxTimestamp, cars);
+    }
+
+    /**
+     * Apply the journal records up to the given index, stop before the first record later than the given time
+     *
+     * @return number of the applied journal records
+     */
+    int replay(int to, long until) {
+        index = journal.replay(index, to, until, this);
+        return index;
+    }
+
+    List<CarDto> getCars() {
+        List<CarDto> cars = new ArrayList<>();
+        for (int slot = 0; slot < gridSlots.length; ++slot) {
+            MovableObject object = getObject(slot);
+            if (object != null) {
+                Position position = grid.getPosition(object.getName());
+                cars.add(CarDto.builder()
+                        .currentStatus(CarStatusDto.builder()
+                                .x(position.getX() - 1)
+                                .y(position.getY() - 1)
+                                .direction(object.getDirection())
+                                .build())
+                        .name(object.getName())
+                        .type(carTypes[slot])
+                        .crashed(false)
+                        .inGame(true)
+                        .build());
+            }
+        }
+        return cars;
+    }
+
+    @Override
+    public void placed(int carSlot, CarType carType, int x, int y, Direction direction, long timestamp) {
+        applied(timestamp);
+        String carName = journal.getCarName(carSlot);
+        ensureSlot(carSlot);
+        if (gridSlots[carSlot] != Grid.NO_SLOT) {
+            // car placed again when the game has been restored after the restart
+            grid.removeObject(carName);
+            gridSlots[carSlot] = Grid.NO_SLOT;
+        }
+        try {
+            gridSlots[carSlot] = grid.addObject(x, y, GridObjectFactory.createMovableObject(carName, carType, direction)).getObjectSlot();
+            carTypes[carSlot] = carType;
+        } catch (PositionAlreadyTakenException | PositionOutOfRangeException | NoEmptyPositionsAvailableException e) {
+            log.debug("Car [{}] can't be placed again at [x={}, y={}] in the replay of the game [{}]", carName, x, y, journal.getGameId());
+        }
+    }
+
+    @Override
+    public void removed(int carSlot, long timestamp) {
+        applied(timestamp);
+        if (getObject(carSlot) != null) {
+            grid.removeObject(journal.getCarName(carSlot));
+            gridSlots[carSlot] = Grid.NO_SLOT;
+        }
+    }
+
+    @Override
+    public void directionChanged(int carSlot, Direction direction, long timestamp) {
+        applied(timestamp);
+        MovableObject object = getObject(carSlot);
+        if (object == null || direction.equals(object.getDirection())) {
+            return;
+        }
+        String carName = object.getName();
+        if (direction.equals(object.getDirection().turnLeft())) {
+            grid.handle(new TurnLeft(carName, gridSlots[carSlot]));
+        } else if (direction.equals(object.getDirection().turnRight())) {
+            grid.handle(new TurnRight(carName, gridSlots[carSlot]));
+        } else {
+            grid.handle(new Rotate(carName, gridSlots[carSlot]));
+        }
+    }
+
+    @Override
+    public void moved(int carSlot, CarMoveType moveType, int distance, long timestamp) {
+        applied(timestamp);
+        MovableObject object = getObject(carSlot);
+        if (object == null) {
+            return;
+        }
+        String carName = object.getName();
+        if (CarMoveType.FORWARD.equals(moveType)) {
+            for (Event event : grid.handle(new MoveForward(carName, gridSlots[carSlot], distance))) {
+                if (event instanceof GridObjectDestroyed) {
+                    int destroyedSlot = journal.getCarSlot(event.getObjectName());
+                    if (destroyedSlot >= 0 && destroyedSlot < gridSlots.length) {
+                        gridSlots[destroyedSlot] = Grid.NO_SLOT;
+                    }
+                }
+            }
+        } else if (CarMoveType.TURN_LEFT.equals(moveType)) {
+            grid.handle(new TurnLeft(carName, gridSlots[carSlot]));
+        } else if (CarMoveType.TURN_RIGHT.equals(moveType)) {
+            grid.handle(new TurnRight(carName, gridSlots[carSlot]));
+        }
+    }
+
+    private void applied(long timestamp) {
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+    }
+
+    /**
+     * @return object of the car with the given slot in the journal, or null if the car is not on the board
+     */
+    private MovableObject getObject(int carSlot) {
+        if (carSlot >= gridSlots.length || gridSlots[carSlot] == Grid.NO_SLOT) {
+            return null;
+        }
+        return grid.getMovableObject(journal.getCarName(carSlot));
+    }
+
+    private void ensureSlot(int carSlot) {
+        if (carSlot >= gridSlots.length) {
+            int length = Math.max(gridSlots.length * 2, carSlot + 1);
+            int oldLength = gridSlots.length;
+            gridSlots = Arrays.copyOf(gridSlots, length);
+            Arrays.fill(gridSlots, oldLength, length, Grid.NO_SLOT);
+            carTypes = Arrays.copyOf(carTypes, length);
+        }
+    }
+}
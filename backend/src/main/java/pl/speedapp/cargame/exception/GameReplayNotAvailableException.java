@@ -0,0 +1,9 @@
+package pl.speedapp.cargame.exception;
+
+public class GameReplayNotAvailableException extends ElementNotFoundException {
+    private static final String MSG_ID = "Moves of the game with id [%d] are not kept in the move journal, the game can't be replayed.";
+
+    public GameReplayNotAvailableException(Long gameId) {
+        super(String.format(MSG_ID, gameId));
+    }
+}
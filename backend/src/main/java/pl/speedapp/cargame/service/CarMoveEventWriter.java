@@ -0,0 +1,22 @@
+package pl.speedapp.cargame.service;
+
+import pl.speedapp.cargame.db.enums.CarMoveType;
+
+import java.time.Instant;
+
+/**
+ * Write-behind store of car move events. Events are buffered and written to the database in batches.
+ */
+public interface CarMoveEventWriter {
+
+    /**
+     * Add the event to the buffer. Blocks while the buffer is full.
+     */
+    void store(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime);
+
+    /**
+     * Write all buffered events to the database. When method returns, all events stored before are written, unless
+     * the write failed. Failed batch and the events after it are written by the next flushes.
+     */
+    void flush();
+}
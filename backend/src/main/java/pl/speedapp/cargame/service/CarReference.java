@@ -0,0 +1,33 @@
+package pl.speedapp.cargame.service;
+
+import lombok.Builder;
+import lombok.Value;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.db.model.Car;
+
+/**
+ * Immutable snapshot of the car metadata kept by the {@link ReferenceCache}
+ */
+@Value
+@Builder
+public class CarReference {
+    private Long id;
+
+    private String name;
+
+    private CarType type;
+
+    private boolean crashed;
+
+    private boolean used;
+
+    public static CarReference of(Car car) {
+        return CarReference.builder()
+                .id(car.getId())
+                .name(car.getName())
+                .type(car.getType())
+                .crashed(car.isCrashed())
+                .used(car.isUsed())
+                .build();
+    }
+}
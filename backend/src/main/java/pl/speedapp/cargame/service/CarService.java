@@ -4,11 +4,13 @@ import pl.speedapp.cargame.api.model.CarDto;
 import pl.speedapp.cargame.db.enums.CarMoveType;
 import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.filter.MovementCursor;
 import pl.speedapp.cargame.db.model.Car;
-import pl.speedapp.cargame.db.model.CarMoveEvent;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CarService {
 
@@ -32,9 +34,36 @@ public interface CarService {
 
     void storeCarMoveEvent(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime);
 
-    List<CarMoveEvent> getGameCarsMovements(Long gameId);
-
-    List<CarMoveEvent> getCarMovements(FiltersCarMovements filters);
+    List<CarMoveEventView> getGameCarsMovements(Long gameId);
+
+    /**
+     * Moves sorted from the most recent one, read from the move journals, or from the database table of the moves and
+     * the archives of the closed games
+     */
+    List<CarMoveEventView> getCarMovements(FiltersCarMovements filters);
+
+    /**
+     * Page of the moves sorted from the most recent one, read from the database table of the moves
+     *
+     * @param after - cursor of the last move of the previous page, null for the first page
+     * @throws IllegalArgumentException if the moves are kept only in the move journal or the archive is enabled
+     */
+    List<CarMoveEventView> getCarMovementsPage(FiltersCarMovements filters, MovementCursor after, int pageSize);
+
+    /**
+     * Pass the moves sorted from the most recent one to the consumer while they are read from the database table of
+     * the moves, the limit of the filters is the max number of the passed moves
+     *
+     * @param after - cursor of the move before the first passed one, null to start from the most recent move
+     * @throws IllegalArgumentException if the moves are kept only in the move journal or the archive is enabled
+     */
+    void streamCarMovements(FiltersCarMovements filters, MovementCursor after, Consumer<CarMoveEventView> consumer);
+
+    /**
+     * @throws IllegalArgumentException if the moves are kept only in the move journal or moved to the archives, so they
+     *                                  can't be read page by page
+     */
+    void checkCarMovementsInDatabase();
 
     void markCarAsUsed(Car car);
 
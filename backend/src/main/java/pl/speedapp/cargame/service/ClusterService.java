@@ -0,0 +1,65 @@
+package pl.speedapp.cargame.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import pl.speedapp.cargame.engine.cluster.ClusterNode;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Distributes running games between the nodes of the cluster. Games are assigned to the nodes by consistent hashing of
+ * the game id, requests of the game or its cars are passed to the node running the game. When cluster mode is disabled
+ * every game runs on this node.
+ */
+public interface ClusterService {
+
+    /**
+     * Header added to the request passed to other node, such request is always handled by the receiving node
+     */
+    String FORWARDED_HEADER = "X-Cargame-Forwarded";
+
+    boolean isEnabled();
+
+    /**
+     * @return nodes of the cluster, only this node if cluster mode is disabled
+     */
+    List<ClusterNode> getNodes();
+
+    /**
+     * Choose the node which runs the new game
+     *
+     * @return node running the game or empty if the game runs on this node
+     */
+    Optional<ClusterNode> assignGame(Long gameId);
+
+    void releaseGame(Long gameId);
+
+    /**
+     * @return node running the game or empty if the game runs on this node
+     */
+    Optional<ClusterNode> getRemoteNodeOfGame(Long gameId);
+
+    /**
+     * @return node running the game of the car or empty if the car is not used in any game on the other node
+     */
+    Optional<ClusterNode> getRemoteNodeOfCar(String carName);
+
+    /**
+     * @return true if the game is still being run by other node which is alive
+     */
+    boolean isGameRunningOnOtherNode(Long gameId);
+
+    /**
+     * Start the game already stored in the database on the given node
+     */
+    void startGameOnNode(ClusterNode node, Long gameId);
+
+    /**
+     * Pass the request to the given node and return its response as it is
+     *
+     * @param pathAndQuery - path of the API with the query string, e.g. /api/cars/car1/forward
+     */
+    ResponseEntity<byte[]> forward(ClusterNode node, HttpMethod method, String pathAndQuery, HttpHeaders headers, byte[] body);
+}
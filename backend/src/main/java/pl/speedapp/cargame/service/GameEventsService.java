@@ -1,5 +1,8 @@
 package pl.speedapp.cargame.service;
 
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+
 import java.time.Instant;
 
 /**
@@ -16,4 +19,19 @@ public interface GameEventsService {
     void storeCarTurnLeft(Long gameId, String carName, Instant eventTime);
 
     void storeCarTurnRight(Long gameId, String carName, Instant eventTime);
+
+    /**
+     * Placement of the car on the grid, kept only in the move journal for the replay of the game
+     */
+    void storeCarPlaced(Long gameId, String carName, CarType carType, int x, int y, Direction direction, Instant eventTime);
+
+    /**
+     * Removal of the car from the grid, kept only in the move journal for the replay of the game
+     */
+    void storeCarRemoved(Long gameId, String carName, Instant eventTime);
+
+    /**
+     * Direction of the car changed by the move back in the history, kept only in the move journal for the replay
+     */
+    void storeCarDirection(Long gameId, String carName, Direction direction, Instant eventTime);
 }
@@ -0,0 +1,18 @@
+package pl.speedapp.cargame.service;
+
+import pl.speedapp.cargame.api.model.GameStateDto;
+
+import java.time.Instant;
+
+/**
+ * Rebuilds the board of the running or finished game from its {@link pl.speedapp.cargame.engine.journal.MoveJournal}
+ */
+public interface GameReplayService {
+
+    /**
+     * @param time - the cars are returned as they were after all moves made until that time
+     * @throws pl.speedapp.cargame.exception.GameNotFoundException           if the game doesn't exist
+     * @throws pl.speedapp.cargame.exception.GameReplayNotAvailableException if the game has no move journal
+     */
+    GameStateDto getGameState(Long gameId, Instant time);
+}
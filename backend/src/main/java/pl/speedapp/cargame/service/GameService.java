@@ -11,6 +11,11 @@ public interface GameService {
 
     Game createAndStartGame(String gameName);
 
+    /**
+     * Start the game already stored in the database, created by other node of the cluster
+     */
+    void startGame(Long gameId);
+
     void closeGame(Long gameId);
 
     List<Game> getCompletedGames();
@@ -24,4 +29,11 @@ public interface GameService {
     void removeCarFromTheGame(Long gameId, String carName);
 
     RunningGameDto getRunningGameDto(Long gameId);
+
+    /**
+     * Get only cars changed since the given state version, straight from the game engine
+     */
+    RunningGameDto getRunningGameChanges(Long gameId, long sinceVersion);
+
+    long getRunningGameVersion(Long gameId);
 }
@@ -0,0 +1,36 @@
+package pl.speedapp.cargame.service;
+
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+
+import java.util.List;
+
+/**
+ * Cold storage of the moves of the closed games. Moves of the FINISHED or INTERRUPTED game are never written again, so
+ * they are moved in the background from the {@code car_move_event} table to the compressed
+ * {@link pl.speedapp.cargame.engine.journal.MoveArchive} of the game, and the table keeps only the moves of the recent
+ * games.
+ */
+public interface MoveArchiveService {
+
+    /**
+     * @return false if the moves are never archived, e.g. in cluster mode
+     */
+    boolean isEnabled();
+
+    /**
+     * Archive the moves of the games closed before the archive delay and delete them from the table, called by the
+     * archiver thread
+     *
+     * @return number of archived games
+     */
+    int archiveClosedGames();
+
+    /**
+     * Same as {@link CarService#getCarMovements(FiltersCarMovements)}, moves are read from the archives of the
+     * archived games
+     *
+     * @return moves, the most recent first
+     */
+    List<CarMoveEventView> getCarMovements(FiltersCarMovements filters);
+}
@@ -0,0 +1,83 @@
+package pl.speedapp.cargame.service;
+
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Primary store of the car moves, kept in the append-only {@link pl.speedapp.cargame.engine.journal.MoveJournal} of
+ * each game. Database table of the moves is then only the projection written in the background by
+ * {@link CarMoveEventWriter}.
+ */
+public interface MoveJournalService {
+
+    /**
+     * @return false if the moves are kept only in the database, e.g. in cluster mode
+     */
+    boolean isEnabled();
+
+    /**
+     * Start the empty journal of the new game
+     */
+    void gameStarted(Long gameId);
+
+    /**
+     * Open the journal of the game restored after the restart, its moves are appended after the existing ones
+     */
+    void gameRestored(Long gameId);
+
+    /**
+     * Append the move to the journal of the game, called by the single thread passing events of the game. Moves of the
+     * closed game are ignored.
+     */
+    void store(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime);
+
+    /**
+     * Append the placement of the car on the grid to the journal of the game, it is not one of the car moves
+     */
+    void storePlaced(String carName, Long gameId, CarType carType, int x, int y, Direction direction, Instant eventTime);
+
+    /**
+     * Append the removal of the car from the grid to the journal of the game, it is not one of the car moves
+     */
+    void storeRemoved(String carName, Long gameId, Instant eventTime);
+
+    /**
+     * Append the direction set by the move back in the history to the journal of the game
+     */
+    void storeDirection(String carName, Long gameId, Direction direction, Instant eventTime);
+
+    /**
+     * Write the journal of the game to the disk and close it, it is still available for reading
+     */
+    void gameClosed(Long gameId);
+
+    /**
+     * Same as {@link CarService#getCarMovements(FiltersCarMovements)}, moves are read from the journals
+     *
+     * @return moves, the most recent first, without the ids of the database table
+     */
+    List<CarMoveEventView> getCarMovements(FiltersCarMovements filters);
+
+    /**
+     * @return ids of the running games and of the closed games which have the journal on this node, moves of other
+     * games are only in the database
+     */
+    Set<Long> getJournalGameIds();
+
+    /**
+     * Read the journal of the running or closed game, the journal must not be kept by the reader
+     *
+     * @return result of the reader, or empty if the game has no journal
+     */
+    <T> Optional<T> readJournal(Long gameId, Function<MoveJournal, T> reader);
+}
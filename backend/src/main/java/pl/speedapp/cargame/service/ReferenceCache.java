@@ -0,0 +1,27 @@
+package pl.speedapp.cargame.service;
+
+import pl.speedapp.cargame.db.model.Car;
+
+import java.util.Optional;
+
+/**
+ * In-memory cache of cars metadata and ids of the running games, used by car commands and events persistence instead
+ * of the database lookups. Changes made inside the transaction are applied after the commit.
+ */
+public interface ReferenceCache {
+
+    /**
+     * Get the car from the cache. If car is not cached yet, it's loaded from the database.
+     */
+    Optional<CarReference> getCar(String name);
+
+    void putCar(Car car);
+
+    void evictCar(String name);
+
+    boolean isGameRunning(Long gameId);
+
+    void gameStarted(Long gameId);
+
+    void gameClosed(Long gameId);
+}
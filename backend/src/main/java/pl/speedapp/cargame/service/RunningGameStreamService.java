@@ -0,0 +1,17 @@
+package pl.speedapp.cargame.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes state of the running games to the watching clients
+ */
+public interface RunningGameStreamService {
+
+    /**
+     * Subscribe to the running game. Subscriber receives the snapshot of the game first (event "snapshot"), then
+     * the current status of every changed car (event "car"). Stream is completed with event "closed" when game ends.
+     *
+     * @throws pl.speedapp.cargame.exception.GameNotActiveException if game is not running
+     */
+    SseEmitter subscribe(Long gameId);
+}
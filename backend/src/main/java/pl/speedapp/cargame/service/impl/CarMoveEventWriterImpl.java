@@ -0,0 +1,265 @@
+package pl.speedapp.cargame.service.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.service.CarMoveEventWriter;
+import pl.speedapp.cargame.service.CarReference;
+import pl.speedapp.cargame.service.ReferenceCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+public class CarMoveEventWriterImpl implements CarMoveEventWriter, MeterBinder {
+
+    private static final String INSERT_SQL = "INSERT INTO car_move_event (car_id, game_id, event_type, distance, event_timestamp) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    // number of events which triggers the flush and max size of the single JDBC batch
+    @Value("${game.moveEvents.batchSize:100}")
+    private int batchSize = 100;
+
+    // max time (in milliseconds) the event waits in the buffer
+    @Value("${game.moveEvents.flushInterval:200}")
+    private long flushInterval = 200;
+
+    // max number of buffered events of all partitions
+    @Value("${game.moveEvents.bufferCapacity:10000}")
+    private int bufferCapacity = 10000;
+
+    // number of times the failed batch is written again by the next flushes, before its events are dropped
+    @Value("${game.moveEvents.retries:3}")
+    private int retries = 3;
+
+    // number of buffers, each with own flushing thread, 0 - one buffer per available core like the game shards
+    @Value("${game.moveEvents.partitions:0}")
+    private int partitionCount = 0;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ReferenceCache referenceCache;
+
+    // events of the game are buffered by the partition selected by the game id, so they are written in order
+    private Partition[] partitions;
+
+    private ScheduledExecutorService flusher;
+
+    private final LongAdder written;
+
+    private final LongAdder failed;
+
+    private final LongAdder dropped;
+
+    {
+        written = new LongAdder();
+        failed = new LongAdder();
+        dropped = new LongAdder();
+    }
+
+    public CarMoveEventWriterImpl(JdbcTemplate jdbcTemplate, ReferenceCache referenceCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceCache = referenceCache;
+    }
+
+    @PostConstruct
+    public void init() {
+        partitions = new Partition[partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors()];
+        flusher = Executors.newScheduledThreadPool(partitions.length,
+                new ThreadFactoryBuilder().setNameFormat("car-move-event-writer-%d").build());
+        int partitionCapacity = Math.max(1, (bufferCapacity + partitions.length - 1) / partitions.length);
+        for (int i = 0; i < partitions.length; ++i) {
+            partitions[i] = new Partition(partitionCapacity);
+            flusher.scheduleWithFixedDelay(partitions[i]::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void beforeDestroy() {
+        log.debug("Before destroy CAR MOVE EVENT WRITER, flushing [{}] buffered events...", getBufferedCount());
+        flusher.shutdown();
+        flush();
+    }
+
+    @Override
+    public void store(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime) {
+        Optional<CarReference> car = referenceCache.getCar(carName);
+        if (!car.isPresent()) {
+            log.error("Car [{}] does not exist, [{}] event in game [{}] is lost.", carName, moveType, gameId);
+            return;
+        }
+        Partition partition = getPartition(gameId);
+        try {
+            partition.buffer.put(new PendingCarMoveEvent(car.get().getId(), gameId, moveType, distance, Timestamp.from(eventTime)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while storing [{}] event of car [{}] in game [{}]", moveType, carName, gameId);
+            return;
+        }
+
+        if (partition.buffer.size() >= batchSize && partition.flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.execute(partition::flush);
+            } catch (RejectedExecutionException e) {
+                // writer is being destroyed
+                partition.flush();
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (Partition partition : partitions) {
+            partition.flush();
+        }
+    }
+
+    /**
+     * @return partition of the game, games are spread in the same way as the game shards, so with the same number of
+     * partitions and shards every shard thread stores events in its own partition
+     */
+    private Partition getPartition(Long gameId) {
+        int hash = Long.hashCode(gameId) * 0x9E3779B9;
+        return partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)];
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("car.move.events", written, LongAdder::doubleValue)
+                .tags("result", "written")
+                .description("Car move events written to the database")
+                .register(registry);
+        FunctionCounter.builder("car.move.events", failed, LongAdder::doubleValue)
+                .tags("result", "failed")
+                .description("Failed writes of car move events, failed batches are written again")
+                .register(registry);
+        FunctionCounter.builder("car.move.events", dropped, LongAdder::doubleValue)
+                .tags("result", "dropped")
+                .description("Car move events dropped after all retries of their batch failed")
+                .register(registry);
+        Gauge.builder("car.move.events.buffered", this, CarMoveEventWriterImpl::getBufferedCount)
+                .description("Car move events waiting for the write")
+                .register(registry);
+    }
+
+    long getWrittenCount() {
+        return written.sum();
+    }
+
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private int getBufferedCount() {
+        return Arrays.stream(partitions).mapToInt(Partition::getBufferedCount).sum();
+    }
+
+    /**
+     * @return false if the batch has not been written
+     */
+    private boolean write(List<PendingCarMoveEvent> batch) {
+        log.debug("Writing [{}] car move events", batch.size());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, event) -> {
+                ps.setLong(1, event.carId);
+                ps.setLong(2, event.gameId);
+                ps.setString(3, event.moveType.name());
+                if (event.distance == null) {
+                    ps.setNull(4, Types.BIGINT);
+                } else {
+                    ps.setInt(4, event.distance);
+                }
+                ps.setTimestamp(5, event.eventTimestamp);
+            });
+            written.add(batch.size());
+            return true;
+        } catch (DataAccessException e) {
+            failed.add(batch.size());
+            log.error("Cannot write [{}] car move events.", batch.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Buffer of the events of some games, flushed by one thread at a time
+     */
+    private class Partition {
+
+        private final BlockingQueue<PendingCarMoveEvent> buffer;
+
+        private final AtomicBoolean flushScheduled;
+
+        // batch which has not been written, written again before the next events, null if there is none
+        private List<PendingCarMoveEvent> failedBatch;
+
+        // number of retries of the failed batch
+        private int failedAttempts;
+
+        private Partition(int capacity) {
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+            this.flushScheduled = new AtomicBoolean(false);
+        }
+
+        /**
+         * Write the failed batch first, so the events of the game are written in order. Next events wait in the buffer
+         * until the failed batch is written or dropped.
+         */
+        private synchronized void flush() {
+            flushScheduled.set(false);
+            if (Objects.nonNull(failedBatch)) {
+                if (failedAttempts++ < retries && !write(failedBatch)) {
+                    return;
+                }
+                if (failedAttempts > retries) {
+                    dropped.add(failedBatch.size());
+                    log.error("[{}] car move events are lost, their batch failed [{}] retries.", failedBatch.size(), retries);
+                }
+                failedBatch = null;
+            }
+
+            List<PendingCarMoveEvent> batch = new ArrayList<>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                if (!write(batch)) {
+                    failedBatch = batch;
+                    failedAttempts = 0;
+                    return;
+                }
+                batch.clear();
+            }
+        }
+
+        private synchronized int getBufferedCount() {
+            return buffer.size() + (Objects.nonNull(failedBatch) ? failedBatch.size() : 0);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class PendingCarMoveEvent {
+        private final Long carId;
+        private final Long gameId;
+        private final CarMoveType moveType;
+        private final Integer distance;
+        private final Timestamp eventTimestamp;
+    }
+}
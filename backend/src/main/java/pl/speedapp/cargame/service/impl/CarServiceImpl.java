@@ -1,9 +1,7 @@
 package pl.speedapp.cargame.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
@@ -12,25 +10,30 @@ import pl.speedapp.cargame.db.enums.CarMoveType;
 import pl.speedapp.cargame.db.enums.CarType;
 import pl.speedapp.cargame.db.enums.GameStatus;
 import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.filter.MovementCursor;
 import pl.speedapp.cargame.db.model.Car;
 import pl.speedapp.cargame.db.model.CarMoveEvent;
-import pl.speedapp.cargame.db.model.CarMoveEvent_;
 import pl.speedapp.cargame.db.model.Game;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 import pl.speedapp.cargame.db.repository.CarMoveEventRepository;
-import pl.speedapp.cargame.db.repository.CarMovementSpecifications;
 import pl.speedapp.cargame.db.repository.CarRepository;
 import pl.speedapp.cargame.db.repository.GameRepository;
 import pl.speedapp.cargame.engine.car.CarHistoryMoveEvent;
 import pl.speedapp.cargame.engine.exception.GameNotRunningException;
 import pl.speedapp.cargame.engine.game.GameManager;
 import pl.speedapp.cargame.exception.*;
+import pl.speedapp.cargame.service.CarMoveEventWriter;
+import pl.speedapp.cargame.service.CarReference;
 import pl.speedapp.cargame.service.CarService;
+import pl.speedapp.cargame.service.MoveArchiveService;
+import pl.speedapp.cargame.service.MoveJournalService;
+import pl.speedapp.cargame.service.ReferenceCache;
 import pl.speedapp.cargame.util.CarDtoUtil;
 
 import java.sql.Timestamp;
 import java.time.Instant;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -45,11 +48,29 @@ public class CarServiceImpl implements CarService {
 
     private GameManager gameManager;
 
-    public CarServiceImpl(CarRepository carRepository, GameManager gameManager, CarMoveEventRepository carMoveEventRepository, GameRepository gameRepository) {
+    private CarMoveEventWriter carMoveEventWriter;
+
+    private ReferenceCache referenceCache;
+
+    private MoveJournalService moveJournalService;
+
+    private MoveArchiveService moveArchiveService;
+
+    // moves kept in the journal are also written to the database table in the background
+    @Value("${game.moveEvents.projection:true}")
+    private boolean projectionEnabled = true;
+
+    public CarServiceImpl(CarRepository carRepository, GameManager gameManager, CarMoveEventRepository carMoveEventRepository, GameRepository gameRepository,
+                          CarMoveEventWriter carMoveEventWriter, ReferenceCache referenceCache, MoveJournalService moveJournalService,
+                          MoveArchiveService moveArchiveService) {
         this.carRepository = carRepository;
         this.gameManager = gameManager;
         this.carMoveEventRepository = carMoveEventRepository;
         this.gameRepository = gameRepository;
+        this.carMoveEventWriter = carMoveEventWriter;
+        this.referenceCache = referenceCache;
+        this.moveJournalService = moveJournalService;
+        this.moveArchiveService = moveArchiveService;
     }
 
     @Override
@@ -64,8 +85,9 @@ public class CarServiceImpl implements CarService {
         carRepository.findByName(name).ifPresent(car -> {
             throw new CarWithNameAlreadyExistsException(name);
         });
-        Car car = Car.builder().name(name).type(type).build();
-        return carToDto(carRepository.save(car));
+        Car car = carRepository.save(Car.builder().name(name).type(type).build());
+        referenceCache.putCar(car);
+        return carToDto(car);
     }
 
     @Transactional(isolation = Isolation.SERIALIZABLE)
@@ -77,6 +99,7 @@ public class CarServiceImpl implements CarService {
             throw new CarIsBeingUsedInGameException(name);
         }
         carRepository.delete(car);
+        referenceCache.evictCar(name);
     }
 
     @Transactional
@@ -88,29 +111,28 @@ public class CarServiceImpl implements CarService {
             throw new CarNotCrashedException(name);
         }
         car.setCrashed(false);
-        return carToDto(carRepository.save(car));
+        car = carRepository.save(car);
+        referenceCache.putCar(car);
+        return carToDto(car);
     }
 
-    @Transactional
     @Override
     public void moveCarForward(String name, Integer distance) {
-        Car car = getCarFromStore(name);
+        CarReference car = getCarReference(name);
         if (Integer.valueOf(2).equals(distance) && !CarType.RACER.equals(car.getType())) {
             throw new IllegalArgumentException("Car with the type other than RACER can not move 2 fields.");
         }
         gameManager.moveCarForward(car.getName(), distance);
     }
 
-    @Transactional
     @Override
     public void turnLeftCar(String name) {
-        gameManager.turnLeftCar(getCarFromStore(name).getName());
+        gameManager.turnLeftCar(getCarReference(name).getName());
     }
 
-    @Transactional
     @Override
     public void turnRightCar(String name) {
-        gameManager.turnRightCar(getCarFromStore(name).getName());
+        gameManager.turnRightCar(getCarReference(name).getName());
     }
 
     @Transactional
@@ -121,25 +143,29 @@ public class CarServiceImpl implements CarService {
         if (!game.getStatus().equals(GameStatus.RUNNING)) {
             throw new GameNotRunningException(game.getName());
         }
+        // moves which just passed through the engine are kept by the running game, older ones only in the database
+        List<CarHistoryMoveEvent> lastMoves = gameManager.getLastMoves(gameId, carName, numberOfMoves)
+                .orElseGet(() -> getLastMovesFromStore(gameId, carName, numberOfMoves));
+
+        log.debug("Found last [{}] car [{}] movements in game [{}]", lastMoves.size(), carName, gameId);
+
+        gameManager.backInHistory(carName, game.getName(), lastMoves);
+    }
+
+    private List<CarHistoryMoveEvent> getLastMovesFromStore(Long gameId, String carName, int numberOfMoves) {
         FiltersCarMovements filters = FiltersCarMovements.builder()
                 .carNames(Collections.singleton(carName))
                 .gameIDs(Collections.singleton(gameId))
                 .movementsLimit(numberOfMoves)
                 .build();
 
-        List<CarMoveEvent> lastMoves = getCarMovements(filters);
-
-        log.debug("Found last [{}] car [{}] movements in game [{}]", lastMoves.size(), carName, gameId);
-
-        gameManager.backInHistory(carName,
-                game.getName(),
-                lastMoves.stream()
-                        .map(e -> CarHistoryMoveEvent.builder()
-                                .distance(e.getDistance())
-                                .moveType(e.getEventType())
-                                .timestamp(e.getEventTimestamp().getTime())
-                                .build())
-                        .collect(Collectors.toList()));
+        return getCarMovements(filters).stream()
+                .map(e -> CarHistoryMoveEvent.builder()
+                        .distance(e.getDistance())
+                        .moveType(e.getEventType())
+                        .timestamp(e.getEventTimestamp().getTime())
+                        .build())
+                .collect(Collectors.toList());
     }
 
     /**
@@ -157,19 +183,32 @@ public class CarServiceImpl implements CarService {
         });
     }
 
+    /**
+     * Get car metadata from the cache, used by the hot command paths instead of the database.
+     * Warn: Method could throw CarNotFoundException if car with specified name does not exist.
+     */
+    private CarReference getCarReference(String name) {
+        return referenceCache.getCar(name).orElseThrow(() -> {
+            log.debug("Car with name [{}] does not exist.", name);
+            return new CarNotFoundException(name);
+        });
+    }
+
     private CarDto carToDto(Car car) {
         return CarDtoUtil.mapToDto(car, checkIsCarBeingUsedInGame(car));
     }
 
     private boolean checkIsCarBeingUsedInGame(Car car) {
-        return gameManager.getGameByCarName(car.getName()).isPresent();
+        return gameManager.getGameIdByCarName(car.getName()).isPresent();
     }
 
     @Override
     @Transactional
     public void storeCarMoveEvent(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime) {
-        Game game = gameRepository.findById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
-        Car car = getCarFromStore(carName);
+        // references of the running games and cached cars are used without loading the entities
+        Game game = referenceCache.isGameRunning(gameId) ? gameRepository.getOne(gameId) :
+                gameRepository.findById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+        Car car = carRepository.getOne(getCarReference(carName).getId());
 
         carMoveEventRepository.save(CarMoveEvent.builder()
                 .car(car)
@@ -181,7 +220,7 @@ public class CarServiceImpl implements CarService {
     }
 
     @Override
-    public List<CarMoveEvent> getGameCarsMovements(Long gameId) {
+    public List<CarMoveEventView> getGameCarsMovements(Long gameId) {
         FiltersCarMovements filter = FiltersCarMovements.builder()
                 .gameIDs(Collections.singleton(gameId))
                 .build();
@@ -189,18 +228,74 @@ public class CarServiceImpl implements CarService {
     }
 
     @Override
-    public List<CarMoveEvent> getCarMovements(FiltersCarMovements filters) {
-        List<CarMoveEvent> carMoveEvents;
-        Specification<CarMoveEvent> searchSpecification = CarMovementSpecifications.applyFilters(filters);
-        Sort sorting = Sort.by(Sort.Order.desc(CarMoveEvent_.eventTimestamp.getName()));
+    @Transactional(readOnly = true)
+    public List<CarMoveEventView> getCarMovements(FiltersCarMovements filters) {
+        if (moveJournalService.isEnabled()) {
+            // journal of each game is the primary store, database table is only its projection, games played before
+            // the journal was enabled or with the journal lost, e.g. with the temporary directory, are read from the table
+            List<CarMoveEventView> journalMoves = moveJournalService.getCarMovements(filters);
+            List<CarMoveEventView> tableMoves = getStoredMoves(filters.withoutGames(moveJournalService.getJournalGameIds()));
+            return mergeMoves(tableMoves, journalMoves, filters.getResultsLimit().orElse(Integer.MAX_VALUE));
+        }
+        return getStoredMoves(filters);
+    }
 
-        if (filters.getResultsLimit().isPresent()) {
-            carMoveEvents = carMoveEventRepository.findAll(searchSpecification, PageRequest.of(0, filters.getResultsLimit().get(), sorting)).getContent();
-        } else {
-            carMoveEvents = carMoveEventRepository.findAll(searchSpecification, sorting);
+    /**
+     * @return moves of the table and of the archives
+     */
+    private List<CarMoveEventView> getStoredMoves(FiltersCarMovements filters) {
+        // buffered events have to be visible for the query
+        carMoveEventWriter.flush();
+        List<CarMoveEventView> moves = carMoveEventRepository.findMoves(filters, null, filters.getResultsLimit().orElse(null));
+        if (!moveArchiveService.isEnabled()) {
+            return moves;
         }
+        // archives are read after the table, so the game archived in the meantime is found at least once
+        return mergeMoves(moves, moveArchiveService.getCarMovements(filters), filters.getResultsLimit().orElse(Integer.MAX_VALUE));
+    }
 
-        return carMoveEvents;
+    /**
+     * Merge the moves of the table with the moves of the archives or of the journals, moves found in both are taken once
+     */
+    private List<CarMoveEventView> mergeMoves(List<CarMoveEventView> moves, List<CarMoveEventView> otherMoves, int limit) {
+        if (otherMoves.isEmpty()) {
+            return moves;
+        }
+        Set<Long> ids = moves.stream().map(CarMoveEventView::getId).collect(Collectors.toSet());
+        List<CarMoveEventView> merged = new ArrayList<>(moves);
+        otherMoves.stream()
+                .filter(move -> !ids.contains(move.getId()))
+                .forEach(merged::add);
+        merged.sort(CarMoveEventView.MOST_RECENT_FIRST);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CarMoveEventView> getCarMovementsPage(FiltersCarMovements filters, MovementCursor after, int pageSize) {
+        checkCarMovementsInDatabase();
+        carMoveEventWriter.flush();
+        return carMoveEventRepository.findMoves(filters, after, pageSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCarMovements(FiltersCarMovements filters, MovementCursor after, Consumer<CarMoveEventView> consumer) {
+        checkCarMovementsInDatabase();
+        carMoveEventWriter.flush();
+        carMoveEventRepository.forEachMove(filters, after, filters.getResultsLimit().orElse(null), consumer);
+    }
+
+    @Override
+    public void checkCarMovementsInDatabase() {
+        if (moveJournalService.isEnabled() && !projectionEnabled) {
+            throw new IllegalArgumentException("Car movements are kept only in the move journals, they are read page by page " +
+                    "only from the database, when the projection of the moves is enabled");
+        }
+        if (moveArchiveService.isEnabled()) {
+            throw new IllegalArgumentException("Moves of the archived games are not in the database, car movements are read " +
+                    "page by page only when the archive of the moves is disabled");
+        }
     }
 
     @Override
@@ -208,17 +303,20 @@ public class CarServiceImpl implements CarService {
     public void markCarAsUsed(Car car) {
         if (!car.isUsed()) {
             car.setUsed(true);
-            carRepository.save(car);
+            referenceCache.putCar(carRepository.save(car));
         }
     }
 
     @Transactional
     @Override
     public void markCarAsCrashed(String carName) {
+        if (getCarReference(carName).isCrashed()) {
+            return;
+        }
         Car car = getCarFromStore(carName);
         if (!car.isCrashed()) {
             car.setCrashed(true);
-            carRepository.save(car);
+            referenceCache.putCar(carRepository.save(car));
         }
     }
 
@@ -0,0 +1,163 @@
+package pl.speedapp.cargame.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+import pl.speedapp.cargame.engine.cluster.ClusterNode;
+import pl.speedapp.cargame.engine.cluster.ClusterRegistry;
+import pl.speedapp.cargame.engine.cluster.ConsistentHashRing;
+import pl.speedapp.cargame.service.ClusterService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Slf4j
+@Service
+public class ClusterServiceImpl implements ClusterService {
+
+    private final ClusterRegistry clusterRegistry;
+
+    private final ClusterNode localNode;
+
+    // number of places of each node on the hash ring
+    @Value("${cluster.virtualNodes:100}")
+    private int virtualNodes = 100;
+
+    private final RestTemplate restTemplate;
+
+    // rebuilt only when the nodes of the cluster change
+    private volatile ConsistentHashRing ring;
+
+    /**
+     * @param clusterRegistry - registry shared by the nodes, cluster mode is disabled if empty
+     */
+    public ClusterServiceImpl(Optional<ClusterRegistry> clusterRegistry,
+                              @Value("${cluster.nodeId:local}") String nodeId,
+                              @Value("${cluster.nodeUrl:http://127.0.0.1:8888}") String nodeUrl) {
+        this.clusterRegistry = clusterRegistry.orElse(null);
+        this.localNode = new ClusterNode(nodeId, nodeUrl);
+        this.restTemplate = new RestTemplate();
+        // responses of other nodes are passed to the client as they are, also the errors
+        this.restTemplate.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            clusterRegistry.join(localNode);
+            log.info("Node [{}] joined the cluster, nodes: {}", localNode.getId(), getNodes());
+        }
+    }
+
+    @PreDestroy
+    public void beforeDestroy() {
+        if (isEnabled()) {
+            clusterRegistry.leave(localNode);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Objects.nonNull(clusterRegistry);
+    }
+
+    @Override
+    public List<ClusterNode> getNodes() {
+        return isEnabled() ? clusterRegistry.getNodes() : Collections.singletonList(localNode);
+    }
+
+    @Override
+    public Optional<ClusterNode> assignGame(Long gameId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        ClusterNode owner = getRing().getOwner(gameId);
+        clusterRegistry.assignGame(gameId, owner.getId());
+        log.debug("Game [{}] assigned to the node [{}]", gameId, owner.getId());
+        return isLocal(owner) ? Optional.empty() : Optional.of(owner);
+    }
+
+    @Override
+    public void releaseGame(Long gameId) {
+        if (isEnabled()) {
+            clusterRegistry.releaseGame(gameId);
+        }
+    }
+
+    @Override
+    public Optional<ClusterNode> getRemoteNodeOfGame(Long gameId) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        // game stays on the node which started it, also when the nodes of the cluster have changed since then
+        Optional<String> nodeId = clusterRegistry.getGameNode(gameId);
+        if (!nodeId.isPresent() || localNode.getId().equals(nodeId.get())) {
+            return Optional.empty();
+        }
+        return getRing().getNodes().stream()
+                .filter(node -> node.getId().equals(nodeId.get()))
+                .findAny();
+    }
+
+    @Override
+    public Optional<ClusterNode> getRemoteNodeOfCar(String carName) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return clusterRegistry.getGameId(carName).flatMap(this::getRemoteNodeOfGame);
+    }
+
+    @Override
+    public boolean isGameRunningOnOtherNode(Long gameId) {
+        return getRemoteNodeOfGame(gameId).isPresent();
+    }
+
+    @Override
+    public void startGameOnNode(ClusterNode node, Long gameId) {
+        log.debug("Starting game [{}] on the node [{}]", gameId, node.getId());
+        ResponseEntity<byte[]> response = forward(node, HttpMethod.POST, "/api/cluster/games/" + gameId, new HttpHeaders(), null);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("Node [" + node.getId() + "] could not start game [" + gameId + "]: " + response.getStatusCode());
+        }
+    }
+
+    @Override
+    public ResponseEntity<byte[]> forward(ClusterNode node, HttpMethod method, String pathAndQuery, HttpHeaders headers, byte[] body) {
+        HttpHeaders forwardedHeaders = new HttpHeaders();
+        forwardedHeaders.putAll(headers);
+        forwardedHeaders.set(FORWARDED_HEADER, localNode.getId());
+        return restTemplate.exchange(node.getUrl() + pathAndQuery, method, new HttpEntity<>(body, forwardedHeaders), byte[].class);
+    }
+
+    private boolean isLocal(ClusterNode node) {
+        return localNode.getId().equals(node.getId());
+    }
+
+    private ConsistentHashRing getRing() {
+        List<ClusterNode> nodes = clusterRegistry.getNodes();
+        if (nodes.isEmpty()) {
+            // registry lost the entry of this node, e.g. the shared directory has been cleaned
+            clusterRegistry.join(localNode);
+            nodes = clusterRegistry.getNodes();
+        }
+        ConsistentHashRing current = ring;
+        if (Objects.isNull(current) || !current.getNodes().equals(nodes)) {
+            current = new ConsistentHashRing(nodes, virtualNodes);
+            ring = current;
+        }
+        return current;
+    }
+}
@@ -1,11 +1,16 @@
 package pl.speedapp.cargame.service.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.service.CarMoveEventWriter;
 import pl.speedapp.cargame.service.CarService;
 import pl.speedapp.cargame.service.GameEventsService;
 import pl.speedapp.cargame.service.GameService;
+import pl.speedapp.cargame.service.MoveJournalService;
 
 import java.time.Instant;
 
@@ -17,9 +22,20 @@ public class GameEventsServiceImpl implements GameEventsService {
 
     private CarService carService;
 
-    public GameEventsServiceImpl(GameService gameService, CarService carService) {
+    private CarMoveEventWriter carMoveEventWriter;
+
+    private MoveJournalService moveJournalService;
+
+    // moves kept in the journal are also written to the database table in the background
+    @Value("${game.moveEvents.projection:true}")
+    private boolean projectionEnabled = true;
+
+    public GameEventsServiceImpl(GameService gameService, CarService carService, CarMoveEventWriter carMoveEventWriter,
+                                 MoveJournalService moveJournalService) {
         this.gameService = gameService;
         this.carService = carService;
+        this.carMoveEventWriter = carMoveEventWriter;
+        this.moveJournalService = moveJournalService;
     }
 
     @Override
@@ -29,21 +45,53 @@ public class GameEventsServiceImpl implements GameEventsService {
 
     @Override
     public void gameClosed(Long gameId) {
+        moveJournalService.gameClosed(gameId);
+        carMoveEventWriter.flush();
         gameService.closeGame(gameId);
     }
 
     @Override
     public void storeCarMoveForward(Long gameId, String carName, int distance, Instant eventTime) {
-        carService.storeCarMoveEvent(carName, gameId, CarMoveType.FORWARD, distance, eventTime);
+        store(carName, gameId, CarMoveType.FORWARD, distance, eventTime);
     }
 
     @Override
     public void storeCarTurnLeft(Long gameId, String carName, Instant eventTime) {
-        carService.storeCarMoveEvent(carName, gameId, CarMoveType.TURN_LEFT, 0, eventTime);
+        store(carName, gameId, CarMoveType.TURN_LEFT, 0, eventTime);
     }
 
     @Override
     public void storeCarTurnRight(Long gameId, String carName, Instant eventTime) {
-        carService.storeCarMoveEvent(carName, gameId, CarMoveType.TURN_RIGHT, 0, eventTime);
+        store(carName, gameId, CarMoveType.TURN_RIGHT, 0, eventTime);
+    }
+
+    @Override
+    public void storeCarPlaced(Long gameId, String carName, CarType carType, int x, int y, Direction direction, Instant eventTime) {
+        if (moveJournalService.isEnabled()) {
+            moveJournalService.storePlaced(carName, gameId, carType, x, y, direction, eventTime);
+        }
+    }
+
+    @Override
+    public void storeCarRemoved(Long gameId, String carName, Instant eventTime) {
+        if (moveJournalService.isEnabled()) {
+            moveJournalService.storeRemoved(carName, gameId, eventTime);
+        }
+    }
+
+    @Override
+    public void storeCarDirection(Long gameId, String carName, Direction direction, Instant eventTime) {
+        if (moveJournalService.isEnabled()) {
+            moveJournalService.storeDirection(carName, gameId, direction, eventTime);
+        }
+    }
+
+    private void store(String carName, Long gameId, CarMoveType moveType, int distance, Instant eventTime) {
+        if (moveJournalService.isEnabled()) {
+            moveJournalService.store(carName, gameId, moveType, distance, eventTime);
+        }
+        if (!moveJournalService.isEnabled() || projectionEnabled) {
+            carMoveEventWriter.store(carName, gameId, moveType, distance, eventTime);
+        }
     }
 }
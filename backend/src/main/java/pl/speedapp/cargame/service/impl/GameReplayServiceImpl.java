@@ -0,0 +1,63 @@
+package pl.speedapp.cargame.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.speedapp.cargame.api.model.GameStateDto;
+import pl.speedapp.cargame.db.model.Game;
+import pl.speedapp.cargame.db.repository.GameRepository;
+import pl.speedapp.cargame.engine.replay.GameReplay;
+import pl.speedapp.cargame.exception.GameNotFoundException;
+import pl.speedapp.cargame.exception.GameReplayNotAvailableException;
+import pl.speedapp.cargame.service.GameReplayService;
+import pl.speedapp.cargame.service.MoveJournalService;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
+@Service
+public class GameReplayServiceImpl implements GameReplayService {
+
+    private final GameRepository gameRepository;
+
+    private final MoveJournalService moveJournalService;
+
+    private final int checkpointInterval;
+
+    // key: game id, value: replay with the board checkpoints of the game, the least recently used one is dropped
+    private final Map<Long, GameReplay> replays;
+
+    public GameReplayServiceImpl(GameRepository gameRepository, MoveJournalService moveJournalService,
+                                 @Value("${game.replay.checkpointInterval:1000}") int checkpointInterval,
+                                 @Value("${game.replay.cachedGames:64}") int cachedGames) {
+        this.gameRepository = gameRepository;
+        this.moveJournalService = moveJournalService;
+        this.checkpointInterval = checkpointInterval;
+        this.replays = Collections.synchronizedMap(new LinkedHashMap<Long, GameReplay>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GameReplay> eldest) {
+                return size() > cachedGames;
+            }
+        });
+    }
+
+    @Override
+    public GameStateDto getGameState(Long gameId, Instant time) {
+        log.debug("Replaying game with id [{}] until [{}]", gameId, time);
+        if (!moveJournalService.isEnabled()) {
+            throw new GameReplayNotAvailableException(gameId);
+        }
+
+        GameReplay replay = replays.get(gameId);
+        if (replay == null) {
+            Game game = gameRepository.findWithMapById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+            replay = replays.computeIfAbsent(gameId, id -> new GameReplay(id, game.getMap().getRoads(), checkpointInterval));
+        }
+        GameReplay gameReplay = replay;
+        return moveJournalService.readJournal(gameId, journal -> gameReplay.getState(journal, time))
+                .orElseThrow(() -> new GameReplayNotAvailableException(gameId));
+    }
+}
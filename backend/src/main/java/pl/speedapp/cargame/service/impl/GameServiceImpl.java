@@ -5,32 +5,43 @@ import org.apache.commons.collections.CollectionUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import pl.speedapp.cargame.api.model.CarDto;
 import pl.speedapp.cargame.api.model.GameDto;
+import pl.speedapp.cargame.api.model.GameStateDto;
 import pl.speedapp.cargame.api.model.RunningGameDto;
 import pl.speedapp.cargame.db.enums.GameMapStatus;
 import pl.speedapp.cargame.db.enums.GameStatus;
 import pl.speedapp.cargame.db.model.Car;
-import pl.speedapp.cargame.db.model.CarMoveEvent;
 import pl.speedapp.cargame.db.model.Game;
 import pl.speedapp.cargame.db.model.GameMap;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 import pl.speedapp.cargame.db.repository.GameRepository;
+import pl.speedapp.cargame.engine.cluster.ClusterNode;
 import pl.speedapp.cargame.engine.exception.GameAlreadyRunning;
 import pl.speedapp.cargame.engine.game.GameManager;
 import pl.speedapp.cargame.exception.CarIsCrashedException;
 import pl.speedapp.cargame.exception.GameMapNotFoundException;
 import pl.speedapp.cargame.exception.GameNotActiveException;
 import pl.speedapp.cargame.exception.GameNotFoundException;
+import pl.speedapp.cargame.exception.GameReplayNotAvailableException;
 import pl.speedapp.cargame.service.CarService;
+import pl.speedapp.cargame.service.ClusterService;
 import pl.speedapp.cargame.service.GameMapService;
+import pl.speedapp.cargame.service.GameReplayService;
 import pl.speedapp.cargame.service.GameService;
+import pl.speedapp.cargame.service.MoveJournalService;
+import pl.speedapp.cargame.service.ReferenceCache;
 import pl.speedapp.cargame.util.GameDtoUtil;
 
 import javax.annotation.PostConstruct;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -44,11 +55,25 @@ public class GameServiceImpl implements GameService {
 
     private final CarService carService;
 
-    public GameServiceImpl(GameRepository gameRepository, GameMapService gameMapService, GameManager gameManager, CarService carService) {
+    private final ReferenceCache referenceCache;
+
+    private final ClusterService clusterService;
+
+    private final MoveJournalService moveJournalService;
+
+    private final GameReplayService gameReplayService;
+
+    public GameServiceImpl(GameRepository gameRepository, GameMapService gameMapService, GameManager gameManager, CarService carService,
+                           ReferenceCache referenceCache, ClusterService clusterService, MoveJournalService moveJournalService,
+                           GameReplayService gameReplayService) {
         this.gameRepository = gameRepository;
         this.gameMapService = gameMapService;
         this.gameManager = gameManager;
         this.carService = carService;
+        this.referenceCache = referenceCache;
+        this.clusterService = clusterService;
+        this.moveJournalService = moveJournalService;
+        this.gameReplayService = gameReplayService;
     }
 
     @PostConstruct
@@ -57,24 +82,62 @@ public class GameServiceImpl implements GameService {
     }
 
     /**
-     * check if any game is in running status. If yes, mark them as INTERRUPTED
+     * check if any game is in running status. If yes, restore it from its checkpoint followed by the moves journaled
+     * after the checkpoint, or mark it as INTERRUPTED if there is no checkpoint, unless other node of the cluster still
+     * runs the game
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public void closedNotFinishedGames() {
         LocalDateTime timeNow = LocalDateTime.now();
-        gameRepository.getGamesByStatusIn(GameStatus.RUNNING).stream().forEach(game -> {
+        long startTime = System.nanoTime();
+        int restored = 0;
+        for (Game game : gameRepository.findWithMapByStatusIn(GameStatus.RUNNING)) {
+            if (clusterService.isGameRunningOnOtherNode(game.getId())) {
+                continue;
+            }
+            referenceCache.gameStarted(game.getId());
+            // journal is replayed before the restored cars are placed again
+            List<CarDto> journalCars = getJournalCars(game.getId());
+            moveJournalService.gameRestored(game.getId());
+            if (gameManager.restoreGame(game, journalCars)) {
+                ++restored;
+                continue;
+            }
+            referenceCache.gameClosed(game.getId());
+            moveJournalService.gameClosed(game.getId());
             game.setStatus(GameStatus.INTERRUPTED);
             game.setFinishedAt(timeNow);
             gameRepository.save(game);
-        });
+        }
+        gameManager.discardRestoredCheckpoints();
+        if (restored > 0) {
+            log.info("[{}] running games restored in [{}] ms", restored, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+    }
+
+    /**
+     * @return cars of the game after all journaled moves, null if the game has no journal, e.g. lost with the temporary
+     * directory
+     */
+    private List<CarDto> getJournalCars(Long gameId) {
+        if (!moveJournalService.isEnabled()) {
+            return null;
+        }
+        try {
+            GameStateDto state = gameReplayService.getGameState(gameId, Instant.now());
+            return state.getMoves() > 0 ? state.getCars() : null;
+        } catch (GameReplayNotAvailableException e) {
+            return null;
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public GameDto getGameDetailsWithMovements(Long gameId) {
         log.debug("Getting details and historical movements for game with id: [{}]", gameId);
-        Game game = gameRepository.findById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
-        List<CarMoveEvent> carMoveEvents = carService.getGameCarsMovements(gameId);
+        // map of the game is loaded together with the game, moves with their cars by the single query
+        Game game = gameRepository.findWithMapById(gameId).orElseThrow(() -> new GameNotFoundException(gameId));
+        List<CarMoveEventView> carMoveEvents = carService.getGameCarsMovements(gameId);
         List<CarDto> carsInGame = carService.getCarsInGame(gameId);
         return GameDtoUtil.mapGameWithHistoryToDto(game, carMoveEvents, carsInGame);
     }
@@ -98,14 +161,44 @@ public class GameServiceImpl implements GameService {
                 .status(GameStatus.RUNNING)
                 .build();
         gameRepository.save(game);
+
+        Optional<ClusterNode> node = clusterService.assignGame(game.getId());
+        if (node.isPresent()) {
+            // other node loads the game from the database, so it can see it only after the commit
+            Long gameId = game.getId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    clusterService.startGameOnNode(node.get(), gameId);
+                }
+            });
+            return game;
+        }
+
+        referenceCache.gameStarted(game.getId());
+        moveJournalService.gameStarted(game.getId());
         gameManager.addAndStartGame(game);
 
         return game;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public void startGame(Long gameId) {
+        Game game = getGame(gameId);
+        if (!GameStatus.RUNNING.equals(game.getStatus())) {
+            throw new GameNotActiveException(gameId);
+        }
+        referenceCache.gameStarted(gameId);
+        moveJournalService.gameStarted(gameId);
+        gameManager.addAndStartGame(game);
+    }
+
     @Transactional
     @Override
     public void closeGame(Long gameId) {
+        referenceCache.gameClosed(gameId);
+        clusterService.releaseGame(gameId);
         Game game = getGame(gameId);
         if (game.getStatus().equals(GameStatus.RUNNING)) {
             game.setStatus(GameStatus.FINISHED);
@@ -122,6 +215,10 @@ public class GameServiceImpl implements GameService {
     @Override
     @Transactional(readOnly = true)
     public List<Game> getRunningGames() {
+        if (clusterService.isEnabled()) {
+            // games of all nodes
+            return gameRepository.getGamesByStatusIn(GameStatus.RUNNING);
+        }
         List<Long> runningGamesIds = gameManager.getGamesIds();
         return CollectionUtils.isNotEmpty(runningGamesIds) ? gameRepository.findAllById(runningGamesIds) : Collections.emptyList();
     }
@@ -190,4 +287,14 @@ public class GameServiceImpl implements GameService {
 
         return runningGame;
     }
+
+    @Override
+    public RunningGameDto getRunningGameChanges(Long gameId, long sinceVersion) {
+        return gameManager.getRunningGameDto(gameId, sinceVersion);
+    }
+
+    @Override
+    public long getRunningGameVersion(Long gameId) {
+        return gameManager.getGameStateVersion(gameId);
+    }
 }
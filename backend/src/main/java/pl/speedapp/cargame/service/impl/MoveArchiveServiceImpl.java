@@ -0,0 +1,242 @@
+package pl.speedapp.cargame.service.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.db.enums.GameStatus;
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.model.Game;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+import pl.speedapp.cargame.db.repository.GameRepository;
+import pl.speedapp.cargame.engine.journal.MoveArchive;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+import pl.speedapp.cargame.service.CarMoveEventWriter;
+import pl.speedapp.cargame.service.ClusterService;
+import pl.speedapp.cargame.service.MoveArchiveService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class MoveArchiveServiceImpl implements MoveArchiveService {
+
+    private static final String SELECT_SQL = "SELECT e.id, e.car_id, c.name, c.type, e.event_type, e.distance, e.event_timestamp " +
+            "FROM car_move_event e JOIN car c ON c.id = e.car_id WHERE e.game_id = ? ORDER BY e.event_timestamp, e.id";
+
+    private static final String MARK_ARCHIVED_SQL = "UPDATE game SET archived = TRUE WHERE id = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM car_move_event WHERE game_id = ? AND id BETWEEN ? AND ?";
+
+    private static final String DELETE_LEFT_SQL = "DELETE FROM car_move_event WHERE game_id IN (SELECT id FROM game WHERE archived = TRUE)";
+
+    private static final List<GameStatus> CLOSED_STATUSES = Arrays.asList(GameStatus.FINISHED, GameStatus.INTERRUPTED);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final GameRepository gameRepository;
+
+    private final CarMoveEventWriter carMoveEventWriter;
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    // time (in seconds) after the game is closed, when its moves are archived
+    @Value("${game.archive.delay:60}")
+    private long delay = 60;
+
+    // interval (in milliseconds) between the checks of the closed games
+    @Value("${game.archive.interval:10000}")
+    private long interval = 10000;
+
+    // number of archived moves deleted from the table by the single statement
+    @Value("${game.archive.deleteBatchSize:1000}")
+    private int deleteBatchSize = 1000;
+
+    private ScheduledExecutorService archiver;
+
+    public MoveArchiveServiceImpl(JdbcTemplate jdbcTemplate, GameRepository gameRepository, CarMoveEventWriter carMoveEventWriter,
+                                  ClusterService clusterService,
+                                  @Value("${game.archive.enabled:false}") boolean enabled,
+                                  @Value("${game.archive.directory:cargame-archive}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.gameRepository = gameRepository;
+        this.carMoveEventWriter = carMoveEventWriter;
+        // archives are local to the node, nodes of the cluster share only the database
+        this.enabled = enabled && !clusterService.isEnabled();
+        this.directory = Paths.get(directory);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            log.info("Moves of the closed games are archived in [{}]", directory.toAbsolutePath());
+            archiver = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("move-archiver").build());
+            archiver.execute(this::deleteLeftRows);
+            archiver.scheduleWithFixedDelay(this::archiveInBackground, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void beforeDestroy() {
+        if (Objects.nonNull(archiver)) {
+            archiver.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void archiveInBackground() {
+        try {
+            archiveClosedGames();
+        } catch (DataAccessException | UncheckedIOException e) {
+            // game stays not archived, it is archived again by the next run
+            log.error("Cannot archive moves of the closed games", e);
+        }
+    }
+
+    /**
+     * Delete rows of the games archived by the previous run, which stopped before all of them were deleted
+     */
+    private void deleteLeftRows() {
+        try {
+            int deleted = jdbcTemplate.update(DELETE_LEFT_SQL);
+            if (deleted > 0) {
+                log.info("Deleted [{}] moves left in the table by the archived games", deleted);
+            }
+        } catch (DataAccessException e) {
+            log.error("Cannot delete moves left in the table by the archived games", e);
+        }
+    }
+
+    @Override
+    public synchronized int archiveClosedGames() {
+        List<Game> games = gameRepository.findByStatusInAndArchivedFalseAndFinishedAtBefore(CLOSED_STATUSES,
+                LocalDateTime.now().minusSeconds(delay));
+        if (games.isEmpty()) {
+            return 0;
+        }
+        // buffered events of the closed games have to be in the table
+        carMoveEventWriter.flush();
+        for (Game game : games) {
+            archive(game);
+        }
+        return games.size();
+    }
+
+    /**
+     * Archive is written first, then the game is marked as archived and its rows are deleted. Rows of the archived game
+     * are not read from the table, so rows left after the failure are only deleted after the restart.
+     */
+    private void archive(Game game) {
+        MoveArchive.Builder builder = MoveArchive.builder(game.getId(), game.getName());
+        jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+            int distance = rs.getInt(6);
+            Integer nullableDistance = rs.wasNull() ? null : distance;
+            builder.add(rs.getLong(1), rs.getLong(2), rs.getString(3), CarType.valueOf(rs.getString(4)),
+                    CarMoveType.valueOf(rs.getString(5)), nullableDistance,
+                    MoveJournal.toTimestamp(rs.getTimestamp(7).toInstant()));
+        }, game.getId());
+        if (builder.size() > 0) {
+            // archive is on the disk before its rows are deleted
+            builder.write(directory);
+        }
+        jdbcTemplate.update(MARK_ARCHIVED_SQL, game.getId());
+
+        MoveArchive archive = builder.build();
+        long[] ids = new long[archive.size()];
+        for (int index = 0; index < ids.length; ++index) {
+            ids[index] = archive.getId(index);
+        }
+        Arrays.sort(ids);
+        // ids of other games in the range are skipped by the game id, each statement is committed on its own
+        for (int from = 0; from < ids.length; from += deleteBatchSize) {
+            int to = Math.min(from + deleteBatchSize, ids.length) - 1;
+            jdbcTemplate.update(DELETE_SQL, game.getId(), ids[from], ids[to]);
+        }
+        log.debug("Archived [{}] moves of the game [{}]", ids.length, game.getId());
+    }
+
+    @Override
+    public List<CarMoveEventView> getCarMovements(FiltersCarMovements filters) {
+        int limit = filters.getResultsLimit().orElse(Integer.MAX_VALUE);
+        Set<String> carNames = CollectionUtils.isNotEmpty(filters.getCarNames()) ? filters.getCarNames() : null;
+
+        List<CarMoveEventView> moves = new ArrayList<>();
+        for (Long gameId : getArchivedGameIds(filters)) {
+            if (MoveArchive.exists(directory, gameId)) {
+                collectMoves(MoveArchive.read(directory, gameId), carNames, limit, moves);
+            }
+        }
+        moves.sort(CarMoveEventView.MOST_RECENT_FIRST);
+        return moves.size() > limit ? new ArrayList<>(moves.subList(0, limit)) : moves;
+    }
+
+    /**
+     * Scan the archive from the most recent move, only cars from the filter are selected
+     */
+    private void collectMoves(MoveArchive archive, Set<String> carNames, int limit, List<CarMoveEventView> moves) {
+        boolean[] selectedSlots = new boolean[archive.getCarCount()];
+        for (int slot = 0; slot < selectedSlots.length; ++slot) {
+            selectedSlots[slot] = Objects.isNull(carNames) || carNames.contains(archive.getCarName(slot));
+        }
+        int found = 0;
+        for (int index = archive.size() - 1; index >= 0 && found < limit; --index) {
+            int slot = archive.getCarSlot(index);
+            if (selectedSlots[slot]) {
+                moves.add(CarMoveEventView.builder()
+                        .id(archive.getId(index))
+                        .carId(archive.getCarId(slot))
+                        .carName(archive.getCarName(slot))
+                        .carType(archive.getCarType(slot))
+                        .gameId(archive.getGameId())
+                        .gameName(archive.getGameName())
+                        .eventType(archive.getMoveType(index))
+                        .distance(archive.getDistance(index))
+                        .eventTimestamp(Timestamp.from(Instant.ofEpochSecond(0, archive.getTimestamp(index))))
+                        .build());
+                ++found;
+            }
+        }
+    }
+
+    /**
+     * @return ids of the archived games from the filter, or of all archived games if games are not filtered
+     */
+    private Set<Long> getArchivedGameIds(FiltersCarMovements filters) {
+        List<Game> games = CollectionUtils.isNotEmpty(filters.getGameIDs()) ? gameRepository.findAllById(filters.getGameIDs()) :
+                gameRepository.findByArchivedTrue();
+        Set<Long> gameIds = games.stream()
+                .filter(Game::isArchived)
+                .map(Game::getId)
+                .collect(Collectors.toSet());
+        if (CollectionUtils.isNotEmpty(filters.getMapNames()) && !gameIds.isEmpty()) {
+            gameIds.retainAll(gameRepository.findByMap_NameIn(filters.getMapNames()).stream()
+                    .map(Game::getId)
+                    .collect(Collectors.toSet()));
+        }
+        return gameIds;
+    }
+}
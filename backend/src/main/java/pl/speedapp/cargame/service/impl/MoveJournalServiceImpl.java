@@ -0,0 +1,279 @@
+package pl.speedapp.cargame.service.impl;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.model.Car;
+import pl.speedapp.cargame.db.model.Game;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
+import pl.speedapp.cargame.db.repository.GameRepository;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+import pl.speedapp.cargame.service.ClusterService;
+import pl.speedapp.cargame.service.MoveJournalService;
+import pl.speedapp.cargame.service.ReferenceCache;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+public class MoveJournalServiceImpl implements MoveJournalService {
+
+    private final GameRepository gameRepository;
+
+    private final ReferenceCache referenceCache;
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    // key: game id, value: journal of the running game
+    private final ConcurrentMap<Long, MoveJournal> journals;
+
+    public MoveJournalServiceImpl(GameRepository gameRepository, ReferenceCache referenceCache, ClusterService clusterService,
+                                  @Value("${game.moveJournal.enabled:true}") boolean enabled,
+                                  @Value("${game.moveJournal.directory:${java.io.tmpdir}/cargame-moves-${server.port}}") String directory) {
+        this.gameRepository = gameRepository;
+        this.referenceCache = referenceCache;
+        // journals are local to the node, nodes of the cluster share only the database
+        this.enabled = enabled && !clusterService.isEnabled();
+        this.directory = Paths.get(directory);
+        this.journals = new ConcurrentHashMap<>();
+        if (this.enabled) {
+            log.info("Car moves are kept in the journals in [{}]", this.directory.toAbsolutePath());
+        }
+    }
+
+    @PreDestroy
+    public void beforeDestroy() {
+        journals.values().forEach(MoveJournal::close);
+        journals.clear();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void gameStarted(Long gameId) {
+        if (enabled) {
+            // id of the game could be used before, e.g. by the in-memory database of the previous run
+            journals.compute(gameId, (id, journal) -> {
+                if (Objects.nonNull(journal)) {
+                    journal.close();
+                }
+                return MoveJournal.create(directory, id);
+            });
+        }
+    }
+
+    @Override
+    public void gameRestored(Long gameId) {
+        if (enabled) {
+            journals.computeIfAbsent(gameId, id -> MoveJournal.open(directory, id));
+        }
+    }
+
+    @Override
+    public void store(String carName, Long gameId, CarMoveType moveType, Integer distance, Instant eventTime) {
+        MoveJournal journal = getJournal(gameId, carName);
+        if (Objects.nonNull(journal)) {
+            journal.append(carName, moveType, Objects.nonNull(distance) ? distance : 0, eventTime);
+        }
+    }
+
+    @Override
+    public void storePlaced(String carName, Long gameId, CarType carType, int x, int y, Direction direction, Instant eventTime) {
+        MoveJournal journal = getJournal(gameId, carName);
+        if (Objects.nonNull(journal)) {
+            journal.appendPlaced(carName, Objects.nonNull(carType) ? carType : CarType.NORMAL, x, y, direction,
+                    MoveJournal.toTimestamp(eventTime));
+        }
+    }
+
+    @Override
+    public void storeRemoved(String carName, Long gameId, Instant eventTime) {
+        MoveJournal journal = getJournal(gameId, carName);
+        if (Objects.nonNull(journal)) {
+            journal.appendRemoved(carName, MoveJournal.toTimestamp(eventTime));
+        }
+    }
+
+    @Override
+    public void storeDirection(String carName, Long gameId, Direction direction, Instant eventTime) {
+        MoveJournal journal = getJournal(gameId, carName);
+        if (Objects.nonNull(journal)) {
+            journal.appendDirection(carName, direction, MoveJournal.toTimestamp(eventTime));
+        }
+    }
+
+    /**
+     * @return journal of the running game, or null if the game has been closed, its journal is not opened again
+     */
+    private MoveJournal getJournal(Long gameId, String carName) {
+        MoveJournal journal = journals.get(gameId);
+        if (journal == null) {
+            log.warn("Move of the car [{}] in the game [{}] is ignored, the game has been closed.", carName, gameId);
+        }
+        return journal;
+    }
+
+    @Override
+    public void gameClosed(Long gameId) {
+        MoveJournal journal = journals.remove(gameId);
+        if (Objects.nonNull(journal)) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public List<CarMoveEventView> getCarMovements(FiltersCarMovements filters) {
+        int limit = filters.getResultsLimit().orElse(Integer.MAX_VALUE);
+        Set<String> carNames = CollectionUtils.isNotEmpty(filters.getCarNames()) ? filters.getCarNames() : null;
+
+        // moves of the games and the cars which no longer exist are skipped before the limit is applied
+        Collection<Long> gameIds = getGameIds(filters);
+        Map<Long, Game> games = gameRepository.findAllById(gameIds).stream().collect(Collectors.toMap(Game::getId, game -> game));
+        Map<String, Optional<Car>> cars = new HashMap<>();
+        List<JournalMove> moves = new ArrayList<>();
+        for (Long gameId : gameIds) {
+            if (games.containsKey(gameId)) {
+                readJournal(gameId, journal -> {
+                    collectMoves(journal, carName -> (Objects.isNull(carNames) || carNames.contains(carName)) &&
+                            cars.computeIfAbsent(carName, this::getCar).isPresent(), limit, moves);
+                    return moves;
+                });
+            }
+        }
+        moves.sort(Comparator.comparingLong((JournalMove move) -> move.timestamp).reversed());
+        List<JournalMove> selected = moves.size() > limit ? moves.subList(0, limit) : moves;
+
+        List<CarMoveEventView> events = new ArrayList<>(selected.size());
+        for (JournalMove move : selected) {
+            Game game = games.get(move.gameId);
+            Car car = cars.get(move.carName).get();
+            events.add(CarMoveEventView.builder()
+                    .carId(car.getId())
+                    .carName(car.getName())
+                    .carType(car.getType())
+                    .gameId(game.getId())
+                    .gameName(game.getName())
+                    .eventType(move.moveType)
+                    .distance(move.distance)
+                    .eventTimestamp(toTimestamp(move.timestamp))
+                    .build());
+        }
+        return events;
+    }
+
+    /**
+     * Scan the journal from the most recent move, only selected cars are decoded
+     */
+    private void collectMoves(MoveJournal journal, Predicate<String> selectedCars, int limit, List<JournalMove> moves) {
+        boolean[] selectedSlots = new boolean[journal.getCarCount()];
+        for (int slot = 0; slot < selectedSlots.length; ++slot) {
+            selectedSlots[slot] = selectedCars.test(journal.getCarName(slot));
+        }
+        int[] found = {0};
+        journal.scanBackward((carSlot, moveType, distance, timestamp) -> {
+            boolean selected = carSlot < selectedSlots.length ? selectedSlots[carSlot] : selectedCars.test(journal.getCarName(carSlot));
+            if (selected) {
+                moves.add(new JournalMove(journal.getGameId(), journal.getCarName(carSlot), moveType, distance, timestamp));
+                return ++found[0] < limit;
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public <T> Optional<T> readJournal(Long gameId, Function<MoveJournal, T> reader) {
+        MoveJournal journal = journals.get(gameId);
+        if (Objects.nonNull(journal)) {
+            return Optional.ofNullable(reader.apply(journal));
+        } else if (MoveJournal.exists(directory, gameId)) {
+            try (MoveJournal closedJournal = MoveJournal.read(directory, gameId)) {
+                return Optional.ofNullable(reader.apply(closedJournal));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return ids of the games from the filter, or of all games with the journal if games are not filtered
+     */
+    private Collection<Long> getGameIds(FiltersCarMovements filters) {
+        Set<Long> gameIds = CollectionUtils.isNotEmpty(filters.getGameIDs()) ? new HashSet<>(filters.getGameIDs()) : null;
+        if (CollectionUtils.isNotEmpty(filters.getMapNames())) {
+            Set<Long> mapGameIds = gameRepository.findByMap_NameIn(filters.getMapNames()).stream()
+                    .map(Game::getId)
+                    .collect(Collectors.toSet());
+            if (Objects.nonNull(gameIds)) {
+                gameIds.retainAll(mapGameIds);
+            } else {
+                gameIds = mapGameIds;
+            }
+        }
+        return Objects.nonNull(gameIds) ? gameIds : getJournalGameIds();
+    }
+
+    @Override
+    public Set<Long> getJournalGameIds() {
+        Set<Long> gameIds = new HashSet<>(journals.keySet());
+        if (!Files.isDirectory(directory)) {
+            return gameIds;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(MoveJournal.FILE_EXTENSION))
+                    .map(name -> name.substring(0, name.length() - MoveJournal.FILE_EXTENSION.length()))
+                    .filter(id -> id.chars().allMatch(Character::isDigit))
+                    .forEach(id -> gameIds.add(Long.valueOf(id)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list move journals in " + directory, e);
+        }
+        return gameIds;
+    }
+
+    private Optional<Car> getCar(String carName) {
+        return referenceCache.getCar(carName).map(car -> Car.builder()
+                .id(car.getId())
+                .name(car.getName())
+                .type(car.getType())
+                .crashed(car.isCrashed())
+                .used(car.isUsed())
+                .build());
+    }
+
+    private static Timestamp toTimestamp(long timestamp) {
+        return Timestamp.from(Instant.ofEpochSecond(0, timestamp));
+    }
+
+    @AllArgsConstructor
+    private static class JournalMove {
+        private final Long gameId;
+        private final String carName;
+        private final CarMoveType moveType;
+        private final int distance;
+        private final long timestamp;
+    }
+}
@@ -0,0 +1,131 @@
+package pl.speedapp.cargame.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.speedapp.cargame.db.model.Car;
+import pl.speedapp.cargame.db.repository.CarRepository;
+import pl.speedapp.cargame.service.CarReference;
+import pl.speedapp.cargame.service.ReferenceCache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@Slf4j
+public class ReferenceCacheImpl implements ReferenceCache, MeterBinder {
+
+    private static final String CARS_CACHE = "cars";
+
+    private final CarRepository carRepository;
+
+    private final Map<String, CarReference> cars;
+
+    private final Set<Long> runningGamesIds;
+
+    private final LongAdder hits;
+
+    private final LongAdder misses;
+
+    public ReferenceCacheImpl(CarRepository carRepository) {
+        this.carRepository = carRepository;
+        this.cars = new ConcurrentHashMap<>();
+        this.runningGamesIds = ConcurrentHashMap.newKeySet();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    @Override
+    public Optional<CarReference> getCar(String name) {
+        CarReference car = cars.get(name);
+        if (car != null) {
+            hits.increment();
+            return Optional.of(car);
+        }
+
+        misses.increment();
+        log.debug("Car [{}] not found in the cache, loading from the database.", name);
+        return carRepository.findByName(name)
+                .map(CarReference::of)
+                .map(loaded -> {
+                    CarReference cached = cars.putIfAbsent(name, loaded);
+                    return cached != null ? cached : loaded;
+                });
+    }
+
+    @Override
+    public void putCar(Car car) {
+        CarReference reference = CarReference.of(car);
+        afterCommit(() -> cars.put(reference.getName(), reference));
+    }
+
+    @Override
+    public void evictCar(String name) {
+        cars.remove(name);
+        // car could be loaded again by the concurrent lookup before the deletion is committed
+        afterCommit(() -> cars.remove(name));
+    }
+
+    @Override
+    public boolean isGameRunning(Long gameId) {
+        return runningGamesIds.contains(gameId);
+    }
+
+    @Override
+    public void gameStarted(Long gameId) {
+        runningGamesIds.add(gameId);
+    }
+
+    @Override
+    public void gameClosed(Long gameId) {
+        runningGamesIds.remove(gameId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::doubleValue)
+                .tags("cache", CARS_CACHE, "result", "hit")
+                .description("Cars found in the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::doubleValue)
+                .tags("cache", CARS_CACHE, "result", "miss")
+                .description("Cars loaded from the database")
+                .register(registry);
+        Gauge.builder("cache.size", cars, Map::size)
+                .tags("cache", CARS_CACHE)
+                .description("Cars kept in the cache")
+                .register(registry);
+        Gauge.builder("game.running.cached", runningGamesIds, Set::size)
+                .description("Running games ids kept in the cache")
+                .register(registry);
+    }
+
+    long getHitsCount() {
+        return hits.sum();
+    }
+
+    long getMissesCount() {
+        return misses.sum();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
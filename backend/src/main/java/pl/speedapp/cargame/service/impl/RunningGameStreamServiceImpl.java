@@ -0,0 +1,163 @@
+package pl.speedapp.cargame.service.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.speedapp.cargame.api.model.RunningGameDto;
+import pl.speedapp.cargame.api.model.RunningGameEventDto;
+import pl.speedapp.cargame.engine.game.GameStateListener;
+import pl.speedapp.cargame.exception.GameNotActiveException;
+import pl.speedapp.cargame.service.GameService;
+import pl.speedapp.cargame.service.ReferenceCache;
+import pl.speedapp.cargame.service.RunningGameStreamService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.*;
+
+@Component
+@Slf4j
+public class RunningGameStreamServiceImpl implements RunningGameStreamService, GameStateListener {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+
+    static final String CAR_EVENT = "car";
+
+    static final String CLOSED_EVENT = "closed";
+
+    // max number of events waiting to be sent to the subscribers
+    @Value("${game.stream.queueCapacity:10000}")
+    private int queueCapacity = 10000;
+
+    // subscription timeout in milliseconds, 0 means the subscription lasts until the game ends
+    @Value("${game.stream.timeout:0}")
+    private long timeout = 0;
+
+    private final GameService gameService;
+
+    private final ReferenceCache referenceCache;
+
+    // key: game id, value: subscribers of the game
+    private final ConcurrentMap<Long, Set<SseEmitter>> subscribers;
+
+    // single thread keeps order of the events sent to the subscribers
+    private ExecutorService sender;
+
+    public RunningGameStreamServiceImpl(GameService gameService, ReferenceCache referenceCache) {
+        this.gameService = gameService;
+        this.referenceCache = referenceCache;
+        this.subscribers = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        sender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat("running-game-stream").build());
+    }
+
+    @PreDestroy
+    public void beforeDestroy() {
+        log.debug("Before destroy RUNNING GAME STREAM, completing [{}] subscriptions...", subscribers.size());
+        sender.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        subscribers.clear();
+    }
+
+    @Override
+    public SseEmitter subscribe(Long gameId) {
+        if (!referenceCache.isGameRunning(gameId)) {
+            throw new GameNotActiveException(gameId);
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout);
+        emitter.onCompletion(() -> unsubscribe(gameId, emitter));
+        emitter.onTimeout(() -> unsubscribe(gameId, emitter));
+        subscribers.compute(gameId, (id, emitters) -> {
+            Set<SseEmitter> gameEmitters = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            gameEmitters.add(emitter);
+            return gameEmitters;
+        });
+
+        // snapshot is taken by the sender, so every change published after it is sent after the snapshot
+        dispatch(gameId, () -> {
+            try {
+                RunningGameDto snapshot = gameService.getRunningGameDto(gameId);
+                send(gameId, emitter, SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot, MediaType.APPLICATION_JSON));
+            } catch (RuntimeException e) {
+                log.debug("Cannot take snapshot of the game [{}]: {}", gameId, e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        log.debug("New subscriber of the game [{}]", gameId);
+        return emitter;
+    }
+
+    @Override
+    public boolean isWatched(Long gameId) {
+        return subscribers.containsKey(gameId);
+    }
+
+    @Override
+    public void carChanged(Long gameId, RunningGameEventDto event) {
+        dispatch(gameId, () -> getSubscribers(gameId).forEach(emitter ->
+                send(gameId, emitter, SseEmitter.event().name(CAR_EVENT).data(event, MediaType.APPLICATION_JSON))));
+    }
+
+    @Override
+    public void gameClosed(Long gameId) {
+        if (!isWatched(gameId)) {
+            return;
+        }
+        dispatch(gameId, () -> {
+            Set<SseEmitter> emitters = subscribers.remove(gameId);
+            if (emitters != null) {
+                emitters.forEach(emitter -> {
+                    send(gameId, emitter, SseEmitter.event().name(CLOSED_EVENT).data(gameId));
+                    emitter.complete();
+                });
+            }
+        });
+    }
+
+    /**
+     * Pass the task to the sender. If subscribers can't keep up with the game, they are disconnected and have to
+     * subscribe again to get the fresh snapshot.
+     */
+    private void dispatch(Long gameId, Runnable task) {
+        try {
+            sender.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many events waiting to be sent, disconnecting subscribers of the game [{}]", gameId);
+            Set<SseEmitter> emitters = subscribers.remove(gameId);
+            if (emitters != null) {
+                emitters.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    private void send(Long gameId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Subscriber of the game [{}] disconnected: {}", gameId, e.getMessage());
+            unsubscribe(gameId, emitter);
+        }
+    }
+
+    private Set<SseEmitter> getSubscribers(Long gameId) {
+        return subscribers.getOrDefault(gameId, Collections.emptySet());
+    }
+
+    private void unsubscribe(Long gameId, SseEmitter emitter) {
+        subscribers.computeIfPresent(gameId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
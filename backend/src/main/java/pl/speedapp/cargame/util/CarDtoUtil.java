@@ -4,7 +4,7 @@ import lombok.experimental.UtilityClass;
 import pl.speedapp.cargame.api.model.CarDto;
 import pl.speedapp.cargame.api.model.CarMoveEventDto;
 import pl.speedapp.cargame.db.model.Car;
-import pl.speedapp.cargame.db.model.CarMoveEvent;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 
 @UtilityClass
 public class CarDtoUtil {
@@ -18,15 +18,15 @@ public class CarDtoUtil {
                 .build();
     }
 
-    public CarMoveEventDto mapMoveEventToDto(CarMoveEvent event) {
+    public CarMoveEventDto mapMoveEventToDto(CarMoveEventView event) {
         return CarMoveEventDto.builder()
                 .eventType(event.getEventType())
                 .eventTime(event.getEventTimestamp().toInstant())
-                .carId(event.getCar().getId())
-                .carName(event.getCar().getName())
-                .carType(event.getCar().getType().toString())
-                .gameId(event.getGame().getId())
-                .gameName(event.getGame().getName())
+                .carId(event.getCarId())
+                .carName(event.getCarName())
+                .carType(event.getCarType().toString())
+                .gameId(event.getGameId())
+                .gameName(event.getGameName())
                 .build();
     }
 }
@@ -4,9 +4,9 @@ import lombok.experimental.UtilityClass;
 import pl.speedapp.cargame.api.model.*;
 import pl.speedapp.cargame.db.enums.GameMapStatus;
 import pl.speedapp.cargame.db.model.Car;
-import pl.speedapp.cargame.db.model.CarMoveEvent;
 import pl.speedapp.cargame.db.model.Game;
 import pl.speedapp.cargame.db.model.GameMap;
+import pl.speedapp.cargame.db.projection.CarMoveEventView;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -17,14 +17,14 @@ import static java.util.Objects.nonNull;
 @UtilityClass
 public class GameDtoUtil {
 
-    public GameDto mapGameWithHistoryToDto(Game game, List<CarMoveEvent> moveEvents, List<CarDto> carsInGame) {
+    public GameDto mapGameWithHistoryToDto(Game game, List<CarMoveEventView> moveEvents, List<CarDto> carsInGame) {
         GameDto gameDto = mapGameToDto(game);
         gameDto.setCars(carsInGame);
         gameDto.setCarMovements(moveEvents.stream()
                 .map(e -> CarMoveEventDto.builder()
-                        .carId(e.getCar().getId())
-                        .carName(e.getCar().getName())
-                        .carType(e.getCar().getType().toString())
+                        .carId(e.getCarId())
+                        .carName(e.getCarName())
+                        .carType(e.getCarType().toString())
                         .eventTime(e.getEventTimestamp().toInstant())
                         .eventType(e.getEventType())
                         .build())
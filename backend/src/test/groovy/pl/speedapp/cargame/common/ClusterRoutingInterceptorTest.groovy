@@ -0,0 +1,83 @@
+package pl.speedapp.cargame.common
+
+import org.springframework.http.HttpHeaders
+import org.springframework.http.HttpMethod
+import org.springframework.http.HttpStatus
+import org.springframework.http.ResponseEntity
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.method.HandlerMethod
+import org.springframework.web.servlet.HandlerMapping
+import pl.speedapp.cargame.api.controller.RunningGameController
+import pl.speedapp.cargame.engine.cluster.ClusterNode
+import pl.speedapp.cargame.service.ClusterService
+import pl.speedapp.cargame.service.GameService
+import pl.speedapp.cargame.service.RunningGameStreamService
+import spock.lang.Specification
+
+class ClusterRoutingInterceptorTest extends Specification {
+
+    ClusterNode remoteNode = new ClusterNode('node2', 'http://127.0.0.1:8889')
+
+    ClusterService clusterService = Mock() {
+        getRemoteNodeOfGame(1L) >> Optional.of(remoteNode)
+        getRemoteNodeOfGame(2L) >> Optional.empty()
+    }
+
+    ClusterRoutingInterceptor interceptor = new ClusterRoutingInterceptor(clusterService)
+
+    RunningGameController controller = new RunningGameController(Mock(GameService), Mock(RunningGameStreamService))
+
+    def 'stream of the game owned by the remote node is redirected to that node'() {
+        given:
+        MockHttpServletRequest request = createRequest('/api/run/1/stream', '1')
+        request.setQueryString('since=5')
+        MockHttpServletResponse response = new MockHttpServletResponse()
+
+        when:
+        boolean handled = interceptor.preHandle(request, response, handler('streamRunningGame', Long))
+
+        then:
+        !handled
+        response.status == HttpStatus.TEMPORARY_REDIRECT.value()
+        response.getHeader(HttpHeaders.LOCATION) == 'http://127.0.0.1:8889/api/run/1/stream?since=5'
+        0 * clusterService.forward(*_)
+    }
+
+    def 'request of the game owned by the remote node is passed to that node'() {
+        given:
+        MockHttpServletRequest request = createRequest('/api/run/1', '1')
+        MockHttpServletResponse response = new MockHttpServletResponse()
+
+        when:
+        boolean handled = interceptor.preHandle(request, response, handler('getRunningGame', Long, Long, String))
+
+        then:
+        1 * clusterService.forward(remoteNode, HttpMethod.GET, '/api/run/1', _ as HttpHeaders, _) >>
+                ResponseEntity.ok().eTag('"3"').body('{}'.bytes)
+        !handled
+        response.status == HttpStatus.OK.value()
+        response.getHeader(HttpHeaders.ETAG) == '"3"'
+        response.contentAsString == '{}'
+    }
+
+    def 'stream of the local game is handled by this node'() {
+        given:
+        MockHttpServletRequest request = createRequest('/api/run/2/stream', '2')
+        MockHttpServletResponse response = new MockHttpServletResponse()
+
+        expect:
+        interceptor.preHandle(request, response, handler('streamRunningGame', Long))
+        response.getHeader(HttpHeaders.LOCATION) == null
+    }
+
+    private static MockHttpServletRequest createRequest(String path, String gameId) {
+        MockHttpServletRequest request = new MockHttpServletRequest('GET', path)
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, [gameId: gameId])
+        return request
+    }
+
+    private HandlerMethod handler(String name, Class... parameterTypes) {
+        return new HandlerMethod(controller, RunningGameController.getMethod(name, parameterTypes))
+    }
+}
@@ -0,0 +1,36 @@
+package pl.speedapp.cargame.db.filter
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.sql.Timestamp
+import java.time.Instant
+
+class MovementCursorTest extends Specification {
+
+    def 'cursor is decoded from its token'() {
+        given:
+        def cursor = new MovementCursor(Timestamp.from(Instant.parse('2018-05-01T10:15:30.123456789Z')), 42L)
+
+        when:
+        def token = cursor.encode()
+        def decoded = MovementCursor.decode(token)
+
+        then:
+        decoded == cursor
+        decoded.eventTimestamp.nanos == 123456789
+        token ==~ /[A-Za-z0-9_-]+/
+    }
+
+    @Unroll
+    def 'invalid token is rejected: #token'() {
+        when:
+        MovementCursor.decode(token)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        token << ['', 'abc', 'not a cursor', 'AAAAAAAAAAAAAAAAAAAAAAAAAAAA', 'f_________________________8']
+    }
+}
@@ -0,0 +1,100 @@
+package pl.speedapp.cargame.engine.car
+
+import pl.speedapp.cargame.engine.exception.CarCommandQueueFullException
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class CarCommandQueueTest extends Specification {
+
+    def 'urgent commands go first, then commands with higher priority, then commands in order of arrival'() {
+        given:
+        CarCommandQueue queue = new CarCommandQueue('testCar', 10, CommandOverflowPolicy.REJECT)
+        CarCommand left = command(CarCommandType.TURN_LEFT)
+        CarCommand right = command(CarCommandType.TURN_RIGHT)
+        CarCommand history = command(CarCommandType.BACK_IN_HISTORY, 10)
+        CarCommand forward = command(CarCommandType.MOVE_FORWARD)
+        CarCommand stop = command(CarCommandType.STOP_ENGINE)
+
+        when:
+        [left, right, history, forward, stop].each { queue.offer(it) }
+
+        then:
+        queue.size() == 5
+        (1..6).collect { queue.poll() } == [stop, history, left, right, forward, null]
+    }
+
+    def 'commands are ordered the same way by sequence numbers'() {
+        given:
+        CarCommand left = command(CarCommandType.TURN_LEFT)
+        CarCommand right = command(CarCommandType.TURN_RIGHT)
+        CarCommand history = command(CarCommandType.BACK_IN_HISTORY, 10)
+        CarCommand destroy = command(CarCommandType.DESTROY)
+
+        expect:
+        left.sequence < right.sequence
+        [right, destroy, left, history].sort() == [destroy, history, left, right]
+    }
+
+    def 'full queue rejects new command but still accepts urgent one'() {
+        given:
+        CarCommandQueue queue = new CarCommandQueue('testCar', 2, CommandOverflowPolicy.REJECT)
+        queue.offer(command(CarCommandType.TURN_LEFT))
+        queue.offer(command(CarCommandType.TURN_RIGHT))
+
+        when:
+        queue.offer(command(CarCommandType.MOVE_FORWARD))
+
+        then:
+        thrown(CarCommandQueueFullException)
+        queue.size() == 2
+
+        when:
+        queue.offer(command(CarCommandType.DESTROY))
+
+        then:
+        queue.size() == 3
+        queue.poll().type == CarCommandType.DESTROY
+    }
+
+    def 'full queue drops the oldest command'() {
+        given:
+        CarCommandQueue queue = new CarCommandQueue('testCar', 2, CommandOverflowPolicy.DROP_OLDEST)
+        CarCommand left = command(CarCommandType.TURN_LEFT)
+        CarCommand history = command(CarCommandType.BACK_IN_HISTORY, 10)
+        CarCommand right = command(CarCommandType.TURN_RIGHT)
+
+        when:
+        [left, history, right].each { queue.offer(it) }
+
+        then:
+        queue.size() == 2
+        (1..3).collect { queue.poll() } == [history, right, null]
+    }
+
+    def 'car is scheduled once until game loop releases it'() {
+        given:
+        CarCommandQueue queue = new CarCommandQueue('testCar', 10, CommandOverflowPolicy.REJECT)
+
+        expect:
+        queue.offer(command(CarCommandType.TURN_LEFT))
+        !queue.offer(command(CarCommandType.TURN_RIGHT))
+        queue.poll() != null
+        queue.keepScheduled()
+        queue.poll() != null
+        !queue.keepScheduled()
+        queue.offer(command(CarCommandType.TURN_LEFT))
+    }
+
+    def 'waiting for the command times out'() {
+        given:
+        CarCommandQueue queue = new CarCommandQueue('testCar', 10, CommandOverflowPolicy.REJECT)
+
+        expect:
+        queue.poll(10, TimeUnit.MILLISECONDS) == null
+    }
+
+    private static CarCommand command(CarCommandType type, int priority = 0) {
+        return CarCommand.builder().carName('testCar').type(type).commandPriority(priority).build()
+    }
+}
@@ -1,14 +1,21 @@
 package pl.speedapp.cargame.engine.car
 
+import pl.speedapp.cargame.db.enums.CarMoveType
 import pl.speedapp.cargame.db.enums.CarType
 import pl.speedapp.cargame.engine.exception.CarAlreadyStartedException
 import pl.speedapp.cargame.engine.grid.Grid
 import pl.speedapp.cargame.engine.grid.commands.MoveForward
+import pl.speedapp.cargame.engine.grid.commands.Rotate
 import pl.speedapp.cargame.engine.grid.commands.TurnLeft
 import pl.speedapp.cargame.engine.grid.commands.TurnRight
 import pl.speedapp.cargame.engine.grid.events.Event
 import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed
+import pl.speedapp.cargame.engine.grid.events.MovableObjectBackedInHistory
+import pl.speedapp.cargame.engine.grid.events.MovableObjectHandleHistoryInProgress
+import pl.speedapp.cargame.engine.grid.events.MovableObjectMoved
+import pl.speedapp.cargame.engine.grid.events.MoveEventSink
 import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.engine.grid.movement.Position
 import spock.lang.Specification
 import spock.lang.Unroll
 import spock.util.concurrent.PollingConditions
@@ -104,7 +111,7 @@ class CarTest extends Specification {
         Thread.sleep(10)
 
         then:
-        1 * grid.handle(_ as MoveForward)
+        1 * grid.handle(_ as MoveForward, _ as MoveEventSink)
 
         where:
         carType               | distance
@@ -125,8 +132,9 @@ class CarTest extends Specification {
         Car car = new Car('testCar', CarType.NORMAL, grid, new LinkedBlockingQueue<>(), BACK_IN_HISTORY_DELAY)
         car.startEngine(CAR_ENGINES)
 
-        List<Event> destroyedEvent = [new GridObjectDestroyed('testCar', 1, 1, Direction.NORTH)]
-        grid.handle(_ as MoveForward) >> destroyedEvent
+        grid.handle(_ as MoveForward, _ as MoveEventSink) >> { MoveForward command, MoveEventSink sink ->
+            sink.destroyed('testCar', Grid.NO_SLOT, Position.pack(1, 1), Direction.NORTH)
+        }
 
         when:
         car.handle(CarCommand.builder().carName('testCar').type(CarCommandType.MOVE_FORWARD).build())
@@ -137,6 +145,30 @@ class CarTest extends Specification {
         }
     }
 
+    def 'events of the move forward are passed to the game and crash of the other car does not stop the car'() {
+        given:
+        Grid grid = Mock(Grid)
+        LinkedBlockingQueue<List<Event>> eventBus = new LinkedBlockingQueue<>()
+        Car car = new Car('testCar', CarType.MONSTER_TRUCK, grid, eventBus, BACK_IN_HISTORY_DELAY)
+        car.startEngine(CAR_ENGINES)
+
+        grid.handle(_ as MoveForward, _ as MoveEventSink) >> { MoveForward command, MoveEventSink sink ->
+            sink.moved('testCar', Grid.NO_SLOT, Position.pack(1, 2), Position.pack(1, 1), Direction.NORTH)
+            sink.destroyed('otherCar', 1, Position.pack(1, 1), null)
+        }
+
+        when:
+        2.times { car.handle(CarCommand.builder().carName('testCar').type(CarCommandType.MOVE_FORWARD).build()) }
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.01).eventually {
+            assert eventBus.size() == 2
+        }
+        eventBus.every { List<Event> events -> events*.class == [MovableObjectMoved, GridObjectDestroyed] }
+        eventBus.peek()[0].targetPositionY == 1
+        car.started.get()
+    }
+
     def 'engine stopped when the car is destroyed'() {
         given:
         Grid grid = Mock(Grid)
@@ -151,4 +183,39 @@ class CarTest extends Specification {
             assert !car.started.get()
         }
     }
+
+    def 'moving back in the history performs moves one by one and holds other commands until it is done'() {
+        given:
+        Grid grid = Mock(Grid)
+        LinkedBlockingQueue<List<Event>> eventBus = new LinkedBlockingQueue<>()
+        Car car = new Car('testCar', CarType.NORMAL, grid, eventBus, BACK_IN_HISTORY_DELAY)
+        car.startEngine(CAR_ENGINES)
+
+        List<String> actions = Collections.synchronizedList([])
+        grid.handle(_ as Rotate) >> { actions << 'rotate'; null }
+        grid.handle(_ as MoveForward, _ as MoveEventSink) >> { actions << 'forward' }
+        grid.handleReverse(_ as TurnLeft) >> { actions << 'reverseLeft'; null }
+        grid.handle(_ as TurnRight) >> { actions << 'right'; null }
+
+        when:
+        car.handle(CarCommand.builder()
+                .carName('testCar')
+                .type(CarCommandType.BACK_IN_HISTORY)
+                .commandProperties(Collections.singletonMap(CarCommandProperty.MOVES_HISTORY, [
+                        CarHistoryMoveEvent.builder().moveType(CarMoveType.FORWARD).distance(1).build(),
+                        CarHistoryMoveEvent.builder().moveType(CarMoveType.TURN_LEFT).build()]))
+                .build())
+        car.handle(CarCommand.builder().carName('testCar').type(CarCommandType.TURN_RIGHT).build())
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert actions == ['rotate', 'forward', 'reverseLeft', 'rotate', 'right']
+        }
+        List<Event> events = eventBus.collectMany { it }
+        events.count { it instanceof MovableObjectHandleHistoryInProgress } == 4
+        MovableObjectBackedInHistory result = events.find { it instanceof MovableObjectBackedInHistory }
+        result.numberOfSteps == 2
+        result.handledNumberOfSteps == 2
+        !car.revertingFromHistoryInProgress
+    }
 }
@@ -0,0 +1,43 @@
+package pl.speedapp.cargame.engine.cluster
+
+import spock.lang.Specification
+
+class ConsistentHashRingTest extends Specification {
+
+    static final ClusterNode NODE_1 = new ClusterNode('node-1', 'http://127.0.0.1:8881')
+    static final ClusterNode NODE_2 = new ClusterNode('node-2', 'http://127.0.0.1:8882')
+    static final ClusterNode NODE_3 = new ClusterNode('node-3', 'http://127.0.0.1:8883')
+
+    def 'games are spread evenly over the nodes'() {
+        given:
+        ConsistentHashRing ring = new ConsistentHashRing([NODE_1, NODE_2, NODE_3], 100)
+
+        when:
+        Map<ClusterNode, Integer> gamesByNode = (1L..3000L).countBy { ring.getOwner(it) }
+
+        then:
+        gamesByNode.keySet() == [NODE_1, NODE_2, NODE_3] as Set
+        gamesByNode.values().every { it > 700 && it < 1300 }
+    }
+
+    def 'only games of the joining node change the owner'() {
+        given:
+        ConsistentHashRing ring = new ConsistentHashRing([NODE_1, NODE_2], 100)
+        ConsistentHashRing extendedRing = new ConsistentHashRing([NODE_1, NODE_2, NODE_3], 100)
+
+        when:
+        List<Long> movedGames = (1L..3000L).findAll { ring.getOwner(it) != extendedRing.getOwner(it) }
+
+        then:
+        movedGames.every { extendedRing.getOwner(it) == NODE_3 }
+        movedGames.size() < 1500
+    }
+
+    def 'ring needs at least one node'() {
+        when:
+        new ConsistentHashRing([], 100)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
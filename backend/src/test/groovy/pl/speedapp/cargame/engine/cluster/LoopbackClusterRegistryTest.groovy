@@ -0,0 +1,53 @@
+package pl.speedapp.cargame.engine.cluster
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class LoopbackClusterRegistryTest extends Specification {
+
+    Path directory = Files.createTempDirectory('cluster')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def 'registries sharing the directory see the same nodes and games'() {
+        given:
+        ClusterRegistry first = new LoopbackClusterRegistry(directory)
+        ClusterRegistry second = new LoopbackClusterRegistry(directory)
+
+        when:
+        first.join(new ClusterNode('node-2', 'http://127.0.0.1:8882'))
+        second.join(new ClusterNode('node-1', 'http://127.0.0.1:8881'))
+        first.assignGame(7L, 'node-2')
+
+        then:
+        second.getNodes()*.id == ['node-1', 'node-2']
+        second.getGameNode(7L) == Optional.of('node-2')
+
+        when:
+        second.leave(new ClusterNode('node-1', 'http://127.0.0.1:8881'))
+        second.releaseGame(7L)
+
+        then:
+        first.getNodes()*.id == ['node-2']
+        !first.getGameNode(7L).isPresent()
+    }
+
+    def 'car is registered only in one game at the same time'() {
+        given:
+        ClusterRegistry first = new LoopbackClusterRegistry(directory)
+        ClusterRegistry second = new LoopbackClusterRegistry(directory)
+
+        expect:
+        first.register('car/../1', 1L)
+        !second.register('car/../1', 2L)
+        second.getGameId('car/../1') == Optional.of(1L)
+        !second.unregister('car/../1', 2L)
+        second.unregister('car/../1', 1L)
+        !first.getGameId('car/../1').isPresent()
+        second.register('car/../1', 2L)
+    }
+}
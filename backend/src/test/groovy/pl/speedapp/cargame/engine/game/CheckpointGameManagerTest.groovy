@@ -0,0 +1,142 @@
+package pl.speedapp.cargame.engine.game
+
+import pl.speedapp.cargame.api.model.CarDto
+import pl.speedapp.cargame.api.model.CarStatusDto
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.db.model.GameMap
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.service.GameEventsService
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Runs all {@link GameManagerTest} scenarios with running games checkpointed to the journal
+ */
+class CheckpointGameManagerTest extends GameManagerTest {
+
+    Path directory = Files.createTempDirectory('checkpoints')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    @Override
+    protected GameManager createGameManager(GameEventsService gameEventsService) {
+        GameManager gameManager = new GameManager(gameEventsService)
+        gameManager.checkpointEnabled = true
+        gameManager.checkpointFile = directory.resolve('journal.bin').toString()
+        gameManager.checkpointInterval = 50
+        return gameManager
+    }
+
+    def 'running game is restored from the checkpoint with cars directions and moves back in the history'() {
+        given:
+        GameManager gameManager = createGameManager(Stub(GameEventsService))
+        gameManager.gameDuration = GAME_DURATION
+        gameManager.backInHistoryDelay = 500
+        gameManager.init()
+        def game = getRestorableGame()
+        gameManager.addAndStartGame(game)
+        gameManager.addCarToTheGame(game.id, 'testCar', CarType.NORMAL, 1, 3)
+        gameManager.addCarToTheGame(game.id, 'testCar2', CarType.RACER, 3, 3)
+        gameManager.turnRightCar('testCar2')
+        gameManager.moveCarForward('testCar', 1)
+        new PollingConditions(timeout: 3, delay: 0.05).eventually {
+            assert gameManager.getRunningGameDto(game.id).cars.find { it.name == 'testCar' }.currentStatus.y == 1
+        }
+        gameManager.backInHistory('testCar', game.name, [MOVE_LEFT, MOVE_LEFT])
+
+        when: 'game manager is stopped in the middle of moving back in the history'
+        new PollingConditions(timeout: 3, delay: 0.05).eventually {
+            def cars = gameManager.getRunningGameDto(game.id).cars
+            assert cars.find { it.name == 'testCar' }.currentStatus.direction == Direction.EAST
+            assert cars.find { it.name == 'testCar2' }.currentStatus.direction == Direction.EAST
+        }
+        gameManager.beforeDestroy()
+        GameManager restoredGameManager = createGameManager(Stub(GameEventsService))
+        restoredGameManager.gameDuration = GAME_DURATION
+        restoredGameManager.backInHistoryDelay = 500
+        restoredGameManager.init()
+
+        then:
+        !restoredGameManager.restoreGame(getRestorableGame(2L))
+        restoredGameManager.restoreGame(getRestorableGame())
+        restoredGameManager.getGameByCarName('testCar2').get().gameId == game.id
+        restoredGameManager.getCarNamesInGame(game.id).sort() == ['testCar', 'testCar2']
+        with(restoredGameManager.getRunningGameDto(game.id).cars.find { it.name == 'testCar2' }) {
+            currentStatus.x == 2
+            currentStatus.y == 2
+            currentStatus.direction == Direction.EAST
+            type == CarType.RACER
+        }
+
+        and: 'moving back in the history is continued'
+        new PollingConditions(timeout: 3, delay: 0.05).eventually {
+            def status = restoredGameManager.getRunningGameDto(game.id).cars.find { it.name == 'testCar' }.currentStatus
+            assert status.direction == Direction.SOUTH
+            assert !status.revertingFromHistoryInProgress
+            assert status.x == 0
+            assert status.y == 1
+        }
+
+        cleanup:
+        restoredGameManager?.beforeDestroy()
+    }
+
+    def 'cars are placed as the journal leaves them after the checkpoint'() {
+        given:
+        GameManager gameManager = createGameManager(Stub(GameEventsService))
+        gameManager.gameDuration = GAME_DURATION
+        gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
+        gameManager.init()
+        def game = getRestorableGame()
+        gameManager.addAndStartGame(game)
+        gameManager.addCarToTheGame(game.id, 'testCar', CarType.NORMAL, 1, 3)
+        gameManager.addCarToTheGame(game.id, 'testCar2', CarType.RACER, 3, 3)
+        gameManager.addCarToTheGame(game.id, 'testCar3', CarType.NORMAL, 2, 2)
+        Thread.sleep(200)
+        gameManager.beforeDestroy()
+        GameManager restoredGameManager = createGameManager(Stub(GameEventsService))
+        restoredGameManager.gameDuration = GAME_DURATION
+        restoredGameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
+        restoredGameManager.init()
+        List<CarDto> journalCars = [
+                // moved after the checkpoint
+                journalCar('testCar', CarType.NORMAL, 0, 0, Direction.WEST),
+                // not changed since the checkpoint
+                journalCar('testCar3', CarType.NORMAL, 1, 1, Direction.NORTH),
+                // added after the checkpoint
+                journalCar('testCar4', CarType.RACER, 2, 0, Direction.SOUTH)]
+
+        when:
+        boolean restored = restoredGameManager.restoreGame(getRestorableGame(), journalCars)
+
+        then: 'car crashed or removed after the checkpoint is not restored'
+        restored
+        restoredGameManager.getCarNamesInGame(game.id).sort() == ['testCar', 'testCar3', 'testCar4']
+        restoredGameManager.getRunningGameDto(game.id).cars
+                .collectEntries { [(it.name): [it.currentStatus.x, it.currentStatus.y, it.currentStatus.direction, it.type]] } == [
+                testCar : [0, 0, Direction.WEST, CarType.NORMAL],
+                testCar3: [1, 1, Direction.NORTH, CarType.NORMAL],
+                testCar4: [2, 0, Direction.SOUTH, CarType.RACER]]
+
+        cleanup:
+        restoredGameManager?.beforeDestroy()
+    }
+
+    private static CarDto journalCar(String name, CarType type, int x, int y, Direction direction) {
+        return CarDto.builder()
+                .name(name)
+                .type(type)
+                .currentStatus(CarStatusDto.builder().x(x).y(y).direction(direction).build())
+                .build()
+    }
+
+    private static def getRestorableGame(Long id = 1L) {
+        int[][] map = [[1, 1, 1], [1, 1, 1], [1, 1, 1]]
+        GameMap gameMap = GameMap.builder().id(id).name("testGameMap$id").mapSize(3).roads(map).build()
+        return pl.speedapp.cargame.db.model.Game.builder().id(id).name("testGame$id").map(gameMap).build()
+    }
+}
@@ -0,0 +1,16 @@
+package pl.speedapp.cargame.engine.game
+
+import pl.speedapp.cargame.service.GameEventsService
+
+/**
+ * Runs all {@link GameManagerTest} scenarios with games working in {@link EngineMode#EVENT_LOOP} mode
+ */
+class EventLoopGameManagerTest extends GameManagerTest {
+
+    @Override
+    protected GameManager createGameManager(GameEventsService gameEventsService) {
+        GameManager gameManager = new GameManager(gameEventsService)
+        gameManager.engineMode = EngineMode.EVENT_LOOP
+        return gameManager
+    }
+}
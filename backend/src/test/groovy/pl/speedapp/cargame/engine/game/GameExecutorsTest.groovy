@@ -0,0 +1,96 @@
+package pl.speedapp.cargame.engine.game
+
+import spock.lang.Specification
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.RejectedExecutionException
+
+class GameExecutorsTest extends Specification {
+
+    @Unroll
+    def 'running tasks are counted for #type executors'() {
+        given:
+        GameExecutors executors = new GameExecutors(type, 2, 10)
+        def executor = executors.newExecutor()
+        def latch = new CountDownLatch(1)
+
+        when:
+        executor.submit({ latch.await() })
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert executors.getRunningTasks() == 1
+        }
+
+        when:
+        latch.countDown()
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert executors.getRunningTasks() == 0
+        }
+
+        cleanup:
+        executor.shutdown()
+        executors.shutdown()
+
+        where:
+        type << ExecutorType.values()
+    }
+
+    def 'virtual executors fall back to cached thread pools if virtual threads are not supported'() {
+        when:
+        GameExecutors executors = new GameExecutors(ExecutorType.VIRTUAL, 0, 0)
+
+        then:
+        executors.getType() == (isVirtualThreadSupported() ? ExecutorType.VIRTUAL : ExecutorType.CACHED)
+    }
+
+    def 'shutdown of the game executor does not stop the shared pool'() {
+        given:
+        GameExecutors executors = new GameExecutors(ExecutorType.SHARED_POOL, 2, 10)
+        def gameExecutor = executors.newExecutor()
+        def otherGameExecutor = executors.newExecutor()
+        def otherGameTaskDone = new CountDownLatch(1)
+
+        when:
+        gameExecutor.shutdown()
+        otherGameExecutor.submit({ otherGameTaskDone.countDown() }).get()
+
+        then:
+        gameExecutor.isShutdown()
+        otherGameTaskDone.getCount() == 0
+
+        when:
+        gameExecutor.submit({ 'done' })
+
+        then:
+        thrown(RejectedExecutionException)
+
+        cleanup:
+        executors.shutdown()
+    }
+
+    @Unroll
+    def 'loops run as drain tasks only on the shared pool - #type'() {
+        expect:
+        new GameExecutors(type, 2, 10).isShared() == shared
+
+        where:
+        type                     | shared
+        ExecutorType.CACHED      | false
+        ExecutorType.VIRTUAL     | false
+        ExecutorType.SHARED_POOL | true
+    }
+
+    private static boolean isVirtualThreadSupported() {
+        try {
+            java.util.concurrent.Executors.getMethod('newVirtualThreadPerTaskExecutor')
+            return true
+        } catch (NoSuchMethodException ignored) {
+            return false
+        }
+    }
+}
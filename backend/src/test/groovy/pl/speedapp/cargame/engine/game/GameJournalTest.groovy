@@ -0,0 +1,118 @@
+package pl.speedapp.cargame.engine.game
+
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.engine.car.CarHistoryMoveEvent
+import pl.speedapp.cargame.engine.car.RewindProgress
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+
+class GameJournalTest extends Specification {
+
+    Path file = Files.createTempDirectory('journal').resolve('games.bin')
+
+    def cleanup() {
+        file.parent.toFile().deleteDir()
+    }
+
+    def 'latest checkpoint of each running game is read back'() {
+        given:
+        GameJournal journal = new GameJournal(file)
+        journal.open()
+        def rewind = RewindProgress.builder()
+                .moves([CarHistoryMoveEvent.builder().moveType(CarMoveType.FORWARD).distance(2).timestamp(5L).build(),
+                        CarHistoryMoveEvent.builder().moveType(CarMoveType.TURN_LEFT).timestamp(3L).build()])
+                .handledCounter(1)
+                .rotated(true)
+                .build()
+
+        when:
+        journal.write(checkpoint(1L, 1))
+        journal.write(checkpoint(2L, 1))
+        journal.write(checkpoint(1L, 2, rewind))
+        journal.gameClosed(2L)
+        journal.close()
+        def checkpoints = new GameJournal(file).open()
+
+        then:
+        checkpoints.keySet() == [1L] as Set
+        checkpoints[1L] == checkpoint(1L, 2, rewind)
+        checkpoints[1L].cars[0].rewind.moves[1].distance == null
+    }
+
+    def 'incomplete record at the end of the journal is dropped'() {
+        given:
+        GameJournal journal = new GameJournal(file)
+        journal.open()
+        journal.write(checkpoint(1L, 1))
+        journal.close()
+        Files.write(file, [0, 0, 0, 100, 1, 2] as byte[], StandardOpenOption.APPEND)
+
+        when:
+        journal = new GameJournal(file)
+        def checkpoints = journal.open()
+        journal.write(checkpoint(1L, 2))
+        journal.close()
+
+        then:
+        checkpoints[1L] == checkpoint(1L, 1)
+        new GameJournal(file).open()[1L] == checkpoint(1L, 2)
+    }
+
+    def 'checkpoints written at once are synced together and thousand games are read back in less than a second'() {
+        given:
+        GameJournal journal = new GameJournal(file)
+        journal.open()
+
+        when:
+        (1L..1000L).each { journal.write(checkpoint(it, 1)) }
+        journal.close()
+        long startTime = System.nanoTime()
+        def checkpoints = new GameJournal(file).open()
+
+        then:
+        System.nanoTime() - startTime < 1_000_000_000L
+        checkpoints.size() == 1000
+        journal.syncCount < 1000
+    }
+
+    def 'journal is compacted when it grows over the compaction size'() {
+        given:
+        GameJournal journal = new GameJournal(file, 1024)
+        journal.open()
+
+        when:
+        (1..200).each { journal.write(checkpoint(1L, it)) }
+        journal.close()
+
+        then:
+        Files.size(file) < 1024
+        new GameJournal(file).open()[1L] == checkpoint(1L, 200)
+    }
+
+    private static GameCheckpoint checkpoint(Long gameId, long version, RewindProgress rewind = null) {
+        return GameCheckpoint.builder()
+                .gameId(gameId)
+                .stateVersion(version)
+                .car(GameCheckpoint.CarCheckpoint.builder()
+                        .name("car$gameId")
+                        .type(CarType.RACER)
+                        .x(2)
+                        .y(3)
+                        .direction(Direction.WEST)
+                        .rewind(rewind)
+                        .build())
+                .car(GameCheckpoint.CarCheckpoint.builder()
+                        .name("truck$gameId")
+                        .type(CarType.MONSTER_TRUCK)
+                        .x(1)
+                        .y(1)
+                        .direction(Direction.NORTH)
+                        .build())
+                .build()
+    }
+}
@@ -27,7 +27,7 @@ class GameManagerTest extends Specification {
     def 'adding and starting game succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -46,7 +46,7 @@ class GameManagerTest extends Specification {
     def 'method for checking if game is running returns proper results - #description'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -67,7 +67,7 @@ class GameManagerTest extends Specification {
     def 'all games ids returned'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -92,7 +92,7 @@ class GameManagerTest extends Specification {
     def 'getting existing game by id succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -108,7 +108,7 @@ class GameManagerTest extends Specification {
     def 'getting non-existing game by id returns nothing'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -123,7 +123,7 @@ class GameManagerTest extends Specification {
     def 'adding car to the game succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -148,7 +148,7 @@ class GameManagerTest extends Specification {
     def 'adding car to not existing game failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -164,7 +164,7 @@ class GameManagerTest extends Specification {
     def 'adding car on the same position failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -184,7 +184,7 @@ class GameManagerTest extends Specification {
     def 'adding second car with the same name to the other game failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -207,7 +207,7 @@ class GameManagerTest extends Specification {
     def 'adding the same car to the new game when the first game is finished succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = 1
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -222,6 +222,9 @@ class GameManagerTest extends Specification {
         new PollingConditions(timeout: 1.5, delay: 0.02, initialDelay: 1).eventually {
             assert !gameManager.getGameById(game.getId()).isPresent()
         }
+        gameManager.getCarNamesInGame(game.getId()).isEmpty()
+        !gameManager.getGamesIds().contains(game.getId())
+        !gameManager.getGameByCarName('testCar').isPresent()
 
         when:
         gameManager.addAndStartGame(game2)
@@ -235,7 +238,7 @@ class GameManagerTest extends Specification {
     def 'removing existing car from the existing game succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -261,7 +264,7 @@ class GameManagerTest extends Specification {
     def 'removing existing car from the non-existing game failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -281,7 +284,7 @@ class GameManagerTest extends Specification {
     def 'removing non-existing car from the existing game failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -304,7 +307,7 @@ class GameManagerTest extends Specification {
     def 'removing car from the game and adding it again on the sam position succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -329,7 +332,7 @@ class GameManagerTest extends Specification {
     def 'removing car from one game and adding to the next game succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -358,7 +361,7 @@ class GameManagerTest extends Specification {
     def 'getting game by car name returns proper value'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -383,7 +386,7 @@ class GameManagerTest extends Specification {
     def 'turning right existing car succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -407,7 +410,7 @@ class GameManagerTest extends Specification {
     def 'turning right non-existing car failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -425,7 +428,7 @@ class GameManagerTest extends Specification {
     def 'turning left existing car succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -449,7 +452,7 @@ class GameManagerTest extends Specification {
     def 'turning left non-existing car failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -467,7 +470,7 @@ class GameManagerTest extends Specification {
     def 'moving forward existing car succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -492,7 +495,7 @@ class GameManagerTest extends Specification {
     def 'moving forward non-existing car failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -510,7 +513,7 @@ class GameManagerTest extends Specification {
     def 'moving forward existing car with wrong distance failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -528,7 +531,7 @@ class GameManagerTest extends Specification {
     def 'moving forward existing car out of the map failed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -550,7 +553,7 @@ class GameManagerTest extends Specification {
     def 'in case of collision between two cars (#carType1 and #carType2) driving straight on themselves survives #result'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -577,7 +580,7 @@ class GameManagerTest extends Specification {
 
         when:
         gameManager.moveCarForward('testCar', 1)
-        gameManager.moveCarForward('testCar2', 1)
+        moveForwardIfStillInGame(gameManager, 'testCar2')
 
         then:
         new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
@@ -598,7 +601,7 @@ class GameManagerTest extends Specification {
     def 'in case of collision between two cars (#carType1 and #carType2) driving on the same position survives #result'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -628,7 +631,7 @@ class GameManagerTest extends Specification {
 
         when:
         gameManager.moveCarForward('testCar', 1)
-        gameManager.moveCarForward('testCar2', 1)
+        moveForwardIfStillInGame(gameManager, 'testCar2')
 
         then:
         new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
@@ -649,7 +652,7 @@ class GameManagerTest extends Specification {
     def 'in case of collision between one riding car (#carType1) and one static car (#carType2) survives #result'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -691,7 +694,7 @@ class GameManagerTest extends Specification {
     def 'in case of collision with the wall the car (type: #carType) is destroyed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -717,7 +720,7 @@ class GameManagerTest extends Specification {
     def 'riding RACER with distance 2 over the #overPositionDescription and finishing on the #finishPositionDescription #result'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -766,7 +769,7 @@ class GameManagerTest extends Specification {
     def 'back movements without move forward events succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -838,7 +841,7 @@ class GameManagerTest extends Specification {
     def 'back movements with move forward events succeed'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -921,7 +924,7 @@ class GameManagerTest extends Specification {
     def 'collision while getting back considered'() {
         given:
         GameEventsService gameEventsService = Mock()
-        GameManager gameManager = new GameManager(gameEventsService)
+        GameManager gameManager = createGameManager(gameEventsService)
         gameManager.gameDuration = GAME_DURATION
         gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
         gameManager.init()
@@ -968,6 +971,20 @@ class GameManagerTest extends Specification {
         }
     }
 
+    protected GameManager createGameManager(GameEventsService gameEventsService) {
+        return new GameManager(gameEventsService)
+    }
+
+    /**
+     * Second car of the collision could be already crashed by the move of the first one
+     */
+    private static void moveForwardIfStillInGame(GameManager gameManager, String carName) {
+        try {
+            gameManager.moveCarForward(carName, 1)
+        } catch (CarIsNotBeingUsedInAnyGameException ignored) {
+        }
+    }
+
     private static def getGameDbObject(Long id = 1L, def nameSuffix = '', int[][] map = [[1, 0], [1, 1]]) {
         GameMap gameMap = GameMap.builder()
                 .id(id)
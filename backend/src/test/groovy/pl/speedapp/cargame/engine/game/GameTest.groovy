@@ -1,18 +1,34 @@
 package pl.speedapp.cargame.engine.game
 
+import pl.speedapp.cargame.api.model.RunningGameEventDto
+import pl.speedapp.cargame.db.enums.CarMoveType
 import pl.speedapp.cargame.db.enums.CarType
 import pl.speedapp.cargame.engine.car.Car
 import pl.speedapp.cargame.engine.exception.CarNotFoundInGameException
 import pl.speedapp.cargame.engine.exception.GameAlreadyRunning
 import pl.speedapp.cargame.engine.exception.GameNotRunningException
+import pl.speedapp.cargame.engine.car.CarCommand
+import pl.speedapp.cargame.engine.car.CarCommandProperty
+import pl.speedapp.cargame.engine.car.CarCommandType
+import pl.speedapp.cargame.engine.car.CarHistoryMoveEvent
 import pl.speedapp.cargame.engine.grid.events.Event
+import pl.speedapp.cargame.engine.grid.events.MovableObjectAdded
+import pl.speedapp.cargame.engine.grid.events.MovableObjectRemoved
+import pl.speedapp.cargame.engine.grid.movement.Direction
 import pl.speedapp.cargame.exception.CarIsBeingUsedInGameException
 import spock.lang.Specification
 import spock.lang.Unroll
 import spock.util.concurrent.PollingConditions
 
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
 import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.SynchronousQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 class GameTest extends Specification {
     def static GAME_DURATION = 30
@@ -86,6 +102,26 @@ class GameTest extends Specification {
         carType << [CarType.NORMAL, CarType.RACER, CarType.MONSTER_TRUCK]
     }
 
+    def 'placement and removal of the car are passed to the game manager'() {
+        given:
+        int[][] map = [[0, 0],
+                       [1, 0]]
+        LinkedBlockingQueue<Event> gameManagerEventBus = new LinkedBlockingQueue<>()
+        Game game = new Game('testGame', 1L, map, GAME_DURATION, gameManagerEventBus, BACK_IN_HISTORY_DELAY)
+        game.start(THREAD_POOL)
+
+        when:
+        game.addCar('testCar', CarType.RACER, 1, 2)
+        game.removeCar('testCar')
+
+        then:
+        MovableObjectAdded added = gameManagerEventBus.find { it instanceof MovableObjectAdded } as MovableObjectAdded
+        [added.objectName, added.carType, added.positionX, added.positionY, added.direction, added.gameId] ==
+                ['testCar', CarType.RACER, 1, 2, Direction.NORTH, 1L]
+        MovableObjectRemoved removed = gameManagerEventBus.find { it instanceof MovableObjectRemoved } as MovableObjectRemoved
+        [removed.objectName, removed.gameId] == ['testCar', 1L]
+    }
+
     def 'adding next car with the same name to the running game failed'() {
         given:
         int[][] map = [[0, 0],
@@ -238,4 +274,158 @@ class GameTest extends Specification {
             assert !game.isStarted()
         }
     }
+
+    def 'steps back in the history do not keep the idle game running'() {
+        given:
+        int[][] map = [[1, 0],
+                       [1, 0]]
+        Game game = new Game('testGame', 1L, map, 1, new LinkedBlockingQueue<Event>(), 100)
+        game.start(THREAD_POOL)
+        game.addCar('testCar', CarType.NORMAL, 1, 2)
+
+        when:
+        game.carBackInHistory('testCar', (1..20).collect { CarHistoryMoveEvent.builder().moveType(CarMoveType.TURN_LEFT).build() })
+
+        then:
+        new PollingConditions(timeout: 1.5, initialDelay: 1, delay: 0.05).eventually {
+            assert !game.isStarted()
+        }
+    }
+
+    def 'idle game is closed when the full thread pool has rejected the closing'() {
+        given:
+        int[][] map = [[0, 0],
+                       [1, 0]]
+        AtomicInteger rejections = new AtomicInteger()
+        ExecutorService threadPool = new ThreadPoolExecutor(1, 4, 1, TimeUnit.SECONDS, new SynchronousQueue<Runnable>()) {
+            @Override
+            void execute(Runnable command) {
+                if (rejections.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException('queue is full')
+                }
+                super.execute(command)
+            }
+        }
+        Game game = new Game('testGame', 1L, map, 1, new LinkedBlockingQueue<Event>(), BACK_IN_HISTORY_DELAY)
+        game.start(threadPool)
+
+        when:
+        rejections.set(3)
+
+        then:
+        new PollingConditions(timeout: 2, initialDelay: 1, delay: 0.05).eventually {
+            assert !game.isStarted()
+        }
+        rejections.get() < 0
+
+        cleanup:
+        threadPool.shutdownNow()
+    }
+
+    def 'changes of the cars are published to the watching listener'() {
+        given:
+        int[][] map = [[1, 0],
+                       [1, 0]]
+        List<RunningGameEventDto> changes = new CopyOnWriteArrayList<>()
+        GameStateListener listener = Stub() {
+            isWatched(1L) >> true
+            carChanged(1L, _ as RunningGameEventDto) >> { args -> changes.add(args[1]) }
+        }
+        Game game = new Game('testGame', 1L, map, new LinkedBlockingQueue<Event>(), GameSettings.builder()
+                .duration(GAME_DURATION)
+                .backInHistoryDelay(BACK_IN_HISTORY_DELAY)
+                .stateListener(listener)
+                .build())
+        game.start(THREAD_POOL)
+
+        when:
+        game.addCar('testCar', CarType.NORMAL, 1, 2)
+        game.handle(CarCommand.builder()
+                .carName('testCar')
+                .type(CarCommandType.MOVE_FORWARD)
+                .commandProperties([(CarCommandProperty.DISTANCE): 1])
+                .build())
+        game.handle(CarCommand.builder().carName('testCar').type(CarCommandType.TURN_RIGHT).build())
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert changes*.type == [RunningGameEventType.ADDED, RunningGameEventType.MOVED, RunningGameEventType.TURNED]
+        }
+        changes[0].car.currentStatus.y == 1
+        changes[1].car.currentStatus.y == 0
+        changes[2].car.currentStatus.direction == Direction.EAST
+        changes[2].car.type == CarType.NORMAL
+
+        when:
+        game.removeCar('testCar')
+
+        then:
+        changes.last().type == RunningGameEventType.REMOVED
+        changes.last().car.currentStatus == null
+    }
+
+    def 'only cars changed since the given version are returned'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Game game = new Game('testGame', 1L, map, GAME_DURATION, new LinkedBlockingQueue<Event>(), BACK_IN_HISTORY_DELAY)
+        game.start(THREAD_POOL)
+        game.addCar('testCar', CarType.NORMAL, 1, 2)
+        game.addCar('testCar2', CarType.NORMAL, 2, 2)
+        long version = game.getStateVersion()
+
+        expect:
+        game.getRunningGameDto(version).cars.isEmpty()
+        game.getRunningGameDto(version).version == version
+        game.getRunningGameDto().cars*.name.sort() == ['testCar', 'testCar2']
+
+        when:
+        game.handle(CarCommand.builder().carName('testCar2').type(CarCommandType.TURN_LEFT).build())
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert game.getStateVersion() == version + 1
+        }
+        game.getRunningGameDto(version).cars*.name == ['testCar2']
+        game.getRunningGameDto(version).cars[0].currentStatus.direction == Direction.WEST
+        game.getRunningGameDto(version).removedCars.isEmpty()
+
+        when:
+        game.removeCar('testCar')
+
+        then:
+        game.getStateVersion() == version + 2
+        game.getRunningGameDto(version + 1).cars.isEmpty()
+        game.getRunningGameDto(version + 1).removedCars == ['testCar']
+    }
+
+    def 'last moves of the car are kept by the game up to the history capacity'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Game game = new Game('testGame', 1L, map, new LinkedBlockingQueue<Event>(), GameSettings.builder()
+                .duration(GAME_DURATION)
+                .backInHistoryDelay(BACK_IN_HISTORY_DELAY)
+                .moveHistoryCapacity(2)
+                .build())
+        game.start(THREAD_POOL)
+        game.addCar('testCar', CarType.NORMAL, 1, 2)
+
+        when:
+        game.handle(CarCommand.builder()
+                .carName('testCar')
+                .type(CarCommandType.MOVE_FORWARD)
+                .commandProperties([(CarCommandProperty.DISTANCE): 1])
+                .build())
+        game.handle(CarCommand.builder().carName('testCar').type(CarCommandType.TURN_RIGHT).build())
+        game.handle(CarCommand.builder().carName('testCar').type(CarCommandType.TURN_LEFT).build())
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert game.getLastMoves('testCar', 2).get()*.moveType == [CarMoveType.TURN_LEFT, CarMoveType.TURN_RIGHT]
+        }
+        game.getLastMoves('testCar', 1).get()*.moveType == [CarMoveType.TURN_LEFT]
+        !game.getLastMoves('testCar', 3).isPresent()
+        game.getLastMoves('otherCar', 2).get().isEmpty()
+    }
 }
@@ -0,0 +1,61 @@
+package pl.speedapp.cargame.engine.game
+
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.db.model.GameMap
+import pl.speedapp.cargame.service.GameEventsService
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Runs all {@link GameManagerTest} scenarios with games spread over many shards
+ */
+class ShardedGameManagerTest extends GameManagerTest {
+
+    @Override
+    protected GameManager createGameManager(GameEventsService gameEventsService) {
+        GameManager gameManager = new GameManager(gameEventsService)
+        gameManager.shardCount = 4
+        return gameManager
+    }
+
+    def 'games are spread over the shards and each shard passes events of own games'() {
+        given:
+        Set<Long> turnedInGames = ConcurrentHashMap.newKeySet()
+        Set<Long> closedGames = ConcurrentHashMap.newKeySet()
+        GameEventsService gameEventsService = Stub() {
+            storeCarTurnLeft(_, _, _) >> { Long gameId, String carName, def timestamp -> turnedInGames << gameId }
+            gameClosed(_) >> { Long gameId -> closedGames << gameId }
+        }
+        GameManager gameManager = createGameManager(gameEventsService)
+        gameManager.gameDuration = 1
+        gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
+        gameManager.init()
+        int[][] map = [[1, 1], [1, 1]]
+
+        when:
+        (1L..8L).each { id ->
+            GameMap gameMap = GameMap.builder().id(id).name("testGameMap$id").mapSize(2).roads(map).build()
+            gameManager.addAndStartGame(pl.speedapp.cargame.db.model.Game.builder().id(id).name("testGame$id").map(gameMap).build())
+            gameManager.addCarToTheGame(id, "testCar$id", CarType.NORMAL, 1, 1)
+        }
+
+        then:
+        gameManager.shards.count { !it.gameIds.empty } > 1
+        gameManager.getGamesIds().sort() == (1L..8L).toList()
+        (1L..8L).every { gameManager.getGameByCarName("testCar$it").get().gameId == it }
+
+        when:
+        (1L..8L).each { gameManager.turnLeftCar("testCar$it") }
+
+        then:
+        new PollingConditions(timeout: 3, delay: 0.1).eventually {
+            assert gameManager.getRunningGamesCount() == 0
+            assert closedGames == (1L..8L).toSet()
+        }
+        turnedInGames == (1L..8L).toSet()
+
+        cleanup:
+        gameManager.beforeDestroy()
+    }
+}
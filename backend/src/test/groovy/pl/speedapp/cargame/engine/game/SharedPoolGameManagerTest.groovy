@@ -0,0 +1,69 @@
+package pl.speedapp.cargame.engine.game
+
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.db.model.GameMap
+import pl.speedapp.cargame.service.GameEventsService
+import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Runs all {@link GameManagerTest} scenarios with all games on the shared pool smaller than the number of loops
+ */
+class SharedPoolGameManagerTest extends GameManagerTest {
+
+    static final int POOL_SIZE = 2
+
+    @Override
+    protected GameManager createGameManager(GameEventsService gameEventsService) {
+        GameManager gameManager = new GameManager(gameEventsService)
+        gameManager.executorType = ExecutorType.SHARED_POOL
+        gameManager.executorPoolSize = POOL_SIZE
+        gameManager.executorQueueCapacity = 10
+        gameManager.shardCount = 4
+        return gameManager
+    }
+
+    @Unroll
+    def 'every car moves when there are more games than threads of the shared pool - #engineMode'() {
+        given:
+        Set<String> movedCars = ConcurrentHashMap.newKeySet()
+        GameEventsService gameEventsService = Stub() {
+            storeCarMoveForward(_, _, _, _) >> { Long gameId, String carName, def distance, def timestamp -> movedCars << carName }
+        }
+        GameManager gameManager = createGameManager(gameEventsService)
+        gameManager.engineMode = engineMode
+        gameManager.gameDuration = GAME_DURATION
+        gameManager.backInHistoryDelay = BACK_IN_HISTORY_DELAY
+        gameManager.init()
+        int[][] map = [[1, 1], [1, 1]]
+        List<Long> gameIds = (1L..10L).toList()
+        List<String> carNames = gameIds.collectMany { ["testCar${it}a".toString(), "testCar${it}b".toString()] }
+
+        when:
+        gameIds.each { id ->
+            GameMap gameMap = GameMap.builder().id(id).name("testGameMap$id").mapSize(2).roads(map).build()
+            gameManager.addAndStartGame(pl.speedapp.cargame.db.model.Game.builder().id(id).name("testGame$id").map(gameMap).build())
+            gameManager.addCarToTheGame(id, "testCar${id}a", CarType.NORMAL, 1, 2)
+            gameManager.addCarToTheGame(id, "testCar${id}b", CarType.NORMAL, 2, 2)
+        }
+        carNames.each { gameManager.moveCarForward(it, 1) }
+
+        then:
+        new PollingConditions(timeout: 3, delay: 0.05).eventually {
+            assert movedCars == carNames.toSet()
+            gameIds.each { id ->
+                assert gameManager.getRunningGameDto(id).cars.every { it.currentStatus.y == 0 }
+            }
+        }
+        gameManager.executors.getPoolSize() <= POOL_SIZE
+        gameManager.executors.getQueueSize() == 0
+
+        cleanup:
+        gameManager.beforeDestroy()
+
+        where:
+        engineMode << EngineMode.values()
+    }
+}
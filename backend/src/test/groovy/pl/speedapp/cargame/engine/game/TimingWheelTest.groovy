@@ -0,0 +1,104 @@
+package pl.speedapp.cargame.engine.game
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class TimingWheelTest extends Specification {
+
+    AtomicInteger createdThreads = new AtomicInteger()
+
+    ThreadFactory threadFactory = { Runnable task ->
+        createdThreads.incrementAndGet()
+        new ThreadFactoryBuilder().setDaemon(true).build().newThread(task)
+    } as ThreadFactory
+
+    def 'task runs not earlier than the deadline and at most one tick later'() {
+        given:
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS, threadFactory)
+        CountDownLatch latch = new CountDownLatch(1)
+        long expiredAt = 0
+
+        when:
+        long start = System.nanoTime()
+        wheel.schedule({ expiredAt = System.nanoTime(); latch.countDown() }, 50, TimeUnit.MILLISECONDS)
+
+        then:
+        latch.await(1, TimeUnit.SECONDS)
+        expiredAt - start >= TimeUnit.MILLISECONDS.toNanos(50)
+        // one tick of the wheel and some slack for the scheduler of the machine
+        expiredAt - start < TimeUnit.MILLISECONDS.toNanos(50 + 10 + 40)
+        wheel.pendingTimeouts == 0
+
+        cleanup:
+        wheel.stop()
+    }
+
+    def 'deadline beyond the single rotation of the wheel waits for the next rotations'() {
+        given:
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS, threadFactory)
+        CountDownLatch latch = new CountDownLatch(1)
+
+        when:
+        long start = System.nanoTime()
+        def timeout = wheel.schedule({ latch.countDown() }, 1200, TimeUnit.MILLISECONDS)
+
+        then:
+        latch.await(3, TimeUnit.SECONDS)
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(1200)
+        timeout.expired
+
+        cleanup:
+        wheel.stop()
+    }
+
+    def 'cancelled task does not run'() {
+        given:
+        TimingWheel wheel = new TimingWheel(5, TimeUnit.MILLISECONDS, threadFactory)
+        AtomicInteger runs = new AtomicInteger()
+        CountDownLatch latch = new CountDownLatch(1)
+
+        when:
+        def cancelled = wheel.schedule({ runs.incrementAndGet() }, 20, TimeUnit.MILLISECONDS)
+        wheel.schedule({ latch.countDown() }, 40, TimeUnit.MILLISECONDS)
+
+        then:
+        cancelled.cancel()
+        !cancelled.cancel()
+        latch.await(1, TimeUnit.SECONDS)
+        runs.get() == 0
+        cancelled.cancelled
+        !cancelled.expired
+    }
+
+    def 'single worker thread is started only when the first deadline comes'() {
+        given:
+        TimingWheel wheel = new TimingWheel(5, TimeUnit.MILLISECONDS, threadFactory)
+        CountDownLatch latch = new CountDownLatch(20)
+
+        expect:
+        createdThreads.get() == 0
+
+        when:
+        20.times { wheel.schedule({ latch.countDown() }, 10 * it, TimeUnit.MILLISECONDS) }
+
+        then:
+        latch.await(1, TimeUnit.SECONDS)
+        createdThreads.get() == 1
+
+        when: 'wheel was waiting without any deadlines'
+        CountDownLatch next = new CountDownLatch(1)
+        wheel.schedule({ next.countDown() }, 10, TimeUnit.MILLISECONDS)
+
+        then:
+        next.await(1, TimeUnit.SECONDS)
+        createdThreads.get() == 1
+
+        cleanup:
+        wheel.stop()
+    }
+}
@@ -0,0 +1,103 @@
+package pl.speedapp.cargame.engine.grid
+
+import pl.speedapp.cargame.engine.grid.commands.MoveForward
+import pl.speedapp.cargame.engine.grid.events.Event
+import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed
+import pl.speedapp.cargame.engine.grid.events.MovableObjectMoved
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.engine.grid.movement.OnePositionMovement
+import pl.speedapp.cargame.engine.grid.movement.TwoPositionsStrategyMovement
+import pl.speedapp.cargame.engine.grid.objects.MovableObject
+
+/**
+ * Runs all {@link GridTest} scenarios against {@link ArrayGrid}
+ */
+class ArrayGridTest extends GridTest {
+
+    @Override
+    protected Grid createGrid(int[][] map) {
+        return new ArrayGrid(map)
+    }
+
+    def 'RACER jumps over the car standing in the way'() {
+        given:
+        int[][] map = [[1, 0, 0],
+                       [1, 0, 0],
+                       [1, 0, 0]]
+        Grid grid = createGrid(map)
+        grid.addObject(1, 3, MovableObject.builder()
+                .name('racer')
+                .toughness(1)
+                .movementStrategy(new TwoPositionsStrategyMovement())
+                .build())
+        grid.addObject(1, 2, MovableObject.builder()
+                .name('test')
+                .toughness(1)
+                .direction(Direction.SOUTH)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+
+        when:
+        List<Event> result = grid.handle(new MoveForward('racer', 2))
+
+        then:
+        result.size() == 1
+        result[0] instanceof MovableObjectMoved
+        grid.positionByObjectName.get('racer').y == 1
+        grid.positionByObjectName.get('test').y == 2
+        grid.getEmptyPositionCount() == 1
+    }
+
+    def 'slots of destroyed objects are reused by new objects'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Grid grid = createGrid(map)
+
+        when:
+        (1..40).each {
+            grid.addObject(1, 2, MovableObject.builder()
+                    .name("test$it")
+                    .toughness(1)
+                    .movementStrategy(new OnePositionMovement())
+                    .build())
+            List<Event> result = grid.handle(new MoveForward("test$it", 1))
+            grid.handle(new MoveForward("test$it", 1))
+            assert result[0] instanceof MovableObjectMoved
+        }
+
+        then:
+        grid.movableObjectByName.isEmpty()
+        grid.getEmptyPositionCount() == 4
+    }
+
+    def 'monster truck survives collision with the standing car and takes its position'() {
+        given:
+        int[][] map = [[1, 1],
+                       [0, 0]]
+        Grid grid = createGrid(map)
+        grid.addObject(1, 1, MovableObject.builder()
+                .name('monster')
+                .toughness(2)
+                .direction(Direction.EAST)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+        grid.addObject(2, 1, MovableObject.builder()
+                .name('test')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+
+        when:
+        List<Event> result = grid.handle(new MoveForward('monster', 1))
+
+        then:
+        result.size() == 2
+        result[0] instanceof GridObjectDestroyed
+        result[0].objectName == 'test'
+        result[1] instanceof MovableObjectMoved
+        grid.positionByObjectName.get('monster').x == 2
+        !grid.containsObject('test')
+        grid.getEmptyPositionCount() == 1
+    }
+}
@@ -0,0 +1,152 @@
+package pl.speedapp.cargame.engine.grid
+
+import pl.speedapp.cargame.engine.grid.commands.MoveForward
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft
+import pl.speedapp.cargame.engine.grid.commands.TurnRight
+import pl.speedapp.cargame.engine.grid.events.Event
+import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed
+import pl.speedapp.cargame.engine.grid.events.MovableObjectMoved
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.engine.grid.movement.OnePositionMovement
+import pl.speedapp.cargame.engine.grid.movement.Position
+import pl.speedapp.cargame.engine.grid.objects.MovableObject
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+
+/**
+ * Moves many objects from many threads at once and checks that no collision is lost
+ */
+class GridStressTest extends Specification {
+
+    private static final int THREADS = 8
+
+    private static final int SIZE = 64
+
+    private static final int ROUNDS = 20
+
+    @Unroll
+    def 'every head-on collision destroys both objects on #gridName'() {
+        expect:
+        ROUNDS.times {
+            Grid grid = createGrid(emptyMap())
+            List<String> names = []
+            // pairs of objects facing each other with one empty cell between them
+            (1..SIZE).each { y ->
+                (0..<SIZE.intdiv(4)).each { pair ->
+                    names << addObject(grid, "east-$y-$pair", 4 * pair + 1, y, Direction.EAST)
+                    names << addObject(grid, "west-$y-$pair", 4 * pair + 3, y, Direction.WEST)
+                }
+            }
+            Collections.shuffle(names)
+
+            List<Event> events = moveAll(names) { String name -> grid.handle(new MoveForward(name, 1)) }
+
+            assert events.count { it instanceof MovableObjectMoved } == names.size().intdiv(2)
+            assert events.findAll { it instanceof GridObjectDestroyed }*.objectName.toSet() == names.toSet()
+            assert events.count { it instanceof GridObjectDestroyed } == names.size()
+            assert grid.movableObjectByName.isEmpty()
+            assert grid.getEmptyPositionCount() == SIZE * SIZE
+        }
+
+        where:
+        gridName            | createGrid
+        'HashGrid'          | { int[][] board -> new HashGrid(board) }
+        'ArrayGrid'         | { int[][] board -> new ArrayGrid(board) }
+        'StripedGrid'       | { int[][] board -> new StripedGrid(board) }
+        'StripedGrid(4)'    | { int[][] board -> new StripedGrid(board, 4) }
+    }
+
+    @Unroll
+    def 'objects moving at random never share the cell and are destroyed once on #gridName'() {
+        given:
+        int[][] map = emptyMap()
+        // walls on the diagonal
+        (0..<SIZE).each { map[it][it] = 0 }
+        Grid grid = createGrid(map)
+        List<String> names = []
+        (1..SIZE).each { y ->
+            (1..SIZE).findAll { x -> x != y && (x + y) % 3 == 0 }.each { x ->
+                names << addObject(grid, "car-$x-$y", x, y, Direction.values()[(x + y) % 4])
+            }
+        }
+        int roads = SIZE * SIZE - SIZE
+
+        when:
+        List<Event> events = moveAll(names) { String name ->
+            List<Event> result = []
+            50.times {
+                int command = ThreadLocalRandom.current().nextInt(4)
+                if (command == 0) {
+                    grid.handle(new TurnLeft(name))
+                } else if (command == 1) {
+                    grid.handle(new TurnRight(name))
+                } else {
+                    result.addAll(grid.handle(new MoveForward(name, 1)))
+                }
+            }
+            result
+        }
+
+        then:
+        List<String> destroyed = events.findAll { it instanceof GridObjectDestroyed }*.objectName
+        Map<String, Position> positions = grid.positionByObjectName
+        destroyed.size() == destroyed.toSet().size()
+        (destroyed + positions.keySet()).toSet() == names.toSet()
+        destroyed.size() + positions.size() == names.size()
+        positions.values().collect { [it.x, it.y] }.toSet().size() == positions.size()
+        positions.values().every { it.x != it.y }
+        grid.getEmptyPositionCount() == roads - positions.size()
+
+        where:
+        gridName            | createGrid
+        'HashGrid'          | { int[][] board -> new HashGrid(board) }
+        'ArrayGrid'         | { int[][] board -> new ArrayGrid(board) }
+        'StripedGrid'       | { int[][] board -> new StripedGrid(board) }
+        'StripedGrid(4)'    | { int[][] board -> new StripedGrid(board, 4) }
+    }
+
+    private static int[][] emptyMap() {
+        int[][] map = new int[SIZE][SIZE]
+        map.each { Arrays.fill(it, 1) }
+        return map
+    }
+
+    private static String addObject(Grid grid, String name, int x, int y, Direction direction) {
+        grid.addObject(x, y, MovableObject.builder()
+                .name(name)
+                .toughness(1)
+                .direction(direction)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+        return name
+    }
+
+    /**
+     * Objects are split between the threads, every object is moved by exactly one thread like in the game
+     */
+    private static List<Event> moveAll(List<String> names, Closure<List<Event>> move) {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS)
+        CountDownLatch start = new CountDownLatch(1)
+        Queue<Event> events = new ConcurrentLinkedQueue<>()
+        try {
+            def futures = names.collate(names.size().intdiv(THREADS) + 1).collect { List<String> part ->
+                executor.submit({
+                    start.await()
+                    part.each { events.addAll(move(it)) }
+                })
+            }
+            start.countDown()
+            futures*.get(30, TimeUnit.SECONDS)
+        } finally {
+            executor.shutdownNow()
+        }
+        return new ArrayList<>(events)
+    }
+}
@@ -7,6 +7,7 @@ import pl.speedapp.cargame.engine.grid.commands.MoveForward
 import pl.speedapp.cargame.engine.grid.commands.TurnLeft
 import pl.speedapp.cargame.engine.grid.commands.TurnRight
 import pl.speedapp.cargame.engine.grid.events.Event
+import pl.speedapp.cargame.engine.grid.events.MoveEventSink
 import pl.speedapp.cargame.engine.grid.movement.Direction
 import pl.speedapp.cargame.engine.grid.movement.OnePositionMovement
 import pl.speedapp.cargame.engine.grid.movement.Position
@@ -16,11 +17,15 @@ import spock.lang.Unroll
 
 class GridTest extends Specification {
 
+    protected Grid createGrid(int[][] map) {
+        return new HashGrid(map)
+    }
+
     def 'adding movable object on the valid position is allowed'() {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -41,7 +46,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(3, 1, MovableObject.builder()
@@ -60,7 +65,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 1]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         grid.addObject(1, 2, MovableObject.builder()
                 .name('test')
@@ -86,7 +91,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         grid.addObject(1, 2, MovableObject.builder()
                 .name('test')
@@ -112,7 +117,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         grid.addObject(1, 2, MovableObject.builder()
                 .name('test')
@@ -133,7 +138,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         List<Event> result = grid.removeObject('test')
@@ -148,7 +153,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 1]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -181,7 +186,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -207,7 +212,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -234,7 +239,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 1]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(2, 2, MovableObject.builder()
@@ -272,7 +277,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 1]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(2, 2, MovableObject.builder()
@@ -311,7 +316,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -348,7 +353,7 @@ class GridTest extends Specification {
         given:
         int[][] map = [[0, 0],
                        [1, 0]]
-        Grid grid = new Grid(map)
+        Grid grid = createGrid(map)
 
         when:
         grid.addObject(1, 2, MovableObject.builder()
@@ -379,4 +384,103 @@ class GridTest extends Specification {
         Direction.SOUTH  | Direction.WEST
         Direction.WEST   | Direction.NORTH
     }
+
+    def 'placed objects get dense slots and slots of removed objects are reused'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Grid grid = createGrid(map)
+
+        when:
+        int first = grid.addObject(1, 1, MovableObject.builder()
+                .name('first')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build()).objectSlot
+        int second = grid.addObject(2, 1, MovableObject.builder()
+                .name('second')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build()).objectSlot
+
+        then:
+        [first, second].toSet() == [0, 1].toSet()
+        grid.getMovableObject('second').slot == second
+
+        when:
+        List<Event> removed = grid.removeObject('first')
+        int third = grid.addObject(1, 2, MovableObject.builder()
+                .name('third')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build()).objectSlot
+
+        then:
+        removed[0].objectSlot == first
+        third == first
+    }
+
+    def 'command with the slot taken by other object is performed on the object with the given name'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Grid grid = createGrid(map)
+        int first = grid.addObject(1, 2, MovableObject.builder()
+                .name('first')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build()).objectSlot
+        int second = grid.addObject(2, 2, MovableObject.builder()
+                .name('second')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build()).objectSlot
+
+        when:
+        List<Event> result = grid.handle(new MoveForward('second', first, 1))
+
+        then:
+        result.size() == 1
+        result[0].objectName == 'second'
+        result[0].objectSlot == second
+        grid.positionByObjectName.get('first').y == 2
+        grid.positionByObjectName.get('second').y == 1
+    }
+
+    def 'move forward passes the moved and destroyed objects to the sink'() {
+        given:
+        int[][] map = [[1, 1],
+                       [1, 1]]
+        Grid grid = createGrid(map)
+        grid.addObject(1, 2, MovableObject.builder()
+                .name('first')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+        grid.addObject(2, 2, MovableObject.builder()
+                .name('second')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+        MoveEventSink sink = Mock(MoveEventSink)
+
+        when:
+        grid.handle(new MoveForward('first', 1), sink)
+
+        then:
+        1 * sink.moved('first', grid.getMovableObject('first').slot, Position.pack(1, 2), Position.pack(1, 1), Direction.NORTH)
+        0 * sink._
+
+        when:
+        grid.handle(new MoveForward('second', 1))
+        grid.handle(new TurnLeft('second'))
+        grid.handle(new MoveForward('second', 1), sink)
+
+        then:
+        1 * sink.destroyed('first', _, Position.pack(1, 1), _)
+        1 * sink.destroyed('second', _, Position.pack(1, 1), _)
+        0 * sink._
+        grid.movableObjectByName.isEmpty()
+        grid.getEmptyPositionCount() == 4
+    }
 }
@@ -0,0 +1,50 @@
+package pl.speedapp.cargame.engine.grid
+
+import pl.speedapp.cargame.engine.grid.commands.MoveForward
+import pl.speedapp.cargame.engine.grid.events.Event
+import pl.speedapp.cargame.engine.grid.events.GridObjectDestroyed
+import pl.speedapp.cargame.engine.grid.events.MovableObjectMoved
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.engine.grid.movement.OnePositionMovement
+import pl.speedapp.cargame.engine.grid.objects.MovableObject
+
+/**
+ * Runs all {@link GridTest} scenarios against {@link StripedGrid} with every cell guarded by the same lock
+ */
+class StripedGridTest extends GridTest {
+
+    @Override
+    protected Grid createGrid(int[][] map) {
+        return new StripedGrid(map, 1)
+    }
+
+    def 'monster truck survives collision with the standing car and takes its position'() {
+        given:
+        int[][] map = [[1, 1],
+                       [0, 0]]
+        Grid grid = new StripedGrid(map)
+        grid.addObject(1, 1, MovableObject.builder()
+                .name('monster')
+                .toughness(2)
+                .direction(Direction.EAST)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+        grid.addObject(2, 1, MovableObject.builder()
+                .name('test')
+                .toughness(1)
+                .movementStrategy(new OnePositionMovement())
+                .build())
+
+        when:
+        List<Event> result = grid.handle(new MoveForward('monster', 1))
+
+        then:
+        result.size() == 2
+        result[0] instanceof GridObjectDestroyed
+        result[0].objectName == 'test'
+        result[1] instanceof MovableObjectMoved
+        grid.positionByObjectName.get('monster').x == 2
+        !grid.containsObject('test')
+        grid.getEmptyPositionCount() == 1
+    }
+}
@@ -0,0 +1,87 @@
+package pl.speedapp.cargame.engine.journal
+
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class MoveArchiveTest extends Specification {
+
+    Path directory = Files.createTempDirectory('archive')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def 'archived moves are read back with their cars'() {
+        given:
+        MoveArchive.builder(7L, 'game7')
+                .add(100L, 1L, 'car1', CarType.RACER, CarMoveType.FORWARD, 2, 1525169730123456789L)
+                .add(105L, 2L, 'car2', CarType.NORMAL, CarMoveType.TURN_LEFT, null, 1525169730123456789L)
+                .add(101L, 1L, 'car1', CarType.RACER, CarMoveType.FORWARD, 1, 1525169731000000000L)
+                .add(110L, 3L, 'car3', CarType.NORMAL, CarMoveType.TURN_RIGHT, null, 1525169732500000000L)
+                .write(directory)
+
+        when:
+        MoveArchive archive = MoveArchive.read(directory, 7L)
+
+        then:
+        MoveArchive.exists(directory, 7L)
+        !MoveArchive.exists(directory, 8L)
+        archive.gameId == 7L
+        archive.gameName == 'game7'
+        archive.carCount == 3
+        read(archive) == [[100L, 'car1', CarType.RACER, CarMoveType.FORWARD, 2, 1525169730123456789L],
+                          [105L, 'car2', CarType.NORMAL, CarMoveType.TURN_LEFT, null, 1525169730123456789L],
+                          [101L, 'car1', CarType.RACER, CarMoveType.FORWARD, 1, 1525169731000000000L],
+                          [110L, 'car3', CarType.NORMAL, CarMoveType.TURN_RIGHT, null, 1525169732500000000L]]
+        archive.getCarId(archive.getCarSlot(3)) == 3L
+    }
+
+    def 'columns of many moves are packed into a few bytes per move'() {
+        given:
+        MoveArchive.Builder builder = MoveArchive.builder(1L, 'game1')
+        long timestamp = 1525169730000000000L
+        10_000.times { int index ->
+            CarMoveType moveType = CarMoveType.values()[index % 3]
+            builder.add(1000L + index, index % 10, "car${index % 10}", CarType.NORMAL, moveType,
+                    moveType == CarMoveType.FORWARD ? 1 : null, timestamp + index * 1_000_000L)
+        }
+
+        when:
+        builder.write(directory)
+        MoveArchive archive = MoveArchive.read(directory, 1L)
+
+        then:
+        Files.size(directory.resolve('1' + MoveArchive.FILE_EXTENSION)) < 10_000 * 2
+        archive.size() == 10_000
+        read(archive) == read(builder.build())
+    }
+
+    def 'written archive replaces the previous one'() {
+        given:
+        MoveArchive.builder(1L, 'game1')
+                .add(1L, 1L, 'car1', CarType.NORMAL, CarMoveType.FORWARD, 1, 10L)
+                .add(2L, 1L, 'car1', CarType.NORMAL, CarMoveType.FORWARD, 1, 20L)
+                .write(directory)
+
+        when:
+        MoveArchive.builder(1L, 'game1')
+                .add(3L, 2L, 'car2', CarType.NORMAL, CarMoveType.TURN_LEFT, null, 30L)
+                .write(directory)
+
+        then:
+        read(MoveArchive.read(directory, 1L)) == [[3L, 'car2', CarType.NORMAL, CarMoveType.TURN_LEFT, null, 30L]]
+        Files.list(directory).count() == 1
+    }
+
+    private static List<List> read(MoveArchive archive) {
+        (0..<archive.size()).collect { int index ->
+            int slot = archive.getCarSlot(index)
+            [archive.getId(index), archive.getCarName(slot), archive.getCarType(slot), archive.getMoveType(index),
+             archive.getDistance(index), archive.getTimestamp(index)]
+        }
+    }
+}
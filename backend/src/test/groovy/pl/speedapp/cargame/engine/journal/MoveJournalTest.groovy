@@ -0,0 +1,193 @@
+package pl.speedapp.cargame.engine.journal
+
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+
+class MoveJournalTest extends Specification {
+
+    Path directory = Files.createTempDirectory('moves')
+
+    def cleanup() {
+        directory.toFile().deleteDir()
+    }
+
+    def 'moves are scanned in both directions with the names of the cars'() {
+        given:
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        Instant time = Instant.parse('2018-05-01T10:15:30.123456789Z')
+
+        when:
+        journal.append('car1', CarMoveType.FORWARD, 2, time)
+        journal.append('car2', CarMoveType.TURN_LEFT, 0, time.plusNanos(1))
+        journal.append('car1', CarMoveType.TURN_RIGHT, 0, time.plusNanos(2))
+
+        then:
+        scan(journal) == [['car1', CarMoveType.FORWARD, 2, 1525169730123456789L],
+                          ['car2', CarMoveType.TURN_LEFT, 0, 1525169730123456790L],
+                          ['car1', CarMoveType.TURN_RIGHT, 0, 1525169730123456791L]]
+        scanBackward(journal, 2) == [['car1', CarMoveType.TURN_RIGHT, 0, 1525169730123456791L],
+                                     ['car2', CarMoveType.TURN_LEFT, 0, 1525169730123456790L]]
+        journal.getCarSlot('car2') == 1
+        journal.getCarSlot('car3') == -1
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'reopened journal continues after the existing moves and created one starts empty'() {
+        given:
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        journal.append('car1', CarMoveType.FORWARD, 1, 10L)
+        journal.close()
+
+        when:
+        journal = MoveJournal.open(directory, 1L)
+        journal.append('car2', CarMoveType.FORWARD, 1, 20L)
+        journal.append('car1', CarMoveType.TURN_LEFT, 0, 30L)
+        journal.close()
+        journal = MoveJournal.open(directory, 1L)
+
+        then:
+        MoveJournal.exists(directory, 1L)
+        !MoveJournal.exists(directory, 2L)
+        scan(journal) == [['car1', CarMoveType.FORWARD, 1, 10L],
+                          ['car2', CarMoveType.FORWARD, 1, 20L],
+                          ['car1', CarMoveType.TURN_LEFT, 0, 30L]]
+
+        when:
+        journal.close()
+        journal = MoveJournal.create(directory, 1L)
+
+        then:
+        journal.size() == 0
+        journal.getCarCount() == 0
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'journal grows over the initial mapping while it is scanned'() {
+        given:
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        int moves = 100_000
+        List<Integer> scannedSizes = Collections.synchronizedList([])
+        List<Long> unorderedMoves = Collections.synchronizedList([])
+        Thread reader = Thread.start {
+            boolean finished = false
+            while (!finished) {
+                finished = journal.size() == moves
+                long previous = -1
+                int size = 0
+                journal.scan { carSlot, moveType, distance, timestamp ->
+                    if (timestamp != previous + 1) {
+                        unorderedMoves << timestamp
+                    }
+                    previous = timestamp
+                    ++size
+                    return true
+                }
+                scannedSizes << size
+            }
+        }
+
+        when:
+        (0..<moves).each { journal.append("car${it % 3}", CarMoveType.FORWARD, 1, it as long) }
+        reader.join()
+
+        then:
+        journal.size() == moves
+        scanBackward(journal, 1) == [['car0', CarMoveType.FORWARD, 1, 99_999L]]
+        scannedSizes.last() == moves
+        unorderedMoves.empty
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'placements, removals and directions are replayed but not scanned as moves'() {
+        given:
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        journal.appendPlaced('car1', CarType.RACER, 300, 2, Direction.WEST, 10L)
+        journal.append('car1', CarMoveType.FORWARD, 2, 20L)
+        journal.appendDirection('car1', Direction.SOUTH, 30L)
+        journal.appendRemoved('car1', 40L)
+        def changes = []
+        GridChangeVisitor visitor = [
+                placed          : { carSlot, carType, x, y, direction, timestamp -> changes << ['placed', carSlot, carType, x, y, direction] },
+                removed         : { carSlot, timestamp -> changes << ['removed', carSlot] },
+                directionChanged: { carSlot, direction, timestamp -> changes << ['direction', carSlot, direction] },
+                moved           : { carSlot, moveType, distance, timestamp -> changes << ['moved', carSlot, moveType, distance] }
+        ] as GridChangeVisitor
+
+        when:
+        int replayed = journal.replay(0, journal.size(), 30L, visitor)
+
+        then:
+        replayed == 3
+        changes == [['placed', 0, CarType.RACER, 300, 2, Direction.WEST],
+                    ['moved', 0, CarMoveType.FORWARD, 2],
+                    ['direction', 0, Direction.SOUTH]]
+        journal.size() == 4
+        scan(journal) == [['car1', CarMoveType.FORWARD, 2, 20L]]
+
+        cleanup:
+        journal.close()
+    }
+
+    def 'journal opened for reading does not change its files'() {
+        given:
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        journal.append('car1', CarMoveType.FORWARD, 1, 10L)
+        journal.append('car2', CarMoveType.TURN_LEFT, 0, 20L)
+        journal.close()
+        Path file = directory.resolve('1' + MoveJournal.FILE_EXTENSION)
+        Path carsFile = directory.resolve('1.cars')
+        byte[] content = Files.readAllBytes(file)
+        byte[] cars = Files.readAllBytes(carsFile)
+
+        when:
+        journal = MoveJournal.read(directory, 1L)
+
+        then:
+        journal.isReadOnly()
+        scan(journal) == [['car1', CarMoveType.FORWARD, 1, 10L],
+                          ['car2', CarMoveType.TURN_LEFT, 0, 20L]]
+
+        when:
+        journal.append('car3', CarMoveType.FORWARD, 1, 30L)
+
+        then:
+        thrown(IllegalStateException)
+
+        when:
+        journal.close()
+
+        then:
+        Files.readAllBytes(file) == content
+        Files.readAllBytes(carsFile) == cars
+    }
+
+    private static List scan(MoveJournal journal) {
+        def moves = []
+        journal.scan { carSlot, moveType, distance, timestamp ->
+            moves << [journal.getCarName(carSlot), moveType, distance, timestamp]
+            return true
+        }
+        return moves
+    }
+
+    private static List scanBackward(MoveJournal journal, int limit) {
+        def moves = []
+        journal.scanBackward { carSlot, moveType, distance, timestamp ->
+            moves << [journal.getCarName(carSlot), moveType, distance, timestamp]
+            return moves.size() < limit
+        }
+        return moves
+    }
+}
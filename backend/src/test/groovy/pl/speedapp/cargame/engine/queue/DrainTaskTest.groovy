@@ -0,0 +1,111 @@
+package pl.speedapp.cargame.engine.queue
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class DrainTaskTest extends Specification {
+
+    ExecutorService executor = Executors.newSingleThreadExecutor()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def 'many consumers share the single thread and each of them drains own ring'() {
+        given:
+        List<RingBuffer<Integer>> rings = (1..20).collect { new RingBuffer<Integer>(1024, WaitStrategy.BLOCKING) }
+        List<List<Integer>> consumed = rings.collect { Collections.synchronizedList([]) }
+        rings.eachWithIndex { RingBuffer<Integer> ring, int index ->
+            DrainTask task = new DrainTask("ring-$index", executor, {
+                ring.drain({ consumed[index] << it }, 10)
+                true
+            }, { !ring.isEmpty() })
+            ring.onPublish(task.&signal)
+        }
+
+        when:
+        (1..100).each { int element -> rings.each { it.offer(element) } }
+
+        then:
+        new PollingConditions(timeout: 2, delay: 0.02).eventually {
+            assert consumed.every { it == (1..100).toList() }
+        }
+    }
+
+    def 'task never runs in two threads at once'() {
+        given:
+        ExecutorService pool = Executors.newFixedThreadPool(4)
+        RingBuffer<Integer> ring = new RingBuffer<>(1024, WaitStrategy.BLOCKING)
+        AtomicInteger running = new AtomicInteger()
+        AtomicInteger maxRunning = new AtomicInteger()
+        AtomicInteger consumed = new AtomicInteger()
+        DrainTask task = new DrainTask('ring', pool, {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math.&max)
+            ring.drain({ consumed.incrementAndGet() }, 5)
+            running.decrementAndGet()
+            true
+        }, { !ring.isEmpty() })
+        ring.onPublish(task.&signal)
+
+        when:
+        List<Thread> producers = (1..4).collect { Thread.start { 250.times { ring.put(it) } } }
+        producers*.join()
+
+        then:
+        new PollingConditions(timeout: 2, delay: 0.02).eventually {
+            assert consumed.get() == 1000
+        }
+        maxRunning.get() == 1
+
+        cleanup:
+        pool.shutdownNow()
+    }
+
+    def 'stopped task is not submitted again'() {
+        given:
+        AtomicInteger runs = new AtomicInteger()
+        DrainTask task = new DrainTask('task', executor, {
+            runs.incrementAndGet()
+            false
+        }, { true })
+
+        when:
+        task.signal()
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert task.isStopped()
+        }
+
+        when:
+        task.signal()
+        Thread.sleep(100)
+
+        then:
+        runs.get() == 1
+    }
+
+    def 'work left after the executor has been shut down is handled by the running task'() {
+        given:
+        RingBuffer<Integer> ring = new RingBuffer<>(16, WaitStrategy.BLOCKING)
+        List<Integer> consumed = Collections.synchronizedList([])
+        DrainTask task = new DrainTask('ring', executor, {
+            ring.drain({ consumed << it }, 1)
+            executor.shutdown()
+            true
+        }, { !ring.isEmpty() })
+        (1..3).each { ring.offer(it) }
+
+        when:
+        task.signal()
+
+        then:
+        new PollingConditions(timeout: 1, delay: 0.02).eventually {
+            assert consumed == [1, 2, 3]
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pl.speedapp.cargame.engine.queue
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class RingBufferTest extends Specification {
+
+    def 'capacity is rounded up to the power of two'() {
+        expect:
+        new RingBuffer<Integer>(requested, WaitStrategy.BLOCKING).capacity == expected
+
+        where:
+        requested | expected
+        1         | 1
+        3         | 4
+        4         | 4
+        1000      | 1024
+    }
+
+    def 'elements are taken in order and offer fails when ring is full'() {
+        given:
+        RingBuffer<Integer> ring = new RingBuffer<>(4, WaitStrategy.BLOCKING)
+
+        when:
+        List<Boolean> offered = (1..5).collect { ring.offer(it) }
+
+        then:
+        offered == [true, true, true, true, false]
+        ring.size() == 4
+        ring.remainingCapacity() == 0
+        ring.peek() == 1
+
+        when:
+        List<Integer> taken = (1..5).collect { ring.poll() }
+
+        then:
+        taken == [1, 2, 3, 4, null]
+        ring.isEmpty()
+    }
+
+    def 'consumer drains waiting elements in batches'() {
+        given:
+        RingBuffer<Integer> ring = new RingBuffer<>(8, WaitStrategy.BLOCKING)
+        (1..5).each { ring.offer(it) }
+        List<Integer> drained = []
+
+        expect:
+        ring.drain({ drained << it }, 3) == 3
+        drained == [1, 2, 3]
+        ring.drainTo(drained) == 2
+        drained == [1, 2, 3, 4, 5]
+    }
+
+    @Unroll
+    def 'waiting for the element times out with #waitStrategy strategy'() {
+        given:
+        RingBuffer<Integer> ring = new RingBuffer<>(2, waitStrategy)
+
+        when:
+        long start = System.nanoTime()
+        Integer element = ring.poll(20, TimeUnit.MILLISECONDS)
+
+        then:
+        element == null
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20)
+
+        when:
+        ring.offer(1)
+        ring.offer(2)
+
+        then:
+        !ring.offer(3, 20, TimeUnit.MILLISECONDS)
+
+        where:
+        waitStrategy << WaitStrategy.values()
+    }
+
+    @Unroll
+    def 'no element is lost or duplicated when many producers fill small ring with #waitStrategy strategy'() {
+        given:
+        int producers = 4
+        int elementsPerProducer = 10000
+        RingBuffer<Integer> ring = new RingBuffer<>(16, waitStrategy)
+        ExecutorService executor = Executors.newFixedThreadPool(producers)
+        CountDownLatch start = new CountDownLatch(1)
+        BitSet received = new BitSet()
+
+        when:
+        producers.times { producer ->
+            executor.submit {
+                start.await()
+                elementsPerProducer.times { ring.put(producer * elementsPerProducer + it) }
+            }
+        }
+        start.countDown()
+        int count = 0
+        while (count < producers * elementsPerProducer) {
+            Integer element = ring.poll(5, TimeUnit.SECONDS)
+            if (element == null || received.get(element)) {
+                break
+            }
+            received.set(element)
+            ++count
+        }
+
+        then:
+        count == producers * elementsPerProducer
+        received.cardinality() == producers * elementsPerProducer
+        ring.isEmpty()
+
+        cleanup:
+        executor.shutdownNow()
+
+        where:
+        // busy spinning producers need own cores, they would starve the consumer on small machines
+        waitStrategy << [WaitStrategy.YIELDING, WaitStrategy.SLEEPING, WaitStrategy.BLOCKING]
+    }
+}
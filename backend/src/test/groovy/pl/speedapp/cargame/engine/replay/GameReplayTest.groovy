@@ -0,0 +1,88 @@
+package pl.speedapp.cargame.engine.replay
+
+import pl.speedapp.cargame.api.model.GameStateDto
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.engine.grid.movement.Direction
+import pl.speedapp.cargame.engine.journal.MoveJournal
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+
+class GameReplayTest extends Specification {
+
+    static int[][] MAP = [[1, 1, 1, 1, 1],
+                          [1, 1, 1, 1, 1],
+                          [1, 1, 1, 1, 1],
+                          [1, 1, 1, 1, 1],
+                          [1, 1, 1, 1, 1]]
+
+    Path directory = Files.createTempDirectory('replay')
+
+    MoveJournal journal = MoveJournal.create(directory, 1L)
+
+    def cleanup() {
+        journal.close()
+        directory.toFile().deleteDir()
+    }
+
+    @Unroll
+    def 'state at time #time is rebuilt from the nearest checkpoint with checkpoint interval #interval'() {
+        given:
+        journal.appendPlaced('car1', CarType.RACER, 1, 5, Direction.NORTH, 10L)
+        journal.appendPlaced('car2', CarType.MONSTER_TRUCK, 5, 1, Direction.SOUTH, 20L)
+        journal.append('car1', CarMoveType.FORWARD, 2, 30L)
+        journal.append('car1', CarMoveType.TURN_RIGHT, 0, 40L)
+        journal.append('car1', CarMoveType.FORWARD, 1, 50L)
+        journal.appendDirection('car2', Direction.WEST, 60L)
+        journal.append('car2', CarMoveType.FORWARD, 1, 70L)
+        journal.appendRemoved('car2', 80L)
+        GameReplay replay = new GameReplay(1L, MAP, interval)
+
+        when:
+        GameStateDto state = replay.getState(journal, Instant.ofEpochSecond(0, time))
+
+        then:
+        state.gameId == 1L
+        state.moves == moves
+        state.cars.collect { [it.name, it.type, it.currentStatus.x, it.currentStatus.y, it.currentStatus.direction] } == cars
+        replay.checkpointCount == checkpoints
+
+        where:
+        time | interval || moves | checkpoints | cars
+        5    | 3        || 0     | 3           | []
+        45   | 3        || 4     | 3           | [['car1', CarType.RACER, 0, 2, Direction.EAST], ['car2', CarType.MONSTER_TRUCK, 4, 0, Direction.SOUTH]]
+        75   | 3        || 7     | 3           | [['car1', CarType.RACER, 1, 2, Direction.EAST], ['car2', CarType.MONSTER_TRUCK, 3, 0, Direction.WEST]]
+        100  | 3        || 8     | 3           | [['car1', CarType.RACER, 1, 2, Direction.EAST]]
+        75   | 1        || 7     | 9           | [['car1', CarType.RACER, 1, 2, Direction.EAST], ['car2', CarType.MONSTER_TRUCK, 3, 0, Direction.WEST]]
+        75   | 100      || 7     | 1           | [['car1', CarType.RACER, 1, 2, Direction.EAST], ['car2', CarType.MONSTER_TRUCK, 3, 0, Direction.WEST]]
+    }
+
+    def 'crashes are replayed and checkpoints continue when the journal grows'() {
+        given:
+        GameReplay replay = new GameReplay(1L, MAP, 2)
+        journal.appendPlaced('car1', CarType.NORMAL, 1, 2, Direction.NORTH, 10L)
+        journal.appendPlaced('car2', CarType.NORMAL, 1, 1, Direction.EAST, 20L)
+        journal.appendPlaced('car3', CarType.RACER, 3, 3, Direction.EAST, 30L)
+
+        when:
+        GameStateDto state = replay.getState(journal, Instant.ofEpochSecond(0, 100))
+
+        then:
+        state.cars*.name == ['car1', 'car2', 'car3']
+        replay.checkpointCount == 2
+
+        when:
+        journal.append('car1', CarMoveType.FORWARD, 1, 40L)
+        journal.append('car3', CarMoveType.FORWARD, 1, 50L)
+        state = replay.getState(journal, Instant.ofEpochSecond(0, 100))
+
+        then:
+        state.cars.collect { [it.name, it.currentStatus.x, it.currentStatus.y] } == [['car3', 3, 2]]
+        replay.checkpointCount == 3
+        replay.getState(journal, Instant.ofEpochSecond(0, 35)).cars*.name == ['car1', 'car2', 'car3']
+    }
+}
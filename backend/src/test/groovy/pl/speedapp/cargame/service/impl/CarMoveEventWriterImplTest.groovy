@@ -0,0 +1,206 @@
+package pl.speedapp.cargame.service.impl
+
+import org.springframework.dao.DataAccessResourceFailureException
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.service.CarReference
+import pl.speedapp.cargame.service.ReferenceCache
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Instant
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class CarMoveEventWriterImplTest extends Specification {
+
+    JdbcTemplate jdbcTemplate = Mock()
+
+    ReferenceCache referenceCache = Stub() {
+        getCar('testCar') >> Optional.of(CarReference.builder().id(1L).name('testCar').type(CarType.NORMAL).build())
+        getCar(_) >> Optional.empty()
+    }
+
+    List<Integer> writtenBatches = new CopyOnWriteArrayList<>()
+
+    CarMoveEventWriterImpl writer
+
+    def setup() {
+        jdbcTemplate.batchUpdate(_ as String, _ as Collection, _ as Integer, _ as ParameterizedPreparedStatementSetter) >> { args ->
+            writtenBatches.add(args[1].size())
+            return new int[0][0]
+        }
+        writer = new CarMoveEventWriterImpl(jdbcTemplate, referenceCache)
+    }
+
+    def cleanup() {
+        writer.beforeDestroy()
+    }
+
+    def 'events are written in batches when batch size is reached'() {
+        given:
+        writer.batchSize = 3
+        writer.flushInterval = 60000
+        writer.init()
+
+        when:
+        7.times { writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now()) }
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert writtenBatches.sum() >= 6
+            assert writtenBatches.every { it <= 3 }
+        }
+    }
+
+    def 'events are written after flush interval even if batch size is not reached'() {
+        given:
+        writer.batchSize = 100
+        writer.flushInterval = 50
+        writer.init()
+
+        when:
+        writer.store('testCar', 1L, CarMoveType.TURN_LEFT, 0, Instant.now())
+        writer.store('testCar', 1L, CarMoveType.TURN_RIGHT, 0, Instant.now())
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert writtenBatches == [2]
+        }
+    }
+
+    def 'all buffered events are written on flush'() {
+        given:
+        writer.batchSize = 100
+        writer.flushInterval = 60000
+        writer.init()
+        5.times { writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now()) }
+
+        when:
+        writer.flush()
+
+        then:
+        writtenBatches == [5]
+    }
+
+    def 'buffered events are written on shutdown'() {
+        given:
+        writer.batchSize = 100
+        writer.flushInterval = 60000
+        writer.init()
+        writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now())
+
+        when:
+        writer.beforeDestroy()
+
+        then:
+        writtenBatches == [1]
+    }
+
+    def 'failed batch is written again before next events'() {
+        given:
+        JdbcTemplate failingJdbcTemplate = Mock()
+        writer = new CarMoveEventWriterImpl(failingJdbcTemplate, referenceCache)
+        writer.init()
+        writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now())
+
+        when:
+        writer.flush()
+        writer.store('testCar', 1L, CarMoveType.TURN_LEFT, 0, Instant.now())
+        writer.flush()
+
+        then:
+        1 * failingJdbcTemplate.batchUpdate(*_) >> { throw new DataAccessResourceFailureException('DB is down') }
+
+        then:
+        1 * failingJdbcTemplate.batchUpdate(_ as String, { it*.moveType == [CarMoveType.FORWARD] }, _ as Integer, _ as ParameterizedPreparedStatementSetter)
+
+        then:
+        1 * failingJdbcTemplate.batchUpdate(_ as String, { it*.moveType == [CarMoveType.TURN_LEFT] }, _ as Integer, _ as ParameterizedPreparedStatementSetter)
+        writer.getWrittenCount() == 2
+        writer.getDroppedCount() == 0
+    }
+
+    def 'events of the batch are dropped and counted when all retries failed'() {
+        given:
+        JdbcTemplate failingJdbcTemplate = Mock()
+        writer = new CarMoveEventWriterImpl(failingJdbcTemplate, referenceCache)
+        writer.retries = 2
+        writer.init()
+        2.times { writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now()) }
+
+        when:
+        4.times { writer.flush() }
+
+        then:
+        3 * failingJdbcTemplate.batchUpdate(*_) >> { throw new DataAccessResourceFailureException('DB is down') }
+        writer.getDroppedCount() == 2
+
+        when:
+        writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now())
+        writer.flush()
+
+        then:
+        1 * failingJdbcTemplate.batchUpdate(*_)
+        writer.getWrittenCount() == 1
+    }
+
+    def 'events of the games in other partitions are written while one partition is being written'() {
+        given:
+        CountDownLatch firstBatchStarted = new CountDownLatch(1)
+        CountDownLatch firstBatchReleased = new CountDownLatch(1)
+        List<Long> writtenGames = new CopyOnWriteArrayList<>()
+        // not a mock, interactions of the mocks wait while any of them is handled
+        JdbcTemplate slowJdbcTemplate = new JdbcTemplate() {
+            @Override
+            <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+                Long gameId = batchArgs[0].gameId
+                if (gameId == 1L) {
+                    firstBatchStarted.countDown()
+                    firstBatchReleased.await(1, TimeUnit.SECONDS)
+                }
+                writtenGames << gameId
+                return new int[0][0]
+            }
+        }
+        writer = new CarMoveEventWriterImpl(slowJdbcTemplate, referenceCache)
+        writer.batchSize = 1
+        writer.flushInterval = 60000
+        writer.partitionCount = 2
+        writer.init()
+        Long otherGameId = (2L..100L).find { writer.getPartition(it) != writer.getPartition(1L) }
+
+        when:
+        writer.store('testCar', 1L, CarMoveType.FORWARD, 1, Instant.now())
+        firstBatchStarted.await(1, TimeUnit.SECONDS)
+        writer.store('testCar', otherGameId, CarMoveType.FORWARD, 1, Instant.now())
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert writtenGames == [otherGameId]
+        }
+
+        when:
+        firstBatchReleased.countDown()
+
+        then:
+        new PollingConditions(timeout: 0.5, delay: 0.02).eventually {
+            assert writtenGames == [otherGameId, 1L]
+        }
+    }
+
+    def 'events of not existing cars are not written'() {
+        given:
+        writer.init()
+
+        when:
+        writer.store('notExistingCar', 1L, CarMoveType.FORWARD, 1, Instant.now())
+        writer.flush()
+
+        then:
+        writtenBatches.isEmpty()
+    }
+}
@@ -0,0 +1,39 @@
+package pl.speedapp.cargame.service.impl
+
+import pl.speedapp.cargame.db.filter.FiltersCarMovements
+import pl.speedapp.cargame.db.repository.CarMoveEventRepository
+import pl.speedapp.cargame.service.CarMoveEventWriter
+import pl.speedapp.cargame.service.MoveArchiveService
+import pl.speedapp.cargame.service.MoveJournalService
+import spock.lang.Specification
+
+class CarServiceImplTest extends Specification {
+
+    CarMoveEventRepository carMoveEventRepository = Mock()
+
+    MoveJournalService moveJournalService = Stub() {
+        isEnabled() >> false
+    }
+
+    MoveArchiveService moveArchiveService = Stub() {
+        isEnabled() >> true
+    }
+
+    CarServiceImpl carService = new CarServiceImpl(null, null, carMoveEventRepository, null, Mock(CarMoveEventWriter), null,
+            moveJournalService, moveArchiveService)
+
+    def 'moves are not read page by page from the table when the games are archived'() {
+        when:
+        carService.getCarMovementsPage(FiltersCarMovements.builder().build(), null, 10)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        when:
+        carService.streamCarMovements(FiltersCarMovements.builder().build(), null, {})
+
+        then:
+        thrown(IllegalArgumentException)
+        0 * carMoveEventRepository._
+    }
+}
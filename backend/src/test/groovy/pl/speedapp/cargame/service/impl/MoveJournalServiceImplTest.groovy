@@ -0,0 +1,94 @@
+package pl.speedapp.cargame.service.impl
+
+import pl.speedapp.cargame.db.enums.CarMoveType
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.db.filter.FiltersCarMovements
+import pl.speedapp.cargame.db.model.Game
+import pl.speedapp.cargame.db.projection.CarMoveEventView
+import pl.speedapp.cargame.db.repository.GameRepository
+import pl.speedapp.cargame.engine.journal.MoveJournal
+import pl.speedapp.cargame.service.CarReference
+import pl.speedapp.cargame.service.ClusterService
+import pl.speedapp.cargame.service.ReferenceCache
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Instant
+
+class MoveJournalServiceImplTest extends Specification {
+
+    Path directory = Files.createTempDirectory('moves')
+
+    ClusterService clusterService = Stub() {
+        isEnabled() >> false
+    }
+
+    GameRepository gameRepository = Mock()
+
+    ReferenceCache referenceCache = Mock()
+
+    MoveJournalServiceImpl moveJournalService = new MoveJournalServiceImpl(gameRepository, referenceCache, clusterService,
+            true, directory.toString())
+
+    def cleanup() {
+        moveJournalService.beforeDestroy()
+        directory.toFile().deleteDir()
+    }
+
+    def 'moves of the closed game are ignored and its journal is not opened again'() {
+        given:
+        Instant time = Instant.now()
+        moveJournalService.gameStarted(1L)
+        moveJournalService.store('car1', 1L, CarMoveType.FORWARD, 1, time)
+        moveJournalService.gameClosed(1L)
+
+        when:
+        moveJournalService.store('car1', 1L, CarMoveType.FORWARD, 1, time.plusNanos(1))
+        moveJournalService.storeRemoved('car1', 1L, time.plusNanos(2))
+
+        then:
+        moveJournalService.readJournal(1L, { it.size() }) == Optional.of(1)
+        moveJournalService.readJournal(1L, { it.isReadOnly() }) == Optional.of(true)
+    }
+
+    def 'restored game continues its journal'() {
+        given:
+        Instant time = Instant.now()
+        MoveJournal journal = MoveJournal.create(directory, 1L)
+        journal.append('car1', CarMoveType.FORWARD, 1, time)
+        journal.close()
+
+        when:
+        moveJournalService.gameRestored(1L)
+        moveJournalService.store('car1', 1L, CarMoveType.TURN_LEFT, null, time.plusNanos(1))
+
+        then:
+        moveJournalService.readJournal(1L, { it.size() }) == Optional.of(2)
+        moveJournalService.readJournal(1L, { it.isReadOnly() }) == Optional.of(false)
+    }
+
+    def 'moves of the deleted games and cars are skipped before the limit'() {
+        given:
+        Instant time = Instant.now()
+        [1L, 2L].each { moveJournalService.gameStarted(it) }
+        moveJournalService.store('car1', 1L, CarMoveType.FORWARD, 1, time)
+        moveJournalService.store('car1', 1L, CarMoveType.TURN_LEFT, null, time.plusNanos(1))
+        moveJournalService.store('deletedCar', 1L, CarMoveType.FORWARD, 1, time.plusNanos(2))
+        moveJournalService.store('car1', 2L, CarMoveType.FORWARD, 1, time.plusNanos(3))
+        gameRepository.findAllById(_) >> [Game.builder().id(1L).name('game1').build()]
+        referenceCache.getCar('car1') >> Optional.of(CarReference.builder().id(10L).name('car1').type(CarType.NORMAL).build())
+        referenceCache.getCar('deletedCar') >> Optional.empty()
+
+        when:
+        List<CarMoveEventView> moves = moveJournalService.getCarMovements(FiltersCarMovements.builder()
+                .gameIDs([1L, 2L].toSet())
+                .movementsLimit(2)
+                .build())
+
+        then:
+        moves*.eventType == [CarMoveType.TURN_LEFT, CarMoveType.FORWARD]
+        moves.every { it.gameId == 1L && it.carId == 10L }
+        moveJournalService.getJournalGameIds() == [1L, 2L].toSet()
+    }
+}
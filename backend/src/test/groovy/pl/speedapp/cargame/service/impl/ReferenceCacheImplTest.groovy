@@ -0,0 +1,82 @@
+package pl.speedapp.cargame.service.impl
+
+import pl.speedapp.cargame.db.enums.CarType
+import pl.speedapp.cargame.db.model.Car
+import pl.speedapp.cargame.db.repository.CarRepository
+import spock.lang.Specification
+
+class ReferenceCacheImplTest extends Specification {
+
+    CarRepository carRepository = Mock()
+
+    ReferenceCacheImpl referenceCache = new ReferenceCacheImpl(carRepository)
+
+    def 'car is loaded from the database only once'() {
+        given:
+        Car car = Car.builder().id(1L).name('testCar').type(CarType.RACER).build()
+
+        when:
+        def first = referenceCache.getCar('testCar')
+        def second = referenceCache.getCar('testCar')
+
+        then:
+        1 * carRepository.findByName('testCar') >> Optional.of(car)
+        first.get().id == 1L
+        first.get().type == CarType.RACER
+        second.get().is(first.get())
+        referenceCache.getMissesCount() == 1
+        referenceCache.getHitsCount() == 1
+    }
+
+    def 'not existing car is not cached'() {
+        when:
+        def first = referenceCache.getCar('testCar')
+        def second = referenceCache.getCar('testCar')
+
+        then:
+        2 * carRepository.findByName('testCar') >> Optional.empty()
+        !first.isPresent()
+        !second.isPresent()
+    }
+
+    def 'updated car replaces cached one'() {
+        given:
+        Car car = Car.builder().id(1L).name('testCar').type(CarType.NORMAL).build()
+        carRepository.findByName('testCar') >> Optional.of(car)
+        referenceCache.getCar('testCar')
+
+        when:
+        referenceCache.putCar(Car.builder().id(1L).name('testCar').type(CarType.NORMAL).crashed(true).build())
+
+        then:
+        referenceCache.getCar('testCar').get().crashed
+    }
+
+    def 'evicted car is loaded from the database again'() {
+        given:
+        referenceCache.putCar(Car.builder().id(1L).name('testCar').type(CarType.NORMAL).build())
+
+        when:
+        referenceCache.evictCar('testCar')
+        def car = referenceCache.getCar('testCar')
+
+        then:
+        1 * carRepository.findByName('testCar') >> Optional.empty()
+        !car.isPresent()
+    }
+
+    def 'running games are tracked until closed'() {
+        when:
+        referenceCache.gameStarted(1L)
+
+        then:
+        referenceCache.isGameRunning(1L)
+        !referenceCache.isGameRunning(2L)
+
+        when:
+        referenceCache.gameClosed(1L)
+
+        then:
+        !referenceCache.isGameRunning(1L)
+    }
+}
@@ -0,0 +1,88 @@
+package pl.speedapp.cargame.benchmark;
+
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.OnePositionMovement;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+import pl.speedapp.cargame.util.GameMapUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps and objects used by the benchmarks
+ */
+final class BenchmarkMaps {
+
+    static final String MAP_8X8 = "map_8x8";
+
+    // every STREET_SPACING row and column of the generated map is a road
+    private static final int STREET_SPACING = 4;
+
+    private BenchmarkMaps() {
+    }
+
+    /**
+     * @param name - name of the bundled map (without .csv) or size of the generated map, e.g. 256x256
+     */
+    static int[][] load(String name) {
+        if (MAP_8X8.equals(name)) {
+            return loadBundled(name);
+        }
+        return generate(Integer.parseInt(name.substring(0, name.indexOf('x'))));
+    }
+
+    /**
+     * Generate square map with streets in every few rows and columns, like city blocks
+     */
+    static int[][] generate(int size) {
+        int[][] map = new int[size][size];
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                boolean street = y % STREET_SPACING == 0 || x % STREET_SPACING == 0 || y == size - 1 || x == size - 1;
+                map[y][x] = street ? 1 : 0;
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Find disjoint pairs of roads placed one above the other. Car placed on the returned (lower) position and facing
+     * NORTH can move forward, rotate and go back forever without leaving its pair.
+     */
+    static List<Position> findLanes(int[][] map) {
+        List<Position> lanes = new ArrayList<>();
+        for (int x = 0; x < map.length; ++x) {
+            for (int y = 1; y < map.length; ++y) {
+                if (map[y][x] == 1 && map[y - 1][x] == 1) {
+                    lanes.add(new Position(x + 1, y + 1));
+                    y++;
+                }
+            }
+        }
+        return lanes;
+    }
+
+    static MovableObject newCar(String name) {
+        return MovableObject.builder()
+                .name(name)
+                .toughness(1)
+                .direction(Direction.NORTH)
+                .movementStrategy(new OnePositionMovement())
+                .build();
+    }
+
+    private static int[][] loadBundled(String name) {
+        try (InputStream csv = BenchmarkMaps.class.getResourceAsStream("/maps/" + name + ".csv")) {
+            if (csv == null) {
+                throw new IllegalArgumentException("Map [" + name + "] not found");
+            }
+            return GameMapUtil.convertCsvMapToArray(csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
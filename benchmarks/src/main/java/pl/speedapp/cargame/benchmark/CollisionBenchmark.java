@@ -0,0 +1,55 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collision of two cars with equal toughness: the car placed behind moves forward into the other one and both cars
+ * are destroyed, so the grid is empty again after each operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private static final String MOVING_CAR_NAME = "movingCar";
+
+    private static final String STANDING_CAR_NAME = "standingCar";
+
+    @Param({"HASH", "ARRAY", "STRIPED"})
+    private GridType gridType;
+
+    @Param({BenchmarkMaps.MAP_8X8, "256x256"})
+    private String map;
+
+    private Grid grid;
+
+    private Position lane;
+
+    private MoveForward moveForward;
+
+    @Setup
+    public void setUp() {
+        int[][] roads = BenchmarkMaps.load(map);
+        grid = GridFactory.createGrid(gridType, roads);
+        lane = BenchmarkMaps.findLanes(roads).get(0);
+        moveForward = new MoveForward(MOVING_CAR_NAME, 1);
+    }
+
+    @Benchmark
+    public void collision(Blackhole blackhole) {
+        grid.addObject(lane.getX(), lane.getY() - 1, BenchmarkMaps.newCar(STANDING_CAR_NAME));
+        grid.addObject(lane.getX(), lane.getY(), BenchmarkMaps.newCar(MOVING_CAR_NAME));
+        blackhole.consume(grid.handle(moveForward));
+    }
+}
@@ -0,0 +1,85 @@
+package pl.speedapp.cargame.benchmark;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.openjdk.jmh.annotations.*;
+import pl.speedapp.cargame.db.enums.CarType;
+import pl.speedapp.cargame.engine.car.CarCommand;
+import pl.speedapp.cargame.engine.car.CarCommandType;
+import pl.speedapp.cargame.engine.game.EngineMode;
+import pl.speedapp.cargame.engine.game.Game;
+import pl.speedapp.cargame.engine.game.GameSettings;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.events.Event;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the single car command from {@link Game#handle(CarCommand)} to the event received by the game manager
+ * event bus, through the whole game engine (game loop, car engine, grid and game events handling).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandRoundTripBenchmark {
+
+    private static final String CAR_NAME = "car";
+
+    // long enough to keep the game running during the whole benchmark
+    private static final int GAME_DURATION = 3600;
+
+    @Param({"THREAD_PER_CAR", "EVENT_LOOP"})
+    private EngineMode engineMode;
+
+    @Param({"HASH", "ARRAY", "STRIPED"})
+    private GridType gridType;
+
+    private ExecutorService threadPool;
+
+    private LinkedBlockingQueue<Event> gameManagerEventBus;
+
+    private Game game;
+
+    private CarCommand turnLeft;
+
+    @Setup
+    public void setUp() {
+        int[][] roads = BenchmarkMaps.load(BenchmarkMaps.MAP_8X8);
+        Position lane = BenchmarkMaps.findLanes(roads).get(0);
+
+        // game loops never finish by themselves, daemon threads let the benchmark JVM exit
+        threadPool = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).build());
+        gameManagerEventBus = new LinkedBlockingQueue<>();
+        game = new Game("benchmark", 1L, roads, gameManagerEventBus, GameSettings.builder()
+                .duration(GAME_DURATION)
+                .gridType(gridType)
+                .engineMode(engineMode)
+                .build());
+        game.start(threadPool);
+        game.addCar(CAR_NAME, CarType.NORMAL, lane.getX(), lane.getY());
+
+        turnLeft = CarCommand.builder().carName(CAR_NAME).type(CarCommandType.TURN_LEFT).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        // stops the car engine thread
+        game.removeCar(CAR_NAME);
+        threadPool.shutdown();
+    }
+
+    /**
+     * Turn is used as the command, because it never crashes the car
+     */
+    @Benchmark
+    public Event turnLeft() throws InterruptedException {
+        game.handle(turnLeft);
+        return gameManagerEventBus.take();
+    }
+}
@@ -0,0 +1,76 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of many cars moving at the same time on the single shared {@link Grid}. Every benchmark thread drives
+ * own car back and forth on its own lane, so cars never collide and only compete for the grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContendedGridMoveBenchmark {
+
+    @Param({"HASH", "ARRAY", "STRIPED"})
+    private GridType gridType;
+
+    @Param({BenchmarkMaps.MAP_8X8, "256x256", "1024x1024"})
+    private String map;
+
+    private Grid grid;
+
+    private List<Position> lanes;
+
+    private AtomicInteger nextLane;
+
+    @Setup
+    public void setUp() {
+        int[][] roads = BenchmarkMaps.load(map);
+        grid = GridFactory.createGrid(gridType, roads);
+        lanes = BenchmarkMaps.findLanes(roads);
+        nextLane = new AtomicInteger();
+    }
+
+    @State(Scope.Thread)
+    public static class CarState {
+
+        private MoveForward moveForward;
+
+        private Rotate rotate;
+
+        @Setup
+        public void setUp(ContendedGridMoveBenchmark benchmark) {
+            int lane = benchmark.nextLane.getAndIncrement();
+            if (lane >= benchmark.lanes.size()) {
+                throw new IllegalStateException("Map has only " + benchmark.lanes.size() + " lanes for benchmark threads");
+            }
+            String carName = "car" + lane;
+            Position position = benchmark.lanes.get(lane);
+            benchmark.grid.addObject(position.getX(), position.getY(), BenchmarkMaps.newCar(carName));
+
+            moveForward = new MoveForward(carName, 1);
+            rotate = new Rotate(carName);
+        }
+    }
+
+    @Benchmark
+    public void moveForward(CarState car, Blackhole blackhole) {
+        blackhole.consume(grid.handle(car.moveForward));
+        blackhole.consume(grid.handle(car.rotate));
+    }
+}
@@ -0,0 +1,32 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link Direction} turns alone, without the grid
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectionBenchmark {
+
+    private Direction direction = Direction.NORTH;
+
+    @Benchmark
+    public Direction turnLeft() {
+        direction = direction.turnLeft();
+        return direction;
+    }
+
+    @Benchmark
+    public Direction turnRight() {
+        direction = direction.turnRight();
+        return direction;
+    }
+}
@@ -0,0 +1,93 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.events.MoveEventSink;
+import pl.speedapp.cargame.engine.grid.movement.Direction;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+import pl.speedapp.cargame.engine.grid.objects.MovableObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocations of the single move forward on the {@link Grid}. Run with GC profiler to see allocated bytes per move
+ * ({@code gc.alloc.rate.norm}), moves of the array based grids passed to the reused sink should allocate 0 B/op:
+ * {@code java -jar benchmarks/target/benchmarks.jar GridMoveAllocationBenchmark -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridMoveAllocationBenchmark {
+
+    private static final String CAR_NAME = "car";
+
+    @Param({"HASH", "ARRAY", "STRIPED"})
+    private GridType gridType;
+
+    private Grid grid;
+
+    private MovableObject car;
+
+    private MoveForward moveForward;
+
+    private BlackholeSink sink;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        int[][] roads = BenchmarkMaps.load(BenchmarkMaps.MAP_8X8);
+        grid = GridFactory.createGrid(gridType, roads);
+        Position lane = BenchmarkMaps.findLanes(roads).get(0);
+        car = BenchmarkMaps.newCar(CAR_NAME);
+        int slot = grid.addObject(lane.getX(), lane.getY(), car).getObjectSlot();
+
+        moveForward = new MoveForward(CAR_NAME, slot, 1);
+        sink = new BlackholeSink(blackhole);
+    }
+
+    /**
+     * Move forward and rotate the object directly (rotation through the grid creates the event), so the car goes
+     * back and forth on its lane
+     */
+    @Benchmark
+    public void moveForwardToSink() {
+        grid.handle(moveForward, sink);
+        car.rotate();
+    }
+
+    /**
+     * Move forward with the result events list, for comparison
+     */
+    @Benchmark
+    public void moveForwardToEvents(Blackhole blackhole) {
+        blackhole.consume(grid.handle(moveForward));
+        car.rotate();
+    }
+
+    private static final class BlackholeSink implements MoveEventSink {
+
+        private final Blackhole blackhole;
+
+        private BlackholeSink(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void moved(String objectName, int objectSlot, int sourcePosition, int targetPosition, Direction direction) {
+            blackhole.consume(objectSlot);
+            blackhole.consume(targetPosition);
+            blackhole.consume(direction);
+        }
+
+        @Override
+        public void destroyed(String objectName, int objectSlot, int position, Direction direction) {
+            throw new IllegalStateException("Car [" + objectName + "] should never leave its lane");
+        }
+    }
+}
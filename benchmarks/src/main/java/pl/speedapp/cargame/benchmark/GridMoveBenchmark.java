@@ -0,0 +1,72 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.speedapp.cargame.engine.grid.Grid;
+import pl.speedapp.cargame.engine.grid.GridFactory;
+import pl.speedapp.cargame.engine.grid.GridType;
+import pl.speedapp.cargame.engine.grid.commands.MoveForward;
+import pl.speedapp.cargame.engine.grid.commands.Rotate;
+import pl.speedapp.cargame.engine.grid.commands.TurnLeft;
+import pl.speedapp.cargame.engine.grid.commands.TurnRight;
+import pl.speedapp.cargame.engine.grid.movement.Position;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the single car commands performed directly on the {@link Grid}, without any other car on the map
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridMoveBenchmark {
+
+    private static final String CAR_NAME = "car";
+
+    @Param({"HASH", "ARRAY", "STRIPED"})
+    private GridType gridType;
+
+    @Param({BenchmarkMaps.MAP_8X8, "256x256", "1024x1024"})
+    private String map;
+
+    private Grid grid;
+
+    private MoveForward moveForward;
+
+    private Rotate rotate;
+
+    private TurnLeft turnLeft;
+
+    private TurnRight turnRight;
+
+    @Setup
+    public void setUp() {
+        int[][] roads = BenchmarkMaps.load(map);
+        grid = GridFactory.createGrid(gridType, roads);
+        Position lane = BenchmarkMaps.findLanes(roads).get(0);
+        grid.addObject(lane.getX(), lane.getY(), BenchmarkMaps.newCar(CAR_NAME));
+
+        moveForward = new MoveForward(CAR_NAME, 1);
+        rotate = new Rotate(CAR_NAME);
+        turnLeft = new TurnLeft(CAR_NAME);
+        turnRight = new TurnRight(CAR_NAME);
+    }
+
+    /**
+     * Move forward and rotate, so the car goes back and forth on its lane
+     */
+    @Benchmark
+    public void moveForward(Blackhole blackhole) {
+        blackhole.consume(grid.handle(moveForward));
+        blackhole.consume(grid.handle(rotate));
+    }
+
+    @Benchmark
+    public void turnLeftAndRight(Blackhole blackhole) {
+        blackhole.consume(grid.handle(turnLeft));
+        blackhole.consume(grid.handle(turnRight));
+    }
+}
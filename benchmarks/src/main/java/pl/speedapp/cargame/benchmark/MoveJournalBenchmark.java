@@ -0,0 +1,75 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.speedapp.cargame.db.enums.CarMoveType;
+import pl.speedapp.cargame.engine.journal.MoveJournal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends to the memory-mapped {@link MoveJournal} of the single game and the scan of the whole journal. Journal is
+ * started again for every iteration, so it does not grow over the size of the single mapping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveJournalBenchmark {
+
+    private static final String[] CAR_NAMES = {"car1", "car2", "car3", "car4"};
+
+    private static final int SCANNED_MOVES = 100_000;
+
+    private Path directory;
+
+    private MoveJournal journal;
+
+    private MoveJournal scannedJournal;
+
+    private int move;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("move-journal");
+        journal = MoveJournal.create(directory, 1L);
+        scannedJournal = MoveJournal.create(directory, 2L);
+        for (int i = 0; i < SCANNED_MOVES; ++i) {
+            scannedJournal.append(CAR_NAMES[i & 3], CarMoveType.FORWARD, 1, i);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        journal.close();
+        scannedJournal.close();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Benchmark
+    public void append() {
+        int i = move++;
+        journal.append(CAR_NAMES[i & 3], (i & 1) == 0 ? CarMoveType.FORWARD : CarMoveType.TURN_LEFT, i & 1, i);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void scan(Blackhole blackhole) {
+        scannedJournal.scanBackward((carSlot, moveType, distance, timestamp) -> {
+            blackhole.consume(timestamp);
+            return true;
+        });
+    }
+}
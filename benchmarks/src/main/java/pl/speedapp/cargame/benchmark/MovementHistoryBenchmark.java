@@ -0,0 +1,250 @@
+package pl.speedapp.cargame.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.speedapp.cargame.api.model.CarMoveEventDto;
+import pl.speedapp.cargame.db.filter.FiltersCarMovements;
+import pl.speedapp.cargame.db.model.*;
+import pl.speedapp.cargame.db.repository.CarMoveEventRepository;
+import pl.speedapp.cargame.util.CarDtoUtil;
+
+import javax.persistence.criteria.Predicate;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single page of the car movements history read from the generated {@code car_move_event} table of the H2 file
+ * database, created by the application changelog. Moves are spread over 1000 games on 10 maps, with 10 cars in each
+ * game, so every car has {@code moves / 10000} moves and every map {@code moves / 10} moves.
+ * <p>
+ * Page is read by the projection query of the moves with their cars and games, or as before, by the move entities with
+ * the lazy car and game loaded while the page is mapped. Indexes of the history are dropped when they are disabled,
+ * indexes of the foreign keys are always there. Database is generated once, in {@code <tmp>/cargame-history-benchmark},
+ * the first run of 10 million moves takes about 10 minutes. It uses the page store of H2, the default MVStore grows by
+ * gigabytes while the table is generated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MovementHistoryBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(MovementHistoryBenchmark.class);
+
+    private static final int MAPS = 10;
+
+    private static final int GAMES = 1000;
+
+    private static final int CARS_IN_GAME = 10;
+
+    private static final int PAGE_SIZE = 100;
+
+    // H2 returns the last result again for the same query, so every next page is read for the next game, car or map
+    private static final int FILTERS = 64;
+
+    // moves are inserted in many transactions, so the undo log of the single insert doesn't grow too much
+    private static final int INSERT_BATCH = 100_000;
+
+    private static final String[] INDEXES = {
+            "IDX_car_move_event_game_time ON car_move_event (game_id, event_timestamp DESC, id DESC)",
+            "IDX_car_move_event_car_game_time ON car_move_event (car_id, game_id, event_timestamp DESC, id DESC)",
+            "IDX_game_map_name ON game_map (name)"
+    };
+
+    public enum HistoryFilter {
+        GAME, CAR, CAR_IN_GAME, MAP
+    }
+
+    @Param({"10000000"})
+    private int moves;
+
+    @Param({"true", "false"})
+    private boolean indexes;
+
+    @Param({"GAME", "CAR", "CAR_IN_GAME", "MAP"})
+    private HistoryFilter filter;
+
+    private ConfigurableApplicationContext context;
+
+    private CarMoveEventRepository repository;
+
+    private TransactionTemplate transaction;
+
+    private FiltersCarMovements[] filters;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        File directory = new File(System.getProperty("java.io.tmpdir"), "cargame-history-benchmark");
+        context = new SpringApplicationBuilder(HistoryDatabase.class)
+                .web(WebApplicationType.NONE)
+                // application.yml of the backend is not used
+                .properties("spring.config.name=history-benchmark",
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:file:" + new File(directory, "history-" + moves).getAbsolutePath() + ";MV_STORE=FALSE;CACHE_SIZE=262144",
+                        "spring.liquibase.change-log=classpath:db/changelog/db.changelog-master.xml",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "spring.jpa.open-in-view=false")
+                .run();
+        repository = context.getBean(CarMoveEventRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        generate(jdbcTemplate);
+        if (indexes) {
+            for (String index : INDEXES) {
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + index);
+            }
+        } else {
+            dropIndexes(jdbcTemplate);
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        filters = new FiltersCarMovements[FILTERS];
+        for (int i = 0; i < FILTERS; ++i) {
+            filters[i] = createFilters(i * (GAMES / FILTERS));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void projection(Blackhole blackhole) {
+        transaction.execute(status -> {
+            repository.findMoves(nextFilters(), null, PAGE_SIZE).forEach(move -> blackhole.consume(CarDtoUtil.mapMoveEventToDto(move)));
+            return null;
+        });
+    }
+
+    @Benchmark
+    public void entities(Blackhole blackhole) {
+        Sort sorting = Sort.by(Sort.Order.desc(CarMoveEvent_.eventTimestamp.getName()), Sort.Order.desc(CarMoveEvent_.id.getName()));
+        transaction.execute(status -> {
+            for (CarMoveEvent move : repository.findAll(entitySpecification(nextFilters()), PageRequest.of(0, PAGE_SIZE, sorting))) {
+                blackhole.consume(CarMoveEventDto.builder()
+                        .eventType(move.getEventType())
+                        .eventTime(move.getEventTimestamp().toInstant())
+                        .carId(move.getCar().getId())
+                        .carName(move.getCar().getName())
+                        .carType(move.getCar().getType().toString())
+                        .gameId(move.getGame().getId())
+                        .gameName(move.getGame().getName())
+                        .build());
+            }
+            return null;
+        });
+    }
+
+    private FiltersCarMovements nextFilters() {
+        next = (next + 1) % FILTERS;
+        return filters[next];
+    }
+
+    /**
+     * Filters of the given game, of its first car or of its map
+     */
+    private FiltersCarMovements createFilters(long game) {
+        String car = "car-" + (game * CARS_IN_GAME + 1);
+        switch (filter) {
+            case GAME:
+                return FiltersCarMovements.builder().gameIDs(Collections.singleton(game)).build();
+            case CAR:
+                return FiltersCarMovements.builder().carNames(Collections.singleton(car)).build();
+            case CAR_IN_GAME:
+                return FiltersCarMovements.builder().carNames(Collections.singleton(car)).gameIDs(Collections.singleton(game)).build();
+            default:
+                return FiltersCarMovements.builder().mapNames(Collections.singleton("map-" + game % MAPS)).build();
+        }
+    }
+
+    /**
+     * Filters of the move entities joining the car, the game and its map by their paths
+     */
+    private static Specification<CarMoveEvent> entitySpecification(FiltersCarMovements filters) {
+        return (root, query, cb) -> {
+            List<Predicate> where = new ArrayList<>();
+            filters.carNames(carNames -> where.add(root.get(CarMoveEvent_.car).get(Car_.name).in(carNames)));
+            filters.mapNames(mapNames -> where.add(root.get(CarMoveEvent_.game).get(Game_.map).get(GameMap_.name).in(mapNames)));
+            filters.gameIDs(gameIDs -> where.add(root.get(CarMoveEvent_.game).get(Game_.id).in(gameIDs)));
+            return cb.and(where.toArray(new Predicate[0]));
+        };
+    }
+
+    private void generate(JdbcTemplate jdbcTemplate) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM car_move_event", Integer.class);
+        if (count != null && count == moves) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        // indexes are created again after the table is generated
+        dropIndexes(jdbcTemplate);
+        jdbcTemplate.execute("DELETE FROM car_move_event");
+        jdbcTemplate.execute("DELETE FROM game_car");
+        jdbcTemplate.execute("DELETE FROM game");
+        jdbcTemplate.execute("DELETE FROM car");
+        jdbcTemplate.execute("DELETE FROM game_map");
+        jdbcTemplate.update("INSERT INTO game_map (id, name, map_size, status, roads) " +
+                "SELECT X - 1, 'map-' || (X - 1), 1, 'USED', '[[1]]' FROM SYSTEM_RANGE(1, ?)", MAPS);
+        jdbcTemplate.update("INSERT INTO game (id, name, status, started_at, finished_at, map_id) " +
+                "SELECT X - 1, 'game-' || (X - 1), 'FINISHED', TIMESTAMP '2018-01-01 00:00:00', TIMESTAMP '2018-01-02 00:00:00', MOD(X - 1, ?) " +
+                "FROM SYSTEM_RANGE(1, ?)", MAPS, GAMES);
+        jdbcTemplate.update("INSERT INTO car (id, name, type, crashed, used) " +
+                "SELECT X, 'car-' || X, 'NORMAL', FALSE, FALSE FROM SYSTEM_RANGE(1, ?)", GAMES * CARS_IN_GAME);
+        // every next move is the move of the next game, one millisecond later
+        for (int from = 1; from <= moves; from += INSERT_BATCH) {
+            jdbcTemplate.update("INSERT INTO car_move_event (car_id, game_id, event_type, distance, event_timestamp) " +
+                            "SELECT MOD(X, ?) * ? + MOD(X / ?, ?) + 1, MOD(X, ?), " +
+                            "CASE MOD(X, 3) WHEN 0 THEN 'FORWARD' WHEN 1 THEN 'TURN_LEFT' ELSE 'TURN_RIGHT' END, " +
+                            "CASE MOD(X, 3) WHEN 0 THEN 1 END, " +
+                            "DATEADD('MILLISECOND', X, TIMESTAMP '2018-01-01 00:00:00') " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    GAMES, CARS_IN_GAME, GAMES, CARS_IN_GAME, GAMES, from, Math.min(from + INSERT_BATCH - 1, moves));
+        }
+        log.info("[{}] moves generated in [{}] s", moves, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    private static void dropIndexes(JdbcTemplate jdbcTemplate) {
+        for (String index : INDEXES) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + index.substring(0, index.indexOf(' ')));
+        }
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class, LiquibaseAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = CarMoveEvent.class)
+    @EnableJpaRepositories(basePackageClasses = CarMoveEventRepository.class)
+    static class HistoryDatabase {
+    }
+}